@@ -26,9 +26,13 @@
 module org.tquadrat.foundation.tools
 {
     requires java.base;
+    requires jdk.jfr;
+    requires jdk.management;
     requires org.tquadrat.foundation.util;
     requires org.tquadrat.foundation.value;
     requires org.tquadrat.foundation.xml;
+
+    uses org.tquadrat.foundation.lang.StringConverter;
 }
 
 /*
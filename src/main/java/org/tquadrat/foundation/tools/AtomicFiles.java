@@ -0,0 +1,226 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.apiguardian.api.API.Status.INTERNAL;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.nonNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.UtilityClass;
+import org.tquadrat.foundation.exception.PrivateConstructorForStaticClassCalledError;
+
+/**
+ *  Replaces files atomically: the new contents are written to a temporary
+ *  file in the same directory that is then moved over the target.
+ *  <p>{@summary Readers of the target see either the old or the new
+ *  contents, never a partially written file.} The temporary file is
+ *  created with the default permissions for new files; before the move, it
+ *  gets the POSIX permissions of the target if that exists already, or
+ *  else those of the given source file, so that replacing a file, or
+ *  formatting it into another directory, does not change its
+ *  permissions.</p>
+ *  <p>If the target is a symbolic link, the file it points to is replaced,
+ *  and the link is kept. The contents of the temporary file are forced to
+ *  the storage device before the move, so that after a crash the target
+ *  holds either the old or the complete new contents.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = INTERNAL, since = "0.4.3" )
+@UtilityClass
+final class AtomicFiles
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  Writes the new contents to the temporary file.
+     *
+     *  @param  <E> The type of the exception that is thrown when the
+     *      contents cannot be created.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = INTERNAL, since = "0.4.3" )
+    @FunctionalInterface
+    interface ContentWriter<E extends Exception>
+    {
+        /**
+         *  Writes the contents to the given file.
+         *
+         *  @param  temp    The temporary file; it exists and is empty.
+         *  @throws IOException The file cannot be written.
+         *  @throws E   The contents cannot be created.
+         */
+        public void write( final Path temp ) throws IOException, E;
+    }
+    //  interface ContentWriter
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private AtomicFiles() { throw new PrivateConstructorForStaticClassCalledError( AtomicFiles.class ); }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Copies the POSIX permissions of the target, or of the given source
+     *  if the target does not exist yet, to the temporary file. Nothing is
+     *  done if the file system does not support POSIX permissions.
+     *
+     *  @param  temp    The temporary file.
+     *  @param  target  The target file.
+     *  @param  permissionSource    The file with the permissions for a new
+     *      target; can be {@code null}.
+     *  @throws IOException The permissions cannot be copied.
+     */
+    private static final void copyPermissions( final Path temp, final Path target, final Path permissionSource ) throws IOException
+    {
+        final var source = Files.exists( target ) ? target : permissionSource;
+        if( nonNull( source ) && Files.exists( source ) && Files.getFileStore( temp ).supportsFileAttributeView( PosixFileAttributeView.class ) )
+        {
+            Files.setPosixFilePermissions( temp, Files.getPosixFilePermissions( source ) );
+        }
+    }   //  copyPermissions()
+
+    /**
+     *  Creates an empty temporary file for the given target in the same
+     *  directory. Different from
+     *  {@link Files#createTempFile(Path, String, String, java.nio.file.attribute.FileAttribute[])},
+     *  the file gets the default permissions for new files, not
+     *  {@code rw-------}.
+     *
+     *  @param  target  The target file.
+     *  @return The temporary file.
+     *  @throws IOException The file cannot be created.
+     */
+    private static final Path createTemp( final Path target ) throws IOException
+    {
+        final var directory = target.toAbsolutePath().getParent();
+        Files.createDirectories( directory );
+        Path retValue = null;
+        while( retValue == null )
+        {
+            try
+            {
+                retValue = Files.createFile( directory.resolve( ".%s.%016x.tmp".formatted( target.getFileName(), ThreadLocalRandom.current().nextLong() ) ) );
+            }
+            catch( final FileAlreadyExistsException ignored ) { /* Try another name */ }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  createTemp()
+
+    /**
+     *  Replaces the given file with the given data.
+     *
+     *  @param  target  The target file.
+     *  @param  data    The new contents.
+     *  @throws IOException The file cannot be written.
+     */
+    static final void write( final Path target, final byte [] data ) throws IOException
+    {
+        requireNonNullArgument( data, "data" );
+        write( target, null, temp -> Files.write( temp, data ) );
+    }   //  write()
+
+    /**
+     *  Replaces the given file with the given text, encoded as UTF-8.
+     *
+     *  @param  target  The target file.
+     *  @param  text    The new contents.
+     *  @throws IOException The file cannot be written.
+     */
+    static final void write( final Path target, final CharSequence text ) throws IOException
+    {
+        requireNonNullArgument( text, "text" );
+        write( target, null, temp -> Files.writeString( temp, text, UTF8 ) );
+    }   //  write()
+
+    /**
+     *  Replaces the given file with the contents that are written by the
+     *  given writer. If the writer fails, the target is left unchanged. If
+     *  the target is a symbolic link, the file that it points to is
+     *  replaced.
+     *
+     *  @param  <E> The type of the exception that is thrown by the writer.
+     *  @param  target  The target file.
+     *  @param  permissionSource    The file with the permissions for the
+     *      target if it does not exist yet; {@code null} if a new target
+     *      gets the default permissions.
+     *  @param  contentWriter   The writer for the contents.
+     *  @throws IOException The file cannot be written.
+     *  @throws E   The writer failed.
+     */
+    static final <E extends Exception> void write( final Path target, final Path permissionSource, final ContentWriter<E> contentWriter ) throws IOException, E
+    {
+        requireNonNullArgument( contentWriter, "contentWriter" );
+
+        //---* Replace the file behind a symbolic link, not the link itself *--
+        final var realTarget = Files.exists( requireNonNullArgument( target, "target" ) ) ? target.toRealPath() : target;
+        final var temp = createTemp( realTarget );
+        try
+        {
+            contentWriter.write( temp );
+            copyPermissions( temp, realTarget, permissionSource );
+            try( final var channel = FileChannel.open( temp, WRITE ) )
+            {
+                channel.force( true );
+            }
+            Files.move( temp, realTarget, REPLACE_EXISTING, ATOMIC_MOVE );
+        }
+        finally
+        {
+            Files.deleteIfExists( temp );
+        }
+    }   //  write()
+}
+//  class AtomicFiles
+
+/*
+ *  End of File
+ */
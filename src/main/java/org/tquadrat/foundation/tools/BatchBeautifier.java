@@ -0,0 +1,1217 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.apiguardian.api.API.Status.INTERNAL;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.nonNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.DigestOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.ProgramClass;
+import org.tquadrat.foundation.exception.ValidationException;
+
+/**
+ *  Beautifies a batch of XML files in parallel.
+ *  <p>{@summary The sources can be files, directories (all files with the
+ *  extension {@code .xml} below the directory are processed) and glob
+ *  patterns like {@code config/**}{@code /*.xml}.} The files are formatted in
+ *  place, or – when an output directory is given – written to that
+ *  directory, keeping their paths relative to the source directory or to the
+ *  fixed part of the glob pattern.</p>
+ *  <p>Files that are compressed with gzip or zlib – like
+ *  {@code data.xml.gz} – are processed without decompressing them to disk
+ *  first; the output is compressed in the same format, as it keeps the
+ *  name of the source file. In directories, these files are picked up
+ *  together with the {@code .xml} files.</p>
+ *  <p>The files are processed in a pipeline with three stages that are
+ *  connected by bounded queues: the readers load the files into memory on
+ *  virtual threads, the workers – as many as configured – parse and format
+ *  them, and a single writer writes the results to the target files with
+ *  one large channel write per file. When a later stage falls behind, or
+ *  when the files in flight exceed the memory budget, the earlier stages
+ *  wait, so that both the disk and the CPUs are kept busy without running
+ *  out of memory. Files larger than
+ *  {@value #MAX_BUFFERED_FILE_SIZE}
+ *  bytes bypass the readers and the writer. The progress is reported in the
+ *  order of the sources, and a summary with the throughput and the failures
+ *  is printed at the end.</p>
+ *  <p>With the option
+ *  {@value #OPTION_INDEX},
+ *  the batch runs in incremental mode: a
+ *  {@link BeautifierIndex}
+ *  records the content hash of each file, and files that are unchanged
+ *  since the last run with the same options are skipped after hashing them,
+ *  without parsing them.</p>
+ *  <p>All files share a single
+ *  {@link BeautifierDiagnostics}
+ *  instance that does not echo the problems reported by the parser; their
+ *  counts are printed with the summary, and with the option
+ *  {@value XMLBeautifier#OPTION_DIAGNOSTICS},
+ *  the full report is written to the given file.</p>
+ *  <p>Command line:</p>
+ *  <pre><code>XMLBeautifier {@value XMLBeautifier#OPTION_BATCH} [{@value #OPTION_WORKERS} &lt;n&gt;] [{@value #OPTION_READERS} &lt;n&gt;] [{@value #OPTION_MEMORY} &lt;MB&gt;] [{@value #OPTION_OUTPUT} &lt;dir&gt;] [{@value #OPTION_INDEX} &lt;file&gt;] [{@value XMLBeautifier#OPTION_STREAM}] [{@value XMLBeautifier#OPTION_ENTITY_CACHE} &lt;dir&gt;] [{@value XMLBeautifier#OPTION_OFFLINE}|{@value XMLBeautifier#OPTION_NO_EXTERNAL_ENTITIES}] [{@value XMLBeautifier#OPTION_DIAGNOSTICS} &lt;file&gt; [{@value XMLBeautifier#OPTION_STACK_TRACES}]] &lt;source&gt; …</code></pre>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+@ProgramClass
+public final class BatchBeautifier
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  A single file to beautify.
+     *
+     *  @param  source  The source file.
+     *  @param  target  The target file; can be the same as the source.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    public record Job( Path source, Path target ) {}
+
+    /**
+     *  The outcome for a single file.
+     *
+     *  @param  job The job.
+     *  @param  bytes   The size of the source file in bytes.
+     *  @param  duration    The processing time in nanoseconds, from the
+     *      start of the read to the end of the write.
+     *  @param  failure The exception that caused the processing to fail;
+     *      {@code null} if the file was processed successfully.
+     *  @param  skipped {@code true} if the file was skipped in the
+     *      incremental mode, because it is unchanged since the last run.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    public record Outcome( Job job, long bytes, long duration, Throwable failure, boolean skipped )
+    {
+        /**
+         *  Returns whether the file was processed successfully.
+         *
+         *  @return {@code true} if the file was processed successfully,
+         *      {@code false} if it failed.
+         */
+        public final boolean isSuccess() { return isNull( failure ); }
+    }
+    //  record Outcome
+
+    /**
+     *  The summary for a batch run.
+     *
+     *  @param  outcomes    The outcomes for the single files, in the order
+     *      of the sources.
+     *  @param  duration    The overall processing time in nanoseconds.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    public record Summary( List<Outcome> outcomes, long duration )
+    {
+        /**
+         *  Returns the outcomes for the files that could not be processed.
+         *
+         *  @return The failures.
+         */
+        public final List<Outcome> failures()
+        {
+            final var retValue = outcomes.stream()
+                .filter( outcome -> !outcome.isSuccess() )
+                .toList();
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  failures()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final String toString()
+        {
+            final var seconds = Math.max( duration, 1L ) / 1.0e9;
+            final var bytes = outcomes.stream().mapToLong( Outcome::bytes ).sum();
+            final var skipped = outcomes.stream().filter( Outcome::skipped ).count();
+            final var retValue = "Processed %d files (%d skipped, %d failed) in %.3f s: %.1f files/s, %.2f MB/s"
+                .formatted( outcomes.size(), skipped, failures().size(), seconds, outcomes.size() / seconds, bytes / seconds / (1024.0 * 1024.0) );
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  toString()
+    }
+    //  record Summary
+
+    /**
+     *  A file that was read by the read stage of the
+     *  {@link Pipeline}.
+     *
+     *  @param  index   The index of the job.
+     *  @param  job The job.
+     *  @param  start   The start of the processing, in nanoseconds.
+     *  @param  data    The contents of the file; {@code null} if the file
+     *      is too large to be held in memory, or for the end marker.
+     *  @param  sourceHash  The content hash of the file; {@code null} if
+     *      the batch does not run in incremental mode.
+     *  @param  permits The number of bytes that were taken from the memory
+     *      budget for the input and the estimated output.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = INTERNAL, since = "0.4.3" )
+    private record Loaded( int index, Job job, long start, ByteBuffer data, String sourceHash, int permits ) {}
+
+    /**
+     *  A file that was formatted by the format stage of the
+     *  {@link Pipeline}.
+     *
+     *  @param  loaded  The file as it was read.
+     *  @param  output  The formatted (and maybe compressed) contents;
+     *      {@code null} for the end marker.
+     *  @param  targetHash  The content hash of the output; {@code null} if
+     *      the batch does not run in incremental mode.
+     *  @param  permits The number of bytes that were taken from the memory
+     *      budget for the input and the output.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = INTERNAL, since = "0.4.3" )
+    private record Formatted( Loaded loaded, ByteBuffer output, String targetHash, int permits ) {}
+
+    /**
+     *  An output buffer that provides its contents without copying them.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = INTERNAL, since = "0.4.3" )
+    private static final class OutputBuffer extends ByteArrayOutputStream
+    {
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new instance of {@code OutputBuffer}.
+         *
+         *  @param  size    The initial size.
+         */
+        public OutputBuffer( final int size ) { super( size ); }
+
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  Returns the contents of this buffer.
+         *
+         *  @return The contents; the returned buffer shares the memory with
+         *      this instance.
+         */
+        public final synchronized ByteBuffer toByteBuffer() { return ByteBuffer.wrap( buf, 0, count ); }
+    }
+    //  class OutputBuffer
+
+    /**
+     *  The stages for a single call to
+     *  {@link BatchBeautifier#run(List)}.
+     *  <p>{@summary The readers load the files into memory, the workers
+     *  format them, and the writer writes the results to the target files;
+     *  the stages are connected by bounded queues.} When the queues are
+     *  full, or when the files in flight use up the memory budget, the
+     *  earlier stages have to wait for the later ones (backpressure). Files
+     *  that are larger than
+     *  {@value #MAX_BUFFERED_FILE_SIZE}
+     *  bytes are not loaded into memory; the worker reads and writes them
+     *  directly.</p>
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = INTERNAL, since = "0.4.3" )
+    private final class Pipeline
+    {
+            /*------------*\
+        ====** Attributes **===================================================
+            \*------------*/
+        /**
+         *  The flag that indicates that the pipeline was aborted; the stages
+         *  stop taking new work, and they do not send the end markers
+         *  downstream, as nobody may take them any more.
+         */
+        private volatile boolean m_Aborted = false;
+
+        /**
+         *  The number of readers that are still running.
+         */
+        private final AtomicInteger m_ActiveReaders = new AtomicInteger( m_Readers );
+
+        /**
+         *  The number of workers that are still running.
+         */
+        private final AtomicInteger m_ActiveWorkers = new AtomicInteger( m_Workers );
+
+        /**
+         *  The memory budget, in bytes.
+         */
+        private final Semaphore m_Budget = new Semaphore( m_MemoryBudget );
+
+        /**
+         *  The queue for the formatted files.
+         */
+        private final BlockingQueue<Formatted> m_FormattedQueue = new ArrayBlockingQueue<>( m_Workers * 2 );
+
+        /**
+         *  The jobs.
+         */
+        private final List<Job> m_Jobs;
+
+        /**
+         *  The queue for the files that were read.
+         */
+        private final BlockingQueue<Loaded> m_LoadedQueue = new ArrayBlockingQueue<>( m_Workers * 2 );
+
+        /**
+         *  The index of the next job for the readers.
+         */
+        private final AtomicInteger m_NextJob = new AtomicInteger();
+
+        /**
+         *  The options that are recorded in the index.
+         */
+        private final String m_Options = getOptions();
+
+        /**
+         *  The outcomes, in the order of the jobs.
+         */
+        private final List<CompletableFuture<Outcome>> m_Outcomes;
+
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new instance of {@code Pipeline}.
+         *
+         *  @param  jobs    The jobs.
+         */
+        public Pipeline( final List<Job> jobs )
+        {
+            m_Jobs = jobs;
+            m_Outcomes = new ArrayList<>( jobs.size() );
+            for( var i = 0; i < jobs.size(); ++i ) m_Outcomes.add( new CompletableFuture<>() );
+        }   //  Pipeline()
+
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  Aborts the pipeline: completes the outcomes that are still pending
+         *  with the given failure, and drains the queues so that no stage
+         *  remains blocked on a full queue. This is called when a stage
+         *  terminates unexpectedly, or when the caller gives up, so that
+         *  nobody waits forever.
+         *
+         *  @param  failure The failure that terminated the stage.
+         */
+        private final void abort( final Throwable failure )
+        {
+            m_Aborted = true;
+            for( final var outcome : m_Outcomes ) outcome.completeExceptionally( failure );
+
+            //---* Release the budget that is held by the queued files *-------
+            final Collection<Loaded> loaded = new ArrayList<>();
+            m_LoadedQueue.drainTo( loaded );
+            for( final var entry : loaded ) m_Budget.release( entry.permits() );
+            final Collection<Formatted> formatted = new ArrayList<>();
+            m_FormattedQueue.drainTo( formatted );
+            for( final var entry : formatted ) m_Budget.release( entry.permits() );
+        }   //  abort()
+
+        /**
+         *  Sets the outcome for the job with the given index.
+         *
+         *  @param  index   The index of the job.
+         *  @param  outcome The outcome.
+         */
+        private final void complete( final int index, final Outcome outcome ) { m_Outcomes.get( index ).complete( outcome ); }
+
+        /**
+         *  Formats the given file.
+         *  <p>The reservation from the memory budget is adjusted to the
+         *  actual size of the output. If the estimate was too low, only what
+         *  is available is taken: waiting for more could deadlock with the
+         *  files in the queue that hold the rest of the budget.</p>
+         *
+         *  @param  loaded  The file.
+         *  @return The formatted file.
+         *  @throws Exception   The file could not be formatted.
+         */
+        private final Formatted format( final Loaded loaded ) throws Exception
+        {
+            final var data = loaded.data();
+            final var input = new ByteArrayInputStream( data.array(), data.arrayOffset() + data.position(), data.remaining() );
+            final var compression = Compression.detect( input );
+            final var beautifier = compression == Compression.NONE ? new XMLBeautifier( data.duplicate() ) : new XMLBeautifier( compression.decompress( input ) );
+            beautifier.setEngine( m_Engine );
+            beautifier.setDiagnostics( m_Diagnostics );
+            beautifier.setSystemId( loaded.job().source().toUri().toString() );
+            final var buffer = new OutputBuffer( Math.max( 0x1000, data.remaining() * OUTPUT_FACTOR ) );
+            try( final var outputStream = Compression.forFileName( loaded.job().target() ).compress( buffer ) )
+            {
+                if( m_Streaming )
+                {
+                    beautifier.process( outputStream );
+                }
+                else
+                {
+                    final var writer = new OutputStreamWriter( outputStream, UTF8 );
+                    writer.write( beautifier.process() );
+                    writer.flush();
+                }
+            }
+            final var output = buffer.toByteBuffer();
+            final var targetHash = isNull( m_Index ) ? null : BeautifierIndex.hash( output );
+
+            //---* Adjust the reservation to the actual output *---------------
+            var permits = loaded.permits();
+            final var required = (int) Math.min( (long) data.remaining() + output.remaining(), m_MemoryBudget );
+            if( required < permits )
+            {
+                m_Budget.release( permits - required );
+                permits = required;
+            }
+            else if( (required > permits) && m_Budget.tryAcquire( required - permits ) )
+            {
+                permits = required;
+            }
+            final var retValue = new Formatted( loaded, output, targetHash, permits );
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  format()
+
+        /**
+         *  The format stage: takes the files from the read stage, formats
+         *  them and hands them over to the write stage. Files that were not
+         *  loaded into memory are processed completely here.
+         *
+         *  @throws InterruptedException    The processing was interrupted.
+         */
+        @SuppressWarnings( "OverlyBroadCatchBlock" )
+        public final void formatStage() throws InterruptedException
+        {
+            try
+            {
+                for( var loaded = m_LoadedQueue.take(); nonNull( loaded.job() ) && !m_Aborted; loaded = m_LoadedQueue.take() )
+                {
+                    if( isNull( loaded.data() ) )
+                    {
+                        complete( loaded.index(), beautify( loaded.job() ) );
+                        continue;
+                    }
+                    try
+                    {
+                        m_FormattedQueue.put( format( loaded ) );
+                    }
+                    catch( final InterruptedException e )
+                    {
+                        throw e;
+                    }
+                    catch( final Throwable e )
+                    {
+                        m_Budget.release( loaded.permits() );
+                        if( !isNull( m_Index ) ) m_Index.remove( loaded.job().source() );
+                        complete( loaded.index(), new Outcome( loaded.job(), loaded.data().remaining(), System.nanoTime() - loaded.start(), e, false ) );
+                    }
+                }
+            }
+            catch( final Throwable t )
+            {
+                abort( t );
+                throw t;
+            }
+            finally
+            {
+                //---* The last worker terminates the write stage *------------
+                if( (m_ActiveWorkers.decrementAndGet() == 0) && !m_Aborted ) m_FormattedQueue.put( new Formatted( END_OF_INPUT, null, null, 0 ) );
+            }
+        }   //  formatStage()
+
+        /**
+         *  Returns the outcomes.
+         *
+         *  @return The outcomes, in the order of the jobs.
+         */
+        public final List<CompletableFuture<Outcome>> getOutcomes() { return m_Outcomes; }
+
+        /**
+         *  Reads the given file into memory.
+         *
+         *  @param  index   The index of the job.
+         *  @param  job The job.
+         *  @return The loaded file, or {@code null} if the file was skipped.
+         *  @throws IOException The file could not be read.
+         *  @throws InterruptedException    The processing was interrupted.
+         */
+        private final Loaded read( final int index, final Job job ) throws IOException, InterruptedException
+        {
+            final var start = System.nanoTime();
+            final var size = Files.size( job.source() );
+            final Loaded retValue;
+            if( size > MAX_BUFFERED_FILE_SIZE )
+            {
+                retValue = new Loaded( index, job, start, null, null, 0 );
+            }
+            else
+            {
+                final var permits = (int) Math.min( size * (1 + OUTPUT_FACTOR), m_MemoryBudget );
+                m_Budget.acquire( permits );
+                try
+                {
+                    final var data = ByteBuffer.allocate( (int) size );
+                    try( final var channel = FileChannel.open( job.source(), READ ) )
+                    {
+                        while( data.hasRemaining() && (channel.read( data ) >= 0) ) { /* Reads the file */ }
+                        if( data.hasRemaining() || (channel.size() != size) ) throw new IOException( "%s was modified while it was read".formatted( job.source() ) );
+                    }
+                    data.flip();
+                    final var sourceHash = isNull( m_Index ) ? null : BeautifierIndex.hash( data );
+                    if( nonNull( sourceHash ) && isUnchanged( job, sourceHash, m_Options ) )
+                    {
+                        m_Budget.release( permits );
+                        complete( index, new Outcome( job, size, System.nanoTime() - start, null, true ) );
+                        retValue = null;
+                    }
+                    else
+                    {
+                        retValue = new Loaded( index, job, start, data, sourceHash, permits );
+                    }
+                }
+                catch( final IOException | RuntimeException e )
+                {
+                    m_Budget.release( permits );
+                    throw e;
+                }
+            }
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  read()
+
+        /**
+         *  The read stage: takes the next job, reads the file and hands it
+         *  over to the format stage.
+         *
+         *  @throws InterruptedException    The processing was interrupted.
+         */
+        @SuppressWarnings( "OverlyBroadCatchBlock" )
+        public final void readStage() throws InterruptedException
+        {
+            try
+            {
+                for( var index = m_NextJob.getAndIncrement(); (index < m_Jobs.size()) && !m_Aborted; index = m_NextJob.getAndIncrement() )
+                {
+                    final var job = m_Jobs.get( index );
+                    try
+                    {
+                        final var loaded = read( index, job );
+                        if( nonNull( loaded ) ) m_LoadedQueue.put( loaded );
+                    }
+                    catch( final InterruptedException e )
+                    {
+                        throw e;
+                    }
+                    catch( final Throwable e )
+                    {
+                        if( !isNull( m_Index ) ) m_Index.remove( job.source() );
+                        complete( index, new Outcome( job, 0, 0, e, false ) );
+                    }
+                }
+            }
+            catch( final Throwable t )
+            {
+                abort( t );
+                throw t;
+            }
+            finally
+            {
+                //---* The last reader terminates the format stage *-----------
+                if( (m_ActiveReaders.decrementAndGet() == 0) && !m_Aborted )
+                {
+                    for( var i = 0; i < m_Workers; ++i ) m_LoadedQueue.put( END_OF_INPUT );
+                }
+            }
+        }   //  readStage()
+
+        /**
+         *  Writes the given file to its target.
+         *
+         *  @param  formatted   The formatted file.
+         */
+        @SuppressWarnings( "OverlyBroadCatchBlock" )
+        private final void write( final Formatted formatted )
+        {
+            final var loaded = formatted.loaded();
+            final var job = loaded.job();
+            Throwable failure = null;
+            try
+            {
+                AtomicFiles.write( job.target(), job.source(), temp ->
+                {
+                    final var output = formatted.output().duplicate();
+                    try( final var channel = FileChannel.open( temp, WRITE ) )
+                    {
+                        while( output.hasRemaining() ) channel.write( output );
+                    }
+                } );
+                if( !isNull( m_Index ) ) m_Index.put( job.source(), new BeautifierIndex.Entry( loaded.sourceHash(), formatted.targetHash(), m_Options ) );
+            }
+            catch( final Throwable e )
+            {
+                failure = e;
+                if( !isNull( m_Index ) ) m_Index.remove( job.source() );
+            }
+            finally
+            {
+                m_Budget.release( formatted.permits() );
+            }
+            complete( loaded.index(), new Outcome( job, loaded.data().remaining(), System.nanoTime() - loaded.start(), failure, false ) );
+        }   //  write()
+
+        /**
+         *  The write stage: takes the formatted files and writes them to
+         *  their targets.
+         *
+         *  @throws InterruptedException    The processing was interrupted.
+         */
+        @SuppressWarnings( "OverlyBroadCatchBlock" )
+        public final void writeStage() throws InterruptedException
+        {
+            try
+            {
+                for( var formatted = m_FormattedQueue.take(); nonNull( formatted.output() ) && !m_Aborted; formatted = m_FormattedQueue.take() )
+                {
+                    write( formatted );
+                }
+            }
+            catch( final Throwable t )
+            {
+                abort( t );
+                throw t;
+            }
+        }   //  writeStage()
+    }
+    //  class Pipeline
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The default memory budget for the files in flight, in bytes:
+     *  {@value}.
+     */
+    public static final int DEFAULT_MEMORY_BUDGET = 256 * 1024 * 1024;
+
+    /**
+     *  The default number of readers: {@value}.
+     */
+    public static final int DEFAULT_READERS = 4;
+
+    /**
+     *  The marker for the end of the input of the format stage.
+     */
+    private static final Loaded END_OF_INPUT = new Loaded( -1, null, 0L, null, null, 0 );
+
+    /**
+     *  The size in bytes up to that a file is loaded into memory by the
+     *  pipeline: {@value}. Larger files are read and written by the worker
+     *  directly.
+     */
+    public static final int MAX_BUFFERED_FILE_SIZE = 16 * 1024 * 1024;
+
+    /**
+     *  The estimate for the size of the output buffer, as a multiple of the
+     *  size of the input: {@value}.
+     */
+    private static final int OUTPUT_FACTOR = 2;
+
+    /**
+     *  The command line option for the index file that enables the
+     *  incremental mode: {@value}.
+     */
+    public static final String OPTION_INDEX = "--index";
+
+    /**
+     *  The command line option for the memory budget, in megabytes:
+     *  {@value}.
+     */
+    public static final String OPTION_MEMORY = "--memory";
+
+    /**
+     *  The command line option for the output directory: {@value}.
+     */
+    public static final String OPTION_OUTPUT = "--output";
+
+    /**
+     *  The command line option for the number of readers: {@value}.
+     */
+    public static final String OPTION_READERS = "--readers";
+
+    /**
+     *  The command line option for the number of workers: {@value}.
+     */
+    public static final String OPTION_WORKERS = "--workers";
+
+    /**
+     *  The pattern that identifies a glob pattern.
+     */
+    private static final Pattern GLOB_CHARACTERS = Pattern.compile( "[*?\\[{]" );
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The engine that is shared by all workers.
+     */
+    private final BeautifierEngine m_Engine;
+
+    /**
+     *  The collector for the problems that are reported by the parser.
+     */
+    private BeautifierDiagnostics m_Diagnostics = new BeautifierDiagnostics();
+
+    /**
+     *  The index for the incremental mode; {@code null} if all files are
+     *  processed.
+     */
+    private BeautifierIndex m_Index;
+
+    /**
+     *  The memory budget for the files in flight, in bytes.
+     */
+    private int m_MemoryBudget = DEFAULT_MEMORY_BUDGET;
+
+    /**
+     *  The output directory; {@code null} if the files are formatted in
+     *  place.
+     */
+    private final Path m_OutputDirectory;
+
+    /**
+     *  The number of files that are read concurrently.
+     */
+    private int m_Readers = DEFAULT_READERS;
+
+    /**
+     *  {@code true} if the files are processed in streaming mode,
+     *  {@code false} if the document tree is built.
+     */
+    private final boolean m_Streaming;
+
+    /**
+     *  The number of files that are processed concurrently.
+     */
+    private final int m_Workers;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code BatchBeautifier}.
+     *
+     *  @param  workers The number of files that are processed concurrently.
+     *  @param  outputDirectory The output directory; {@code null} if the
+     *      files should be formatted in place.
+     *  @param  streaming   {@code true} if the files should be processed in
+     *      streaming mode, {@code false} if the document tree should be
+     *      built.
+     */
+    public BatchBeautifier( final int workers, final Path outputDirectory, final boolean streaming )
+    {
+        if( workers < 1 ) throw new ValidationException( "workers is less than 1: %d".formatted( workers ) );
+        m_Workers = workers;
+        m_OutputDirectory = outputDirectory;
+        m_Streaming = streaming;
+        m_Engine = new BeautifierEngine( workers );
+    }   //  BatchBeautifier()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Beautifies a single file, without loading it into memory; this is
+     *  used for the files that are too large for the
+     *  {@linkplain Pipeline pipeline}.
+     *
+     *  @param  job The job.
+     *  @return The outcome.
+     */
+    @SuppressWarnings( "OverlyBroadCatchBlock" )
+    private final Outcome beautify( final Job job )
+    {
+        final var start = System.nanoTime();
+        var bytes = 0L;
+        Throwable failure = null;
+        var skipped = false;
+        try
+        {
+            bytes = Files.size( job.source() );
+
+            //---* Check whether the file was changed since the last run *-----
+            final var options = getOptions();
+            final var sourceHash = isNull( m_Index ) ? null : BeautifierIndex.hash( job.source() );
+            skipped = nonNull( sourceHash ) && isUnchanged( job, sourceHash, options );
+
+            if( !skipped )
+            {
+                final var beautifier = new XMLBeautifier( job.source() );
+                beautifier.setEngine( m_Engine );
+                beautifier.setDiagnostics( m_Diagnostics );
+                final var digest = BeautifierIndex.newDigest();
+                AtomicFiles.write( job.target(), job.source(), temp ->
+                {
+                    try( final var outputStream = Compression.forFileName( job.target() ).compress( new BufferedOutputStream( new DigestOutputStream( Files.newOutputStream( temp ), digest ), 0x10000 ) ) )
+                    {
+                        if( m_Streaming )
+                        {
+                            beautifier.process( outputStream );
+                        }
+                        else
+                        {
+                            final var writer = new OutputStreamWriter( outputStream, UTF8 );
+                            writer.write( beautifier.process() );
+                            writer.flush();
+                        }
+                    }
+                } );
+                if( !isNull( m_Index ) ) m_Index.put( job.source(), new BeautifierIndex.Entry( sourceHash, HexFormat.of().formatHex( digest.digest() ), options ) );
+            }
+        }
+        catch( final Throwable e )
+        {
+            failure = e;
+            if( !isNull( m_Index ) ) m_Index.remove( job.source() );
+        }
+
+        final var retValue = new Outcome( job, bytes, System.nanoTime() - start, failure, skipped );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  beautify()
+
+    /**
+     *  Returns the options that determine the output, together with the
+     *  {@linkplain XMLBeautifier#FORMAT_VERSION version of the output format};
+     *  they are recorded in the index, so that a file is processed again
+     *  when they are changed, or when the beautifier was changed.
+     *
+     *  @return The options.
+     */
+    private final String getOptions()
+    {
+        final var entities = m_Engine.getEntityResolver()
+            .map( entityResolver -> entityResolver instanceof final CachingEntityResolver cachingEntityResolver ? cachingEntityResolver.getPolicy().name() : entityResolver.getClass().getName() )
+            .orElse( "DEFAULT" );
+        final var retValue = "format=%d,mode=%s,entities=%s".formatted( XMLBeautifier.FORMAT_VERSION, m_Streaming ? "stream" : "tree", entities );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getOptions()
+
+    /**
+     *  Checks whether the source for the given job is unchanged since the
+     *  last run with the same options, according to the index.
+     *
+     *  @param  job The job.
+     *  @param  sourceHash  The current content hash of the source.
+     *  @param  options The current options.
+     *  @return {@code true} if the file can be skipped, {@code false} if it
+     *      has to be processed.
+     *  @throws IOException The target file cannot be read.
+     */
+    private final boolean isUnchanged( final Job job, final String sourceHash, final String options ) throws IOException
+    {
+        final var inPlace = job.source().toAbsolutePath().normalize().equals( job.target().toAbsolutePath().normalize() );
+        final var entry = m_Index.get( job.source() ).filter( e -> e.options().equals( options ) );
+        final var retValue = entry.isPresent() && (inPlace
+            ? sourceHash.equals( entry.get().targetHash() )
+            : sourceHash.equals( entry.get().sourceHash() ) && Files.isRegularFile( job.target() ) && BeautifierIndex.hash( job.target() ).equals( entry.get().targetHash() ));
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isUnchanged()
+
+    /**
+     *  Resolves the given sources to the jobs.
+     *
+     *  @param  sources The sources: files, directories or glob patterns.
+     *  @return The jobs, in the order of the sources; files that are matched
+     *      by more than one source are processed only once.
+     *  @throws IOException A directory cannot be read.
+     */
+    public final List<Job> collectJobs( final Collection<String> sources ) throws IOException
+    {
+        final Collection<Job> jobs = new LinkedHashSet<>();
+        for( final var source : requireNonNullArgument( sources, "sources" ) )
+        {
+            final var matcher = GLOB_CHARACTERS.matcher( source );
+            if( matcher.find() )
+            {
+                //---* The base directory is the part before the first glob character *---
+                final var separator = source.lastIndexOf( '/', matcher.start() );
+                final var base = Path.of( separator < 0 ? "." : source.substring( 0, separator + 1 ) );
+                final var pathMatcher = base.getFileSystem().getPathMatcher( "glob:" + source.substring( separator + 1 ) );
+                collectJobs( base, file -> pathMatcher.matches( base.relativize( file ) ), jobs );
+            }
+            else
+            {
+                final var path = Path.of( source );
+                if( Files.isDirectory( path ) )
+                {
+                    collectJobs( path, Compression::isXMLFileName, jobs );
+                }
+                else
+                {
+                    jobs.add( new Job( path, isNull( m_OutputDirectory ) ? path : m_OutputDirectory.resolve( path.getFileName() ) ) );
+                }
+            }
+        }
+        final var retValue = List.copyOf( jobs );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  collectJobs()
+
+    /**
+     *  Adds the jobs for the matching files below the given base directory.
+     *
+     *  @param  base    The base directory.
+     *  @param  filter  The filter for the files.
+     *  @param  jobs    The jobs.
+     *  @throws IOException The directory cannot be read.
+     */
+    private final void collectJobs( final Path base, final Predicate<Path> filter, final Collection<Job> jobs ) throws IOException
+    {
+        try( final Stream<Path> files = Files.walk( base ) )
+        {
+            files.filter( Files::isRegularFile )
+                .filter( filter )
+                .sorted()
+                .map( file -> new Job( file, isNull( m_OutputDirectory ) ? file : m_OutputDirectory.resolve( base.relativize( file ).toString() ) ) )
+                .forEach( jobs::add );
+        }
+    }   //  collectJobs()
+
+    /**
+     *  Returns the collector for the problems that are reported by the
+     *  parser; it is shared by all files.
+     *
+     *  @return The collector.
+     */
+    public final BeautifierDiagnostics getDiagnostics() { return m_Diagnostics; }
+
+    /**
+     *  Returns the engine that provides the parsers for the files.
+     *
+     *  @return The engine.
+     */
+    public final BeautifierEngine getEngine() { return m_Engine; }
+
+    /**
+     *  The program entry point.
+     *
+     *  @param  args    The command line arguments, without the leading
+     *      {@value XMLBeautifier#OPTION_BATCH}.
+     */
+    @SuppressWarnings( "OverlyBroadCatchBlock" )
+    public static final void main( final String... args )
+    {
+        try
+        {
+            var workers = Runtime.getRuntime().availableProcessors();
+            Path outputDirectory = null;
+            var streaming = false;
+            Path entityCache = null;
+            Path index = null;
+            var readers = DEFAULT_READERS;
+            var memoryBudget = DEFAULT_MEMORY_BUDGET;
+            var policy = CachingEntityResolver.Policy.RESOLVE;
+            Path diagnosticsReport = null;
+            var stackTraces = false;
+            final List<String> sources = new ArrayList<>();
+            for( var i = 0; i < args.length; ++i )
+            {
+                switch( args [i] )
+                {
+                    case OPTION_WORKERS -> workers = Integer.parseInt( args [++i] );
+                    case OPTION_OUTPUT -> outputDirectory = Path.of( args [++i] );
+                    case OPTION_INDEX -> index = Path.of( args [++i] );
+                    case OPTION_READERS -> readers = Integer.parseInt( args [++i] );
+                    case OPTION_MEMORY -> memoryBudget = Math.toIntExact( Long.parseLong( args [++i] ) * 1024L * 1024L );
+                    case XMLBeautifier.OPTION_STREAM -> streaming = true;
+                    case XMLBeautifier.OPTION_ENTITY_CACHE -> entityCache = Path.of( args [++i] );
+                    case XMLBeautifier.OPTION_OFFLINE -> policy = CachingEntityResolver.Policy.OFFLINE;
+                    case XMLBeautifier.OPTION_NO_EXTERNAL_ENTITIES -> policy = CachingEntityResolver.Policy.DISABLED;
+                    case XMLBeautifier.OPTION_DIAGNOSTICS -> diagnosticsReport = Path.of( args [++i] );
+                    case XMLBeautifier.OPTION_STACK_TRACES -> stackTraces = true;
+                    default -> sources.add( args [i] );
+                }
+            }
+            if( sources.isEmpty() )
+            {
+                err.printf( "Invalid Command Line Arguments: %s %s [missing Sources]%n", XMLBeautifier.class.getName(), XMLBeautifier.OPTION_BATCH );
+            }
+            else
+            {
+                final var processor = new BatchBeautifier( workers, outputDirectory, streaming );
+                processor.setReaders( readers );
+                processor.setMemoryBudget( memoryBudget );
+                processor.getDiagnostics().setKeepStackTraces( stackTraces );
+                final var entityResolver = isNull( entityCache ) && (policy == CachingEntityResolver.Policy.RESOLVE) ? null : new CachingEntityResolver( entityCache, policy, null );
+                processor.getEngine().setEntityResolver( entityResolver );
+                final var beautifierIndex = isNull( index ) ? null : BeautifierIndex.load( index );
+                processor.setIndex( beautifierIndex );
+                final var summary = processor.run( processor.collectJobs( sources ) );
+                if( !isNull( beautifierIndex ) ) beautifierIndex.save();
+                for( final var failure : summary.failures() )
+                {
+                    err.printf( "FAILED: %s: %s%n", failure.job().source(), failure.failure() );
+                }
+                out.println( summary );
+                processor.getDiagnostics().flush();
+                out.println( processor.getDiagnostics() );
+                if( !isNull( diagnosticsReport ) ) processor.getDiagnostics().writeReport( diagnosticsReport );
+                if( !isNull( entityResolver ) ) out.println( entityResolver );
+            }
+        }
+        catch( final Throwable t )
+        {
+            t.printStackTrace( err );
+        }
+    }   //  main()
+
+    /**
+     *  Processes the given jobs in a
+     *  {@linkplain Pipeline pipeline}
+     *  and reports the progress in the order of the jobs.
+     *
+     *  @param  jobs    The jobs.
+     *  @return The summary.
+     *  @throws InterruptedException    The processing was interrupted.
+     */
+    public final Summary run( final List<Job> jobs ) throws InterruptedException
+    {
+        final var start = System.nanoTime();
+        final var pipeline = new Pipeline( requireNonNullArgument( jobs, "jobs" ) );
+        final List<Outcome> outcomes = new ArrayList<>( jobs.size() );
+        try( final var ioExecutor = Executors.newVirtualThreadPerTaskExecutor(); final var formatExecutor = Executors.newFixedThreadPool( m_Workers ) )
+        {
+            var completed = false;
+            try
+            {
+                for( var i = 0; i < m_Readers; ++i )
+                {
+                    ioExecutor.submit( () ->
+                    {
+                        pipeline.readStage();
+                        return null;
+                    } );
+                }
+                for( var i = 0; i < m_Workers; ++i )
+                {
+                    formatExecutor.submit( () ->
+                    {
+                        pipeline.formatStage();
+                        return null;
+                    } );
+                }
+                ioExecutor.submit( () ->
+                {
+                    pipeline.writeStage();
+                    return null;
+                } );
+
+                final var width = Integer.toString( jobs.size() ).length();
+                for( final var future : pipeline.getOutcomes() )
+                {
+                    final Outcome outcome;
+                    try
+                    {
+                        outcome = future.get();
+                    }
+                    catch( final ExecutionException e )
+                    {
+                        throw new IllegalStateException( e.getCause() );
+                    }
+                    outcomes.add( outcome );
+                    out.printf( "[%" + width + "d/%d] %s %s (%d bytes, %d ms)%n",
+                        outcomes.size(),
+                        jobs.size(),
+                        outcome.isSuccess() ? (outcome.skipped() ? "SKIP  " : "OK    ") : "FAILED",
+                        outcome.job().source(),
+                        outcome.bytes(),
+                        outcome.duration() / 1_000_000L );
+                }
+                completed = !pipeline.m_Aborted;
+            }
+            finally
+            {
+                if( !completed )
+                {
+                    /*
+                     * A stage failed, or the caller was interrupted; stop the
+                     * stages, otherwise closing the executors would wait for
+                     * them forever.
+                     */
+                    pipeline.abort( new CancellationException( "The batch was aborted" ) );
+                    ioExecutor.shutdownNow();
+                    formatExecutor.shutdownNow();
+                }
+            }
+        }
+        final var retValue = new Summary( List.copyOf( outcomes ), System.nanoTime() - start );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  run()
+
+    /**
+     *  Sets the collector for the problems that are reported by the
+     *  parser.
+     *
+     *  @param  diagnostics The collector.
+     */
+    public final void setDiagnostics( final BeautifierDiagnostics diagnostics ) { m_Diagnostics = requireNonNullArgument( diagnostics, "diagnostics" ); }
+
+    /**
+     *  Sets the index for the incremental mode; files that did not change
+     *  since the last run are skipped then. The index is updated while the
+     *  files are processed, but it has to be
+     *  {@linkplain BeautifierIndex#save() saved}
+     *  by the caller.
+     *
+     *  @param  index   The index; {@code null} to process all files.
+     */
+    public final void setIndex( final BeautifierIndex index ) { m_Index = index; }
+
+    /**
+     *  Sets the memory budget for the files in flight: the readers wait
+     *  when the files that are read, formatted or written need more than
+     *  this. A file counts with its input and its output buffer; until it
+     *  is formatted, the output is estimated with twice the size of the
+     *  input. When the output turns out larger and the budget is exhausted,
+     *  the excess is not waited for, so the budget can be exceeded by that
+     *  amount.
+     *
+     *  @param  memoryBudget    The memory budget in bytes.
+     */
+    public final void setMemoryBudget( final int memoryBudget )
+    {
+        if( memoryBudget < 1 ) throw new ValidationException( "memoryBudget is less than 1: %d".formatted( memoryBudget ) );
+        m_MemoryBudget = memoryBudget;
+    }   //  setMemoryBudget()
+
+    /**
+     *  Sets the number of files that are read concurrently.
+     *
+     *  @param  readers The number of readers.
+     */
+    public final void setReaders( final int readers )
+    {
+        if( readers < 1 ) throw new ValidationException( "readers is less than 1: %d".formatted( readers ) );
+        m_Readers = readers;
+    }   //  setReaders()
+}
+//  class BatchBeautifier
+
+/*
+ *  End of File
+ */
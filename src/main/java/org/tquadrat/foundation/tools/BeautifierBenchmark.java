@@ -0,0 +1,168 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.System.out;
+import static org.apiguardian.api.API.Status.EXPERIMENTAL;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+
+import java.io.File;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.PlaygroundClass;
+import org.tquadrat.foundation.exception.PrivateConstructorForStaticClassCalledError;
+import org.tquadrat.foundation.lang.StringConverter;
+
+/**
+ *  The benchmark suite for
+ *  {@link XMLBeautifier}
+ *  and for the retrieval of
+ *  {@link StringConverter}
+ *  instances.
+ *  <p>{@summary The beautifier is measured in tree, streaming, minify and
+ *  parallel mode,
+ *  for all
+ *  {@linkplain XMLCorpus.Shape shapes}
+ *  of the generated corpus at several sizes.} The converter lookup is
+ *  measured for
+ *  {@link StringConverter#forClass(Class)}
+ *  with a few common subject classes, and for
+ *  {@link StringConverter#list()}.
+ *  For the tree mode, the hit rate of the
+ *  {@link NamespaceCache}
+ *  is reported, too.</p>
+ *  <p>Command line:</p>
+ *  <pre><code>BeautifierBenchmark [{@value #OPTION_QUICK}] [{@value #OPTION_OUTPUT} &lt;file&gt;]</code></pre>
+ *  <p>The results are printed as a table; with
+ *  {@value #OPTION_OUTPUT},
+ *  they are written as JSON to the given file, too.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = EXPERIMENTAL, since = "0.4.3" )
+@PlaygroundClass
+public final class BeautifierBenchmark
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The command line option for the JSON output file: {@value}.
+     */
+    public static final String OPTION_OUTPUT = BenchmarkLauncher.OPTION_OUTPUT;
+
+    /**
+     *  The command line option for a quick run with fewer iterations and
+     *  without the largest documents: {@value}.
+     */
+    public static final String OPTION_QUICK = BenchmarkLauncher.OPTION_QUICK;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private BeautifierBenchmark() { throw new PrivateConstructorForStaticClassCalledError( BeautifierBenchmark.class ); }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  The program entry point.
+     *
+     *  @param  args    The command line arguments.
+     */
+    public static final void main( final String... args )
+    {
+        BenchmarkLauncher.launch( args, Set.of(), BeautifierBenchmark::run );
+    }   //  main()
+
+    /**
+     *  Runs the benchmarks.
+     *
+     *  @param  launcher    The launcher with the command line options.
+     *  @throws Exception   A benchmark failed.
+     */
+    private static final void run( final BenchmarkLauncher launcher ) throws Exception
+    {
+        final var runner = launcher.isQuick() ? new BenchmarkRunner( 2, 3, 200 ) : new BenchmarkRunner( 5, 10, 1_000 );
+        final var sizes = launcher.isQuick() ? new int [] {16 * 1024, 1024 * 1024} : new int [] {16 * 1024, 1024 * 1024, 16 * 1024 * 1024};
+        final var parallelBeautifier = new ParallelBeautifier( ForkJoinPool.commonPool(), 64 * 1024 );
+
+        //---* The beautifier *------------------------------------------------
+        for( final var shape : XMLCorpus.Shape.values() )
+        {
+            for( final var size : sizes )
+            {
+                final var document = XMLCorpus.generate( shape, size );
+                final var bytes = document.getBytes( UTF8 ).length;
+                final var parameters = "%s/%dKB".formatted( shape, size / 1024 );
+                launcher.report( runner.run( "XMLBeautifier.tree", parameters, bytes, () -> new XMLBeautifier( document ).process() ) );
+                final var probe = new XMLBeautifier( document );
+                probe.process();
+                probe.getNamespaceCache().ifPresent( cache -> out.printf( "    %s%n", cache ) );
+                launcher.report( runner.run( "XMLBeautifier.streaming", parameters, bytes, () ->
+                {
+                    new XMLBeautifier( document ).process( Writer.nullWriter() );
+                    return document;
+                } ) );
+                launcher.report( runner.run( "XMLBeautifier.minify", parameters, bytes, () ->
+                {
+                    new XMLBeautifier( document ).minify( Writer.nullWriter() );
+                    return document;
+                } ) );
+                final var buffer = ByteBuffer.wrap( document.getBytes( UTF8 ) );
+                launcher.report( runner.run( "ParallelBeautifier", parameters, bytes, () ->
+                {
+                    parallelBeautifier.process( buffer, Writer.nullWriter() );
+                    return buffer;
+                } ) );
+            }
+        }
+
+        //---* The converter lookup *------------------------------------------
+        for( final var subjectClass : List.of( String.class, Integer.class, BigInteger.class, BigDecimal.class, URI.class, File.class, LocalDate.class, UUID.class ) )
+        {
+            launcher.report( runner.run( "StringConverter.forClass", subjectClass.getSimpleName(), 0, () -> StringConverter.forClass( subjectClass ) ) );
+        }
+        launcher.report( runner.run( "StringConverter.list", "-", 0, StringConverter::list ) );
+    }   //  run()
+}
+//  class BeautifierBenchmark
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,187 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+import static java.net.StandardProtocolFamily.UNIX;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.tools.BeautifierDaemon.COMMAND_FILE;
+import static org.tquadrat.foundation.tools.BeautifierDaemon.COMMAND_SHUTDOWN;
+import static org.tquadrat.foundation.tools.BeautifierDaemon.OPTION_SOCKET;
+import static org.tquadrat.foundation.tools.BeautifierDaemon.RESPONSE_OK;
+import static org.tquadrat.foundation.tools.BeautifierDaemon.readLine;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.ProgramClass;
+import org.tquadrat.foundation.exception.PrivateConstructorForStaticClassCalledError;
+
+/**
+ *  A thin client for the
+ *  {@link BeautifierDaemon}:
+ *  it sends the given files to the daemon and prints the beautified code to
+ *  stdout.
+ *  <p>This client is a JVM program itself, so each call pays for the
+ *  start-up of a JVM again; it does <em>not</em> meet the latency goal of
+ *  the daemon for single files. It is meant for tests and for the
+ *  processing of many files with one call. Editors and hooks should talk
+ *  to the daemon directly, for example with {@code socat}:</p>
+ *  <pre><code>printf '1 FILE %s\n' "$(realpath file.xml)" | socat -t 30 - UNIX-CONNECT:&lt;socket&gt; | tail -n +2</code></pre>
+ *  <p>Command line:</p>
+ *  <pre><code>BeautifierClient {@value BeautifierDaemon#OPTION_SOCKET} &lt;path&gt; [{@value #OPTION_SHUTDOWN}] &lt;file&gt; …</code></pre>
+ *  <p>The exit code is 1 if at least one file could not be processed.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+@ProgramClass
+public final class BeautifierClient
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The command line option that terminates the daemon after the files
+     *  were processed: {@value}.
+     */
+    public static final String OPTION_SHUTDOWN = "--shutdown";
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private BeautifierClient() { throw new PrivateConstructorForStaticClassCalledError( BeautifierClient.class ); }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  The program entry point.
+     *
+     *  @param  args    The command line arguments.
+     */
+    @SuppressWarnings( {"OverlyBroadCatchBlock", "CallToSystemExit"} )
+    public static final void main( final String... args )
+    {
+        var failed = false;
+        try
+        {
+            Path socket = null;
+            var shutdown = false;
+            var requestId = 0;
+            for( var i = 0; i < args.length; ++i )
+            {
+                if( OPTION_SOCKET.equals( args [i] ) ) socket = Path.of( args [++i] );
+                if( OPTION_SHUTDOWN.equals( args [i] ) ) shutdown = true;
+            }
+            if( isNull( socket ) )
+            {
+                err.printf( "Invalid Command Line Arguments: %s %s <path> [%s] <file> …%n", BeautifierClient.class.getName(), OPTION_SOCKET, OPTION_SHUTDOWN );
+                failed = true;
+            }
+            else
+            {
+                try( final var channel = SocketChannel.open( UNIX ) )
+                {
+                    channel.connect( UnixDomainSocketAddress.of( socket ) );
+                    final var input = new BufferedInputStream( Channels.newInputStream( channel ), 0x10000 );
+                    final var output = Channels.newOutputStream( channel );
+                    for( var i = 0; i < args.length; ++i )
+                    {
+                        if( OPTION_SOCKET.equals( args [i] ) )
+                        {
+                            ++i;
+                            continue;
+                        }
+                        if( OPTION_SHUTDOWN.equals( args [i] ) ) continue;
+
+                        final var file = Path.of( args [i] ).toAbsolutePath();
+                        output.write( "%d %s %s\n".formatted( ++requestId, COMMAND_FILE, file ).getBytes( UTF8 ) );
+                        output.flush();
+                        failed |= !receive( input, file );
+                    }
+                    if( shutdown )
+                    {
+                        output.write( "%d %s\n".formatted( ++requestId, COMMAND_SHUTDOWN ).getBytes( UTF8 ) );
+                        output.flush();
+                        receive( input, socket );
+                    }
+                }
+            }
+        }
+        catch( final Throwable t )
+        {
+            t.printStackTrace( err );
+            failed = true;
+        }
+        if( failed ) System.exit( 1 );
+    }   //  main()
+
+    /**
+     *  Receives a response and prints it.
+     *
+     *  @param  input   The input from the daemon.
+     *  @param  file    The file the response belongs to.
+     *  @return {@code true} if the request was successful, {@code false}
+     *      otherwise.
+     *  @throws IOException Reading the response failed.
+     */
+    private static final boolean receive( final BufferedInputStream input, final Path file ) throws IOException
+    {
+        final var header = readLine( input, Integer.MAX_VALUE );
+        if( isNull( header ) ) throw new EOFException( "The daemon closed the connection" );
+        final var parts = header.split( " ", 3 );
+        final var retValue = parts.length == 3 && RESPONSE_OK.equals( parts [1] );
+        if( retValue )
+        {
+            out.write( input.readNBytes( Integer.parseInt( parts [2] ) ) );
+            out.flush();
+        }
+        else
+        {
+            err.printf( "%s: %s%n", file, parts.length == 3 ? parts [2] : header );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  receive()
+}
+//  class BeautifierClient
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,749 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.System.err;
+import static java.lang.System.in;
+import static java.lang.System.out;
+import static java.net.StandardProtocolFamily.UNIX;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static org.apiguardian.api.API.Status.INTERNAL;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serial;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.ProgramClass;
+import org.tquadrat.foundation.exception.ValidationException;
+
+/**
+ *  A long-running process that beautifies XML documents on request, so that
+ *  editors and hooks do not pay for the start-up and warm-up of a JVM for
+ *  each file.
+ *  <p>{@summary The daemon accepts requests either on a Unix domain socket
+ *  ({@value #OPTION_SOCKET} &lt;path&gt;) or on stdin, writing the
+ *  responses to stdout ({@value #OPTION_STDIO}).} All requests are processed
+ *  concurrently on virtual threads, sharing one
+ *  {@link BeautifierEngine}.</p>
+ *  <p>The protocol is line based; a request is a single line with a request
+ *  id chosen by the client, a command and an optional argument:</p>
+ *  <dl>
+ *      <dt><code>&lt;id&gt; {@value #COMMAND_FILE} &lt;path&gt;</code></dt>
+ *      <dd>Beautifies the given file; the path should be absolute.</dd>
+ *      <dt><code>&lt;id&gt; {@value #COMMAND_DATA} &lt;length&gt;</code></dt>
+ *      <dd>Beautifies the XML code in the {@code length} bytes that follow
+ *      the request line; a request with more than
+ *      {@linkplain #setMaxPayload(int) the maximum payload}
+ *      ({@value #OPTION_MAX_PAYLOAD} &lt;MB&gt;) is rejected without reading
+ *      the data into memory.</dd>
+ *      <dt><code>&lt;id&gt; {@value #COMMAND_PING}</code></dt>
+ *      <dd>Returns an empty result.</dd>
+ *      <dt><code>&lt;id&gt; {@value #COMMAND_SHUTDOWN}</code></dt>
+ *      <dd>Terminates the daemon after the running requests are
+ *      finished.</dd>
+ *  </dl>
+ *  <p>The response is either <code>&lt;id&gt; {@value #RESPONSE_OK}
+ *  &lt;length&gt;</code>, followed by {@code length} bytes of UTF-8 encoded
+ *  output, or a single line <code>&lt;id&gt; {@value #RESPONSE_ERROR}
+ *  &lt;message&gt;</code>. On a socket, the requests of one connection are
+ *  answered in order; on stdin, the responses are written in the order in
+ *  which they complete, and the client has to correlate them by their
+ *  ids.</p>
+ *  <p>A request line must not be longer than
+ *  {@value #MAX_REQUEST_LINE}
+ *  bytes; a longer line is skipped and gets an error response, so that a
+ *  client cannot make the daemon buffer an unlimited amount of data.</p>
+ *  <p>The daemon reads the files of {@value #COMMAND_FILE} requests with
+ *  the permissions of the user that runs it, so only that user may send
+ *  requests: on a file system with POSIX permissions, the socket is created
+ *  with the permissions {@code rw-------}, and it becomes visible under its
+ *  path only after these permissions were set. On other file systems, the
+ *  socket should be placed in a directory that only the owner can access.
+ *  In the stdin/stdout mode, the requests come from the process that
+ *  started the daemon.</p>
+ *  <p>The protocol is simple enough to be spoken by tools like
+ *  {@code socat}, so that even the start-up of a client JVM can be avoided;
+ *  this is the supported way to call the daemon from editors and hooks:</p>
+ *  <pre><code>printf '1 FILE %s\n' "$(realpath file.xml)" | socat -t 30 - UNIX-CONNECT:&lt;socket&gt; | tail -n +2</code></pre>
+ *  <p>{@link BeautifierClient}
+ *  is a client written in Java; as it pays for the start-up of a JVM
+ *  itself, it is meant for tests and for the processing of many files with
+ *  one call.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+@ProgramClass
+public final class BeautifierDaemon implements AutoCloseable
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The exception that is thrown by
+     *  {@link BeautifierDaemon#readLine(InputStream, int)}
+     *  when a line is longer than allowed; the remainder of the line was
+     *  read and discarded.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = INTERNAL, since = "0.4.3" )
+    static final class LineTooLongException extends IOException
+    {
+            /*------------------------*\
+        ====** Static Initialisations **=======================================
+            \*------------------------*/
+        /**
+         *  The serial version UID for objects of this class: {@value}.
+         *
+         *  @hidden
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+            /*------------*\
+        ====** Attributes **===================================================
+            \*------------*/
+        /**
+         *  The start of the line, up to the maximum length.
+         */
+        private final String m_Start;
+
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new instance of {@code LineTooLongException}.
+         *
+         *  @param  start   The start of the line, up to the maximum length.
+         *  @param  maxLength   The maximum length of a line, in bytes.
+         */
+        public LineTooLongException( final String start, final int maxLength )
+        {
+            super( "Request line too long: more than %d bytes".formatted( maxLength ) );
+            m_Start = start;
+        }   //  LineTooLongException()
+
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  Returns the start of the line.
+         *
+         *  @return The start of the line, up to the maximum length.
+         */
+        public final String getStart() { return m_Start; }
+    }
+    //  class LineTooLongException
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The command to beautify inline XML code: {@value}.
+     */
+    public static final String COMMAND_DATA = "DATA";
+
+    /**
+     *  The command to beautify a file: {@value}.
+     */
+    public static final String COMMAND_FILE = "FILE";
+
+    /**
+     *  The command to check whether the daemon is alive: {@value}.
+     */
+    public static final String COMMAND_PING = "PING";
+
+    /**
+     *  The command to terminate the daemon: {@value}.
+     */
+    public static final String COMMAND_SHUTDOWN = "SHUTDOWN";
+
+    /**
+     *  The default for the maximum size of the data of a
+     *  {@value #COMMAND_DATA}
+     *  request, in bytes: {@value}.
+     */
+    public static final int DEFAULT_MAX_PAYLOAD = 64 * 1024 * 1024;
+
+    /**
+     *  The maximum length of a request line, in bytes: {@value}.
+     */
+    public static final int MAX_REQUEST_LINE = 4096;
+
+    /**
+     *  The command line option for the maximum size of the data of a
+     *  {@value #COMMAND_DATA}
+     *  request, in megabytes: {@value}.
+     */
+    public static final String OPTION_MAX_PAYLOAD = "--max-payload";
+
+    /**
+     *  The command line option for the Unix domain socket: {@value}.
+     */
+    public static final String OPTION_SOCKET = "--socket";
+
+    /**
+     *  The command line option for the stdin/stdout mode: {@value}.
+     */
+    public static final String OPTION_STDIO = "--stdio";
+
+    /**
+     *  The response for a failed request: {@value}.
+     */
+    public static final String RESPONSE_ERROR = "ERROR";
+
+    /**
+     *  The response for a successful request: {@value}.
+     */
+    public static final String RESPONSE_OK = "OK";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The engine that is shared by all requests.
+     */
+    private final BeautifierEngine m_Engine = new BeautifierEngine();
+
+    /**
+     *  The executor for the requests.
+     */
+    private final ExecutorService m_Executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     *  The maximum size of the data of a
+     *  {@value #COMMAND_DATA}
+     *  request, in bytes.
+     */
+    private int m_MaxPayload = DEFAULT_MAX_PAYLOAD;
+
+    /**
+     *  The server channel; {@code null} if the daemon does not listen on a
+     *  socket.
+     */
+    private volatile ServerSocketChannel m_ServerChannel;
+
+    /**
+     *  The flag that indicates whether the daemon is still running.
+     */
+    private volatile boolean m_Running = true;
+
+    /**
+     *  {@code true} if the documents are processed in streaming mode,
+     *  {@code false} if the document tree is built.
+     */
+    private final boolean m_Streaming;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code BeautifierDaemon}.
+     *
+     *  @param  streaming   {@code true} if the documents should be processed
+     *      in streaming mode, {@code false} if the document tree should be
+     *      built.
+     */
+    public BeautifierDaemon( final boolean streaming )
+    {
+        m_Streaming = streaming;
+    }   //  BeautifierDaemon()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Beautifies the XML code from the given beautifier.
+     *
+     *  @param  beautifier  The beautifier.
+     *  @return The UTF-8 encoded output.
+     *  @throws Exception   The XML code could not be processed.
+     */
+    private final byte [] beautify( final XMLBeautifier beautifier ) throws Exception
+    {
+        beautifier.setEngine( m_Engine );
+        final byte [] retValue;
+        if( m_Streaming )
+        {
+            final var buffer = new ByteArrayOutputStream( 8192 );
+            beautifier.process( buffer );
+            retValue = buffer.toByteArray();
+        }
+        else
+        {
+            retValue = beautifier.process().getBytes( UTF8 );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  beautify()
+
+    /**
+     *  Shuts the daemon down and waits until the running requests are
+     *  finished.
+     */
+    @Override
+    public final void close()
+    {
+        shutdown();
+        m_Executor.close();
+    }   //  close()
+
+    /**
+     *  Returns the message for an error response for the given exception.
+     *
+     *  @param  e   The exception.
+     *  @return The message; it is a single line.
+     */
+    private static final String describe( final Exception e )
+    {
+        final var retValue = isNull( e.getMessage() ) ? e.getClass().getName() : "%s: %s".formatted( e.getClass().getSimpleName(), e.getMessage().replaceAll( "\\R", " " ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  describe()
+
+    /**
+     *  Reads the given number of bytes from the given input stream and
+     *  discards them; unlike
+     *  {@link InputStream#skipNBytes(long)},
+     *  this works for pipes, too.
+     *
+     *  @param  source  The input stream.
+     *  @param  length  The number of bytes to discard.
+     *  @throws EOFException    The end of the stream was reached before
+     *      all bytes were read.
+     *  @throws IOException Reading failed.
+     */
+    private static final void discard( final InputStream source, final int length ) throws IOException
+    {
+        final var buffer = new byte [0x2000];
+        var remaining = length;
+        while( remaining > 0 )
+        {
+            final var count = source.read( buffer, 0, Math.min( buffer.length, remaining ) );
+            if( count < 0 ) throw new EOFException( "Incomplete data: %d of %d bytes".formatted( length - remaining, length ) );
+            remaining -= count;
+        }
+    }   //  discard()
+
+    /**
+     *  Executes a request and writes the response.
+     *
+     *  @param  id  The request id.
+     *  @param  command The command.
+     *  @param  argument    The argument; can be {@code null}.
+     *  @param  data    The payload for a {@value #COMMAND_DATA} request;
+     *      {@code null} for all other commands.
+     *  @param  target  The target for the response.
+     *  @throws IOException Writing the response failed.
+     */
+    @SuppressWarnings( "OverlyBroadCatchBlock" )
+    private final void execute( final String id, final String command, final String argument, final byte [] data, final OutputStream target ) throws IOException
+    {
+        byte [] result = null;
+        String message = null;
+        try
+        {
+            result = switch( command )
+            {
+                case COMMAND_FILE -> beautify( new XMLBeautifier( Path.of( requireNonNullArgument( argument, "argument" ) ) ) );
+                case COMMAND_DATA -> beautify( new XMLBeautifier( new ByteArrayInputStream( data ) ) );
+                case COMMAND_PING -> new byte [0];
+                case COMMAND_SHUTDOWN ->
+                {
+                    shutdown();
+                    yield new byte [0];
+                }
+                default -> throw new IllegalArgumentException( "Unknown command: %s".formatted( command ) );
+            };
+        }
+        catch( final Exception e )
+        {
+            message = describe( e );
+        }
+
+        //---* Write the response *--------------------------------------------
+        respond( id, result, message, target );
+    }   //  execute()
+
+    /**
+     *  Returns whether the daemon is still running.
+     *
+     *  @return {@code true} if the daemon accepts requests, {@code false}
+     *      if it was shut down.
+     */
+    public final boolean isRunning() { return m_Running; }
+
+    /**
+     *  The program entry point.
+     *
+     *  @param  args    The command line arguments.
+     */
+    @SuppressWarnings( "OverlyBroadCatchBlock" )
+    public static final void main( final String... args )
+    {
+        try
+        {
+            Path socket = null;
+            var stdio = false;
+            var streaming = false;
+            var maxPayload = DEFAULT_MAX_PAYLOAD;
+            for( var i = 0; i < args.length; ++i )
+            {
+                switch( args [i] )
+                {
+                    case OPTION_MAX_PAYLOAD -> maxPayload = Math.toIntExact( Long.parseLong( args [++i] ) * 1024L * 1024L );
+                    case OPTION_SOCKET -> socket = Path.of( args [++i] );
+                    case OPTION_STDIO -> stdio = true;
+                    case XMLBeautifier.OPTION_STREAM -> streaming = true;
+                    default -> throw new IllegalArgumentException( "Unknown argument: %s".formatted( args [i] ) );
+                }
+            }
+
+            try( final var daemon = new BeautifierDaemon( streaming ) )
+            {
+                daemon.setMaxPayload( maxPayload );
+                if( !isNull( socket ) )
+                {
+                    daemon.serve( socket );
+                }
+                else if( stdio )
+                {
+                    daemon.serve( in, out, true );
+                }
+                else
+                {
+                    err.printf( "Invalid Command Line Arguments: %s [%s] [%s <MB>] %s <path> | %s%n", BeautifierDaemon.class.getName(), XMLBeautifier.OPTION_STREAM, OPTION_MAX_PAYLOAD, OPTION_SOCKET, OPTION_STDIO );
+                }
+            }
+        }
+        catch( final Throwable t )
+        {
+            t.printStackTrace( err );
+        }
+    }   //  main()
+
+    /**
+     *  Reads a line from the given input stream; the line is terminated by
+     *  a newline character that will not be part of the result.
+     *
+     *  @param  source  The input stream.
+     *  @param  maxLength   The maximum length of the line in bytes, without
+     *      the newline character.
+     *  @return The line; {@code null} if the end of the stream was reached.
+     *  @throws LineTooLongException    The line is longer than
+     *      {@code maxLength}; the remainder of the line was discarded.
+     *  @throws IOException Reading failed.
+     */
+    static final String readLine( final InputStream source, final int maxLength ) throws IOException
+    {
+        final var buffer = new ByteArrayOutputStream( 128 );
+        var c = source.read();
+        if( c < 0 ) return null;
+        var tooLong = false;
+        while( c >= 0 && c != '\n' )
+        {
+            if( buffer.size() < maxLength )
+            {
+                buffer.write( c );
+            }
+            else
+            {
+                tooLong = true;
+            }
+            c = source.read();
+        }
+        if( tooLong ) throw new LineTooLongException( buffer.toString( UTF8 ), maxLength );
+        final var retValue = buffer.toString( UTF8 ).stripTrailing();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  readLine()
+
+    /**
+     *  Writes a response.
+     *
+     *  @param  id  The request id.
+     *  @param  result  The result; {@code null} for an error response.
+     *  @param  message The error message; ignored if {@code result} is not
+     *      {@code null}.
+     *  @param  target  The target for the response.
+     *  @throws IOException Writing the response failed.
+     */
+    private static final void respond( final String id, final byte [] result, final String message, final OutputStream target ) throws IOException
+    {
+        synchronized( target )
+        {
+            if( isNull( result ) )
+            {
+                target.write( "%s %s %s\n".formatted( id, RESPONSE_ERROR, message ).getBytes( UTF8 ) );
+            }
+            else
+            {
+                target.write( "%s %s %d\n".formatted( id, RESPONSE_OK, result.length ).getBytes( UTF8 ) );
+                target.write( result );
+            }
+            target.flush();
+        }
+    }   //  respond()
+
+    /**
+     *  Serves the requests from the given input stream and writes the
+     *  responses to the given output stream, until the end of the input is
+     *  reached or the daemon is shut down. A malformed request, like a
+     *  request line that is longer than
+     *  {@value #MAX_REQUEST_LINE}
+     *  bytes, or a {@value #COMMAND_DATA} request with an invalid length or
+     *  with incomplete data, gets an error response; it does not terminate
+     *  the loop. The data of a request that exceeds the maximum payload is
+     *  skipped, not read.
+     *
+     *  @param  source  The source for the requests.
+     *  @param  target  The target for the responses.
+     *  @param  concurrent  {@code true} if the requests should be processed
+     *      concurrently, {@code false} if they should be processed in
+     *      order.
+     *  @throws IOException Reading a request or writing a response failed.
+     */
+    public final void serve( final InputStream source, final OutputStream target, final boolean concurrent ) throws IOException
+    {
+        final var input = new BufferedInputStream( requireNonNullArgument( source, "source" ), 0x10000 );
+        final var output = new BufferedOutputStream( requireNonNullArgument( target, "target" ), 0x10000 );
+        while( m_Running )
+        {
+            final String line;
+            try
+            {
+                line = readLine( input, MAX_REQUEST_LINE );
+            }
+            catch( final LineTooLongException e )
+            {
+                respond( e.getStart().split( " ", 2 ) [0], null, describe( e ), output );
+                continue;
+            }
+            if( isNull( line ) ) break;
+            if( line.isBlank() ) continue;
+            final var parts = line.split( " ", 3 );
+            final var id = parts [0];
+            final var command = parts.length > 1 ? parts [1] : "";
+            final var argument = parts.length > 2 ? parts [2] : null;
+            byte [] data = null;
+            if( COMMAND_DATA.equals( command ) )
+            {
+                try
+                {
+                    final var length = Integer.parseInt( argument );
+                    if( length < 0 ) throw new NumberFormatException( "Negative length: %d".formatted( length ) );
+                    if( length > m_MaxPayload )
+                    {
+                        //---* Keep the stream in sync with the requests *-----
+                        discard( input, length );
+                        throw new IllegalArgumentException( "Payload too large: %d bytes, the maximum is %d".formatted( length, m_MaxPayload ) );
+                    }
+                    data = input.readNBytes( length );
+                    if( data.length < length ) throw new EOFException( "Incomplete data: %d of %d bytes".formatted( data.length, length ) );
+                }
+                catch( final IllegalArgumentException | EOFException e )
+                {
+                    //---* Invalid length, or end of input within the data *--
+                    respond( id, null, describe( e ), output );
+                    continue;
+                }
+            }
+
+            if( concurrent && !COMMAND_SHUTDOWN.equals( command ) )
+            {
+                final var payload = data;
+                m_Executor.execute( () ->
+                {
+                    try
+                    {
+                        execute( id, command, argument, payload, output );
+                    }
+                    catch( final IOException e )
+                    {
+                        e.printStackTrace( err );
+                    }
+                } );
+            }
+            else
+            {
+                execute( id, command, argument, data, output );
+            }
+        }
+    }   //  serve()
+
+    /**
+     *  Binds the given server channel to the given path. On a file system
+     *  with POSIX permissions, the socket is created in a private temporary
+     *  directory, restricted to the owner, and then moved to the given path,
+     *  so that no other user can connect in between.
+     *
+     *  @param  serverChannel   The server channel.
+     *  @param  socket  The path for the socket.
+     *  @throws IOException The socket cannot be created.
+     */
+    private static final void bind( final ServerSocketChannel serverChannel, final Path socket ) throws IOException
+    {
+        final var directory = socket.toAbsolutePath().getParent();
+        if( Files.getFileStore( directory ).supportsFileAttributeView( PosixFileAttributeView.class ) )
+        {
+            final var privateDirectory = Files.createTempDirectory( directory, ".beautifier", PosixFilePermissions.asFileAttribute( PosixFilePermissions.fromString( "rwx------" ) ) );
+            final var temp = privateDirectory.resolve( "socket" );
+            try
+            {
+                serverChannel.bind( UnixDomainSocketAddress.of( temp ) );
+                Files.setPosixFilePermissions( temp, PosixFilePermissions.fromString( "rw-------" ) );
+                Files.move( temp, socket, ATOMIC_MOVE );
+            }
+            finally
+            {
+                Files.deleteIfExists( temp );
+                Files.delete( privateDirectory );
+            }
+        }
+        else
+        {
+            serverChannel.bind( UnixDomainSocketAddress.of( socket ) );
+        }
+    }   //  bind()
+
+    /**
+     *  Listens on the given Unix domain socket and serves the requests of
+     *  each connection on a virtual thread, until the daemon is shut down.
+     *  On a file system with POSIX permissions, only the owner may connect
+     *  to the socket.
+     *
+     *  @param  socket  The path for the socket; an existing file will be
+     *      replaced, and the file will be deleted on termination.
+     *  @throws IOException The socket cannot be created.
+     */
+    public final void serve( final Path socket ) throws IOException
+    {
+        Files.deleteIfExists( requireNonNullArgument( socket, "socket" ) );
+        try( final var serverChannel = ServerSocketChannel.open( UNIX ) )
+        {
+            bind( serverChannel, socket );
+            m_ServerChannel = serverChannel;
+            while( m_Running )
+            {
+                final SocketChannel channel;
+                try
+                {
+                    channel = serverChannel.accept();
+                }
+                catch( final ClosedChannelException e )
+                {
+                    break;
+                }
+                m_Executor.execute( () ->
+                {
+                    try( channel )
+                    {
+                        serve( Channels.newInputStream( channel ), Channels.newOutputStream( channel ), false );
+                    }
+                    catch( final IOException e )
+                    {
+                        e.printStackTrace( err );
+                    }
+                } );
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists( socket );
+        }
+    }   //  serve()
+
+    /**
+     *  Sets the maximum size of the data of a
+     *  {@value #COMMAND_DATA}
+     *  request; the default is
+     *  {@value #DEFAULT_MAX_PAYLOAD}
+     *  bytes.
+     *
+     *  @param  maxPayload  The maximum size in bytes.
+     */
+    public final void setMaxPayload( final int maxPayload )
+    {
+        if( maxPayload < 1 ) throw new ValidationException( "maxPayload is less than 1: %d".formatted( maxPayload ) );
+        m_MaxPayload = maxPayload;
+    }   //  setMaxPayload()
+
+    /**
+     *  Shuts the daemon down; the running requests will be finished, but no
+     *  new requests are accepted.
+     */
+    public final void shutdown()
+    {
+        m_Running = false;
+        final var serverChannel = m_ServerChannel;
+        if( !isNull( serverChannel ) )
+        {
+            try
+            {
+                serverChannel.close();
+            }
+            catch( final IOException e )
+            {
+                e.printStackTrace( err );
+            }
+        }
+    }   //  shutdown()
+}
+//  class BeautifierDaemon
+
+/*
+ *  End of File
+ */
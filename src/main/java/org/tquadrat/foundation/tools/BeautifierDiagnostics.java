@@ -0,0 +1,621 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.nonNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.exception.ValidationException;
+import org.xml.sax.SAXParseException;
+
+/**
+ *  Collects the problems that the parser reports while
+ *  {@link XMLBeautifier}
+ *  processes XML code.
+ *  <p>{@summary Each problem is recorded with its severity, the system ID
+ *  of the document, the line and column, and the message; repeated
+ *  problems with the same severity and message in the same document are
+ *  recorded only once, together with the number of their occurrences.}
+ *  The number of distinct problems that are kept is limited; beyond that
+ *  limit, problems are only counted. The counts per severity are always
+ *  exact.</p>
+ *  <p>The collected problems can be retrieved with
+ *  {@link #getDiagnostics()},
+ *  or as a JSON report with
+ *  {@link #toJSON()}.
+ *  Optionally, the first occurrence of each problem is echoed to a
+ *  {@link PrintStream},
+ *  limited to a number of lines per second. The exceptions with their
+ *  stack traces are kept only if this was requested with
+ *  {@link #setKeepStackTraces(boolean)}.</p>
+ *  <p>Instances of this class are thread-safe; a single instance can be
+ *  shared by all the beautifiers of a batch run.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public final class BeautifierDiagnostics
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The severities of the problems, as reported by the parser.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    public enum Severity
+    {
+        /**
+         *  A warning.
+         */
+        WARNING,
+
+        /**
+         *  A recoverable error, like a validity error.
+         */
+        ERROR,
+
+        /**
+         *  A fatal error, like a well-formedness error; the parser stops
+         *  after it.
+         */
+        FATAL_ERROR
+    }
+    //  enum Severity
+
+    /**
+     *  A problem that was reported by the parser.
+     *
+     *  @param  severity    The severity.
+     *  @param  systemId    The system ID of the document; {@code null} if
+     *      it is not known.
+     *  @param  lineNumber  The line of the first occurrence; -1 if it is
+     *      not known.
+     *  @param  columnNumber    The column of the first occurrence; -1 if
+     *      it is not known.
+     *  @param  message The message.
+     *  @param  occurrences The number of occurrences.
+     *  @param  exception   The exception for the first occurrence;
+     *      {@code null} if the stack traces are not kept.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    public record Diagnostic( Severity severity, String systemId, int lineNumber, int columnNumber, String message, long occurrences, SAXParseException exception )
+    {
+        /**
+         *  Returns the diagnostic as a JSON object.
+         *
+         *  @return The JSON object.
+         */
+        public final String toJSON()
+        {
+            final var buffer = new StringBuilder( "{\"severity\":\"" ).append( severity.name() )
+                .append( "\",\"systemId\":" ).append( JSONSupport.quote( systemId ) )
+                .append( ",\"line\":" ).append( lineNumber )
+                .append( ",\"column\":" ).append( columnNumber )
+                .append( ",\"message\":" ).append( JSONSupport.quote( message ) )
+                .append( ",\"occurrences\":" ).append( occurrences );
+            if( nonNull( exception ) )
+            {
+                final var stackTrace = new StringWriter();
+                exception.printStackTrace( new PrintWriter( stackTrace ) );
+                buffer.append( ",\"stackTrace\":" ).append( JSONSupport.quote( stackTrace.getBuffer() ) );
+            }
+            final var retValue = buffer.append( '}' ).toString();
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  toJSON()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final String toString()
+        {
+            final var retValue = "%s:%d:%d: %s: %s%s".formatted(
+                isNull( systemId ) ? "[unknown]" : systemId,
+                lineNumber,
+                columnNumber,
+                severity,
+                message,
+                occurrences > 1 ? " (%d times)".formatted( occurrences ) : "" );
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  toString()
+    }
+    //  record Diagnostic
+
+    /**
+     *  The key for the deduplication of the problems.
+     *
+     *  @param  severity    The severity.
+     *  @param  systemId    The system ID of the document.
+     *  @param  message The message.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = INTERNAL, since = "0.4.3" )
+    private record Key( Severity severity, String systemId, String message ) {}
+
+    /**
+     *  The record for a distinct problem.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    private static final class Entry
+    {
+            /*------------*\
+        ====** Attributes **===================================================
+            \*------------*/
+        /**
+         *  The column of the first occurrence.
+         */
+        private final int m_ColumnNumber;
+
+        /**
+         *  The exception for the first occurrence; {@code null} if the stack
+         *  traces are not kept.
+         */
+        private final SAXParseException m_Exception;
+
+        /**
+         *  The key.
+         */
+        private final Key m_Key;
+
+        /**
+         *  The line of the first occurrence.
+         */
+        private final int m_LineNumber;
+
+        /**
+         *  The number of occurrences.
+         */
+        private final LongAdder m_Occurrences = new LongAdder();
+
+        /**
+         *  The sequence number, to keep the order of the first occurrences.
+         */
+        private final long m_Sequence;
+
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new instance of {@code Entry}.
+         *
+         *  @param  key The key.
+         *  @param  sequence    The sequence number.
+         *  @param  exception   The exception for the first occurrence.
+         *  @param  keepException   {@code true} if the exception should be
+         *      kept, {@code false} otherwise.
+         */
+        public Entry( final Key key, final long sequence, final SAXParseException exception, final boolean keepException )
+        {
+            m_Key = key;
+            m_Sequence = sequence;
+            m_LineNumber = exception.getLineNumber();
+            m_ColumnNumber = exception.getColumnNumber();
+            m_Exception = keepException ? exception : null;
+        }   //  Entry()
+
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  Returns the diagnostic for this entry.
+         *
+         *  @return The diagnostic.
+         */
+        public final Diagnostic toDiagnostic()
+        {
+            return new Diagnostic( m_Key.severity(), m_Key.systemId(), m_LineNumber, m_ColumnNumber, m_Key.message(), m_Occurrences.sum(), m_Exception );
+        }   //  toDiagnostic()
+    }
+    //  class Entry
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The default number of lines per second for the echo: {@value}.
+     */
+    public static final int DEFAULT_ECHO_RATE = 10;
+
+    /**
+     *  The default maximum number of distinct problems that are kept:
+     *  {@value}.
+     */
+    public static final int DEFAULT_MAX_DIAGNOSTICS = 1000;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The number of problems per severity.
+     */
+    private final AtomicLongArray m_Counts = new AtomicLongArray( Severity.values().length );
+
+    /**
+     *  The target for the echo; {@code null} if the problems are not
+     *  echoed.
+     */
+    private volatile PrintStream m_Echo;
+
+    /**
+     *  The number of lines that were echoed in the current second.
+     */
+    private int m_EchoCount = 0;
+
+    /**
+     *  The maximum number of lines per second for the echo.
+     */
+    private volatile int m_EchoRate = DEFAULT_ECHO_RATE;
+
+    /**
+     *  The number of lines that were not echoed in the current second.
+     */
+    private long m_EchoSuppressed = 0L;
+
+    /**
+     *  The start of the current second for the echo.
+     */
+    private long m_EchoWindowStart = 0L;
+
+    /**
+     *  The distinct problems.
+     */
+    private final Map<Key,Entry> m_Entries = new ConcurrentHashMap<>();
+
+    /**
+     *  {@code true} if the exceptions are kept with their stack traces,
+     *  {@code false} otherwise.
+     */
+    private volatile boolean m_KeepStackTraces = false;
+
+    /**
+     *  The maximum number of distinct problems that are kept.
+     */
+    private volatile int m_MaxDiagnostics = DEFAULT_MAX_DIAGNOSTICS;
+
+    /**
+     *  The source for the sequence numbers of the entries.
+     */
+    private final AtomicLong m_Sequence = new AtomicLong();
+
+    /**
+     *  The number of occurrences that were not kept because the limit for
+     *  distinct problems was reached.
+     */
+    private final LongAdder m_Suppressed = new LongAdder();
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code BeautifierDiagnostics} that does not
+     *  echo the problems.
+     */
+    public BeautifierDiagnostics() { this( null ); }
+
+    /**
+     *  Creates a new instance of {@code BeautifierDiagnostics} that echoes
+     *  the first occurrence of each problem to the given target, with at
+     *  most
+     *  {@value #DEFAULT_ECHO_RATE}
+     *  lines per second.
+     *
+     *  @param  echo    The target for the echo; {@code null} if the
+     *      problems should not be echoed.
+     */
+    public BeautifierDiagnostics( final PrintStream echo )
+    {
+        m_Echo = echo;
+    }   //  BeautifierDiagnostics()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Removes all problems and resets the counts.
+     */
+    public final void clear()
+    {
+        m_Entries.clear();
+        for( var i = 0; i < m_Counts.length(); ++i ) m_Counts.set( i, 0L );
+        m_Suppressed.reset();
+    }   //  clear()
+
+    /**
+     *  Echoes the given problem, if the limit for the current second is not
+     *  yet reached.
+     *
+     *  @param  target  The target for the echo.
+     *  @param  diagnostic  The problem.
+     */
+    private final synchronized void echo( final PrintStream target, final Diagnostic diagnostic )
+    {
+        final var now = System.nanoTime();
+        if( now - m_EchoWindowStart >= TimeUnit.SECONDS.toNanos( 1 ) )
+        {
+            if( m_EchoSuppressed > 0 ) target.printf( "… %d more problems were not shown%n", m_EchoSuppressed );
+            m_EchoWindowStart = now;
+            m_EchoCount = 0;
+            m_EchoSuppressed = 0L;
+        }
+        if( m_EchoCount < m_EchoRate )
+        {
+            ++m_EchoCount;
+            target.println( diagnostic );
+            if( nonNull( diagnostic.exception() ) ) diagnostic.exception().printStackTrace( target );
+        }
+        else
+        {
+            ++m_EchoSuppressed;
+        }
+    }   //  echo()
+
+    /**
+     *  Writes the number of the problems that were not echoed because of
+     *  the rate limit, if there are any; this should be called when a burst
+     *  of problems might be over, like at the end of a document or before
+     *  the report is written.
+     */
+    public final synchronized void flush()
+    {
+        final var echo = m_Echo;
+        if( nonNull( echo ) && (m_EchoSuppressed > 0) ) echo.printf( "… %d more problems were not shown%n", m_EchoSuppressed );
+        m_EchoSuppressed = 0L;
+    }   //  flush()
+
+    /**
+     *  Returns the number of problems with the given severity, including
+     *  repeated ones.
+     *
+     *  @param  severity    The severity.
+     *  @return The number of problems.
+     */
+    public final long getCount( final Severity severity ) { return m_Counts.get( requireNonNullArgument( severity, "severity" ).ordinal() ); }
+
+    /**
+     *  Returns the distinct problems, in the order of their first
+     *  occurrence.
+     *
+     *  @return The problems.
+     */
+    public final List<Diagnostic> getDiagnostics()
+    {
+        final var retValue = m_Entries.values().stream()
+            .sorted( Comparator.comparingLong( entry -> entry.m_Sequence ) )
+            .map( Entry::toDiagnostic )
+            .toList();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getDiagnostics()
+
+    /**
+     *  Returns the number of occurrences of problems that were only counted
+     *  because the limit for distinct problems was reached.
+     *
+     *  @return The number of occurrences.
+     */
+    public final long getSuppressedCount() { return m_Suppressed.sum(); }
+
+    /**
+     *  Returns the total number of problems, including repeated ones.
+     *
+     *  @return The number of problems.
+     */
+    public final long getTotalCount()
+    {
+        var retValue = 0L;
+        for( var i = 0; i < m_Counts.length(); ++i ) retValue += m_Counts.get( i );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getTotalCount()
+
+    /**
+     *  Records a problem that was reported by the parser.
+     *
+     *  @param  severity    The severity.
+     *  @param  exception   The exception from the parser.
+     */
+    public final void report( final Severity severity, final SAXParseException exception )
+    {
+        requireNonNullArgument( exception, "exception" );
+        m_Counts.incrementAndGet( requireNonNullArgument( severity, "severity" ).ordinal() );
+
+        final var key = new Key( severity, exception.getSystemId(), String.valueOf( exception.getMessage() ) );
+        var entry = m_Entries.get( key );
+        var isNew = false;
+        if( isNull( entry ) )
+        {
+            if( m_Entries.size() >= m_MaxDiagnostics )
+            {
+                m_Suppressed.increment();
+            }
+            else
+            {
+                final var candidate = new Entry( key, m_Sequence.getAndIncrement(), exception, m_KeepStackTraces );
+                entry = m_Entries.putIfAbsent( key, candidate );
+                if( isNull( entry ) )
+                {
+                    entry = candidate;
+                    isNew = true;
+                }
+            }
+        }
+        if( nonNull( entry ) )
+        {
+            entry.m_Occurrences.increment();
+            final var echo = m_Echo;
+            if( isNew && nonNull( echo ) ) echo( echo, entry.toDiagnostic() );
+        }
+    }   //  report()
+
+    /**
+     *  Sets the target for the echo of the problems.
+     *
+     *  @param  echo    The target; {@code null} if the problems should not
+     *      be echoed.
+     *  @param  linesPerSecond  The maximum number of lines per second.
+     */
+    public final void setEcho( final PrintStream echo, final int linesPerSecond )
+    {
+        if( linesPerSecond < 1 ) throw new ValidationException( "linesPerSecond must be at least 1: %d".formatted( linesPerSecond ) );
+        m_EchoRate = linesPerSecond;
+        m_Echo = echo;
+    }   //  setEcho()
+
+    /**
+     *  Switches the keeping of the exceptions with their stack traces on or
+     *  off. This affects only the problems that are reported after the
+     *  call.
+     *
+     *  @param  flag    {@code true} to keep the stack traces, {@code false}
+     *      to keep only the location and the message.
+     */
+    public final void setKeepStackTraces( final boolean flag ) { m_KeepStackTraces = flag; }
+
+    /**
+     *  Sets the maximum number of distinct problems that are kept.
+     *
+     *  @param  maxDiagnostics  The maximum number.
+     */
+    public final void setMaxDiagnostics( final int maxDiagnostics )
+    {
+        if( maxDiagnostics < 0 ) throw new ValidationException( "maxDiagnostics must not be negative: %d".formatted( maxDiagnostics ) );
+        m_MaxDiagnostics = maxDiagnostics;
+    }   //  setMaxDiagnostics()
+
+    /**
+     *  Returns the report with the counts and the distinct problems as a
+     *  JSON object.
+     *
+     *  @return The JSON object.
+     */
+    public final String toJSON()
+    {
+        final var counts = new StringJoiner( ",", "{", "}" );
+        for( final var severity : Severity.values() ) counts.add( JSONSupport.format( "%s:%d", JSONSupport.quote( severity.name() ), getCount( severity ) ) );
+        final var diagnostics = new StringJoiner( ",\n    ", "[\n    ", "\n  ]" );
+        diagnostics.setEmptyValue( "[]" );
+        getDiagnostics().forEach( diagnostic -> diagnostics.add( diagnostic.toJSON() ) );
+        final var retValue = JSONSupport.format( """
+            {
+              "counts": %s,
+              "suppressed": %d,
+              "diagnostics": %s
+            }
+            """, counts, getSuppressedCount(), diagnostics );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toJSON()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString()
+    {
+        final var retValue = "Diagnostics: %d warnings, %d errors, %d fatal errors (%d distinct, %d not kept)".formatted(
+            getCount( Severity.WARNING ),
+            getCount( Severity.ERROR ),
+            getCount( Severity.FATAL_ERROR ),
+            m_Entries.size(),
+            getSuppressedCount() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toString()
+
+    /**
+     *  Writes the JSON report to the given file; the number of the problems
+     *  that were not echoed is
+     *  {@linkplain #flush() written}
+     *  before.
+     *
+     *  @param  file    The report file.
+     *  @throws IOException The file cannot be written.
+     */
+    public final void writeReport( final Path file ) throws IOException
+    {
+        requireNonNullArgument( file, "file" );
+        flush();
+        AtomicFiles.write( file, toJSON() );
+    }   //  writeReport()
+}
+//  class BeautifierDiagnostics
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,173 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.util.Optional;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.xml.sax.EntityResolver;
+
+/**
+ *  The engine for the
+ *  {@link XMLBeautifier}:
+ *  it holds the
+ *  {@link ParserEngine}
+ *  that drives the handlers, and the configuration that is shared by all
+ *  documents that are processed with it.
+ *  <p>{@summary By default, the engine uses a
+ *  {@link SAXParserEngine}
+ *  with a bounded pool of reusable parsers; a
+ *  {@link StAXParserEngine}
+ *  produces the same output.}</p>
+ *  <p>Instances of this class are thread-safe and can be shared by any
+ *  number of
+ *  {@link XMLBeautifier}
+ *  instances.</p>
+ *  <p>Without an
+ *  {@linkplain #setEntityResolver(EntityResolver) entity resolver},
+ *  the parser loads external DTDs and entities on each use; a
+ *  {@link CachingEntityResolver}
+ *  avoids that.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public final class BeautifierEngine
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The default size for the parser pool.
+     *
+     *  @see SAXParserEngine#DEFAULT_POOL_SIZE
+     */
+    public static final int DEFAULT_POOL_SIZE = SAXParserEngine.DEFAULT_POOL_SIZE;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The resolver for external entities; {@code null} if the parser
+     *  resolves them itself.
+     */
+    private volatile EntityResolver m_EntityResolver;
+
+    /**
+     *  The parser engine.
+     */
+    private final ParserEngine m_ParserEngine;
+
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The default engine.
+     */
+    private static final BeautifierEngine m_DefaultEngine = new BeautifierEngine();
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code BeautifierEngine} with a pool of
+     *  {@link #DEFAULT_POOL_SIZE}
+     *  SAX parsers.
+     */
+    public BeautifierEngine() { this( DEFAULT_POOL_SIZE ); }
+
+    /**
+     *  Creates a new instance of {@code BeautifierEngine} that uses SAX
+     *  parsers.
+     *
+     *  @param  poolSize    The maximum number of idle parsers that are kept
+     *      in the pool; 0 means that no parser will be reused.
+     */
+    public BeautifierEngine( final int poolSize ) { this( new SAXParserEngine( poolSize ) ); }
+
+    /**
+     *  Creates a new instance of {@code BeautifierEngine} that uses the given
+     *  parser engine.
+     *
+     *  @param  parserEngine    The parser engine.
+     */
+    public BeautifierEngine( final ParserEngine parserEngine )
+    {
+        m_ParserEngine = requireNonNullArgument( parserEngine, "parserEngine" );
+    }   //  BeautifierEngine()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the default engine that is shared by all instances of
+     *  {@link XMLBeautifier}
+     *  that were not configured with a dedicated engine.
+     *
+     *  @return The default engine.
+     */
+    public static final BeautifierEngine getDefaultEngine() { return m_DefaultEngine; }
+
+    /**
+     *  Returns the resolver for external entities.
+     *
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the resolver; empty if the parser resolves the
+     *      external entities itself.
+     */
+    public final Optional<EntityResolver> getEntityResolver() { return Optional.ofNullable( m_EntityResolver ); }
+
+    /**
+     *  Returns the parser engine.
+     *
+     *  @return The parser engine.
+     */
+    public final ParserEngine getParserEngine() { return m_ParserEngine; }
+
+    /**
+     *  Returns the maximum number of idle parsers in the pool.
+     *
+     *  @return The pool size; 0 if the parser engine does not pool its
+     *      parsers.
+     */
+    public final int getPoolSize() { return m_ParserEngine instanceof final SAXParserEngine saxParserEngine ? saxParserEngine.getPoolSize() : 0; }
+
+    /**
+     *  Sets the resolver for external DTDs and entities that is used for
+     *  all documents that are processed with this engine.
+     *
+     *  @param  entityResolver  The resolver; {@code null} if the parser
+     *      should resolve the external entities itself.
+     */
+    public final void setEntityResolver( final EntityResolver entityResolver ) { m_EntityResolver = entityResolver; }
+}
+//  class BeautifierEngine
+
+/*
+ *  End of File
+ */
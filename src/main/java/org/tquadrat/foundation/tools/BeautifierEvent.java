@@ -0,0 +1,186 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.apiguardian.api.API.Status.STABLE;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+
+/**
+ *  The JDK Flight Recorder event that is emitted by
+ *  {@link XMLBeautifier}
+ *  for each processed document.
+ *  <p>{@summary The event is disabled by default; it can be switched on for
+ *  a recording by its name {@value #EVENT_NAME}}, for example with</p>
+ *  <pre><code>  -XX:StartFlightRecording:+org.tquadrat.foundation.tools.XMLBeautifier#enabled=true</code></pre>
+ *  <p>or with a custom {@code .jfc} file. The duration of the event covers
+ *  the whole processing of the document; the other fields are the same as
+ *  those of
+ *  {@link BeautifierMetrics}.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+@Name( BeautifierEvent.EVENT_NAME )
+@Label( "XML Beautifier" )
+@Description( "The processing of an XML document by the XMLBeautifier" )
+@Category( {"tquadrat", "XML"} )
+@StackTrace( false )
+@Enabled( false )
+public final class BeautifierEvent extends Event
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The name of the event: {@value}.
+     */
+    public static final String EVENT_NAME = "org.tquadrat.foundation.tools.XMLBeautifier";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The number of bytes that were allocated by the processing thread.
+     */
+    @Label( "Allocated" )
+    @DataAmount
+    long allocatedBytes = -1L;
+
+    /**
+     *  The time spent for building the document tree.
+     */
+    @Label( "Build Duration" )
+    @Timespan
+    long buildDuration;
+
+    /**
+     *  The number of bytes read from the input.
+     */
+    @Label( "Bytes In" )
+    @DataAmount
+    long bytesIn = -1L;
+
+    /**
+     *  The number of characters written to the output.
+     */
+    @Label( "Characters Out" )
+    long charactersOut;
+
+    /**
+     *  The number of elements.
+     */
+    @Label( "Elements" )
+    long elementCount;
+
+    /**
+     *  The message of the exception that terminated the processing;
+     *  {@code null} if the processing was successful.
+     */
+    @Label( "Failure" )
+    String failure;
+
+    /**
+     *  The maximum nesting depth.
+     */
+    @Label( "Maximum Depth" )
+    int maxDepth;
+
+    /**
+     *  The processing mode.
+     */
+    @Label( "Mode" )
+    String mode;
+
+    /**
+     *  The time spent for parsing the input.
+     */
+    @Label( "Parse Duration" )
+    @Timespan
+    long parseDuration;
+
+    /**
+     *  The number of processing instructions.
+     */
+    @Label( "Processing Instructions" )
+    long processingInstructionCount;
+
+    /**
+     *  The time spent for the creation of the output from the document tree.
+     */
+    @Label( "Serialisation Duration" )
+    @Timespan
+    long serializationDuration;
+
+    /**
+     *  The system id of the input, usually the URI of the input file;
+     *  {@code null} if not known.
+     */
+    @Label( "System Id" )
+    String systemId;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code BeautifierEvent}.
+     */
+    BeautifierEvent() { /* Just exists … */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Copies the given metrics to this event.
+     *
+     *  @param  metrics The metrics.
+     */
+    final void setMetrics( final BeautifierMetrics metrics )
+    {
+        mode = metrics.mode().name();
+        bytesIn = metrics.bytesIn();
+        charactersOut = metrics.charactersOut();
+        elementCount = metrics.elementCount();
+        maxDepth = metrics.maxDepth();
+        processingInstructionCount = metrics.processingInstructionCount();
+        parseDuration = metrics.parseDuration().toNanos();
+        buildDuration = metrics.buildDuration().toNanos();
+        serializationDuration = metrics.serializationDuration().toNanos();
+        allocatedBytes = metrics.allocatedBytes();
+    }   //  setMetrics()
+}
+//  class BeautifierEvent
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,318 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.exception.UnexpectedExceptionError;
+
+/**
+ *  The persistent index for the incremental mode of
+ *  {@link BatchBeautifier}.
+ *  <p>{@summary For each processed file, the index holds the hash of the
+ *  source, the hash of the output that was written, and the options that
+ *  were used for it.} A file whose current hash equals the recorded hash
+ *  of the output is already in canonical form, so it is skipped without
+ *  parsing it; the same is true for a file that is unchanged since the last
+ *  run when its output still exists unchanged, too.</p>
+ *  <p>The index is stored as a text file with one line per file; the
+ *  hashes are SHA-256 digests of the file contents as stored on disk. An
+ *  index file that was written by another version of the format is
+ *  ignored. Instances of this class are thread-safe.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public final class BeautifierIndex
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  An entry of the index.
+     *
+     *  @param  sourceHash  The hash of the source file when it was
+     *      processed.
+     *  @param  targetHash  The hash of the output file.
+     *  @param  options The options that were used for the processing.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    public record Entry( String sourceHash, String targetHash, String options ) {}
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The first line of an index file: {@value}.
+     */
+    public static final String HEADER = "# org.tquadrat.foundation.tools.BeautifierIndex 1";
+
+    /**
+     *  The size of the buffer for hashing a file: {@value}.
+     */
+    private static final int BUFFER_SIZE = 0x10000;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The entries, by the absolute path of the source file.
+     */
+    private final Map<String,Entry> m_Entries = new ConcurrentHashMap<>();
+
+    /**
+     *  The index file.
+     */
+    private final Path m_File;
+
+    /**
+     *  {@code true} if the index was modified after it was loaded,
+     *  {@code false} otherwise.
+     */
+    private volatile boolean m_Modified = false;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code BeautifierIndex}.
+     *
+     *  @param  file    The index file.
+     */
+    private BeautifierIndex( final Path file )
+    {
+        m_File = file;
+    }   //  BeautifierIndex()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the entry for the given source file.
+     *
+     *  @param  source  The source file.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the entry.
+     */
+    public final Optional<Entry> get( final Path source ) { return Optional.ofNullable( m_Entries.get( toKey( source ) ) ); }
+
+    /**
+     *  Returns the index file.
+     *
+     *  @return The index file.
+     */
+    public final Path getFile() { return m_File; }
+
+    /**
+     *  Calculates the hash for the contents of the given file.
+     *
+     *  @param  file    The file.
+     *  @return The hash, as a string of hexadecimal digits.
+     *  @throws IOException The file cannot be read.
+     */
+    public static final String hash( final Path file ) throws IOException
+    {
+        final var digest = newDigest();
+        try( final var channel = FileChannel.open( requireNonNullArgument( file, "file" ), READ ) )
+        {
+            final var buffer = ByteBuffer.allocate( BUFFER_SIZE );
+            while( channel.read( buffer ) >= 0 )
+            {
+                buffer.flip();
+                digest.update( buffer );
+                buffer.clear();
+            }
+        }
+        final var retValue = HexFormat.of().formatHex( digest.digest() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hash()
+
+    /**
+     *  Calculates the content hash for the given data.
+     *
+     *  @param  data    The data; its position will not be changed.
+     *  @return The hash, as a hex string.
+     */
+    static final String hash( final ByteBuffer data )
+    {
+        final var digest = newDigest();
+        digest.update( data.duplicate() );
+        final var retValue = HexFormat.of().formatHex( digest.digest() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hash()
+
+    /**
+     *  Loads the index from the given file; if the file does not exist, or
+     *  if it was written by another version of the format, the index will
+     *  be empty.
+     *
+     *  @param  file    The index file.
+     *  @return The index.
+     *  @throws IOException The file cannot be read.
+     */
+    public static final BeautifierIndex load( final Path file ) throws IOException
+    {
+        final var retValue = new BeautifierIndex( requireNonNullArgument( file, "file" ) );
+        if( Files.isRegularFile( file ) )
+        {
+            final var lines = Files.readAllLines( file, UTF8 );
+            if( !lines.isEmpty() && HEADER.equals( lines.get( 0 ) ) )
+            {
+                for( final var line : lines.subList( 1, lines.size() ) )
+                {
+                    final var fields = line.split( "\t", 4 );
+                    if( fields.length == 4 ) retValue.m_Entries.put( fields [3], new Entry( fields [0], fields [1], fields [2] ) );
+                }
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  load()
+
+    /**
+     *  Returns a new message digest for the hashes.
+     *
+     *  @return The message digest.
+     */
+    static final MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance( "SHA-256" );
+        }
+        catch( final NoSuchAlgorithmException e )
+        {
+            throw new UnexpectedExceptionError( e );
+        }
+    }   //  newDigest()
+
+    /**
+     *  Adds or replaces the entry for the given source file.
+     *
+     *  @param  source  The source file.
+     *  @param  entry   The entry.
+     */
+    public final void put( final Path source, final Entry entry )
+    {
+        m_Entries.put( toKey( source ), requireNonNullArgument( entry, "entry" ) );
+        m_Modified = true;
+    }   //  put()
+
+    /**
+     *  Removes the entry for the given source file.
+     *
+     *  @param  source  The source file.
+     */
+    public final void remove( final Path source )
+    {
+        if( !isNull( m_Entries.remove( toKey( source ) ) ) ) m_Modified = true;
+    }   //  remove()
+
+    /**
+     *  Writes the index to its file, if it was modified.
+     *
+     *  @throws IOException The file cannot be written.
+     */
+    public final void save() throws IOException
+    {
+        if( m_Modified )
+        {
+            //---* Changes during the save mark the index as modified again *--
+            m_Modified = false;
+            final var buffer = new StringBuilder( HEADER ).append( '\n' );
+            new TreeMap<>( m_Entries ).forEach( (key, entry) -> buffer.append( entry.sourceHash() )
+                .append( '\t' )
+                .append( entry.targetHash() )
+                .append( '\t' )
+                .append( entry.options() )
+                .append( '\t' )
+                .append( key )
+                .append( '\n' ) );
+
+            try
+            {
+                AtomicFiles.write( m_File, buffer );
+            }
+            catch( final IOException | RuntimeException e )
+            {
+                m_Modified = true;
+                throw e;
+            }
+        }
+    }   //  save()
+
+    /**
+     *  Returns the number of entries.
+     *
+     *  @return The number of entries.
+     */
+    public final int size() { return m_Entries.size(); }
+
+    /**
+     *  Returns the key for the given source file.
+     *
+     *  @param  source  The source file.
+     *  @return The key.
+     */
+    private static final String toKey( final Path source )
+    {
+        return requireNonNullArgument( source, "source" ).toAbsolutePath().normalize().toString();
+    }   //  toKey()
+}
+//  class BeautifierIndex
+
+/*
+ *  End of File
+ */
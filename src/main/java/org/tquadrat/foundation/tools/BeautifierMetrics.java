@@ -0,0 +1,165 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.management.ManagementFactory.getThreadMXBean;
+import static org.apiguardian.api.API.Status.STABLE;
+
+import java.time.Duration;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+
+/**
+ *  The figures that were collected while
+ *  {@link XMLBeautifier}
+ *  processed a document.
+ *  <p>{@summary The durations are measured with
+ *  {@link System#nanoTime()}.} The time spent for building the document tree
+ *  is only measured when the detailed timing was switched on with
+ *  {@link XMLBeautifier#setDetailedTiming(boolean)},
+ *  or when the JFR event
+ *  {@value BeautifierEvent#EVENT_NAME}
+ *  is enabled; otherwise it is reported as part of the parse duration.</p>
+ *  <p>In the streaming mode, the output is written while the input is
+ *  parsed; the time for that is reported as part of the parse duration,
+ *  and the serialisation duration is always zero.</p>
+ *
+ *  @param  mode    The processing mode.
+ *  @param  bytesIn The number of bytes read from the input; -1 if the input
+ *      was provided as a String.
+ *  @param  charactersOut   The number of characters written to the output.
+ *  @param  elementCount    The number of elements.
+ *  @param  maxDepth    The maximum nesting depth of the elements; the root
+ *      element has the depth 1.
+ *  @param  processingInstructionCount  The number of processing
+ *      instructions.
+ *  @param  parseDuration   The time spent for parsing the input.
+ *  @param  buildDuration   The time spent for building the document tree.
+ *  @param  serializationDuration   The time spent for the creation of the
+ *      output from the document tree.
+ *  @param  allocatedBytes  The number of bytes that were allocated by the
+ *      processing thread; -1 if the JVM does not support the measurement.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public record BeautifierMetrics( Mode mode, long bytesIn, long charactersOut, long elementCount, int maxDepth, long processingInstructionCount, Duration parseDuration, Duration buildDuration, Duration serializationDuration, long allocatedBytes )
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The processing modes of
+     *  {@link XMLBeautifier}.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    public enum Mode
+    {
+        /**
+         *  The document tree is built, and its String representation is
+         *  returned; see
+         *  {@link XMLBeautifier#process()}.
+         */
+        TREE,
+
+        /**
+         *  The output is written while the input is parsed; see
+         *  {@link XMLBeautifier#process(java.io.Writer)}.
+         */
+        STREAMING,
+
+        /**
+         *  The compact output is written while the input is parsed; see
+         *  {@link XMLBeautifier#minify(java.io.Writer)}.
+         */
+        MINIFY
+    }
+    //  enum Mode
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the bytes allocated by the current thread so far.
+     *
+     *  @return The allocated bytes; -1 if the JVM does not support the
+     *      measurement.
+     */
+    public static final long currentThreadAllocatedBytes()
+    {
+        final var retValue = getThreadMXBean() instanceof final com.sun.management.ThreadMXBean threadMXBean && threadMXBean.isThreadAllocatedMemorySupported()
+            ? threadMXBean.getCurrentThreadAllocatedBytes()
+            : -1L;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  currentThreadAllocatedBytes()
+
+    /**
+     *  Returns the total time spent for processing the document.
+     *
+     *  @return The total duration.
+     */
+    public final Duration totalDuration() { return parseDuration.plus( buildDuration ).plus( serializationDuration ); }
+
+    /**
+     *  Returns the throughput.
+     *
+     *  @return The throughput in MB of input per second; 0 if the number of
+     *      bytes read is not known.
+     */
+    public final double megabytesPerSecond()
+    {
+        final var nanos = totalDuration().toNanos();
+        final var retValue = bytesIn > 0 && nanos > 0 ? (bytesIn / (1024.0 * 1024.0)) / (nanos / 1.0e9) : 0.0;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  megabytesPerSecond()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString()
+    {
+        final var retValue = "%s: %d bytes in, %d characters out, %d elements (depth %d), %d PIs, parse %d ms, build %d ms, serialisation %d ms, %d bytes allocated"
+            .formatted( mode, bytesIn, charactersOut, elementCount, maxDepth, processingInstructionCount, parseDuration.toMillis(), buildDuration.toMillis(), serializationDuration.toMillis(), allocatedBytes );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toString()
+}
+//  record BeautifierMetrics
+
+/*
+ *  End of File
+ */
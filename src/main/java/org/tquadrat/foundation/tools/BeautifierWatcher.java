@@ -0,0 +1,732 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.nonNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.ProgramClass;
+import org.tquadrat.foundation.exception.ValidationException;
+
+/**
+ *  Watches directories and reformats the XML files in them whenever they
+ *  are changed, so that generated or hand-edited XML stays formatted
+ *  without running
+ *  {@link XMLBeautifier}
+ *  for each change.
+ *  <p>{@summary The watcher registers the given directories and all their
+ *  subdirectories with a
+ *  {@link WatchService},
+ *  and collects the events for the files whose names match a glob pattern
+ *  ({@value #DEFAULT_PATTERN} by default).} Events for the same file are
+ *  debounced: the file is reformatted only after no further event arrived
+ *  for it for
+ *  {@value #DEFAULT_DEBOUNCE_MILLIS}
+ *  milliseconds, so that a burst of writes by an editor or a generator is
+ *  processed once. All files are processed in the long-running JVM on a
+ *  single
+ *  {@link BeautifierEngine}
+ *  that is warmed up on start, so the turnaround after a save is the time
+ *  for formatting the file plus the debounce delay.</p>
+ *  <p>Without
+ *  {@value XMLBeautifier#OPTION_OUTPUT},
+ *  the files are reformatted in place. The content hash of each written
+ *  file is remembered, so that the events caused by the watcher's own
+ *  writes are ignored; files that are already formatted are not written
+ *  again. With an output directory, the formatted files are written there,
+ *  with the same relative paths as below the watched directory.</p>
+ *  <p>Files that cannot be parsed, usually because they are saved while
+ *  they are still incomplete, are reported and left untouched; the parser's
+ *  problems are collected by a
+ *  {@link BeautifierDiagnostics}
+ *  instance that echoes them to
+ *  {@link System#err}.</p>
+ *  <p>Command line:</p>
+ *  <pre><code>XMLBeautifier {@value XMLBeautifier#OPTION_WATCH} [{@value XMLBeautifier#OPTION_OUTPUT} &lt;dir&gt;] [{@value XMLBeautifier#OPTION_STREAM}] [{@value #OPTION_DEBOUNCE} &lt;ms&gt;] [{@value #OPTION_PATTERN} &lt;glob&gt;] &lt;directory&gt; …</code></pre>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+@ProgramClass
+public final class BeautifierWatcher implements AutoCloseable
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The results of reformatting a file.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    private enum Status
+    {
+        /**
+         *  The file was deleted, or it was written by the watcher itself.
+         */
+        SKIPPED,
+
+        /**
+         *  The file is formatted already.
+         */
+        UNCHANGED,
+
+        /**
+         *  The formatted file was written.
+         */
+        WRITTEN
+    }
+    //  enum Status
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The default debounce delay in milliseconds: {@value}.
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 50L;
+
+    /**
+     *  The default glob pattern for the names of the files that are
+     *  reformatted: {@value}.
+     */
+    public static final String DEFAULT_PATTERN = "*.xml";
+
+    /**
+     *  The maximum number of content hashes that are kept for the files
+     *  that were written by the watcher: {@value}. When a hash was
+     *  evicted, the next change to the file only costs an additional
+     *  formatting run.
+     */
+    private static final int MAX_WRITTEN_ENTRIES = 10_000;
+
+    /**
+     *  The command line option for the debounce delay in milliseconds:
+     *  {@value}.
+     */
+    public static final String OPTION_DEBOUNCE = "--debounce";
+
+    /**
+     *  The command line option for the glob pattern for the file names:
+     *  {@value}.
+     */
+    public static final String OPTION_PATTERN = "--pattern";
+
+    /**
+     *  The number of documents per shape that are processed to warm up the
+     *  engine: {@value}.
+     */
+    private static final int WARM_UP_ITERATIONS = 50;
+
+    /**
+     *  The size in characters of the documents for the warm-up: {@value}.
+     */
+    private static final int WARM_UP_SIZE = 0x4000;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The number of the processed files, per result.
+     */
+    private final AtomicLongArray m_Counts = new AtomicLongArray( Status.values().length );
+
+    /**
+     *  The debounce delay in nanoseconds.
+     */
+    private long m_DebounceNanos = TimeUnit.MILLISECONDS.toNanos( DEFAULT_DEBOUNCE_MILLIS );
+
+    /**
+     *  The collector for the problems that are reported by the parser.
+     */
+    private final BeautifierDiagnostics m_Diagnostics = new BeautifierDiagnostics( err );
+
+    /**
+     *  The directories, by their watch keys.
+     */
+    private final Map<WatchKey,Path> m_Directories = new HashMap<>();
+
+    /**
+     *  The engine that is shared by all files.
+     */
+    private final BeautifierEngine m_Engine = new BeautifierEngine();
+
+    /**
+     *  The matcher for the file names.
+     */
+    private PathMatcher m_Matcher = FileSystems.getDefault().getPathMatcher( "glob:" + DEFAULT_PATTERN );
+
+    /**
+     *  The output directory; {@code null} if the files are reformatted in
+     *  place.
+     */
+    private final Path m_OutputDirectory;
+
+    /**
+     *  The files with pending changes, with the time when they are due.
+     */
+    private final Map<Path,Long> m_Pending = new LinkedHashMap<>();
+
+    /**
+     *  The watched root directories.
+     */
+    private final List<Path> m_Roots;
+
+    /**
+     *  The flag that indicates whether the watcher is still running.
+     */
+    private volatile boolean m_Running = true;
+
+    /**
+     *  {@code true} if the documents are processed in streaming mode,
+     *  {@code false} if the document tree is built.
+     */
+    private final boolean m_Streaming;
+
+    /**
+     *  The watch service.
+     */
+    private final WatchService m_WatchService;
+
+    /**
+     *  The content hashes of the files that were written by the watcher,
+     *  or that were found to be formatted already; the least recently used
+     *  entries are evicted when there are more than
+     *  {@value #MAX_WRITTEN_ENTRIES}.
+     */
+    private final Map<Path,String> m_Written = new LinkedHashMap<>( 16, 0.75f, true )
+    {
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        protected final boolean removeEldestEntry( final Map.Entry<Path,String> eldest ) { return size() > MAX_WRITTEN_ENTRIES; }
+    };
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code BeautifierWatcher} and registers the
+     *  given directories with all their subdirectories.
+     *
+     *  @param  roots   The directories to watch.
+     *  @param  outputDirectory The output directory; {@code null} if the
+     *      files should be reformatted in place.
+     *  @param  streaming   {@code true} if the documents should be processed
+     *      in streaming mode, {@code false} if the document tree should be
+     *      built.
+     *  @throws IOException The directories cannot be registered.
+     */
+    public BeautifierWatcher( final List<Path> roots, final Path outputDirectory, final boolean streaming ) throws IOException
+    {
+        if( requireNonNullArgument( roots, "roots" ).isEmpty() ) throw new ValidationException( "No directories to watch" );
+        final List<Path> directories = new ArrayList<>( roots.size() );
+        for( final var root : roots )
+        {
+            final var directory = root.toAbsolutePath().normalize();
+            if( !Files.isDirectory( directory ) ) throw new ValidationException( "Not a directory: %s".formatted( root ) );
+            directories.add( directory );
+        }
+        m_Roots = List.copyOf( directories );
+        m_OutputDirectory = isNull( outputDirectory ) ? null : outputDirectory.toAbsolutePath().normalize();
+        m_Streaming = streaming;
+        m_WatchService = FileSystems.getDefault().newWatchService();
+        try
+        {
+            for( final var root : m_Roots ) register( root, false );
+        }
+        catch( final IOException e )
+        {
+            m_WatchService.close();
+            throw e;
+        }
+    }   //  BeautifierWatcher()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Formats the given XML code.
+     *
+     *  @param  data    The XML code.
+     *  @param  file    The file the XML code was read from.
+     *  @return The UTF-8 encoded output.
+     *  @throws Exception   The XML code could not be processed.
+     */
+    private final byte [] beautify( final byte [] data, final Path file ) throws Exception
+    {
+        final var beautifier = new XMLBeautifier( ByteBuffer.wrap( data ) );
+        beautifier.setEngine( m_Engine );
+        beautifier.setDiagnostics( m_Diagnostics );
+        if( nonNull( file ) ) beautifier.setSystemId( file.toUri().toString() );
+        final byte [] retValue;
+        if( m_Streaming )
+        {
+            final var buffer = new ByteArrayOutputStream( Math.max( 0x1000, data.length * 2 ) );
+            beautifier.process( buffer );
+            retValue = buffer.toByteArray();
+        }
+        else
+        {
+            retValue = beautifier.process().getBytes( UTF8 );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  beautify()
+
+    /**
+     *  Stops the watcher; a running call to
+     *  {@link #run()}
+     *  returns after the file that is currently processed.
+     *
+     *  @throws IOException Closing the watch service failed.
+     */
+    @Override
+    public final void close() throws IOException
+    {
+        m_Running = false;
+        m_WatchService.close();
+    }   //  close()
+
+    /**
+     *  Returns the number of changed files that were skipped, because they
+     *  were deleted or because the change was the watcher's own write.
+     *
+     *  @return The number of skipped files.
+     */
+    public final long getSkippedCount() { return m_Counts.get( Status.SKIPPED.ordinal() ); }
+
+    /**
+     *  Returns the number of changed files that were formatted already, so
+     *  that they were not written.
+     *
+     *  @return The number of unchanged files.
+     */
+    public final long getUnchangedCount() { return m_Counts.get( Status.UNCHANGED.ordinal() ); }
+
+    /**
+     *  Returns the number of files that were reformatted and written.
+     *
+     *  @return The number of written files.
+     */
+    public final long getWrittenCount() { return m_Counts.get( Status.WRITTEN.ordinal() ); }
+
+    /**
+     *  Handles the events of the given watch key.
+     *
+     *  @param  key The watch key.
+     *  @throws IOException A new subdirectory cannot be registered.
+     */
+    private final void handle( final WatchKey key ) throws IOException
+    {
+        final var directory = m_Directories.get( key );
+        for( final var event : key.pollEvents() )
+        {
+            if( event.kind() == OVERFLOW )
+            {
+                //---* Events were lost; check all files *---------------------
+                for( final var root : m_Roots ) scheduleAll( root );
+            }
+            else if( nonNull( directory ) && (event.context() instanceof final Path name) )
+            {
+                final var path = directory.resolve( name );
+                if( event.kind() == ENTRY_CREATE && Files.isDirectory( path ) )
+                {
+                    register( path, true );
+                }
+                else
+                {
+                    schedule( path );
+                }
+            }
+        }
+        if( !key.reset() ) m_Directories.remove( key );
+    }   //  handle()
+
+    /**
+     *  The program entry point.
+     *
+     *  @param  args    The command line arguments, without the leading
+     *      {@value XMLBeautifier#OPTION_WATCH}.
+     */
+    @SuppressWarnings( "OverlyBroadCatchBlock" )
+    public static final void main( final String... args )
+    {
+        try
+        {
+            Path outputDirectory = null;
+            var streaming = false;
+            var debounce = DEFAULT_DEBOUNCE_MILLIS;
+            var pattern = DEFAULT_PATTERN;
+            final List<Path> roots = new ArrayList<>();
+            for( var i = 0; i < args.length; ++i )
+            {
+                switch( args [i] )
+                {
+                    case XMLBeautifier.OPTION_OUTPUT -> outputDirectory = Path.of( args [++i] );
+                    case XMLBeautifier.OPTION_STREAM -> streaming = true;
+                    case OPTION_DEBOUNCE -> debounce = Long.parseLong( args [++i] );
+                    case OPTION_PATTERN -> pattern = args [++i];
+                    default -> roots.add( Path.of( args [i] ) );
+                }
+            }
+            if( roots.isEmpty() )
+            {
+                err.printf( "Invalid Command Line Arguments: %s %s [missing Directories]%n", XMLBeautifier.class.getName(), XMLBeautifier.OPTION_WATCH );
+            }
+            else
+            {
+                try( final var watcher = new BeautifierWatcher( roots, outputDirectory, streaming ) )
+                {
+                    watcher.setDebounce( Duration.ofMillis( debounce ) );
+                    watcher.setPattern( pattern );
+                    watcher.warmUp();
+                    out.printf( "Watching %s; press Ctrl-C to stop%n", roots );
+                    watcher.run();
+                }
+            }
+        }
+        catch( final Throwable t )
+        {
+            t.printStackTrace( err );
+        }
+    }   //  main()
+
+    /**
+     *  Reformats the given file and reports the result.
+     *
+     *  @param  file    The file.
+     *  @param  changed The time of the last event for the file, as returned
+     *      by
+     *      {@link System#nanoTime()}.
+     */
+    @SuppressWarnings( "OverlyBroadCatchBlock" )
+    private final void process( final Path file, final long changed )
+    {
+        try
+        {
+            final var start = System.nanoTime();
+            final var status = reformat( file, targetFor( file ) );
+            final var end = System.nanoTime();
+            m_Counts.incrementAndGet( status.ordinal() );
+            if( status != Status.SKIPPED )
+            {
+                out.printf( "%-9s %s (formatted in %d ms, %d ms after the change)%n",
+                    status,
+                    file,
+                    TimeUnit.NANOSECONDS.toMillis( end - start ),
+                    TimeUnit.NANOSECONDS.toMillis( end - changed ) );
+            }
+        }
+        catch( final Exception e )
+        {
+            err.printf( "%-9s %s: %s%n", "FAILED", file, isNull( e.getMessage() ) ? e.getClass().getName() : e.getMessage() );
+        }
+        m_Diagnostics.flush();
+    }   //  process()
+
+    /**
+     *  Reformats the given file, if it still exists and if it was not
+     *  written by the watcher itself.
+     *
+     *  @param  file    The file.
+     *  @param  target  The target file; it is the same as {@code file} when
+     *      the file is reformatted in place.
+     *  @return The result.
+     *  @throws Exception   The file could not be reformatted.
+     */
+    private final Status reformat( final Path file, final Path target ) throws Exception
+    {
+        var retValue = Status.SKIPPED;
+        if( Files.isRegularFile( file ) )
+        {
+            final var data = Files.readAllBytes( file );
+            final var sourceHash = BeautifierIndex.hash( ByteBuffer.wrap( data ) );
+            final var writtenHash = m_Written.get( file );
+            if( !sourceHash.equals( writtenHash ) )
+            {
+                //---* The file was changed since the watcher wrote it *-------
+                if( nonNull( writtenHash ) ) m_Written.remove( file );
+
+                final var output = beautify( data, file );
+                final var targetHash = BeautifierIndex.hash( ByteBuffer.wrap( output ) );
+                final var unchanged = target.equals( file )
+                    ? targetHash.equals( sourceHash )
+                    : targetHash.equals( m_Written.get( target ) ) && Files.isRegularFile( target );
+                retValue = unchanged ? Status.UNCHANGED : Status.WRITTEN;
+                if( retValue == Status.WRITTEN ) AtomicFiles.write( target, file, temp -> Files.write( temp, output ) );
+                m_Written.put( target, targetHash );
+            }
+        }
+        else
+        {
+            m_Written.remove( file );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  reformat()
+
+    /**
+     *  Registers the given directory and all its subdirectories with the
+     *  watch service.
+     *
+     *  @param  directory   The directory.
+     *  @param  created {@code true} if the directory was created while the
+     *      watcher is running, so that the files in it have to be
+     *      processed, {@code false} otherwise.
+     *  @throws IOException The directory cannot be registered.
+     */
+    private final void register( final Path directory, final boolean created ) throws IOException
+    {
+        try( final Stream<Path> paths = Files.walk( directory ) )
+        {
+            for( final var path : (Iterable<Path>) paths::iterator )
+            {
+                if( Files.isDirectory( path ) )
+                {
+                    if( !isOutput( path ) ) m_Directories.put( path.register( m_WatchService, ENTRY_CREATE, ENTRY_MODIFY ), path );
+                }
+                else if( created )
+                {
+                    schedule( path );
+                }
+            }
+        }
+    }   //  register()
+
+    /**
+     *  Checks whether the given path is in the output directory, so that
+     *  the watcher's own output is not processed again.
+     *
+     *  @param  path    The path.
+     *  @return {@code true} if the path is in the output directory,
+     *      {@code false} otherwise.
+     */
+    private final boolean isOutput( final Path path ) { return nonNull( m_OutputDirectory ) && path.startsWith( m_OutputDirectory ); }
+
+    /**
+     *  Waits for changes and reformats the changed files, until the watcher
+     *  is
+     *  {@linkplain #close() closed}
+     *  or the current thread is interrupted.
+     *
+     *  @throws IOException A new subdirectory cannot be registered.
+     */
+    public final void run() throws IOException
+    {
+        try
+        {
+            while( m_Running )
+            {
+                //---* Wait for the next event or the next due file *----------
+                var key = m_Pending.isEmpty()
+                    ? m_WatchService.take()
+                    : m_WatchService.poll( Math.max( 0L, m_Pending.values().stream().mapToLong( Long::longValue ).min().orElseThrow() - System.nanoTime() ), TimeUnit.NANOSECONDS );
+                while( nonNull( key ) )
+                {
+                    handle( key );
+                    key = m_WatchService.poll();
+                }
+
+                //---* Process the files that are due *------------------------
+                final var now = System.nanoTime();
+                final var iterator = m_Pending.entrySet().iterator();
+                while( iterator.hasNext() && m_Running )
+                {
+                    final var entry = iterator.next();
+                    if( entry.getValue() <= now )
+                    {
+                        iterator.remove();
+                        process( entry.getKey(), entry.getValue() - m_DebounceNanos );
+                    }
+                }
+            }
+        }
+        catch( final ClosedWatchServiceException ignored )
+        {
+            /* The watcher was closed */
+        }
+        catch( final InterruptedException ignored )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }   //  run()
+
+    /**
+     *  Schedules the given file for processing after the debounce delay,
+     *  if its name matches the pattern; a file that is already scheduled is
+     *  postponed.
+     *
+     *  @param  path    The file.
+     */
+    private final void schedule( final Path path )
+    {
+        final var name = path.getFileName();
+        if( nonNull( name ) && m_Matcher.matches( name ) && !isOutput( path ) )
+        {
+            m_Pending.remove( path );
+            m_Pending.put( path, System.nanoTime() + m_DebounceNanos );
+        }
+    }   //  schedule()
+
+    /**
+     *  Schedules all matching files below the given directory.
+     *
+     *  @param  directory   The directory.
+     *  @throws IOException The directory cannot be read.
+     */
+    private final void scheduleAll( final Path directory ) throws IOException
+    {
+        try( final Stream<Path> paths = Files.walk( directory ) )
+        {
+            for( final var path : (Iterable<Path>) paths::iterator )
+            {
+                if( Files.isRegularFile( path ) ) schedule( path );
+            }
+        }
+    }   //  scheduleAll()
+
+    /**
+     *  Sets the debounce delay: a file is processed only after no further
+     *  event arrived for it for this time.
+     *
+     *  @param  delay   The delay.
+     */
+    public final void setDebounce( final Duration delay )
+    {
+        if( requireNonNullArgument( delay, "delay" ).isNegative() ) throw new ValidationException( "The debounce delay must not be negative: %s".formatted( delay ) );
+        m_DebounceNanos = delay.toNanos();
+    }   //  setDebounce()
+
+    /**
+     *  Sets the glob pattern for the names of the files that are
+     *  reformatted; see
+     *  {@link java.nio.file.FileSystem#getPathMatcher(String)}
+     *  for the syntax.
+     *
+     *  @param  pattern The pattern; it is matched against the file name
+     *      only.
+     */
+    public final void setPattern( final String pattern )
+    {
+        m_Matcher = FileSystems.getDefault().getPathMatcher( "glob:" + requireNonNullArgument( pattern, "pattern" ) );
+    }   //  setPattern()
+
+    /**
+     *  Returns the target file for the given source file.
+     *
+     *  @param  file    The source file.
+     *  @return The target file.
+     */
+    private final Path targetFor( final Path file )
+    {
+        var retValue = file;
+        if( nonNull( m_OutputDirectory ) )
+        {
+            final var root = m_Roots.stream()
+                .filter( file::startsWith )
+                .findFirst()
+                .orElseThrow( () -> new IllegalStateException( "Not below a watched directory: %s".formatted( file ) ) );
+            retValue = m_OutputDirectory.resolve( root.relativize( file ) );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  targetFor()
+
+    /**
+     *  Warms up the engine by formatting generated documents of all
+     *  {@linkplain XMLCorpus.Shape shapes},
+     *  and the code for reading, hashing and writing with temporary files,
+     *  so that the first change after the start is processed as fast as
+     *  the later ones.
+     *
+     *  @throws Exception   The warm-up failed.
+     */
+    public final void warmUp() throws Exception
+    {
+        final var directory = Files.createTempDirectory( "BeautifierWatcher" );
+        try
+        {
+            final var file = directory.resolve( "warm-up.xml" );
+            for( final var shape : XMLCorpus.Shape.values() )
+            {
+                final var document = XMLCorpus.generate( shape, WARM_UP_SIZE ).getBytes( UTF8 );
+                for( var i = 0; i < WARM_UP_ITERATIONS; ++i ) beautify( document, file );
+                Files.write( file, document );
+                reformat( file, file );
+                reformat( file, file );
+            }
+            Files.delete( file );
+            m_Written.remove( file );
+        }
+        finally
+        {
+            Files.deleteIfExists( directory );
+        }
+    }   //  warmUp()
+}
+//  class BeautifierWatcher
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,224 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+import static org.apiguardian.api.API.Status.INTERNAL;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+
+/**
+ *  The command line handling that is shared by the benchmark programs of
+ *  this module.
+ *  <p>{@summary It parses the options
+ *  {@value #OPTION_QUICK}
+ *  and
+ *  {@value #OPTION_OUTPUT}
+ *  plus any additional options with a value, collects the
+ *  {@linkplain BenchmarkRunner.Result results}
+ *  of the benchmarks, and writes them as JSON to the output file when one
+ *  was given.}</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = INTERNAL, since = "0.4.3" )
+final class BenchmarkLauncher
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The body of a benchmark program.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = INTERNAL, since = "0.4.3" )
+    @FunctionalInterface
+    interface Benchmark
+    {
+        /**
+         *  Runs the benchmarks.
+         *
+         *  @param  launcher    The launcher with the command line options;
+         *      the results are reported to it.
+         *  @throws Exception   The benchmark failed.
+         */
+        public void run( final BenchmarkLauncher launcher ) throws Exception;
+    }
+    //  interface Benchmark
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The command line option for the JSON output file: {@value}.
+     */
+    static final String OPTION_OUTPUT = "--output";
+
+    /**
+     *  The command line option for a quick run with fewer iterations:
+     *  {@value}.
+     */
+    static final String OPTION_QUICK = "--quick";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The options with a value.
+     */
+    private final Map<String,String> m_Options = new HashMap<>();
+
+    /**
+     *  The flag for a quick run.
+     */
+    private boolean m_Quick = false;
+
+    /**
+     *  The results.
+     */
+    private final List<BenchmarkRunner.Result> m_Results = new ArrayList<>();
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code BenchmarkLauncher} instance.
+     *
+     *  @param  args    The command line arguments.
+     *  @param  valueOptions    The additional options that take a value.
+     *  @throws IllegalArgumentException    The command line contains an
+     *      unknown option, or an option without its value.
+     */
+    private BenchmarkLauncher( final String [] args, final Set<String> valueOptions )
+    {
+        for( var i = 0; i < args.length; ++i )
+        {
+            final var option = args [i];
+            if( OPTION_QUICK.equals( option ) )
+            {
+                m_Quick = true;
+            }
+            else if( OPTION_OUTPUT.equals( option ) || valueOptions.contains( option ) )
+            {
+                if( ++i == args.length ) throw new IllegalArgumentException( "Missing value for %s".formatted( option ) );
+                m_Options.put( option, args [i] );
+            }
+            else
+            {
+                throw new IllegalArgumentException( "Unknown argument: %s".formatted( option ) );
+            }
+        }
+    }   //  BenchmarkLauncher()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the value of the given option.
+     *
+     *  @param  option  The option.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the value.
+     */
+    public final Optional<String> getOption( final String option ) { return Optional.ofNullable( m_Options.get( option ) ); }
+
+    /**
+     *  Returns the flag for a quick run.
+     *
+     *  @return {@code true} if
+     *      {@value #OPTION_QUICK}
+     *      was given, {@code false} otherwise.
+     */
+    public final boolean isQuick() { return m_Quick; }
+
+    /**
+     *  Runs the given benchmark program; any failure is printed to
+     *  {@link System#err}.
+     *
+     *  @param  args    The command line arguments.
+     *  @param  valueOptions    The additional options that take a value.
+     *  @param  benchmark   The benchmark program.
+     */
+    static final void launch( final String [] args, final Set<String> valueOptions, final Benchmark benchmark )
+    {
+        try
+        {
+            final var launcher = new BenchmarkLauncher( requireNonNullArgument( args, "args" ), requireNonNullArgument( valueOptions, "valueOptions" ) );
+            requireNonNullArgument( benchmark, "benchmark" ).run( launcher );
+            final var output = launcher.m_Options.get( OPTION_OUTPUT );
+            if( !isNull( output ) ) AtomicFiles.write( Path.of( output ), BenchmarkRunner.toJSON( launcher.m_Results ) );
+        }
+        catch( final Throwable t )
+        {
+            //---* Handle previously unhandled exceptions *--------------------
+            t.printStackTrace( err );
+        }
+    }   //  launch()
+
+    /**
+     *  Adds the given results to the JSON output without printing them.
+     *
+     *  @param  results The results.
+     */
+    public final void record( final Collection<BenchmarkRunner.Result> results )
+    {
+        m_Results.addAll( requireNonNullArgument( results, "results" ) );
+    }   //  record()
+
+    /**
+     *  Prints the given result and adds it to the JSON output.
+     *
+     *  @param  result  The result.
+     */
+    public final void report( final BenchmarkRunner.Result result )
+    {
+        out.println( requireNonNullArgument( result, "result" ) );
+        m_Results.add( result );
+    }   //  report()
+}
+//  class BenchmarkLauncher
+
+/*
+ *  End of File
+ */
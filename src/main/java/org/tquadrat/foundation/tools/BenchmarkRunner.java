@@ -0,0 +1,461 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.management.ManagementFactory.getGarbageCollectorMXBeans;
+import static org.apiguardian.api.API.Status.EXPERIMENTAL;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.exception.ValidationException;
+
+/**
+ *  A minimal benchmark harness for the playground programs of this module.
+ *  <p>{@summary Each benchmark is run for a number of warm-up iterations
+ *  whose results are discarded, followed by the measurement iterations;
+ *  each iteration calls the task repeatedly for a fixed amount of time.}
+ *  Besides the time per operation, the harness records the bytes that were
+ *  allocated by the current thread and the activity of the garbage
+ *  collectors during the measurement.</p>
+ *  <p>A benchmark can be run on several threads at once, to measure the
+ *  behaviour under contention; then the time per operation is derived
+ *  from the combined throughput of all threads.</p>
+ *  <p>The results can be rendered as JSON, so that they can be compared
+ *  between releases.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = EXPERIMENTAL, since = "0.4.3" )
+public final class BenchmarkRunner
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The result of a benchmark.
+     *
+     *  @param  benchmark   The name of the benchmark.
+     *  @param  parameters  The parameters of the benchmark, like the shape
+     *      and size of the input.
+     *  @param  operations  The number of measured operations.
+     *  @param  nanosPerOperation   The average time per operation in
+     *      nanoseconds.
+     *  @param  bytesPerOperation   The average number of bytes allocated per
+     *      operation; -1 if the JVM does not support the measurement.
+     *  @param  megabytesPerSecond  The throughput in MB of input per second;
+     *      0 if the benchmark does not process any input.
+     *  @param  gcCount The number of garbage collections during the
+     *      measurement.
+     *  @param  gcMillis    The time spent for garbage collection during the
+     *      measurement, in milliseconds.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = EXPERIMENTAL, since = "0.4.3" )
+    public record Result( String benchmark, String parameters, long operations, double nanosPerOperation, double bytesPerOperation, double megabytesPerSecond, long gcCount, long gcMillis )
+    {
+        /**
+         *  Returns the number of operations per second.
+         *
+         *  @return The operations per second.
+         */
+        public final double operationsPerSecond() { return nanosPerOperation > 0 ? 1.0e9 / nanosPerOperation : 0; }
+
+        /**
+         *  Returns the JSON representation of this result.
+         *
+         *  @return The JSON object.
+         */
+        public final String toJSON()
+        {
+            final var retValue = JSONSupport.format( """
+                {"benchmark":%s,"parameters":%s,"operations":%d,"nsPerOp":%.1f,"opsPerSecond":%.1f,"bytesPerOp":%.1f,"mbPerSecond":%.3f,"gcCount":%d,"gcMillis":%d}""",
+                JSONSupport.quote( benchmark ), JSONSupport.quote( parameters ), operations, nanosPerOperation, operationsPerSecond(), bytesPerOperation, megabytesPerSecond, gcCount, gcMillis );
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  toJSON()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final String toString()
+        {
+            final var retValue = "%-32s %-24s %14.1f ns/op %14.1f B/op %10.2f MB/s %5d GCs"
+                .formatted( benchmark, parameters, nanosPerOperation, bytesPerOperation, megabytesPerSecond, gcCount );
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  toString()
+    }
+    //  record Result
+
+    /**
+     *  The task that is measured.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @FunctionalInterface
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = EXPERIMENTAL, since = "0.4.3" )
+    public static interface Task
+    {
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  Executes a single operation.
+         *
+         *  @return The result of the operation; it will be consumed by the
+         *      harness, so that the JIT cannot eliminate the operation.
+         *  @throws Exception   The operation failed.
+         */
+        public Object execute() throws Exception;
+    }
+    //  interface Task
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The duration of a single iteration, in nanoseconds.
+     */
+    private final long m_IterationNanos;
+
+    /**
+     *  The number of measurement iterations.
+     */
+    private final int m_MeasurementIterations;
+
+    /**
+     *  The sink for the results of the operations.
+     */
+    @SuppressWarnings( "unused" )
+    private volatile int m_Sink;
+
+    /**
+     *  The number of warm-up iterations.
+     */
+    private final int m_WarmupIterations;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code BenchmarkRunner}.
+     *
+     *  @param  warmupIterations    The number of warm-up iterations.
+     *  @param  measurementIterations   The number of measurement iterations.
+     *  @param  iterationMillis The duration of a single iteration in
+     *      milliseconds.
+     */
+    public BenchmarkRunner( final int warmupIterations, final int measurementIterations, final long iterationMillis )
+    {
+        if( warmupIterations < 0 ) throw new ValidationException( "warmupIterations is negative: %d".formatted( warmupIterations ) );
+        if( measurementIterations < 1 ) throw new ValidationException( "measurementIterations is less than 1: %d".formatted( measurementIterations ) );
+        if( iterationMillis < 1 ) throw new ValidationException( "iterationMillis is less than 1: %d".formatted( iterationMillis ) );
+        m_WarmupIterations = warmupIterations;
+        m_MeasurementIterations = measurementIterations;
+        m_IterationNanos = iterationMillis * 1_000_000L;
+    }   //  BenchmarkRunner()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the bytes allocated by the current thread so far.
+     *
+     *  @return The allocated bytes; -1 if the JVM does not support the
+     *      measurement.
+     */
+    public static final long allocatedBytes() { return BeautifierMetrics.currentThreadAllocatedBytes(); }
+
+    /**
+     *  Returns the total number of garbage collections so far.
+     *
+     *  @return The number of collections.
+     */
+    private static final long gcCount()
+    {
+        final var retValue = getGarbageCollectorMXBeans().stream()
+            .mapToLong( GarbageCollectorMXBean::getCollectionCount )
+            .filter( count -> count > 0 )
+            .sum();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  gcCount()
+
+    /**
+     *  Returns the total time spent for garbage collection so far.
+     *
+     *  @return The time in milliseconds.
+     */
+    private static final long gcMillis()
+    {
+        final var retValue = getGarbageCollectorMXBeans().stream()
+            .mapToLong( GarbageCollectorMXBean::getCollectionTime )
+            .filter( time -> time > 0 )
+            .sum();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  gcMillis()
+
+    /**
+     *  Executes the task for one iteration.
+     *
+     *  @param  task    The task.
+     *  @return The number of operations.
+     *  @throws Exception   The task failed.
+     */
+    private final long iterate( final Task task ) throws Exception
+    {
+        final var end = System.nanoTime() + m_IterationNanos;
+        var retValue = 0L;
+        var sink = 0;
+        do
+        {
+            final var result = task.execute();
+            sink += isNull( result ) ? 0 : System.identityHashCode( result );
+            ++retValue;
+        }
+        while( System.nanoTime() < end );
+        m_Sink = sink;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  iterate()
+
+    /**
+     *  Runs a benchmark.
+     *
+     *  @param  benchmark   The name of the benchmark.
+     *  @param  parameters  The parameters of the benchmark.
+     *  @param  inputBytes  The size of the input processed by a single
+     *      operation, in bytes; 0 if not applicable.
+     *  @param  task    The task to measure.
+     *  @return The result.
+     *  @throws Exception   The task failed.
+     */
+    public final Result run( final String benchmark, final String parameters, final long inputBytes, final Task task ) throws Exception
+    {
+        requireNonNullArgument( task, "task" );
+        for( var i = 0; i < m_WarmupIterations; ++i ) iterate( task );
+
+        final var gcCount = gcCount();
+        final var gcMillis = gcMillis();
+        final var allocated = allocatedBytes();
+        final var start = System.nanoTime();
+        var operations = 0L;
+        for( var i = 0; i < m_MeasurementIterations; ++i ) operations += iterate( task );
+        final var duration = System.nanoTime() - start;
+        final var allocatedPerOperation = allocated < 0 ? -1.0 : (double) (allocatedBytes() - allocated) / operations;
+
+        final var retValue = new Result(
+            requireNonNullArgument( benchmark, "benchmark" ),
+            requireNonNullArgument( parameters, "parameters" ),
+            operations,
+            (double) duration / operations,
+            allocatedPerOperation,
+            inputBytes * operations / (duration / 1.0e9) / (1024.0 * 1024.0),
+            gcCount() - gcCount,
+            gcMillis() - gcMillis );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  run()
+
+    /**
+     *  Runs a benchmark on the given number of threads concurrently; each
+     *  thread executes the task for the warm-up and measurement iterations,
+     *  and the measurement starts and ends for all threads at the same
+     *  time.
+     *
+     *  @param  benchmark   The name of the benchmark.
+     *  @param  parameters  The parameters of the benchmark.
+     *  @param  inputBytes  The size of the input processed by a single
+     *      operation, in bytes; 0 if not applicable.
+     *  @param  threads The number of threads.
+     *  @param  task    The task to measure; it has to be thread-safe.
+     *  @return The result; the time per operation is the measurement time
+     *      divided by the operations of all threads.
+     *  @throws Exception   The task failed.
+     */
+    public final Result run( final String benchmark, final String parameters, final long inputBytes, final int threads, final Task task ) throws Exception
+    {
+        requireNonNullArgument( task, "task" );
+        if( threads < 1 ) throw new ValidationException( "threads is less than 1: %d".formatted( threads ) );
+
+        final var phaser = new Phaser( threads + 1 );
+        final var failure = new AtomicReference<Throwable>();
+        final List<Future<long []>> futures = new ArrayList<>( threads );
+        var gcCount = 0L;
+        var gcMillis = 0L;
+        var duration = 0L;
+        try( final var executor = Executors.newFixedThreadPool( threads ) )
+        {
+            for( var t = 0; t < threads; ++t )
+            {
+                futures.add( executor.submit( () ->
+                {
+                    try
+                    {
+                        for( var i = 0; (i < m_WarmupIterations) && !phaser.isTerminated(); ++i ) iterate( task );
+                        phaser.arriveAndAwaitAdvance();
+                        final var allocated = allocatedBytes();
+                        var operations = 0L;
+                        for( var i = 0; (i < m_MeasurementIterations) && !phaser.isTerminated(); ++i ) operations += iterate( task );
+                        final var allocatedDuringMeasurement = allocated < 0 ? -1L : allocatedBytes() - allocated;
+                        phaser.arriveAndAwaitAdvance();
+                        return new long [] {operations, allocatedDuringMeasurement};
+                    }
+                    catch( final Throwable e )
+                    {
+                        //---* Release the other threads *---------------------
+                        failure.compareAndSet( null, e );
+                        phaser.forceTermination();
+                        throw e;
+                    }
+                } ) );
+            }
+
+            //---* Wait for the warm-up, then for the measurement *------------
+            phaser.arriveAndAwaitAdvance();
+            if( !phaser.isTerminated() )
+            {
+                gcCount = gcCount();
+                gcMillis = gcMillis();
+                final var start = System.nanoTime();
+                phaser.arriveAndAwaitAdvance();
+                duration = System.nanoTime() - start;
+            }
+
+            if( phaser.isTerminated() )
+            {
+                //---* A task failed; stop the others and rethrow *------------
+                for( final var future : futures ) future.cancel( true );
+                final var cause = failure.get();
+                if( cause instanceof final Error error ) throw error;
+                throw cause instanceof final Exception exception ? exception : new ExecutionException( cause );
+            }
+        }
+
+        var operations = 0L;
+        var allocated = 0L;
+        for( final var future : futures )
+        {
+            final var counts = unwrap( future );
+            operations += counts [0];
+            allocated = (allocated < 0) || (counts [1] < 0) ? -1L : allocated + counts [1];
+        }
+        final var retValue = new Result(
+            requireNonNullArgument( benchmark, "benchmark" ),
+            requireNonNullArgument( parameters, "parameters" ),
+            operations,
+            (double) duration / operations,
+            allocated < 0 ? -1.0 : (double) allocated / operations,
+            inputBytes * operations / (duration / 1.0e9) / (1024.0 * 1024.0),
+            gcCount() - gcCount,
+            gcMillis() - gcMillis );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  run()
+
+    /**
+     *  Renders the given results as a JSON document, together with some
+     *  information on the runtime environment.
+     *
+     *  @param  results The results.
+     *  @return The JSON document.
+     */
+    public static final String toJSON( final Collection<Result> results )
+    {
+        final var buffer = new StringJoiner( ",\n    ", "[\n    ", "\n  ]" );
+        buffer.setEmptyValue( "[]" );
+        requireNonNullArgument( results, "results" ).forEach( result -> buffer.add( result.toJSON() ) );
+        final var retValue = JSONSupport.format( """
+            {
+              "javaVersion": %s,
+              "vmName": %s,
+              "processors": %d,
+              "timestamp": %d,
+              "results": %s
+            }
+            """, JSONSupport.quote( System.getProperty( "java.version" ) ), JSONSupport.quote( System.getProperty( "java.vm.name" ) ), Runtime.getRuntime().availableProcessors(), System.currentTimeMillis(), buffer );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toJSON()
+
+    /**
+     *  Returns the result of the given future; a failure of the task is
+     *  rethrown.
+     *
+     *  @param  future  The future.
+     *  @return The result.
+     *  @throws Exception   The task failed.
+     */
+    private static final long [] unwrap( final Future<long []> future ) throws Exception
+    {
+        try
+        {
+            return future.get();
+        }
+        catch( final ExecutionException e )
+        {
+            if( e.getCause() instanceof final Exception cause ) throw cause;
+            if( e.getCause() instanceof final Error cause ) throw cause;
+            throw e;
+        }
+    }   //  unwrap()
+}
+//  class BenchmarkRunner
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,546 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import javax.xml.catalog.CatalogFeatures;
+import javax.xml.catalog.CatalogManager;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.exception.UnexpectedExceptionError;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.EntityResolver2;
+
+/**
+ *  An
+ *  {@link EntityResolver}
+ *  for external DTDs and entities that keeps the resolved entities in
+ *  memory and – optionally – in a cache directory on disk.
+ *  <p>{@summary Before an entity is loaded from its system id, the optional
+ *  catalog is asked for a local copy;} any
+ *  {@link EntityResolver}
+ *  can serve as the catalog, for example the one returned by
+ *  {@link #forCatalogs(Path...)}.
+ *  The cache key is the absolute system id of the entity, so a catalog
+ *  mapping does not change how the entity is cached. Remote entities are
+ *  kept in memory and in the cache directory; local files, including the
+ *  copies a catalog maps to, are kept in memory only, and they are read
+ *  again when their modification time or their size changed.</p>
+ *  <p>The
+ *  {@link Policy}
+ *  determines what happens with entities that are not in the cache; with
+ *  {@link Policy#OFFLINE},
+ *  only the cache, the catalog and local files are used, so a build node
+ *  without network access never tries to connect to a remote host.
+ *  Entities that cannot be resolved are replaced by an empty entity, as the
+ *  beautifier does not validate the documents.</p>
+ *  <p>Instances of this class are thread-safe; usually, one instance is set
+ *  to a
+ *  {@link BeautifierEngine}
+ *  and shared by all documents that are processed with it.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public final class CachingEntityResolver implements EntityResolver2
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  An entity from a local file, together with the state of the file
+     *  when it was read.
+     *
+     *  @param  file    The file.
+     *  @param  lastModified    The modification time of the file.
+     *  @param  size    The size of the file.
+     *  @param  contents    The contents of the entity.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = INTERNAL, since = "0.4.3" )
+    private record LocalEntity( Path file, FileTime lastModified, long size, byte [] contents )
+    {
+        /**
+         *  Checks whether the file was changed since the entity was read.
+         *
+         *  @return {@code true} if the entity is still valid, {@code false}
+         *      if the file was changed or cannot be accessed anymore.
+         */
+        public final boolean isCurrent()
+        {
+            var retValue = false;
+            try
+            {
+                final var attributes = Files.readAttributes( file, BasicFileAttributes.class );
+                retValue = attributes.lastModifiedTime().equals( lastModified ) && (attributes.size() == size);
+            }
+            catch( final IOException ignored ) { /* Treated as changed */ }
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  isCurrent()
+    }
+    //  record LocalEntity
+
+    /**
+     *  The policies for entities that are not yet cached.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    public enum Policy
+    {
+        /**
+         *  Entities that are not cached are loaded from their system id and
+         *  added to the cache.
+         */
+        RESOLVE,
+
+        /**
+         *  Only the cache, the catalog and local files are used; other
+         *  entities are replaced by an empty entity.
+         */
+        OFFLINE,
+
+        /**
+         *  External entities are not resolved at all; all of them are
+         *  replaced by an empty entity, without looking into the cache.
+         */
+        DISABLED
+    }
+    //  enum Policy
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The timeout for connecting to a remote host and for reading from it,
+     *  in milliseconds: {@value}.
+     */
+    public static final int TIMEOUT = 10_000;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The cache directory; {@code null} if the entities are cached in
+     *  memory only.
+     */
+    private final Path m_CacheDirectory;
+
+    /**
+     *  The catalog; {@code null} if no catalog is used.
+     */
+    private final EntityResolver m_Catalog;
+
+    /**
+     *  The counter for the cache hits that were served from disk.
+     */
+    private final LongAdder m_DiskHits = new LongAdder();
+
+    /**
+     *  The in-memory cache for the entities that do not change while the
+     *  program runs – the remote ones and those from the class path –, by
+     *  the absolute system id.
+     */
+    private final Map<String,byte []> m_Entities = new ConcurrentHashMap<>();
+
+    /**
+     *  The in-memory cache for the entities from local files, by the
+     *  absolute system id.
+     */
+    private final Map<String,LocalEntity> m_LocalEntities = new ConcurrentHashMap<>();
+
+    /**
+     *  The counter for the cache hits that were served from memory.
+     */
+    private final LongAdder m_MemoryHits = new LongAdder();
+
+    /**
+     *  The counter for the cache misses.
+     */
+    private final LongAdder m_Misses = new LongAdder();
+
+    /**
+     *  The policy for entities that are not cached yet.
+     */
+    private final Policy m_Policy;
+
+    /**
+     *  The counter for the entities that were replaced by an empty entity.
+     */
+    private final LongAdder m_Unresolved = new LongAdder();
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code CachingEntityResolver} that caches
+     *  the entities in memory only, and uses no catalog.
+     *
+     *  @param  policy  The policy for entities that are not cached yet.
+     */
+    public CachingEntityResolver( final Policy policy ) { this( null, policy, null ); }
+
+    /**
+     *  Creates a new instance of {@code CachingEntityResolver}.
+     *
+     *  @param  cacheDirectory  The cache directory; it will be created if
+     *      it does not exist. {@code null} if the entities should be cached
+     *      in memory only.
+     *  @param  policy  The policy for entities that are not cached yet.
+     *  @param  catalog The catalog; {@code null} if no catalog is used.
+     */
+    public CachingEntityResolver( final Path cacheDirectory, final Policy policy, final EntityResolver catalog )
+    {
+        m_CacheDirectory = cacheDirectory;
+        m_Policy = requireNonNullArgument( policy, "policy" );
+        m_Catalog = catalog;
+    }   //  CachingEntityResolver()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns an empty entity for the given system id.
+     *
+     *  @param  systemId    The system id; can be {@code null}.
+     *  @return The empty entity.
+     */
+    private final InputSource emptyEntity( final String systemId )
+    {
+        m_Unresolved.increment();
+        final var retValue = new InputSource( new StringReader( "" ) );
+        retValue.setSystemId( systemId );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  emptyEntity()
+
+    /**
+     *  Returns an
+     *  {@link EntityResolver}
+     *  for the given XML catalog files (OASIS XML Catalogs 1.1); lookups that
+     *  do not match an entry of the catalogs return {@code null}, so that
+     *  the entity is loaded from its system id.
+     *
+     *  @param  catalogFiles    The catalog files.
+     *  @return The catalog resolver.
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public static final EntityResolver forCatalogs( final Path... catalogFiles )
+    {
+        final var features = CatalogFeatures.builder()
+            .with( CatalogFeatures.Feature.RESOLVE, "continue" )
+            .build();
+        final var uris = new URI [requireNonNullArgument( catalogFiles, "catalogFiles" ).length];
+        for( var i = 0; i < uris.length; ++i ) uris [i] = catalogFiles [i].toAbsolutePath().toUri();
+        final var retValue = CatalogManager.catalogResolver( features, uris );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  forCatalogs()
+
+    /**
+     *  Returns the number of cache hits that were served from disk.
+     *
+     *  @return The disk hits.
+     */
+    public final long getDiskHits() { return m_DiskHits.sum(); }
+
+    /**
+     *  {@inheritDoc}
+     *
+     *  @return Always {@code null}.
+     */
+    @Override
+    public final InputSource getExternalSubset( final String name, final String baseURI ) { return null; }
+
+    /**
+     *  Returns the number of cache hits, from memory and from disk.
+     *
+     *  @return The hits.
+     */
+    public final long getHits() { return m_MemoryHits.sum() + m_DiskHits.sum(); }
+
+    /**
+     *  Returns the hit rate.
+     *
+     *  @return The hit rate, a value between 0.0 and 1.0; 0.0 if the cache
+     *      was not used yet.
+     */
+    public final double getHitRate()
+    {
+        final var hits = getHits();
+        final var total = hits + getMisses();
+        final var retValue = total == 0 ? 0.0 : (double) hits / total;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getHitRate()
+
+    /**
+     *  Returns the number of cache misses.
+     *
+     *  @return The misses.
+     */
+    public final long getMisses() { return m_Misses.sum(); }
+
+    /**
+     *  Returns the policy for entities that are not cached yet.
+     *
+     *  @return The policy.
+     */
+    public final Policy getPolicy() { return m_Policy; }
+
+    /**
+     *  Returns the number of entities that were replaced by an empty entity,
+     *  either because the external resolution is disabled or not allowed,
+     *  or because they could not be found.
+     *
+     *  @return The number of unresolved entities.
+     */
+    public final long getUnresolved() { return m_Unresolved.sum(); }
+
+    /**
+     *  Returns the file in the cache directory for the given key.
+     *
+     *  @param  key The absolute system id.
+     *  @return The file.
+     */
+    private final Path getCacheFile( final String key )
+    {
+        final MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance( "SHA-256" );
+        }
+        catch( final NoSuchAlgorithmException e )
+        {
+            throw new UnexpectedExceptionError( e );
+        }
+        final var retValue = m_CacheDirectory.resolve( HexFormat.of().formatHex( digest.digest( key.getBytes( UTF8 ) ) ) + ".entity" );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getCacheFile()
+
+    /**
+     *  Checks whether the given URI refers to a local resource that may be
+     *  read in the offline mode.
+     *
+     *  @param  uri The URI.
+     *  @return {@code true} if the resource is local, {@code false}
+     *      otherwise.
+     */
+    private static final boolean isLocal( final URI uri )
+    {
+        final var scheme = uri.getScheme();
+        final var retValue = isNull( scheme ) || "file".equalsIgnoreCase( scheme ) || "jar".equalsIgnoreCase( scheme ) || "jrt".equalsIgnoreCase( scheme );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isLocal()
+
+    /**
+     *  Loads the entity from the given location.
+     *
+     *  @param  location    The location.
+     *  @return The contents of the entity.
+     *  @throws IOException The entity cannot be loaded.
+     */
+    private static final byte [] load( final URI location ) throws IOException
+    {
+        final var connection = location.toURL().openConnection();
+        connection.setConnectTimeout( TIMEOUT );
+        connection.setReadTimeout( TIMEOUT );
+        try( final var inputStream = connection.getInputStream() )
+        {
+            final var retValue = inputStream.readAllBytes();
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }
+    }   //  load()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final InputSource resolveEntity( final String publicId, final String systemId ) throws SAXException, IOException
+    {
+        return resolveEntity( null, publicId, null, systemId );
+    }   //  resolveEntity()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @SuppressWarnings( "OverlyComplexMethod" )
+    @Override
+    public final InputSource resolveEntity( final String name, final String publicId, final String baseURI, final String systemId ) throws SAXException, IOException
+    {
+        if( m_Policy == Policy.DISABLED ) return emptyEntity( systemId );
+        if( isNull( systemId ) && isNull( m_Catalog ) ) return null;
+
+        //---* Determine the key *---------------------------------------------
+        final URI absolute;
+        try
+        {
+            absolute = isNull( systemId ) ? null : isNull( baseURI ) ? new URI( systemId ) : new URI( baseURI ).resolve( systemId );
+        }
+        catch( final URISyntaxException e )
+        {
+            throw new IOException( "Invalid system id: %s".formatted( systemId ), e );
+        }
+        final var key = isNull( absolute ) ? "public:" + publicId : absolute.toString();
+
+        //---* Look into the cache *-------------------------------------------
+        var contents = m_Entities.get( key );
+        if( isNull( contents ) )
+        {
+            final var localEntity = m_LocalEntities.get( key );
+            if( !isNull( localEntity ) )
+            {
+                if( localEntity.isCurrent() )
+                {
+                    contents = localEntity.contents();
+                }
+                else
+                {
+                    m_LocalEntities.remove( key, localEntity );
+                }
+            }
+        }
+        if( !isNull( contents ) )
+        {
+            m_MemoryHits.increment();
+        }
+        else
+        {
+            final var cacheFile = isNull( m_CacheDirectory ) ? null : getCacheFile( key );
+            if( !isNull( cacheFile ) && Files.isRegularFile( cacheFile ) )
+            {
+                m_DiskHits.increment();
+                contents = Files.readAllBytes( cacheFile );
+                m_Entities.putIfAbsent( key, contents );
+            }
+            else
+            {
+                m_Misses.increment();
+
+                //---* Ask the catalog for a local copy *----------------------
+                var location = absolute;
+                if( !isNull( m_Catalog ) )
+                {
+                    final var mapped = m_Catalog.resolveEntity( publicId, isNull( absolute ) ? null : absolute.toString() );
+                    if( !isNull( mapped ) && !isNull( mapped.getSystemId() ) ) location = URI.create( mapped.getSystemId() );
+                }
+                if( isNull( location ) || ((m_Policy == Policy.OFFLINE) && !isLocal( location )) ) return emptyEntity( systemId );
+
+                final var source = location.isAbsolute() ? location : Path.of( location.getPath() ).toUri();
+                final var file = "file".equalsIgnoreCase( source.getScheme() ) ? Path.of( source ) : null;
+                BasicFileAttributes attributes = null;
+                try
+                {
+                    //---* Get the state of the file before reading it *-------
+                    if( !isNull( file ) ) attributes = Files.readAttributes( file, BasicFileAttributes.class );
+                    contents = load( source );
+                }
+                catch( final IOException e )
+                {
+                    if( m_Policy == Policy.OFFLINE ) return emptyEntity( systemId );
+                    throw e;
+                }
+
+                //---* Only remote entities are cached on disk *---------------
+                if( !isNull( file ) )
+                {
+                    m_LocalEntities.put( key, new LocalEntity( file, attributes.lastModifiedTime(), attributes.size(), contents ) );
+                }
+                else
+                {
+                    if( !isNull( cacheFile ) && !isLocal( location ) ) AtomicFiles.write( cacheFile, contents );
+                    m_Entities.putIfAbsent( key, contents );
+                }
+            }
+        }
+
+        final var retValue = new InputSource( new ByteArrayInputStream( contents ) );
+        retValue.setPublicId( publicId );
+        retValue.setSystemId( isNull( absolute ) ? systemId : absolute.toString() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  resolveEntity()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString()
+    {
+        final var retValue = "CachingEntityResolver [policy=%s, hits=%d (disk=%d), misses=%d, unresolved=%d, hitRate=%.1f%%]".formatted( m_Policy, getHits(), getDiskHits(), getMisses(), getUnresolved(), getHitRate() * 100.0 );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toString()
+}
+//  class CachingEntityResolver
+
+/*
+ *  End of File
+ */
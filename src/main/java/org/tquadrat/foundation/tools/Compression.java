@@ -0,0 +1,372 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.util.Arrays.stream;
+import static java.util.Locale.ROOT;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.CommonConstants.EMPTY_STRING;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+
+/**
+ *  The compression formats for the input and the output of
+ *  {@link XMLBeautifier}.
+ *  <p>{@summary The format of the input is detected from its first bytes,
+ *  the format of the output from the extension of the target file.} The
+ *  data is compressed and decompressed while it is streamed; no temporary
+ *  files are used.</p>
+ *  <p>{@link #DEFLATE} is the zlib format (RFC&nbsp;1950) that is written
+ *  by
+ *  {@link DeflaterOutputStream}.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public enum Compression
+{
+        /*------------------*\
+    ====** Enum Declaration **=================================================
+        \*------------------*/
+    /**
+     *  No compression.
+     */
+    NONE,
+
+    /**
+     *  The gzip format; the file extensions are {@code .gz} and
+     *  {@code .gzip}.
+     */
+    GZIP( ".gz", ".gzip" )
+    {
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final OutputStream compress( final OutputStream outputStream ) throws IOException
+        {
+            return new GZIPOutputStream( requireNonNullArgument( outputStream, "outputStream" ), BUFFER_SIZE );
+        }   //  compress()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final InputStream decompress( final InputStream inputStream ) throws IOException
+        {
+            return new GZIPInputStream( requireNonNullArgument( inputStream, "inputStream" ), BUFFER_SIZE );
+        }   //  decompress()
+    },
+
+    /**
+     *  The zlib format; the file extensions are {@code .zz},
+     *  {@code .deflate} and {@code .zlib}.
+     */
+    DEFLATE( ".zz", ".deflate", ".zlib" )
+    {
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final OutputStream compress( final OutputStream outputStream ) throws IOException
+        {
+            //---* A deflater that is passed in is not ended by the stream *---
+            return new DeflaterOutputStream( requireNonNullArgument( outputStream, "outputStream" ), new Deflater(), BUFFER_SIZE )
+            {
+                /**
+                 *  {@inheritDoc}
+                 */
+                @Override
+                public final void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        def.end();
+                    }
+                }   //  close()
+            };
+        }   //  compress()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final InputStream decompress( final InputStream inputStream ) throws IOException
+        {
+            //---* An inflater that is passed in is not ended by the stream *--
+            return new InflaterInputStream( requireNonNullArgument( inputStream, "inputStream" ), new Inflater(), BUFFER_SIZE )
+            {
+                /**
+                 *  {@inheritDoc}
+                 */
+                @Override
+                public final void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        inf.end();
+                    }
+                }   //  close()
+            };
+        }   //  decompress()
+    };
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The size of the buffers: {@value}.
+     */
+    public static final int BUFFER_SIZE = 0x10000;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The file extensions for the format.
+     */
+    private final String [] m_Extensions;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code Compression} instance.
+     *
+     *  @param  extensions  The file extensions for the format.
+     */
+    private Compression( final String... extensions )
+    {
+        m_Extensions = extensions;
+    }   //  Compression()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Wraps the given
+     *  {@link OutputStream}
+     *  into a stream that compresses the data. The returned stream has to be
+     *  closed to write the trailer of the compressed data.
+     *
+     *  @param  outputStream    The target for the compressed data.
+     *  @return The compressing stream; for {@link #NONE}, the given stream.
+     *  @throws IOException The stream cannot be created.
+     */
+    public OutputStream compress( final OutputStream outputStream ) throws IOException
+    {
+        return requireNonNullArgument( outputStream, "outputStream" );
+    }   //  compress()
+
+    /**
+     *  Wraps the given
+     *  {@link InputStream}
+     *  into a stream that decompresses the data.
+     *
+     *  @param  inputStream The compressed data.
+     *  @return The decompressing stream; for {@link #NONE}, the given stream.
+     *  @throws IOException The stream cannot be created, or the header of
+     *      the compressed data is invalid.
+     */
+    public InputStream decompress( final InputStream inputStream ) throws IOException
+    {
+        return requireNonNullArgument( inputStream, "inputStream" );
+    }   //  decompress()
+
+    /**
+     *  Detects the compression format from the first bytes of the given
+     *  stream. The stream must support
+     *  {@linkplain InputStream#mark(int) mark}
+     *  and
+     *  {@linkplain InputStream#reset() reset};
+     *  its position is not changed.
+     *  <p>An XML document never starts with the bytes of a gzip or a zlib
+     *  header, so the detection is unambiguous.</p>
+     *
+     *  @param  inputStream The input stream.
+     *  @return The compression format.
+     *  @throws IOException The stream cannot be read.
+     */
+    public static final Compression detect( final InputStream inputStream ) throws IOException
+    {
+        if( !requireNonNullArgument( inputStream, "inputStream" ).markSupported() ) throw new IOException( "mark/reset is not supported by the input stream" );
+
+        inputStream.mark( 2 );
+        final var first = inputStream.read();
+        final var second = inputStream.read();
+        inputStream.reset();
+
+        final var retValue = first == 0x1F && second == 0x8B
+            ? GZIP
+            : (first & 0x0F) == 8 && (first >> 4) <= 7 && second >= 0 && ((first << 8) | second) % 31 == 0
+                ? DEFLATE
+                : NONE;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  detect()
+
+    /**
+     *  Detects the compression format of the given file from its first
+     *  bytes.
+     *
+     *  @param  file    The file.
+     *  @return The compression format.
+     *  @throws IOException The file cannot be read.
+     */
+    public static final Compression detect( final Path file ) throws IOException
+    {
+        try( final var inputStream = new BufferedInputStream( Files.newInputStream( requireNonNullArgument( file, "file" ) ), 2 ) )
+        {
+            final var retValue = detect( inputStream );
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }
+    }   //  detect()
+
+    /**
+     *  Returns the compression format for the given file name, determined
+     *  from its extension.
+     *
+     *  @param  file    The file.
+     *  @return The compression format.
+     */
+    public static final Compression forFileName( final Path file )
+    {
+        final var fileName = requireNonNullArgument( file, "file" ).getFileName();
+        final var name = isNull( fileName ) ? EMPTY_STRING : fileName.toString().toLowerCase( ROOT );
+        final var retValue = stream( values() )
+            .filter( compression -> stream( compression.m_Extensions ).anyMatch( name::endsWith ) )
+            .findFirst()
+            .orElse( NONE );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  forFileName()
+
+    /**
+     *  Checks whether the given file name has the extension of an XML file,
+     *  either plain or compressed, like {@code .xml.gz}.
+     *
+     *  @param  file    The file.
+     *  @return {@code true} if the file name ends with {@code .xml}, or with
+     *      {@code .xml} followed by the extension of a compression format,
+     *      {@code false} otherwise.
+     */
+    public static final boolean isXMLFileName( final Path file )
+    {
+        final var fileName = requireNonNullArgument( file, "file" ).getFileName();
+        final var name = isNull( fileName ) ? EMPTY_STRING : fileName.toString().toLowerCase( ROOT );
+        final var retValue = name.endsWith( ".xml" ) || forFileName( file ) != NONE && name.substring( 0, name.lastIndexOf( '.' ) ).endsWith( ".xml" );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isXMLFileName()
+
+    /**
+     *  Opens the given file for reading; if its contents is compressed, it
+     *  will be decompressed while it is read.
+     *
+     *  @param  file    The file.
+     *  @return The input stream with the uncompressed data.
+     *  @throws IOException The file cannot be opened.
+     */
+    @SuppressWarnings( "resource" )
+    public static final InputStream openInput( final Path file ) throws IOException
+    {
+        final var inputStream = new BufferedInputStream( Files.newInputStream( requireNonNullArgument( file, "file" ) ), BUFFER_SIZE );
+        final InputStream retValue;
+        try
+        {
+            retValue = detect( inputStream ).decompress( inputStream );
+        }
+        catch( final IOException e )
+        {
+            inputStream.close();
+            throw e;
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  openInput()
+
+    /**
+     *  Opens the given file for writing; if its extension denotes a
+     *  compression format, the data will be compressed while it is written.
+     *  The returned stream has to be closed to complete the file.
+     *
+     *  @param  file    The file.
+     *  @return The output stream for the uncompressed data.
+     *  @throws IOException The file cannot be opened.
+     */
+    @SuppressWarnings( "resource" )
+    public static final OutputStream openOutput( final Path file ) throws IOException
+    {
+        final var compression = forFileName( requireNonNullArgument( file, "file" ) );
+        final var outputStream = new BufferedOutputStream( Files.newOutputStream( file ), BUFFER_SIZE );
+        final OutputStream retValue;
+        try
+        {
+            retValue = compression.compress( outputStream );
+        }
+        catch( final IOException e )
+        {
+            outputStream.close();
+            throw e;
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  openOutput()
+}
+//  enum Compression
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,389 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.exception.ValidationException;
+import org.xml.sax.Attributes;
+
+/**
+ *  A simple element path, a subset of XPath that selects elements while the
+ *  document is parsed.
+ *  <p>{@summary The path consists of steps that are separated by
+ *  {@code /} (child) or {@code //} (descendant); each step is an element
+ *  name or {@code *}, optionally followed by predicates.} The supported
+ *  predicates are a position like {@code [2]} – counting the siblings with
+ *  the same name, or all siblings for {@code *} – and an attribute value
+ *  like {@code [@id='42']}. Examples:</p>
+ *  <ul>
+ *      <li>{@code /orders/order} – all {@code order} children of the root
+ *      element {@code orders}</li>
+ *      <li>{@code //order[@id='42']} – the {@code order} elements with the
+ *      id 42, everywhere in the document</li>
+ *      <li>{@code /orders/order[1000]} – the 1000th {@code order}; as no
+ *      other element can match, the parsing stops when it was closed</li>
+ *  </ul>
+ *  <p>A path that does not start with {@code /} is relative to any element,
+ *  like if it would start with {@code //}. Element and attribute names are
+ *  compared with the qualified names as they appear in the document,
+ *  including the namespace prefix.</p>
+ *  <p>The path is evaluated as a non-deterministic automaton: the state for
+ *  an element is the set of the steps that can follow it, stored as the bits
+ *  of a {@code long}; therefore a path can have at most 62 steps. Instances
+ *  of this class are immutable and thread-safe.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public final class ElementPath
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  A step of the path.
+     *
+     *  @param  name    The element name; {@code null} for {@code *}.
+     *  @param  descendant  {@code true} if the step is preceded by
+     *      {@code //}, {@code false} if it is preceded by {@code /}.
+     *  @param  position    The position of the element among its siblings;
+     *      0 if the step has no position predicate.
+     *  @param  attributeName   The name of the attribute for the attribute
+     *      predicate; {@code null} if the step has no attribute predicate.
+     *  @param  attributeValue  The value for the attribute predicate.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    private record Step( String name, boolean descendant, int position, String attributeName, String attributeValue )
+    {
+        /**
+         *  Checks whether the given element matches this step.
+         *
+         *  @param  elementName The name of the element.
+         *  @param  attributes  The attributes of the element.
+         *  @param  namePosition    The position of the element among the
+         *      siblings with the same name, starting with 1.
+         *  @param  elementPosition The position of the element among all
+         *      siblings, starting with 1.
+         *  @return {@code true} if the element matches, {@code false}
+         *      otherwise.
+         */
+        public final boolean matches( final String elementName, final Attributes attributes, final int namePosition, final int elementPosition )
+        {
+            var retValue = isNull( name ) || name.equals( elementName );
+            if( retValue && (position > 0) ) retValue = position == (isNull( name ) ? elementPosition : namePosition);
+            if( retValue && !isNull( attributeName ) ) retValue = attributeValue.equals( attributes.getValue( attributeName ) );
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  matches()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final String toString()
+        {
+            final var buffer = new StringBuilder( descendant ? "//" : "/" ).append( isNull( name ) ? "*" : name );
+            if( !isNull( attributeName ) )
+            {
+                final var quote = attributeValue.indexOf( '\'' ) < 0 ? '\'' : '"';
+                buffer.append( "[@" ).append( attributeName ).append( '=' ).append( quote ).append( attributeValue ).append( quote ).append( ']' );
+            }
+            if( position > 0 ) buffer.append( '[' ).append( position ).append( ']' );
+            final var retValue = buffer.toString();
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  toString()
+    }
+    //  record Step
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The maximum number of steps: {@value}.
+     */
+    public static final int MAX_STEPS = 62;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  {@code true} if at least one step has a position predicate.
+     */
+    private final boolean m_HasPositions;
+
+    /**
+     *  The steps.
+     */
+    private final Step [] m_Steps;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code ElementPath}.
+     *
+     *  @param  steps   The steps.
+     */
+    private ElementPath( final List<Step> steps )
+    {
+        m_Steps = steps.toArray( Step []::new );
+        var hasPositions = false;
+        for( final var step : m_Steps ) hasPositions |= step.position() > 0;
+        m_HasPositions = hasPositions;
+    }   //  ElementPath()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Checks whether an element with the given state can still get a child
+     *  or a descendant that matches the path.
+     *
+     *  @param  state   The state of the element; for the document itself,
+     *      the value returned by
+     *      {@link #initialState()}.
+     *  @param  nameCounts  Returns the number of the children with the given
+     *      name that the element had so far.
+     *  @param  childCount  The number of all children that the element had
+     *      so far.
+     *  @return {@code true} if a match is still possible, {@code false}
+     *      otherwise.
+     */
+    final boolean canMatchBelow( final long state, final ToIntFunction<String> nameCounts, final int childCount )
+    {
+        var retValue = false;
+        for( var i = 0; (i < m_Steps.length) && !retValue; ++i )
+        {
+            if( (state & (1L << i)) != 0 )
+            {
+                final var step = m_Steps [i];
+                retValue = step.descendant()
+                    || (step.position() == 0)
+                    || (step.position() > (isNull( step.name() ) ? childCount : nameCounts.applyAsInt( step.name() )));
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  canMatchBelow()
+
+    /**
+     *  Parses the given path.
+     *
+     *  @param  path    The path.
+     *  @return The element path.
+     *  @throws ValidationException The path is invalid.
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public static final ElementPath compile( final CharSequence path )
+    {
+        final var text = requireNonNullArgument( path, "path" ).toString().strip();
+        if( text.isEmpty() ) throw new ValidationException( "The element path is empty" );
+
+        final List<Step> steps = new ArrayList<>();
+        final var length = text.length();
+        var position = 0;
+        while( position < length )
+        {
+            //---* The axis *--------------------------------------------------
+            final boolean descendant;
+            if( text.startsWith( "//", position ) )
+            {
+                descendant = true;
+                position += 2;
+            }
+            else if( text.charAt( position ) == '/' )
+            {
+                descendant = false;
+                ++position;
+            }
+            else if( position == 0 )
+            {
+                descendant = true;
+            }
+            else
+            {
+                throw new ValidationException( "'/' expected at position %d: %s".formatted( position, text ) );
+            }
+
+            //---* The name *--------------------------------------------------
+            var end = position;
+            while( (end < length) && "/[".indexOf( text.charAt( end ) ) < 0 ) ++end;
+            final var name = text.substring( position, end ).strip();
+            if( name.isEmpty() ) throw new ValidationException( "Element name expected at position %d: %s".formatted( position, text ) );
+            position = end;
+
+            //---* The predicates *--------------------------------------------
+            var stepPosition = 0;
+            String attributeName = null;
+            String attributeValue = null;
+            while( (position < length) && (text.charAt( position ) == '[') )
+            {
+                //---* A quoted value may contain ']' *-------------------------
+                end = position + 1;
+                var quote = '\0';
+                while( (end < length) && ((quote != '\0') || (text.charAt( end ) != ']')) )
+                {
+                    final var c = text.charAt( end );
+                    if( quote != '\0' )
+                    {
+                        if( c == quote ) quote = '\0';
+                    }
+                    else if( (c == '\'') || (c == '"') )
+                    {
+                        quote = c;
+                    }
+                    ++end;
+                }
+                if( end >= length ) throw new ValidationException( "']' expected: %s".formatted( text ) );
+                final var predicate = text.substring( position + 1, end ).strip();
+                if( predicate.startsWith( "@" ) )
+                {
+                    final var separator = predicate.indexOf( '=' );
+                    if( separator < 0 ) throw new ValidationException( "Invalid attribute predicate: [%s]".formatted( predicate ) );
+                    attributeName = predicate.substring( 1, separator ).strip();
+                    attributeValue = predicate.substring( separator + 1 ).strip();
+                    if( (attributeValue.length() < 2) || (attributeValue.charAt( 0 ) != attributeValue.charAt( attributeValue.length() - 1 )) || ("'\"".indexOf( attributeValue.charAt( 0 ) ) < 0) )
+                    {
+                        throw new ValidationException( "Invalid attribute predicate: [%s]".formatted( predicate ) );
+                    }
+                    attributeValue = attributeValue.substring( 1, attributeValue.length() - 1 );
+                }
+                else
+                {
+                    try
+                    {
+                        stepPosition = Integer.parseInt( predicate );
+                    }
+                    catch( final NumberFormatException e )
+                    {
+                        throw new ValidationException( "Invalid predicate: [%s]".formatted( predicate ), e );
+                    }
+                    if( stepPosition < 1 ) throw new ValidationException( "Invalid position: [%s]".formatted( predicate ) );
+                }
+                position = end + 1;
+            }
+            steps.add( new Step( "*".equals( name ) ? null : name, descendant, stepPosition, attributeName, attributeValue ) );
+        }
+        if( steps.size() > MAX_STEPS ) throw new ValidationException( "The element path has more than %d steps: %s".formatted( MAX_STEPS, text ) );
+
+        final var retValue = new ElementPath( steps );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  compile()
+
+    /**
+     *  Checks whether the path has a position predicate, so that the
+     *  matching can finish before the end of the document.
+     *
+     *  @return {@code true} if there is a position predicate, {@code false}
+     *      otherwise.
+     */
+    final boolean hasPositions() { return m_HasPositions; }
+
+    /**
+     *  Returns the state for the document itself.
+     *
+     *  @return The initial state.
+     */
+    @SuppressWarnings( "static-method" )
+    final long initialState() { return 1L; }
+
+    /**
+     *  Checks whether the given state denotes a matching element.
+     *
+     *  @param  state   The state of the element.
+     *  @return {@code true} if the element matches the path, {@code false}
+     *      otherwise.
+     */
+    final boolean isMatch( final long state ) { return (state & (1L << m_Steps.length)) != 0; }
+
+    /**
+     *  Returns the state for an element.
+     *
+     *  @param  parentState The state of the parent element.
+     *  @param  name    The name of the element.
+     *  @param  attributes  The attributes of the element.
+     *  @param  namePosition    The position of the element among the siblings
+     *      with the same name, starting with 1.
+     *  @param  elementPosition The position of the element among all
+     *      siblings, starting with 1.
+     *  @return The state of the element; 0 if neither the element nor one of
+     *      its descendants can match the path.
+     */
+    final long nextState( final long parentState, final String name, final Attributes attributes, final int namePosition, final int elementPosition )
+    {
+        var retValue = 0L;
+        for( var i = 0; i < m_Steps.length; ++i )
+        {
+            if( (parentState & (1L << i)) != 0 )
+            {
+                final var step = m_Steps [i];
+                if( step.descendant() ) retValue |= 1L << i;
+                if( step.matches( name, attributes, namePosition, elementPosition ) ) retValue |= 1L << (i + 1);
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  nextState()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString()
+    {
+        final var buffer = new StringBuilder();
+        for( final var step : m_Steps ) buffer.append( step );
+        final var retValue = buffer.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toString()
+}
+//  class ElementPath
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,176 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+import static org.apiguardian.api.API.Status.EXPERIMENTAL;
+import static org.tquadrat.foundation.xml.builder.XMLBuilderUtils.createXMLDocument;
+import static org.tquadrat.foundation.xml.builder.XMLBuilderUtils.createXMLElement;
+
+import java.net.URI;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.PlaygroundClass;
+import org.tquadrat.foundation.exception.PrivateConstructorForStaticClassCalledError;
+import org.tquadrat.foundation.xml.builder.Namespace;
+import org.tquadrat.foundation.xml.builder.XMLElement;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ *  Measures the allocation rate of
+ *  {@link XMLBeautifier.XMLHandler}.
+ *  <p>{@summary The SAX events for a document are replayed directly to the
+ *  handler, without a parser, and the bytes allocated per element are
+ *  compared with those for building the same output nodes without the
+ *  handler.} The difference is the allocation caused by the handler itself;
+ *  in the steady state, it should be zero.</p>
+ *  <p>The optional command line argument is the number of elements per
+ *  document; the default is 10,000.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = EXPERIMENTAL, since = "0.4.3" )
+@PlaygroundClass
+public final class HandlerAllocationBenchmark
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The nesting depth of the records.
+     */
+    private static final int DEPTH = 4;
+
+    /**
+     *  The element names per nesting level.
+     */
+    private static final String [] ELEMENT_NAMES = {"order", "customer", "address", "street"};
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private HandlerAllocationBenchmark() { throw new PrivateConstructorForStaticClassCalledError( HandlerAllocationBenchmark.class ); }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Builds the output nodes for a document without the handler.
+     *
+     *  @param  count   The number of elements.
+     *  @param  namespace   The namespace for the elements.
+     *  @return The document.
+     */
+    private static final Object buildNodes( final int count, final Namespace namespace )
+    {
+        final var retValue = createXMLDocument( "root" );
+        final var stack = new XMLElement [DEPTH];
+        for( var i = 0; i < count; ++i )
+        {
+            final var level = i % DEPTH;
+            final var element = level == 0 ? createXMLElement( ELEMENT_NAMES [level], retValue ) : createXMLElement( ELEMENT_NAMES [level], stack [level - 1] );
+            element.setNamespace( namespace );
+            element.setAttribute( "id", "4711" );
+            element.setAttribute( "state", "open" );
+            stack [level] = element;
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  buildNodes()
+
+    /**
+     *  The program entry point.
+     *
+     *  @param  args    The command line arguments.
+     */
+    public static final void main( final String... args )
+    {
+        try
+        {
+            final var count = args.length > 0 ? Integer.parseInt( args [0] ) : 10_000;
+            final var attributes = new AttributesImpl();
+            attributes.addAttribute( "", "", "xmlns:ns", "CDATA", "urn:example:orders" );
+            attributes.addAttribute( "", "", "id", "CDATA", "4711" );
+            attributes.addAttribute( "", "", "state", "CDATA", "open" );
+            final var noAttributes = new AttributesImpl();
+            final var namespace = new Namespace( "ns", URI.create( "urn:example:orders" ) );
+
+            final var runner = new BenchmarkRunner( 5, 5, 500 );
+            final var handler = runner.run( "XMLHandler", "%d elements".formatted( count ), 0, () -> replay( count, attributes, noAttributes ) );
+            final var baseline = runner.run( "output nodes only", "%d elements".formatted( count ), 0, () -> buildNodes( count, namespace ) );
+            out.println( handler );
+            out.println( baseline );
+            out.printf( "Handler allocation per element: %.2f bytes (%.2f bytes with handler, %.2f bytes for the output nodes)%n",
+                (handler.bytesPerOperation() - baseline.bytesPerOperation()) / count,
+                handler.bytesPerOperation() / count,
+                baseline.bytesPerOperation() / count );
+        }
+        catch( final Throwable t )
+        {
+            //---* Handle previously unhandled exceptions *--------------------
+            t.printStackTrace( err );
+        }
+    }   //  main()
+
+    /**
+     *  Replays the events for a document to a new handler.
+     *
+     *  @param  count   The number of elements.
+     *  @param  attributes  The attributes for each element.
+     *  @param  noAttributes    The (empty) attributes for the root element.
+     *  @return The handler.
+     *  @throws Exception   The handler failed.
+     */
+    private static final Object replay( final int count, final AttributesImpl attributes, final AttributesImpl noAttributes ) throws Exception
+    {
+        final var retValue = new XMLBeautifier.XMLHandler( new NamespaceCache() );
+        retValue.startDocument();
+        retValue.startElement( "", "", "root", noAttributes );
+        for( var i = 0; i < count; ++i )
+        {
+            retValue.startElement( "", "", ELEMENT_NAMES [i % DEPTH], attributes );
+            if( i % DEPTH == DEPTH - 1 )
+            {
+                for( var level = DEPTH - 1; level >= 0; --level ) retValue.endElement( "", "", ELEMENT_NAMES [level] );
+            }
+        }
+        for( var level = count % DEPTH - 1; level >= 0; --level ) retValue.endElement( "", "", ELEMENT_NAMES [level] );
+        retValue.endElement( "", "", "root" );
+        retValue.endDocument();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  replay()
+}
+//  class HandlerAllocationBenchmark
+
+/*
+ *  End of File
+ */
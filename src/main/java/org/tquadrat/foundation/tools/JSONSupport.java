@@ -0,0 +1,121 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.util.Locale.ROOT;
+import static org.apiguardian.api.API.Status.INTERNAL;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.UtilityClass;
+import org.tquadrat.foundation.exception.PrivateConstructorForStaticClassCalledError;
+
+/**
+ *  Helpers for the JSON output of the reports in this module.
+ *  <p>{@summary Numbers are always formatted for
+ *  {@link java.util.Locale#ROOT},
+ *  as JSON requires a decimal point regardless of the default locale, and
+ *  strings are escaped.}</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = INTERNAL, since = "0.4.3" )
+@UtilityClass
+final class JSONSupport
+{
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private JSONSupport() { throw new PrivateConstructorForStaticClassCalledError( JSONSupport.class ); }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Formats the given arguments with the given template, independent
+     *  from the default locale. String arguments are not quoted; use
+     *  {@link #quote(CharSequence)}
+     *  for them.
+     *
+     *  @param  template    The template.
+     *  @param  args    The arguments.
+     *  @return The formatted text.
+     */
+    static final String format( final String template, final Object... args )
+    {
+        final var retValue = String.format( ROOT, requireNonNullArgument( template, "template" ), args );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  format()
+
+    /**
+     *  Returns the given text as a JSON string literal.
+     *
+     *  @param  text    The text; can be {@code null}.
+     *  @return The string literal, or {@code null} as a JSON literal.
+     */
+    static final String quote( final CharSequence text )
+    {
+        if( isNull( text ) ) return "null";
+
+        final var buffer = new StringBuilder( text.length() + 2 ).append( '"' );
+        for( var i = 0; i < text.length(); ++i )
+        {
+            final var c = text.charAt( i );
+            switch( c )
+            {
+                case '"' -> buffer.append( "\\\"" );
+                case '\\' -> buffer.append( "\\\\" );
+                case '\n' -> buffer.append( "\\n" );
+                case '\r' -> buffer.append( "\\r" );
+                case '\t' -> buffer.append( "\\t" );
+                default ->
+                {
+                    if( c < 0x20 )
+                    {
+                        buffer.append( String.format( ROOT, "\\u%04x", (int) c ) );
+                    }
+                    else
+                    {
+                        buffer.append( c );
+                    }
+                }
+            }
+        }
+        final var retValue = buffer.append( '"' ).toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  quote()
+}
+//  class JSONSupport
+
+/*
+ *  End of File
+ */
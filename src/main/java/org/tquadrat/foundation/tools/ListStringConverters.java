@@ -21,6 +21,8 @@ import static java.lang.System.err;
 import static java.lang.System.out;
 import static org.apiguardian.api.API.Status.EXPERIMENTAL;
 
+import java.util.Arrays;
+
 import org.apiguardian.api.API;
 import org.tquadrat.foundation.annotation.ClassVersion;
 import org.tquadrat.foundation.annotation.PlaygroundClass;
@@ -28,9 +30,18 @@ import org.tquadrat.foundation.exception.PrivateConstructorForStaticClassCalledE
 import org.tquadrat.foundation.lang.StringConverter;
 
 /**
- *  Tester for the retrieval of
+ *  Lists the subject classes of the
  *  {@link StringConverter}
- *  instances from the service.
+ *  instances that are registered with the service; the names are taken
+ *  from the
+ *  {@link StringConverterIndex}
+ *  if there is one, otherwise from the service itself.
+ *  <p>When called with
+ *  {@value #OPTION_BENCHMARK}
+ *  as the first argument, the remaining arguments are passed to
+ *  {@link StringConverterBenchmark},
+ *  and the registered converters are checked and measured instead of only
+ *  being listed.</p>
  *
  *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
  *  @version $Id: ListStringConverters.java 1073 2023-10-01 11:08:51Z tquadrat $
@@ -44,6 +55,16 @@ import org.tquadrat.foundation.lang.StringConverter;
 @PlaygroundClass
 public final class ListStringConverters
 {
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The command line option that runs the benchmark for the converters:
+     *  {@value}.
+     */
+    @API( status = EXPERIMENTAL, since = "0.4.3" )
+    public static final String OPTION_BENCHMARK = "--benchmark";
+
         /*--------------*\
     ====** Constructors **=====================================================
         \*--------------*/
@@ -64,11 +85,16 @@ public final class ListStringConverters
     {
         try
         {
-            StringConverter.list()
-                .stream()
-                .map( Class::getName )
-                .sorted()
-                .forEach( out::println );
+            if( args.length > 0 && OPTION_BENCHMARK.equals( args [0] ) )
+            {
+                StringConverterBenchmark.main( Arrays.copyOfRange( args, 1, args.length ) );
+            }
+            else
+            {
+                StringConverterIndex.load()
+                    .list()
+                    .forEach( out::println );
+            }
         }
         catch( final Throwable t )
         {
@@ -77,7 +103,7 @@ public final class ListStringConverters
         }
     }  //  main()
 }
-//  class RetrieveStringConverter
+//  class ListStringConverters
 
 /*
  *  End of File
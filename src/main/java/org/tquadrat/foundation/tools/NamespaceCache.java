@@ -0,0 +1,297 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.exception.ValidationException;
+import org.tquadrat.foundation.util.stringconverter.URIStringConverter;
+import org.tquadrat.foundation.xml.builder.Namespace;
+
+/**
+ *  A cache for
+ *  {@link Namespace}
+ *  instances and a symbol table for element and attribute names.
+ *  <p>{@summary Documents like SOAP messages repeat the same few namespace
+ *  declarations on thousands of elements; with this cache, each distinct
+ *  declaration is parsed into a
+ *  {@link URI}
+ *  and a
+ *  {@link Namespace}
+ *  only once.}</p>
+ *  <p>Usually, a new cache is used for each document; instances of this
+ *  class are thread-safe, so one cache can be shared by several
+ *  {@link XMLBeautifier}
+ *  instances, too. A cache stops adding new entries when it has reached its
+ *  capacity; lookups for entries that are not cached still succeed, but
+ *  count as misses. The hits and misses are counted separately for the
+ *  namespaces and for the symbols, as the symbol lookups outnumber the
+ *  namespace declarations by far.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public final class NamespaceCache
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The default capacity: {@value}.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The maximum number of entries in the namespace table, and in the
+     *  symbol table.
+     */
+    private final int m_Capacity;
+
+    /**
+     *  The number of entries in the namespace table, over all declaring
+     *  attributes.
+     */
+    private final AtomicInteger m_NamespaceCount = new AtomicInteger();
+
+    /**
+     *  The counter for the cache hits for namespaces.
+     */
+    private final LongAdder m_NamespaceHits = new LongAdder();
+
+    /**
+     *  The counter for the cache misses for namespaces.
+     */
+    private final LongAdder m_NamespaceMisses = new LongAdder();
+
+    /**
+     *  The namespaces, by the name of the declaring attribute and the URI.
+     */
+    private final Map<String,Map<String,Namespace>> m_Namespaces = new ConcurrentHashMap<>();
+
+    /**
+     *  The counter for the cache hits for symbols.
+     */
+    private final LongAdder m_SymbolHits = new LongAdder();
+
+    /**
+     *  The counter for the cache misses for symbols.
+     */
+    private final LongAdder m_SymbolMisses = new LongAdder();
+
+    /**
+     *  The symbol table for element and attribute names.
+     */
+    private final Map<String,String> m_Symbols = new ConcurrentHashMap<>();
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code NamespaceCache} with the
+     *  {@linkplain #DEFAULT_CAPACITY default capacity}.
+     */
+    public NamespaceCache() { this( DEFAULT_CAPACITY ); }
+
+    /**
+     *  Creates a new instance of {@code NamespaceCache}.
+     *
+     *  @param  capacity    The maximum number of entries in the namespace
+     *      table, and in the symbol table.
+     */
+    public NamespaceCache( final int capacity )
+    {
+        if( capacity < 1 ) throw new ValidationException( "capacity is less than 1: %d".formatted( capacity ) );
+        m_Capacity = capacity;
+    }   //  NamespaceCache()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the
+     *  {@link Namespace}
+     *  for the given namespace declaration.
+     *
+     *  @param  attributeName   The name of the declaring attribute, either
+     *      {@code xmlns} or {@code xmlns:<prefix>}.
+     *  @param  uri The namespace URI.
+     *  @return The namespace.
+     */
+    public final Namespace getNamespace( final String attributeName, final String uri )
+    {
+        final var byURI = m_Namespaces.get( requireNonNullArgument( attributeName, "attributeName" ) );
+        var retValue = isNull( byURI ) ? null : byURI.get( requireNonNullArgument( uri, "uri" ) );
+        if( isNull( retValue ) )
+        {
+            m_NamespaceMisses.increment();
+            final var separator = attributeName.indexOf( ':' );
+            final var namespaceURI = URIStringConverter.INSTANCE.fromString( uri );
+            retValue = separator < 0 ? new Namespace( namespaceURI ) : new Namespace( attributeName.substring( separator + 1 ), namespaceURI );
+
+            //---* Reserve a slot first, so the capacity holds for all tables *
+            if( m_NamespaceCount.incrementAndGet() <= m_Capacity )
+            {
+                final var previous = m_Namespaces.computeIfAbsent( attributeName, name -> new ConcurrentHashMap<>() ).putIfAbsent( uri, retValue );
+                if( !isNull( previous ) )
+                {
+                    m_NamespaceCount.decrementAndGet();
+                    retValue = previous;
+                }
+            }
+            else
+            {
+                m_NamespaceCount.decrementAndGet();
+            }
+        }
+        else
+        {
+            m_NamespaceHits.increment();
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getNamespace()
+
+    /**
+     *  Returns the number of cache hits for namespaces.
+     *
+     *  @return The hits.
+     */
+    public final long getNamespaceHits() { return m_NamespaceHits.sum(); }
+
+    /**
+     *  Returns the hit rate for namespaces.
+     *
+     *  @return The hit rate, a value between 0.0 and 1.0; 0.0 if no
+     *      namespace was looked up yet.
+     */
+    public final double getNamespaceHitRate() { return hitRate( getNamespaceHits(), getNamespaceMisses() ); }
+
+    /**
+     *  Returns the number of cache misses for namespaces.
+     *
+     *  @return The misses.
+     */
+    public final long getNamespaceMisses() { return m_NamespaceMisses.sum(); }
+
+    /**
+     *  Returns the number of cache hits for symbols.
+     *
+     *  @return The hits.
+     */
+    public final long getSymbolHits() { return m_SymbolHits.sum(); }
+
+    /**
+     *  Returns the hit rate for symbols.
+     *
+     *  @return The hit rate, a value between 0.0 and 1.0; 0.0 if no symbol
+     *      was looked up yet.
+     */
+    public final double getSymbolHitRate() { return hitRate( getSymbolHits(), getSymbolMisses() ); }
+
+    /**
+     *  Returns the number of cache misses for symbols.
+     *
+     *  @return The misses.
+     */
+    public final long getSymbolMisses() { return m_SymbolMisses.sum(); }
+
+    /**
+     *  Calculates a hit rate.
+     *
+     *  @param  hits    The number of hits.
+     *  @param  misses  The number of misses.
+     *  @return The hit rate, a value between 0.0 and 1.0; 0.0 if there were
+     *      no lookups.
+     */
+    private static final double hitRate( final long hits, final long misses )
+    {
+        final var total = hits + misses;
+        final var retValue = total == 0 ? 0.0 : (double) hits / total;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hitRate()
+
+    /**
+     *  Returns the canonical instance for the given element or attribute
+     *  name, so that the built document holds only one instance per distinct
+     *  name.
+     *
+     *  @param  name    The name.
+     *  @return The canonical instance of the name.
+     */
+    public final String intern( final String name )
+    {
+        var retValue = m_Symbols.get( requireNonNullArgument( name, "name" ) );
+        if( isNull( retValue ) )
+        {
+            m_SymbolMisses.increment();
+            retValue = name;
+            if( m_Symbols.size() < m_Capacity )
+            {
+                final var previous = m_Symbols.putIfAbsent( name, name );
+                if( !isNull( previous ) ) retValue = previous;
+            }
+        }
+        else
+        {
+            m_SymbolHits.increment();
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  intern()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString()
+    {
+        final var retValue = "NamespaceCache [namespaces: hits=%d, misses=%d, hitRate=%.1f%%; symbols: hits=%d, misses=%d, hitRate=%.1f%%]".formatted(
+            getNamespaceHits(), getNamespaceMisses(), getNamespaceHitRate() * 100.0,
+            getSymbolHits(), getSymbolMisses(), getSymbolHitRate() * 100.0 );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toString()
+}
+//  class NamespaceCache
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,431 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.SequenceInputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.exception.ValidationException;
+import org.xml.sax.SAXException;
+
+/**
+ *  Beautifies large XML documents that consist of a root element with many
+ *  independent children – like data dumps or feed exports – on all
+ *  available cores.
+ *  <p>{@summary The boundaries of the children of the root element are
+ *  determined by a lightweight scan of the raw bytes; the children are then
+ *  grouped into chunks of a minimum size that are beautified in parallel on
+ *  a
+ *  {@link ForkJoinPool},
+ *  and the results are written in the original order.} Each chunk is parsed
+ *  together with the prolog and the start tag of the root element, so that
+ *  namespace declarations and entity declarations are in effect for each
+ *  chunk.</p>
+ *  <p>The output is the same as that of
+ *  {@link XMLBeautifier#process(Writer)}.
+ *  Documents in an encoding that does not represent the markup characters
+ *  by their ASCII codes (UTF-16, for example), documents that cannot be
+ *  split, and files larger than 2 GB, are processed sequentially. The same
+ *  applies to documents with processing instructions inside the root
+ *  element, with anything but whitespace between the last child and the
+ *  end tag of the root element, or with anything but whitespace after the
+ *  root element, as the layout of these parts depends on the rest of the
+ *  document.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public final class ParallelBeautifier
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The default minimum size for a chunk: {@value} bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     *  The end of the formatted skeleton, the empty root element:
+     *  {@value}. The chunks are inserted by replacing it with the end of
+     *  the start tag.
+     */
+    private static final String SKELETON_END = "/>\n";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The minimum size for a chunk.
+     */
+    private final int m_ChunkSize;
+
+    /**
+     *  The engine that provides the parsers.
+     */
+    private BeautifierEngine m_Engine;
+
+    /**
+     *  The pool for the processing of the chunks.
+     */
+    private final ForkJoinPool m_Pool;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code ParallelBeautifier} that uses the
+     *  {@linkplain ForkJoinPool#commonPool() common pool}
+     *  and chunks of
+     *  {@value #DEFAULT_CHUNK_SIZE}
+     *  bytes.
+     */
+    public ParallelBeautifier() { this( ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE ); }
+
+    /**
+     *  Creates a new instance of {@code ParallelBeautifier}.
+     *
+     *  @param  pool    The pool for the processing of the chunks.
+     *  @param  chunkSize   The minimum size of a chunk, in bytes.
+     */
+    public ParallelBeautifier( final ForkJoinPool pool, final int chunkSize )
+    {
+        m_Pool = requireNonNullArgument( pool, "pool" );
+        if( chunkSize < 1 ) throw new ValidationException( "chunkSize is less than 1: %d".formatted( chunkSize ) );
+        m_ChunkSize = chunkSize;
+        m_Engine = new BeautifierEngine( pool.getParallelism() );
+    }   //  ParallelBeautifier()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Beautifies a single chunk.
+     *
+     *  @param  prefix  The prolog and the start tag of the root element.
+     *  @param  chunk   The chunk.
+     *  @param  suffix  The end tag of the root element.
+     *  @return The beautified children.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code.
+     */
+    private final String beautifyChunk( final ByteBuffer prefix, final ByteBuffer chunk, final byte [] suffix ) throws ParserConfigurationException, SAXException, IOException
+    {
+        final var input = new SequenceInputStream( new XMLBeautifier.ByteBufferInputStream( prefix ), new SequenceInputStream( new XMLBeautifier.ByteBufferInputStream( chunk ), new ByteArrayInputStream( suffix ) ) );
+        final var beautifier = new XMLBeautifier( input );
+        beautifier.setEngine( m_Engine );
+        final var buffer = new StringWriter( chunk.remaining() * 2 );
+        beautifier.processFragment( buffer );
+        final var retValue = buffer.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  beautifyChunk()
+
+    /**
+     *  Returns the engine that provides the parsers.
+     *
+     *  @return The engine.
+     */
+    public final BeautifierEngine getEngine() { return m_Engine; }
+
+    /**
+     *  Checks whether the markup characters of the given document are
+     *  represented by their ASCII codes.
+     *
+     *  @param  buffer  The document.
+     *  @return {@code true} if the document can be split on byte level,
+     *      {@code false} otherwise.
+     */
+    private static final boolean isASCIICompatible( final ByteBuffer buffer )
+    {
+        var retValue = true;
+        final var position = buffer.position();
+        if( buffer.remaining() >= 2 )
+        {
+            final var first = buffer.get( position ) & 0xFF;
+            final var second = buffer.get( position + 1 ) & 0xFF;
+            retValue = !((first == 0xFE && second == 0xFF) || (first == 0xFF && second == 0xFE) || first == 0x00 || second == 0x00);
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isASCIICompatible()
+
+    /**
+     *  Beautifies the given document and writes the output to the given
+     *  {@link Writer}.
+     *
+     *  @param  source  The document; its position will not be changed.
+     *  @param  target  The target for the beautified code; it will be
+     *      flushed, but not closed.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code or
+     *      when writing the output.
+     *  @throws InterruptedException    The processing was interrupted.
+     */
+    public final void process( final ByteBuffer source, final Writer target ) throws ParserConfigurationException, SAXException, IOException, InterruptedException
+    {
+        requireNonNullArgument( source, "source" );
+        requireNonNullArgument( target, "target" );
+
+        //---* Determine the chunks before anything is written *-------------
+        TopLevelSplitter splitter = null;
+        final List<Integer> chunkEnds = new ArrayList<>();
+        if( isASCIICompatible( source ) )
+        {
+            try
+            {
+                splitter = new TopLevelSplitter( source );
+                int chunkEnd;
+                while( (chunkEnd = splitter.nextChunk( m_ChunkSize )) >= 0 ) chunkEnds.add( chunkEnd );
+            }
+            catch( final EOFException ignored )
+            {
+                //---* The parser will report the problem *--------------------
+                splitter = null;
+            }
+        }
+        if( isNull( splitter ) || splitter.isRootEmpty() || splitter.hasProcessingInstructions() || splitter.hasTail() || splitter.hasEpilog() )
+        {
+            processSequentially( source, target );
+            return;
+        }
+        final var prefix = source.slice( source.position(), splitter.getRootStartEnd() - source.position() );
+        final var suffix = "</%s>".formatted( splitter.getRootName() ).getBytes( UTF8 );
+
+        //---* Format the prolog and the root element without children *-------
+        final var skeletonBuffer = new StringWriter();
+        final var skeletonBeautifier = new XMLBeautifier( new SequenceInputStream( new XMLBeautifier.ByteBufferInputStream( prefix ), new ByteArrayInputStream( suffix ) ) );
+        skeletonBeautifier.setEngine( m_Engine );
+        skeletonBeautifier.process( skeletonBuffer );
+        final var skeleton = skeletonBuffer.toString();
+        if( !skeleton.endsWith( SKELETON_END ) )
+        {
+            //---* The start tag of the root cannot be reopened *--------------
+            processSequentially( source, target );
+            return;
+        }
+        var rootOpen = false;
+
+        //---* Format the chunks *---------------------------------------------
+        final var window = m_Pool.getParallelism() * 4;
+        final Deque<Future<String>> pending = new ArrayDeque<>( window );
+        var chunkStart = splitter.getRootStartEnd();
+        try
+        {
+            for( final int chunkEnd : chunkEnds )
+            {
+                final var chunk = source.slice( chunkStart, chunkEnd - chunkStart );
+                pending.add( m_Pool.submit( () ->
+                {
+                    try
+                    {
+                        return beautifyChunk( prefix, chunk, suffix );
+                    }
+                    catch( final IOException e )
+                    {
+                        throw new UncheckedIOException( e );
+                    }
+                } ) );
+                chunkStart = chunkEnd;
+                while( pending.size() >= window ) rootOpen = writeChunk( pending.removeFirst(), skeleton, rootOpen, target );
+            }
+            while( !pending.isEmpty() ) rootOpen = writeChunk( pending.removeFirst(), skeleton, rootOpen, target );
+        }
+        finally
+        {
+            //---* A failed chunk makes the others useless *-------------------
+            for( final var future : pending ) future.cancel( true );
+        }
+
+        //---* Close the root element *----------------------------------------
+        if( rootOpen )
+        {
+            target.write( "\n</" );
+            target.write( splitter.getRootName() );
+            target.write( ">\n" );
+        }
+        else
+        {
+            target.write( skeleton );
+        }
+        target.flush();
+    }   //  process()
+
+    /**
+     *  Beautifies the given file and writes the output, encoded as UTF-8, to
+     *  the given
+     *  {@link OutputStream}.
+     *  Compressed files cannot be mapped to memory; they are decompressed
+     *  and beautified sequentially.
+     *
+     *  @param  source  The file with the document.
+     *  @param  target  The target for the beautified code; it will be
+     *      flushed, but not closed.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code or
+     *      when writing the output.
+     *  @throws InterruptedException    The processing was interrupted.
+     */
+    public final void process( final Path source, final OutputStream target ) throws ParserConfigurationException, SAXException, IOException, InterruptedException
+    {
+        final var writer = new BufferedWriter( new OutputStreamWriter( requireNonNullArgument( target, "target" ), UTF8 ), 0x10000 );
+        try( final var channel = FileChannel.open( requireNonNullArgument( source, "source" ) ) )
+        {
+            if( channel.size() > Integer.MAX_VALUE || Compression.detect( source ) != Compression.NONE )
+            {
+                final var beautifier = new XMLBeautifier( source );
+                beautifier.setEngine( m_Engine );
+                beautifier.process( writer );
+            }
+            else
+            {
+                process( channel.map( READ_ONLY, 0, channel.size() ), writer );
+            }
+        }
+        writer.flush();
+    }   //  process()
+
+    /**
+     *  Beautifies the given document sequentially.
+     *
+     *  @param  source  The document.
+     *  @param  target  The target for the beautified code.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code or
+     *      when writing the output.
+     */
+    private final void processSequentially( final ByteBuffer source, final Writer target ) throws ParserConfigurationException, SAXException, IOException
+    {
+        final var beautifier = new XMLBeautifier( source );
+        beautifier.setEngine( m_Engine );
+        beautifier.process( target );
+    }   //  processSequentially()
+
+    /**
+     *  Sets the engine that provides the parsers, for the chunks and for the
+     *  documents that are processed sequentially. Per default, an engine
+     *  with a parser pool of the size of the parallelism of the pool is
+     *  used.
+     *
+     *  @param  engine  The engine.
+     */
+    public final void setEngine( final BeautifierEngine engine )
+    {
+        m_Engine = requireNonNullArgument( engine, "engine" );
+    }   //  setEngine()
+
+    /**
+     *  Waits for the result of the given chunk and writes it.
+     *
+     *  @param  chunk   The chunk.
+     *  @param  skeleton    The formatted prolog and root element.
+     *  @param  rootOpen    {@code true} if the start tag of the root element
+     *      was already written, {@code false} otherwise.
+     *  @param  target  The target for the output.
+     *  @return {@code true} if the start tag of the root element was written.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code or
+     *      when writing the output.
+     *  @throws InterruptedException    The processing was interrupted.
+     */
+    private static final boolean writeChunk( final Future<String> chunk, final String skeleton, final boolean rootOpen, final Writer target ) throws ParserConfigurationException, SAXException, IOException, InterruptedException
+    {
+        final String result;
+        try
+        {
+            result = chunk.get();
+        }
+        catch( final ExecutionException e )
+        {
+            switch( e.getCause() )
+            {
+                case final UncheckedIOException cause -> throw cause.getCause();
+                case final SAXException cause -> throw cause;
+                case final ParserConfigurationException cause -> throw cause;
+                case final RuntimeException cause -> throw cause;
+                case final Error cause -> throw cause;
+                default -> throw new IOException( e.getCause() );
+            }
+        }
+
+        var retValue = rootOpen;
+        if( !result.isEmpty() )
+        {
+            if( !retValue )
+            {
+                //---* Reopen the empty root element of the skeleton *----------
+                target.write( skeleton, 0, skeleton.length() - SKELETON_END.length() );
+                target.write( '>' );
+                retValue = true;
+            }
+            target.write( result );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  writeChunk()
+}
+//  class ParallelBeautifier
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,90 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.apiguardian.api.API.Status.STABLE;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.DefaultHandler2;
+
+/**
+ *  The definition of the parser that drives the handlers of
+ *  {@link XMLBeautifier}.
+ *  <p>{@summary An implementation reads the XML code from the given input
+ *  and reports it to the handler as SAX events, including those of the
+ *  {@link org.xml.sax.ext.LexicalHandler}
+ *  for CDATA sections and comments.} The events have to be the same as those
+ *  of a SAX parser that is not namespace aware: the element and attribute
+ *  names are provided as qualified names only, and namespace declarations
+ *  are reported as attributes. External DTDs and entities have to be
+ *  resolved through
+ *  {@link DefaultHandler2#resolveEntity(String, String, String, String)}
+ *  first.</p>
+ *  <p>Implementations must be thread-safe; an instance is shared by all
+ *  {@link XMLBeautifier}
+ *  instances that use the same
+ *  {@link BeautifierEngine}.</p>
+ *
+ *  @see SAXParserEngine
+ *  @see StAXParserEngine
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public interface ParserEngine
+{
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the name of this parser engine, for log output and reports.
+     *
+     *  @return The name.
+     */
+    public String getName();
+
+    /**
+     *  Parses the XML code from the given input and reports it to the given
+     *  handler.
+     *
+     *  @param  input   The input.
+     *  @param  handler The handler.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code,
+     *      or the handler aborted the processing.
+     *  @throws IOException A problem occurred when reading the XML code.
+     */
+    public void parse( final InputSource input, final DefaultHandler2 handler ) throws ParserConfigurationException, SAXException, IOException;
+}
+//  interface ParserEngine
+
+/*
+ *  End of File
+ */
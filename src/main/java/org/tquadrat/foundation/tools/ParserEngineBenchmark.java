@@ -0,0 +1,206 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.apiguardian.api.API.Status.EXPERIMENTAL;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.PlaygroundClass;
+import org.tquadrat.foundation.exception.PrivateConstructorForStaticClassCalledError;
+
+/**
+ *  Compares the
+ *  {@linkplain ParserEngine parser engines}
+ *  for
+ *  {@link XMLBeautifier}:
+ *  the throughput and the allocation of the
+ *  {@link SAXParserEngine}
+ *  and the
+ *  {@link StAXParserEngine}
+ *  in tree and in streaming mode, for all
+ *  {@linkplain XMLCorpus.Shape shapes}
+ *  of the generated corpus at several sizes.
+ *  <p>{@summary Before the measurement, the output of both engines is
+ *  compared for each document; the benchmark fails if they differ.}</p>
+ *  <p>Command line:</p>
+ *  <pre><code>ParserEngineBenchmark [{@value #OPTION_QUICK}] [{@value #OPTION_OUTPUT} &lt;file&gt;]</code></pre>
+ *  <p>The results are printed as a table; with
+ *  {@value #OPTION_OUTPUT},
+ *  they are written as JSON to the given file, too.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = EXPERIMENTAL, since = "0.4.3" )
+@PlaygroundClass
+public final class ParserEngineBenchmark
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The command line option for the JSON output file: {@value}.
+     */
+    public static final String OPTION_OUTPUT = BenchmarkLauncher.OPTION_OUTPUT;
+
+    /**
+     *  The command line option for a quick run with fewer iterations and
+     *  without the largest documents: {@value}.
+     */
+    public static final String OPTION_QUICK = BenchmarkLauncher.OPTION_QUICK;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private ParserEngineBenchmark() { throw new PrivateConstructorForStaticClassCalledError( ParserEngineBenchmark.class ); }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Beautifies the given document with the given engine in streaming
+     *  mode.
+     *
+     *  @param  engine  The engine.
+     *  @param  document    The document.
+     *  @param  target  The target for the output.
+     *  @throws Exception   The processing failed.
+     */
+    private static final void beautify( final BeautifierEngine engine, final ByteBuffer document, final Writer target ) throws Exception
+    {
+        final var beautifier = new XMLBeautifier( document.duplicate() );
+        beautifier.setEngine( engine );
+        beautifier.process( target );
+    }   //  beautify()
+
+    /**
+     *  Beautifies the given document with the given engine in tree mode.
+     *
+     *  @param  engine  The engine.
+     *  @param  document    The document.
+     *  @return The output.
+     *  @throws Exception   The processing failed.
+     */
+    private static final String beautify( final BeautifierEngine engine, final ByteBuffer document ) throws Exception
+    {
+        final var beautifier = new XMLBeautifier( document.duplicate() );
+        beautifier.setEngine( engine );
+        final var retValue = beautifier.process();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  beautify()
+
+    /**
+     *  The program entry point.
+     *
+     *  @param  args    The command line arguments.
+     */
+    public static final void main( final String... args )
+    {
+        BenchmarkLauncher.launch( args, Set.of(), ParserEngineBenchmark::run );
+    }   //  main()
+
+    /**
+     *  Runs the benchmarks.
+     *
+     *  @param  launcher    The launcher with the command line options.
+     *  @throws Exception   A benchmark failed.
+     */
+    private static final void run( final BenchmarkLauncher launcher ) throws Exception
+    {
+        final var runner = launcher.isQuick() ? new BenchmarkRunner( 2, 3, 200 ) : new BenchmarkRunner( 5, 10, 1_000 );
+        final var sizes = launcher.isQuick() ? new int [] {16 * 1024, 1024 * 1024} : new int [] {16 * 1024, 1024 * 1024, 16 * 1024 * 1024};
+        final var engines = List.of( new BeautifierEngine( new SAXParserEngine() ), new BeautifierEngine( new StAXParserEngine() ) );
+
+        for( final var shape : XMLCorpus.Shape.values() )
+        {
+            for( final var size : sizes )
+            {
+                final var bytes = XMLCorpus.generate( shape, size ).getBytes( UTF8 );
+                final var document = ByteBuffer.wrap( bytes ).asReadOnlyBuffer();
+                final var parameters = "%s/%dKB".formatted( shape, size / 1024 );
+                verify( engines, document, parameters );
+
+                for( final var engine : engines )
+                {
+                    final var name = engine.getParserEngine().getName();
+                    launcher.report( runner.run( "%s.tree".formatted( name ), parameters, bytes.length, () -> beautify( engine, document ) ) );
+                    launcher.report( runner.run( "%s.streaming".formatted( name ), parameters, bytes.length, () ->
+                    {
+                        beautify( engine, document, Writer.nullWriter() );
+                        return document;
+                    } ) );
+                }
+            }
+        }
+    }   //  run()
+
+    /**
+     *  Checks that all engines produce the same output for the given
+     *  document, in tree and in streaming mode.
+     *
+     *  @param  engines The engines; the first one provides the reference
+     *      output.
+     *  @param  document    The document.
+     *  @param  parameters  The description of the document.
+     *  @throws Exception   The processing failed, or the outputs differ.
+     */
+    private static final void verify( final List<BeautifierEngine> engines, final ByteBuffer document, final String parameters ) throws Exception
+    {
+        String expectedTree = null;
+        String expectedStreaming = null;
+        for( final var engine : engines )
+        {
+            final var tree = beautify( engine, document );
+            final var streaming = new StringWriter();
+            beautify( engine, document, streaming );
+            if( isNull( expectedTree ) )
+            {
+                expectedTree = tree;
+                expectedStreaming = streaming.toString();
+            }
+            else if( !expectedTree.equals( tree ) || !expectedStreaming.equals( streaming.toString() ) )
+            {
+                throw new IllegalStateException( "Output of %s differs for %s".formatted( engine.getParserEngine().getName(), parameters ) );
+            }
+        }
+    }   //  verify()
+}
+//  class ParserEngineBenchmark
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,150 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+import static org.apiguardian.api.API.Status.EXPERIMENTAL;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.PlaygroundClass;
+import org.tquadrat.foundation.exception.PrivateConstructorForStaticClassCalledError;
+
+/**
+ *  Measures the per-document latency of
+ *  {@link XMLBeautifier}
+ *  for small payloads, with a pooled
+ *  {@link BeautifierEngine}
+ *  and with a new engine (meaning a new parser factory and a new parser) for
+ *  each document.
+ *  <p>The optional command line argument is the number of documents per
+ *  run; the default is 20,000.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = EXPERIMENTAL, since = "0.4.3" )
+@PlaygroundClass
+public final class ParserPoolBenchmark
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The payload.
+     */
+    private static final String PAYLOAD = """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <order id="4711" xmlns="urn:example:order"><customer name="Doe" city="Springfield"/><items><item sku="A-1" qty="2"/><item sku="B-7" qty="1"/></items></order>
+        """;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private ParserPoolBenchmark() { throw new PrivateConstructorForStaticClassCalledError( ParserPoolBenchmark.class ); }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  The program entry point.
+     *
+     *  @param  args    The command line arguments.
+     */
+    public static final void main( final String... args )
+    {
+        try
+        {
+            final var count = args.length > 0 ? Integer.parseInt( args [0] ) : 20_000;
+            final var pooled = new BeautifierEngine();
+
+            //---* Warm-up *---------------------------------------------------
+            run( count, () -> pooled );
+            run( count, BeautifierEngine::new );
+
+            report( "pooled", run( count, () -> pooled ) );
+            report( "unpooled", run( count, () -> new BeautifierEngine( 0 ) ) );
+        }
+        catch( final Throwable t )
+        {
+            //---* Handle previously unhandled exceptions *--------------------
+            t.printStackTrace( err );
+        }
+    }   //  main()
+
+    /**
+     *  Prints the statistics for the given latencies.
+     *
+     *  @param  label   The label for the run.
+     *  @param  latencies   The latencies in nanoseconds; the array will be
+     *      sorted.
+     */
+    private static final void report( final String label, final long [] latencies )
+    {
+        Arrays.sort( latencies );
+        final var mean = Arrays.stream( latencies ).average().orElse( 0 );
+        out.printf( "%-10s n=%d mean=%.1fus p50=%.1fus p99=%.1fus%n",
+            label,
+            latencies.length,
+            mean / 1_000.0,
+            latencies [latencies.length / 2] / 1_000.0,
+            latencies [(int) (latencies.length * 0.99)] / 1_000.0 );
+    }   //  report()
+
+    /**
+     *  Beautifies the payload the given number of times.
+     *
+     *  @param  count   The number of documents.
+     *  @param  engineSupplier  Provides the engine for each document.
+     *  @return The latencies in nanoseconds.
+     *  @throws Exception   The processing failed.
+     */
+    private static final long [] run( final int count, final Supplier<BeautifierEngine> engineSupplier ) throws Exception
+    {
+        final var retValue = new long [count];
+        for( var i = 0; i < count; ++i )
+        {
+            final var start = System.nanoTime();
+            final var beautifier = new XMLBeautifier( PAYLOAD );
+            beautifier.setEngine( engineSupplier.get() );
+            beautifier.process( new StringWriter() );
+            retValue [i] = System.nanoTime() - start;
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  run()
+}
+//  class ParserPoolBenchmark
+
+/*
+ *  End of File
+ */
@@ -32,7 +32,9 @@ import org.tquadrat.foundation.lang.StringConverter;
 /**
  *  Tester for the retrieval of a
  *  {@link StringConverter}
- *  from the service.
+ *  through the
+ *  {@link StringConverterIndex},
+ *  with the fallback to the service.
  *
  *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
  *  @version RetrieveStringConverter: HexUtils.java 747 2020-12-01 12:40:38Z tquadrat $
@@ -66,7 +68,7 @@ public final class RetrieveStringConverter
     {
         try
         {
-            final var stringConverter = StringConverter.forClass( BigInteger.class );
+            final var stringConverter = StringConverterIndex.load().forClass( BigInteger.class );
             stringConverter.ifPresentOrElse( $ -> out.println( "Success!" ), () -> out.println( "Failure!" ) );
         }
         catch( final Throwable t )
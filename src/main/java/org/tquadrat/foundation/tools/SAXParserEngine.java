@@ -0,0 +1,250 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.exception.ValidationException;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.ext.DefaultHandler2;
+
+/**
+ *  The
+ *  {@link ParserEngine}
+ *  that uses a SAX parser; it holds a configured
+ *  {@link SAXParserFactory}
+ *  and a bounded pool of reusable
+ *  {@link SAXParser}
+ *  instances.
+ *  <p>{@summary Creating a new parser factory and a new parser for each
+ *  document means a service loader lookup and the setup of the parser
+ *  internals each time; for small documents, this costs more than the
+ *  parsing itself.}</p>
+ *  <p>A parser is used by only one thread at a time, and it is reset before
+ *  it is returned to the pool. When the pool is empty, a new parser will be
+ *  created; when it is full, a returned parser will be discarded.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public final class SAXParserEngine implements ParserEngine
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The size of the chunks in that the parser reports the contents of
+     *  CDATA sections: {@value}.
+     */
+    static final int CDATA_CHUNK_SIZE = 0x10000;
+
+    /**
+     *  The default size for the parser pool.
+     */
+    public static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     *  The property of the SAX parser from the JDK that limits the size of
+     *  the chunks for the contents of CDATA sections: {@value}. Without it,
+     *  each CDATA section is collected in memory as a whole before it is
+     *  reported to the handler.
+     */
+    static final String PROPERTY_CDATA_CHUNK_SIZE = "jdk.xml.cdataChunkSize";
+
+    /**
+     *  The SAX property for the lexical handler: {@value}.
+     */
+    private static final String PROPERTY_LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The parser factory.
+     */
+    private final SAXParserFactory m_Factory;
+
+    /**
+     *  The pool of parsers; will be {@code null} if the pool size is 0.
+     */
+    private final BlockingQueue<SAXParser> m_Pool;
+
+    /**
+     *  The size of the pool.
+     */
+    private final int m_PoolSize;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code SAXParserEngine} with a pool of
+     *  {@link #DEFAULT_POOL_SIZE}
+     *  parsers.
+     */
+    public SAXParserEngine() { this( DEFAULT_POOL_SIZE ); }
+
+    /**
+     *  Creates a new instance of {@code SAXParserEngine}.
+     *
+     *  @param  poolSize    The maximum number of idle parsers that are kept
+     *      in the pool; 0 means that no parser will be reused.
+     */
+    public SAXParserEngine( final int poolSize )
+    {
+        if( poolSize < 0 ) throw new ValidationException( "poolSize is negative: %d".formatted( poolSize ) );
+        m_PoolSize = poolSize;
+        m_Pool = poolSize > 0 ? new ArrayBlockingQueue<>( poolSize ) : null;
+        m_Factory = SAXParserFactory.newInstance();
+    }   //  SAXParserEngine()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Provides a parser; it has to be returned to the pool with
+     *  {@link #releaseParser(SAXParser)}
+     *  after use.
+     *
+     *  @return The parser.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    The parser could not be created.
+     */
+    private final SAXParser borrowParser() throws ParserConfigurationException, SAXException
+    {
+        var retValue = isNull( m_Pool ) ? null : m_Pool.poll();
+        if( isNull( retValue ) )
+        {
+            //---* SAXParserFactory is not thread-safe *-----------------------
+            synchronized( m_Factory )
+            {
+                retValue = m_Factory.newSAXParser();
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  borrowParser()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String getName() { return "SAX"; }
+
+    /**
+     *  Returns the maximum number of idle parsers in the pool.
+     *
+     *  @return The pool size.
+     */
+    public final int getPoolSize() { return m_PoolSize; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final void parse( final InputSource input, final DefaultHandler2 handler ) throws ParserConfigurationException, SAXException, IOException
+    {
+        requireNonNullArgument( input, "input" );
+        requireNonNullArgument( handler, "handler" );
+
+        final var parser = borrowParser();
+        try
+        {
+            parser.setProperty( PROPERTY_LEXICAL_HANDLER, handler );
+            try
+            {
+                //---* Have large CDATA sections reported in chunks *----------
+                parser.setProperty( PROPERTY_CDATA_CHUNK_SIZE, Integer.valueOf( CDATA_CHUNK_SIZE ) );
+            }
+            catch( final SAXNotRecognizedException | SAXNotSupportedException ignored )
+            {
+                /* The parser is not the one from the JDK; it has to report
+                   the CDATA sections as a whole. */
+            }
+            parser.parse( input, handler );
+        }
+        finally
+        {
+            try
+            {
+                parser.setProperty( PROPERTY_LEXICAL_HANDLER, null );
+            }
+            catch( final SAXNotRecognizedException | SAXNotSupportedException ignored )
+            {
+                /* The handler is dropped by the reset on release anyway; the
+                   failure must neither hide an exception from parse() nor
+                   keep the parser from being released. */
+            }
+            releaseParser( parser );
+        }
+    }   //  parse()
+
+    /**
+     *  Returns the given parser to the pool.
+     *
+     *  @param  parser  The parser that was obtained by a call to
+     *      {@link #borrowParser()}.
+     */
+    private final void releaseParser( final SAXParser parser )
+    {
+        if( !isNull( m_Pool ) )
+        {
+            try
+            {
+                parser.reset();
+                m_Pool.offer( parser );
+            }
+            catch( final UnsupportedOperationException ignored )
+            {
+                //---* A parser that cannot be reset will not be reused *------
+            }
+        }
+    }   //  releaseParser()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString() { return "%s[poolSize=%d]".formatted( getName(), m_PoolSize ); }
+}
+//  class SAXParserEngine
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,278 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.exception.ValidationException;
+
+/**
+ *  A
+ *  {@link Writer}
+ *  that holds back the characters written to it until they are
+ *  {@linkplain #transferTo(Writer) transferred}
+ *  to another writer, or
+ *  {@linkplain #clear() discarded}.
+ *  <p>{@summary Up to a given number of characters are kept in memory; the
+ *  remainder is spilled to a temporary file, so that the memory consumption
+ *  does not depend on the amount of the buffered text.} The temporary file
+ *  is deleted when the buffer is cleared or closed.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = INTERNAL, since = "0.4.3" )
+final class SpillBuffer extends Writer
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The size of the buffer for the transfer of the characters: {@value}.
+     */
+    private static final int TRANSFER_BUFFER_SIZE = 0x2000;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The temporary file; {@code null} if nothing was spilled yet.
+     */
+    private Path m_File;
+
+    /**
+     *  The writer for the temporary file; {@code null} if nothing was
+     *  spilled yet.
+     */
+    private Writer m_FileWriter;
+
+    /**
+     *  The number of buffered characters.
+     */
+    private long m_Length = 0L;
+
+    /**
+     *  The characters that are kept in memory.
+     */
+    private final StringBuilder m_Memory;
+
+    /**
+     *  The maximum number of characters that are kept in memory.
+     */
+    private final int m_MemoryLimit;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code SpillBuffer}.
+     *
+     *  @param  memoryLimit The maximum number of characters that are kept in
+     *      memory.
+     */
+    public SpillBuffer( final int memoryLimit )
+    {
+        if( memoryLimit < 0 ) throw new ValidationException( "memoryLimit is negative: %d".formatted( memoryLimit ) );
+        m_MemoryLimit = memoryLimit;
+        m_Memory = new StringBuilder( Math.min( memoryLimit, TRANSFER_BUFFER_SIZE ) );
+    }   //  SpillBuffer()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Discards the buffered characters and deletes the temporary file.
+     *
+     *  @throws IOException The temporary file could not be deleted.
+     */
+    public final void clear() throws IOException
+    {
+        m_Memory.setLength( 0 );
+        m_Length = 0L;
+        if( !isNull( m_FileWriter ) )
+        {
+            final var file = m_File;
+            try
+            {
+                m_FileWriter.close();
+            }
+            finally
+            {
+                m_FileWriter = null;
+                m_File = null;
+                Files.deleteIfExists( file );
+            }
+        }
+    }   //  clear()
+
+    /**
+     *  {@inheritDoc}
+     *  <p>The buffered characters are discarded.</p>
+     */
+    @Override
+    public final void close() throws IOException { clear(); }
+
+    /**
+     *  {@inheritDoc}
+     *  <p>The characters are held back until they are
+     *  {@linkplain #transferTo(Writer) transferred},
+     *  so this method does nothing.</p>
+     */
+    @Override
+    public final void flush() { /* Does nothing */ }
+
+    /**
+     *  Returns whether the buffer is empty.
+     *
+     *  @return {@code true} if no characters are buffered, {@code false}
+     *      otherwise.
+     */
+    public final boolean isEmpty() { return m_Length == 0L; }
+
+    /**
+     *  Returns the number of buffered characters.
+     *
+     *  @return The number of characters.
+     */
+    public final long length() { return m_Length; }
+
+    /**
+     *  Returns the writer for the characters that do not fit into memory;
+     *  the temporary file is created on the first call. If the characters
+     *  in memory end with a high surrogate, it is moved to the file, so that
+     *  a surrogate pair is not split between memory and file; the UTF-8
+     *  encoder for the file would replace a lone low surrogate.
+     *
+     *  @return The writer.
+     *  @throws IOException The temporary file could not be created.
+     */
+    private final Writer spill() throws IOException
+    {
+        if( isNull( m_FileWriter ) )
+        {
+            m_File = Files.createTempFile( "XMLBeautifier", ".spill" );
+            m_FileWriter = Files.newBufferedWriter( m_File, UTF8 );
+
+            //---* Keep a surrogate pair together *----------------------------
+            final var last = m_Memory.length() - 1;
+            if( (last >= 0) && Character.isHighSurrogate( m_Memory.charAt( last ) ) )
+            {
+                m_FileWriter.write( m_Memory.charAt( last ) );
+                m_Memory.setLength( last );
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return m_FileWriter;
+    }   //  spill()
+
+    /**
+     *  Writes the buffered characters to the given
+     *  {@link Writer},
+     *  in the order they were written to this buffer, and clears the buffer
+     *  afterwards.
+     *
+     *  @param  target  The target for the buffered characters.
+     *  @throws IOException Reading the temporary file or writing the
+     *      characters failed.
+     */
+    public final void transferTo( final Writer target ) throws IOException
+    {
+        requireNonNullArgument( target, "target" );
+        final var length = m_Memory.length();
+        if( length > 0 )
+        {
+            final var buffer = new char [Math.min( length, TRANSFER_BUFFER_SIZE )];
+            for( var position = 0; position < length; position += buffer.length )
+            {
+                final var end = Math.min( length, position + buffer.length );
+                m_Memory.getChars( position, end, buffer, 0 );
+                target.write( buffer, 0, end - position );
+            }
+        }
+        if( !isNull( m_FileWriter ) )
+        {
+            m_FileWriter.flush();
+            try( final var reader = Files.newBufferedReader( m_File, UTF8 ) )
+            {
+                reader.transferTo( target );
+            }
+        }
+        clear();
+    }   //  transferTo()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final void write( final char [] chars, final int offset, final int length ) throws IOException
+    {
+        final var fit = isNull( m_FileWriter ) ? Math.min( length, m_MemoryLimit - m_Memory.length() ) : 0;
+        if( fit > 0 ) m_Memory.append( chars, offset, fit );
+        if( fit < length ) spill().write( chars, offset + fit, length - fit );
+        m_Length += length;
+    }   //  write()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final void write( final int c ) throws IOException
+    {
+        if( isNull( m_FileWriter ) && m_Memory.length() < m_MemoryLimit )
+        {
+            m_Memory.append( (char) c );
+        }
+        else
+        {
+            spill().write( c );
+        }
+        ++m_Length;
+    }   //  write()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final void write( final String str, final int offset, final int length ) throws IOException
+    {
+        final var fit = isNull( m_FileWriter ) ? Math.min( length, m_MemoryLimit - m_Memory.length() ) : 0;
+        if( fit > 0 ) m_Memory.append( str, offset, offset + fit );
+        if( fit < length ) spill().write( str, offset + fit, length - fit );
+        m_Length += length;
+    }   //  write()
+}
+//  class SpillBuffer
+
+/*
+ *  End of File
+ */
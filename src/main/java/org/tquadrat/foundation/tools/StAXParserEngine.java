@@ -0,0 +1,437 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.Boolean.FALSE;
+import static java.lang.Boolean.TRUE;
+import static javax.xml.stream.XMLInputFactory.IS_COALESCING;
+import static javax.xml.stream.XMLInputFactory.IS_NAMESPACE_AWARE;
+import static javax.xml.stream.XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES;
+import static javax.xml.stream.XMLInputFactory.SUPPORT_DTD;
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.COMMENT;
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.PROCESSING_INSTRUCTION;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.CommonConstants.EMPTY_STRING;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.nonNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+import static org.tquadrat.foundation.tools.SAXParserEngine.CDATA_CHUNK_SIZE;
+import static org.tquadrat.foundation.tools.SAXParserEngine.PROPERTY_CDATA_CHUNK_SIZE;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.ext.DefaultHandler2;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ *  The
+ *  {@link ParserEngine}
+ *  that pulls the events from an
+ *  {@link XMLStreamReader}
+ *  and translates them to the calls of the SAX handler.
+ *  <p>{@summary The reader is configured like the SAX parser of the
+ *  {@link SAXParserEngine}:
+ *  it is not namespace aware, it replaces entity references and it reports
+ *  text and CDATA sections in chunks, so the output of the
+ *  {@link XMLBeautifier}
+ *  is the same for both engines.} One difference remains: adjacent CDATA
+ *  sections are reported as a single one, as the reader does not tell where
+ *  one section ends and the next one starts.</p>
+ *  <p>The
+ *  {@link XMLInputFactory}
+ *  is created once; the readers are cheap to create, so they are not
+ *  pooled.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public final class StAXParserEngine implements ParserEngine
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The property of the StAX implementation from the JDK that causes
+     *  CDATA sections to be reported as such, instead of as plain text:
+     *  {@value}.
+     */
+    private static final String PROPERTY_REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    /**
+     *  The marker that separates the location from the message in the
+     *  message of an
+     *  {@link XMLStreamException}:
+     *  {@value}.
+     */
+    private static final String MESSAGE_MARKER = "\nMessage: ";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The factory for the readers.
+     */
+    private final XMLInputFactory m_Factory;
+
+    /**
+     *  The handler for the document that is currently parsed on the
+     *  calling thread; the entity resolver of the factory delegates to it.
+     */
+    private final ThreadLocal<DefaultHandler2> m_Handler = new ThreadLocal<>();
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code StAXParserEngine}.
+     */
+    public StAXParserEngine()
+    {
+        m_Factory = XMLInputFactory.newInstance();
+        m_Factory.setProperty( IS_NAMESPACE_AWARE, FALSE );
+        m_Factory.setProperty( IS_COALESCING, FALSE );
+        m_Factory.setProperty( IS_REPLACING_ENTITY_REFERENCES, TRUE );
+        m_Factory.setProperty( SUPPORT_DTD, TRUE );
+        setOptionalProperty( PROPERTY_REPORT_CDATA, TRUE );
+        setOptionalProperty( PROPERTY_CDATA_CHUNK_SIZE, Integer.valueOf( CDATA_CHUNK_SIZE ) );
+        m_Factory.setXMLResolver( this::resolveEntity );
+    }   //  StAXParserEngine()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Creates the reader for the given input.
+     *
+     *  @param  input   The input; if it provides neither a character nor a
+     *      byte stream, the stream that is opened for its system id will be
+     *      set as the byte stream.
+     *  @return The reader.
+     *  @throws XMLStreamException  The reader could not be created.
+     *  @throws IOException The input could not be opened.
+     */
+    private final XMLStreamReader createReader( final InputSource input ) throws XMLStreamException, IOException
+    {
+        final var systemId = input.getSystemId();
+        final XMLStreamReader retValue;
+
+        //---* XMLInputFactory is not thread-safe *----------------------------
+        synchronized( m_Factory )
+        {
+            if( nonNull( input.getCharacterStream() ) )
+            {
+                retValue = m_Factory.createXMLStreamReader( systemId, input.getCharacterStream() );
+            }
+            else if( nonNull( input.getByteStream() ) )
+            {
+                retValue = isNull( input.getEncoding() )
+                    ? m_Factory.createXMLStreamReader( systemId, input.getByteStream() )
+                    : m_Factory.createXMLStreamReader( input.getByteStream(), input.getEncoding() );
+            }
+            else
+            {
+                input.setByteStream( URI.create( requireNonNullArgument( systemId, "input.systemId" ) ).toURL().openStream() );
+                retValue = m_Factory.createXMLStreamReader( systemId, input.getByteStream() );
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  createReader()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String getName() { return "StAX"; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final void parse( final InputSource input, final DefaultHandler2 handler ) throws SAXException, IOException
+    {
+        requireNonNullArgument( input, "input" );
+        requireNonNullArgument( handler, "handler" );
+
+        final var ownsStream = isNull( input.getCharacterStream() ) && isNull( input.getByteStream() );
+        XMLStreamReader reader = null;
+        m_Handler.set( handler );
+        try
+        {
+            reader = createReader( input );
+            pump( reader, handler );
+        }
+        catch( final XMLStreamException e )
+        {
+            final var location = e.getLocation();
+            final var cause = e.getNestedException();
+            if( cause instanceof final SAXException saxException ) throw saxException;
+            if( cause instanceof final IOException ioException ) throw ioException;
+            final var message = stripLocation( e.getMessage() );
+            final var parseException = isNull( location )
+                ? new SAXParseException( message, null, input.getSystemId(), -1, -1, e )
+                : new SAXParseException( message, location.getPublicId(), location.getSystemId(), location.getLineNumber(), location.getColumnNumber(), e );
+            handler.fatalError( parseException );
+            throw parseException;
+        }
+        finally
+        {
+            m_Handler.remove();
+            if( nonNull( reader ) )
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch( final XMLStreamException ignored ) { /* Deliberately ignored */ }
+            }
+            if( ownsStream && nonNull( input.getByteStream() ) ) input.getByteStream().close();
+        }
+    }   //  parse()
+
+    /**
+     *  Pulls the events from the given reader and reports them to the given
+     *  handler.
+     *
+     *  @param  reader  The reader.
+     *  @param  handler The handler.
+     *  @throws XMLStreamException  The reader failed.
+     *  @throws SAXException    The handler aborted the processing.
+     */
+    private static final void pump( final XMLStreamReader reader, final DefaultHandler2 handler ) throws XMLStreamException, SAXException
+    {
+        final var attributes = new AttributesImpl();
+        final Map<String,Map<String,String>> qualifiedNames = new HashMap<>();
+        var inCDATA = false;
+        handler.startDocument();
+        while( reader.hasNext() )
+        {
+            final var event = reader.next();
+            if( inCDATA && (event != CDATA) )
+            {
+                handler.endCDATA();
+                inCDATA = false;
+            }
+            switch( event )
+            {
+                case START_ELEMENT ->
+                {
+                    attributes.clear();
+                    for( var i = 0; i < reader.getAttributeCount(); ++i )
+                    {
+                        attributes.addAttribute( EMPTY_STRING, EMPTY_STRING, qualifiedName( qualifiedNames, reader.getAttributePrefix( i ), reader.getAttributeLocalName( i ) ), reader.getAttributeType( i ), reader.getAttributeValue( i ) );
+                    }
+                    handler.startElement( EMPTY_STRING, EMPTY_STRING, qualifiedName( qualifiedNames, reader.getPrefix(), reader.getLocalName() ), attributes );
+                }
+                case END_ELEMENT -> handler.endElement( EMPTY_STRING, EMPTY_STRING, qualifiedName( qualifiedNames, reader.getPrefix(), reader.getLocalName() ) );
+                case CHARACTERS -> handler.characters( reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength() );
+                case SPACE -> handler.ignorableWhitespace( reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength() );
+                case CDATA ->
+                {
+                    if( !inCDATA )
+                    {
+                        handler.startCDATA();
+                        inCDATA = true;
+                    }
+                    handler.characters( reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength() );
+                }
+                case COMMENT -> handler.comment( reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength() );
+                case PROCESSING_INSTRUCTION -> handler.processingInstruction( reader.getPITarget(), isNull( reader.getPIData() ) ? EMPTY_STRING : reader.getPIData() );
+                case END_DOCUMENT -> handler.endDocument();
+                default -> { /* Nothing to report */ }
+            }
+        }
+    }   //  pump()
+
+    /**
+     *  Composes the qualified name from the given prefix and local name.
+     *  Each distinct qualified name is composed only once per document, so
+     *  that the handler gets the same instance each time, as with the SAX
+     *  parser.
+     *
+     *  @param  qualifiedNames  The qualified names that were composed
+     *      already, by prefix and local name.
+     *  @param  prefix  The prefix; can be {@code null} or empty.
+     *  @param  localName   The local name.
+     *  @return The qualified name.
+     */
+    private static final String qualifiedName( final Map<String,Map<String,String>> qualifiedNames, final String prefix, final String localName )
+    {
+        if( isNull( prefix ) || prefix.isEmpty() ) return localName;
+
+        var byLocalName = qualifiedNames.get( prefix );
+        if( isNull( byLocalName ) )
+        {
+            byLocalName = new HashMap<>();
+            qualifiedNames.put( prefix, byLocalName );
+        }
+        var retValue = byLocalName.get( localName );
+        if( isNull( retValue ) )
+        {
+            retValue = prefix + ':' + localName;
+            byLocalName.put( localName, retValue );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  qualifiedName()
+
+    /**
+     *  The resolver for external DTDs and entities; it delegates to the
+     *  handler for the current document.
+     *
+     *  @param  publicId    The public id of the entity.
+     *  @param  systemId    The system id of the entity.
+     *  @param  baseURI The base URI for a relative system id.
+     *  @param  namespace   The namespace of the entity; not used.
+     *  @return The input stream for the entity, or {@code null} if the
+     *      reader should resolve the entity itself.
+     *  @throws XMLStreamException  The entity could not be resolved.
+     */
+    private final Object resolveEntity( final String publicId, final String systemId, final String baseURI, @SuppressWarnings( "unused" ) final String namespace ) throws XMLStreamException
+    {
+        InputStream retValue = null;
+        final var handler = m_Handler.get();
+        if( nonNull( handler ) )
+        {
+            try
+            {
+                final var source = handler.resolveEntity( null, publicId, baseURI, systemId );
+                if( nonNull( source ) )
+                {
+                    if( nonNull( source.getByteStream() ) )
+                    {
+                        retValue = source.getByteStream();
+                    }
+                    else if( nonNull( source.getCharacterStream() ) )
+                    {
+                        //---* The resolver takes only byte streams *----------
+                        retValue = new ByteArrayInputStream( readFully( source.getCharacterStream() ).getBytes( UTF8 ) );
+                    }
+                    else if( nonNull( source.getSystemId() ) )
+                    {
+                        retValue = URI.create( source.getSystemId() ).toURL().openStream();
+                    }
+                }
+            }
+            catch( final SAXException | IOException e )
+            {
+                throw new XMLStreamException( e );
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  resolveEntity()
+
+    /**
+     *  Reads the given reader to its end, and closes it.
+     *
+     *  @param  reader  The reader.
+     *  @return The contents.
+     *  @throws IOException The reader failed.
+     */
+    private static final String readFully( final Reader reader ) throws IOException
+    {
+        final var buffer = new StringWriter();
+        try( reader )
+        {
+            reader.transferTo( buffer );
+        }
+        final var retValue = buffer.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  readFully()
+
+    /**
+     *  Sets a property of the factory that is not supported by all
+     *  implementations of StAX.
+     *
+     *  @param  name    The name of the property.
+     *  @param  value   The value.
+     */
+    private final void setOptionalProperty( final String name, final Object value )
+    {
+        try
+        {
+            m_Factory.setProperty( name, value );
+        }
+        catch( final IllegalArgumentException ignored )
+        {
+            /* The implementation is not the one from the JDK. */
+        }
+    }   //  setOptionalProperty()
+
+    /**
+     *  Removes the location from the message of an
+     *  {@link XMLStreamException},
+     *  as it is reported separately; otherwise repeated problems would
+     *  have different messages.
+     *
+     *  @param  message The message.
+     *  @return The message without the location.
+     */
+    private static final String stripLocation( final String message )
+    {
+        final var index = isNull( message ) ? -1 : message.indexOf( MESSAGE_MARKER );
+        final var retValue = index < 0 ? message : message.substring( index + MESSAGE_MARKER.length() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  stripLocation()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString() { return getName(); }
+}
+//  class StAXParserEngine
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,537 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.System.out;
+import static java.util.Comparator.comparingDouble;
+import static org.apiguardian.api.API.Status.EXPERIMENTAL;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.MonthDay;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.Period;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.PlaygroundClass;
+import org.tquadrat.foundation.exception.PrivateConstructorForStaticClassCalledError;
+import org.tquadrat.foundation.lang.StringConverter;
+
+/**
+ *  Checks and measures all
+ *  {@link StringConverter}
+ *  implementations that are registered with the service.
+ *  <p>{@summary For each subject class from
+ *  {@link StringConverter#list()},
+ *  the harness generates random sample values and checks that they survive
+ *  the round trip through
+ *  {@link StringConverter#toString(Object) toString()}
+ *  and
+ *  {@link StringConverter#fromString(CharSequence) fromString()};
+ *  then it measures both directions with a
+ *  {@link BenchmarkRunner},
+ *  on a single thread and on several threads at once.} The converters are
+ *  ranked by the time for a round trip, the slowest first, together with
+ *  the bytes that are allocated per conversion, and the speed-up of the
+ *  round trip on several threads; round trip failures are listed at the
+ *  end.</p>
+ *  <p>Subject classes for which no sample values can be generated are
+ *  reported, but not measured; enums are always supported.</p>
+ *  <p>Command line:</p>
+ *  <pre><code>StringConverterBenchmark [{@value #OPTION_QUICK}] [{@value #OPTION_THREADS} &lt;n&gt;] [{@value #OPTION_OUTPUT} &lt;file&gt;]</code></pre>
+ *  <p>With
+ *  {@value #OPTION_OUTPUT},
+ *  the measurements are written as JSON to the given file, so that they
+ *  can be compared between releases.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = EXPERIMENTAL, since = "0.4.3" )
+@PlaygroundClass
+public final class StringConverterBenchmark
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The report for a single converter.
+     *
+     *  @param  subjectClass    The subject class of the converter.
+     *  @param  samples The number of sample values that were checked; 0 if
+     *      no samples could be generated.
+     *  @param  failure The description of the first round trip failure;
+     *      {@code null} if all samples passed.
+     *  @param  results The measurements: {@code toString()} and
+     *      {@code fromString()} on a single thread, then on several threads;
+     *      empty if the converter was not measured.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = EXPERIMENTAL, since = "0.4.3" )
+    public record Report( Class<?> subjectClass, int samples, String failure, List<BenchmarkRunner.Result> results )
+    {
+        /**
+         *  Returns the time for a round trip on a single thread.
+         *
+         *  @return The time in nanoseconds; 0 if the converter was not
+         *      measured.
+         */
+        public final double roundTripNanos() { return results.size() < 2 ? 0 : results.get( 0 ).nanosPerOperation() + results.get( 1 ).nanosPerOperation(); }
+    }
+    //  record Report
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The command line option for the JSON output file: {@value}.
+     */
+    public static final String OPTION_OUTPUT = BenchmarkLauncher.OPTION_OUTPUT;
+
+    /**
+     *  The command line option for a quick run with fewer iterations:
+     *  {@value}.
+     */
+    public static final String OPTION_QUICK = BenchmarkLauncher.OPTION_QUICK;
+
+    /**
+     *  The command line option for the number of threads for the
+     *  measurement under contention: {@value}.
+     */
+    public static final String OPTION_THREADS = "--threads";
+
+    /**
+     *  The number of sample values per converter: {@value}.
+     */
+    private static final int SAMPLE_COUNT = 256;
+
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The generators for the sample values, per subject class.
+     */
+    private static final Map<Class<?>,Function<Random,Object>> m_Generators;
+
+    static
+    {
+        final var zoneIds = ZoneId.getAvailableZoneIds().stream().sorted().toList();
+        final var locales = Locale.getAvailableLocales();
+        final var currencies = Currency.getAvailableCurrencies().stream().sorted( Comparator.comparing( Currency::getCurrencyCode ) ).toList();
+        final var charsets = List.copyOf( Charset.availableCharsets().values() );
+        final var classes = List.<Class<?>>of( String.class, Integer.class, List.class, Map.class, StringConverter.class, BenchmarkRunner.class );
+        final var start = Instant.parse( "1970-01-01T00:00:00Z" ).getEpochSecond();
+        final var end = Instant.parse( "2100-01-01T00:00:00Z" ).getEpochSecond();
+        final Function<Random,Instant> instant = random -> Instant.ofEpochSecond( random.nextLong( start, end ), random.nextInt( 1_000_000_000 ) );
+        final Function<Random,ZoneId> zoneId = random -> ZoneId.of( zoneIds.get( random.nextInt( zoneIds.size() ) ) );
+
+        m_Generators = Map.ofEntries(
+            Map.entry( BigDecimal.class, random -> BigDecimal.valueOf( random.nextLong(), random.nextInt( -5, 20 ) ) ),
+            Map.entry( BigInteger.class, random -> new BigInteger( 130, random ).subtract( BigInteger.ONE.shiftLeft( 129 ) ) ),
+            Map.entry( Boolean.class, Random::nextBoolean ),
+            Map.entry( Byte.class, random -> Byte.valueOf( (byte) random.nextInt() ) ),
+            Map.entry( Character.class, random -> Character.valueOf( (char) random.nextInt( 0x20, 0xD800 ) ) ),
+            Map.entry( Charset.class, random -> charsets.get( random.nextInt( charsets.size() ) ) ),
+            Map.entry( Class.class, random -> classes.get( random.nextInt( classes.size() ) ) ),
+            Map.entry( Currency.class, random -> currencies.get( random.nextInt( currencies.size() ) ) ),
+            Map.entry( Date.class, random -> Date.from( instant.apply( random ).truncatedTo( ChronoUnit.MILLIS ) ) ),
+            Map.entry( Double.class, random -> Double.valueOf( (random.nextDouble() - 0.5) * Math.pow( 10, random.nextInt( -10, 10 ) ) ) ),
+            Map.entry( Duration.class, random -> Duration.ofNanos( random.nextLong( 0, Long.MAX_VALUE ) ) ),
+            Map.entry( File.class, random -> new File( "/tmp/dir%d/file%d.txt".formatted( random.nextInt( 100 ), random.nextInt( 1000 ) ) ) ),
+            Map.entry( Float.class, random -> Float.valueOf( (random.nextFloat() - 0.5F) * (float) Math.pow( 10, random.nextInt( -5, 5 ) ) ) ),
+            Map.entry( InetAddress.class, random -> inetAddress( random ) ),
+            Map.entry( Instant.class, instant::apply ),
+            Map.entry( Integer.class, random -> Integer.valueOf( random.nextInt() ) ),
+            Map.entry( LocalDate.class, random -> LocalDate.ofEpochDay( random.nextLong( -100_000, 100_000 ) ) ),
+            Map.entry( LocalDateTime.class, random -> LocalDateTime.ofEpochSecond( random.nextLong( start, end ), random.nextInt( 1_000_000_000 ), ZoneOffset.UTC ) ),
+            Map.entry( LocalTime.class, random -> LocalTime.ofNanoOfDay( random.nextLong( 86_400_000_000_000L ) ) ),
+            Map.entry( Locale.class, random -> locales [random.nextInt( locales.length )] ),
+            Map.entry( Long.class, random -> Long.valueOf( random.nextLong() ) ),
+            Map.entry( MonthDay.class, random -> MonthDay.from( LocalDate.ofYearDay( 2024, random.nextInt( 1, 367 ) ) ) ),
+            Map.entry( OffsetDateTime.class, random -> OffsetDateTime.ofInstant( instant.apply( random ), zoneId.apply( random ) ) ),
+            Map.entry( OffsetTime.class, random -> OffsetTime.ofInstant( instant.apply( random ), zoneId.apply( random ) ) ),
+            Map.entry( Path.class, random -> Path.of( "/tmp", "dir%d".formatted( random.nextInt( 100 ) ), "file%d.txt".formatted( random.nextInt( 1000 ) ) ) ),
+            Map.entry( Period.class, random -> Period.of( random.nextInt( -100, 100 ), random.nextInt( -12, 12 ), random.nextInt( -31, 31 ) ) ),
+            Map.entry( Short.class, random -> Short.valueOf( (short) random.nextInt() ) ),
+            Map.entry( String.class, StringConverterBenchmark::string ),
+            Map.entry( StringBuilder.class, random -> new StringBuilder( string( random ) ) ),
+            Map.entry( TimeZone.class, random -> TimeZone.getTimeZone( zoneId.apply( random ) ) ),
+            Map.entry( URI.class, random -> URI.create( "https://www.example.org/path%d/file%d.html?q=%d#s%d".formatted( random.nextInt( 100 ), random.nextInt( 1000 ), random.nextInt(), random.nextInt( 10 ) ) ) ),
+            Map.entry( URL.class, random -> url( random ) ),
+            Map.entry( UUID.class, random -> new UUID( random.nextLong(), random.nextLong() ) ),
+            Map.entry( Year.class, random -> Year.of( random.nextInt( -9999, 10000 ) ) ),
+            Map.entry( YearMonth.class, random -> YearMonth.of( random.nextInt( 1, 10000 ), random.nextInt( 1, 13 ) ) ),
+            Map.entry( ZoneId.class, zoneId::apply ),
+            Map.entry( ZoneOffset.class, random -> ZoneOffset.ofTotalSeconds( random.nextInt( -18 * 4, 18 * 4 + 1 ) * 900 ) ),
+            Map.entry( ZonedDateTime.class, random -> ZonedDateTime.ofInstant( instant.apply( random ), zoneId.apply( random ) ) )
+        );
+    }
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private StringConverterBenchmark() { throw new PrivateConstructorForStaticClassCalledError( StringConverterBenchmark.class ); }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Checks the given converter with the given samples, and measures
+     *  it.
+     *
+     *  @param  subjectClass    The subject class.
+     *  @param  converter   The converter.
+     *  @param  samples The sample values.
+     *  @param  runner  The benchmark runner.
+     *  @param  threads The number of threads for the measurement under
+     *      contention.
+     *  @return The report.
+     *  @throws Exception   The measurement failed.
+     */
+    private static final Report check( final Class<?> subjectClass, final StringConverter<Object> converter, final List<Object> samples, final BenchmarkRunner runner, final int threads ) throws Exception
+    {
+        //---* Check the round trip *------------------------------------------
+        final var compareValues = overridesEquals( subjectClass );
+        final var strings = new String [samples.size()];
+        String failure = null;
+        for( var i = 0; i < samples.size() && isNull( failure ); ++i )
+        {
+            final var sample = samples.get( i );
+            try
+            {
+                strings [i] = converter.toString( sample );
+                final var value = converter.fromString( strings [i] );
+                final var string = converter.toString( value );
+                if( !strings [i].equals( string ) )
+                {
+                    failure = "'%s' became '%s'".formatted( strings [i], string );
+                }
+                else if( compareValues && !Objects.equals( sample, value ) )
+                {
+                    failure = "%s became %s".formatted( sample, value );
+                }
+            }
+            catch( final RuntimeException e )
+            {
+                failure = "%s for %s".formatted( e, sample );
+            }
+        }
+
+        //---* Measure the conversions *---------------------------------------
+        final List<BenchmarkRunner.Result> results = new ArrayList<>();
+        if( isNull( failure ) )
+        {
+            final var values = samples.toArray();
+            final var name = subjectClass.getName();
+            final var single = new AtomicInteger();
+            results.add( runner.run( "toString", name, 0, () -> converter.toString( values [single.getAndIncrement() & (SAMPLE_COUNT - 1)] ) ) );
+            results.add( runner.run( "fromString", name, 0, () -> converter.fromString( strings [single.getAndIncrement() & (SAMPLE_COUNT - 1)] ) ) );
+            final var shared = ThreadLocal.withInitial( AtomicInteger::new );
+            final var parameters = "%s/%d threads".formatted( name, threads );
+            results.add( runner.run( "toString", parameters, 0, threads, () -> converter.toString( values [shared.get().getAndIncrement() & (SAMPLE_COUNT - 1)] ) ) );
+            results.add( runner.run( "fromString", parameters, 0, threads, () -> converter.fromString( strings [shared.get().getAndIncrement() & (SAMPLE_COUNT - 1)] ) ) );
+        }
+        final var retValue = new Report( subjectClass, samples.size(), failure, List.copyOf( results ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  check()
+
+    /**
+     *  Generates the sample values for the given subject class.
+     *
+     *  @param  subjectClass    The subject class.
+     *  @param  random  The source of randomness.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the sample values; empty if no samples can be
+     *      generated for the class.
+     */
+    private static final Optional<List<Object>> generateSamples( final Class<?> subjectClass, final Random random )
+    {
+        final Function<Random,Object> generator;
+        if( subjectClass.isEnum() )
+        {
+            final var constants = subjectClass.getEnumConstants();
+            generator = constants.length == 0 ? null : r -> constants [r.nextInt( constants.length )];
+        }
+        else
+        {
+            generator = m_Generators.get( subjectClass );
+        }
+        final Optional<List<Object>> retValue;
+        if( isNull( generator ) )
+        {
+            retValue = Optional.empty();
+        }
+        else
+        {
+            final List<Object> samples = new ArrayList<>( SAMPLE_COUNT );
+            for( var i = 0; i < SAMPLE_COUNT; ++i ) samples.add( generator.apply( random ) );
+            retValue = Optional.of( samples );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  generateSamples()
+
+    /**
+     *  Generates a random IP address, version 4 or 6, without a host name.
+     *
+     *  @param  random  The source of randomness.
+     *  @return The address.
+     */
+    private static final InetAddress inetAddress( final Random random )
+    {
+        final var address = new byte [random.nextBoolean() ? 4 : 16];
+        random.nextBytes( address );
+        final InetAddress retValue;
+        try
+        {
+            retValue = InetAddress.getByAddress( address );
+        }
+        catch( final UnknownHostException e )
+        {
+            throw new IllegalStateException( e );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  inetAddress()
+
+    /**
+     *  The program entry point.
+     *
+     *  @param  args    The command line arguments.
+     */
+    public static final void main( final String... args )
+    {
+        BenchmarkLauncher.launch( args, Set.of( OPTION_THREADS ), StringConverterBenchmark::run );
+    }   //  main()
+
+    /**
+     *  Checks whether the given class overrides
+     *  {@link Object#equals(Object)},
+     *  so that sample values can be compared after the round trip.
+     *  {@link URL}
+     *  is excluded, as its {@code equals()} implementation resolves the
+     *  host names.
+     *
+     *  @param  subjectClass    The class.
+     *  @return {@code true} if the values can be compared,
+     *      {@code false} if only their String representations can be
+     *      compared.
+     */
+    private static final boolean overridesEquals( final Class<?> subjectClass )
+    {
+        var retValue = false;
+        if( subjectClass != URL.class )
+        {
+            try
+            {
+                retValue = subjectClass.getMethod( "equals", Object.class ).getDeclaringClass() != Object.class;
+            }
+            catch( final NoSuchMethodException ignored ) { /* Cannot happen */ }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  overridesEquals()
+
+    /**
+     *  Prints the ranked report.
+     *
+     *  @param  reports The reports for the measured converters.
+     *  @param  unsupported The subject classes that were not measured.
+     *  @param  threads The number of threads for the measurement under
+     *      contention.
+     */
+    private static final void printReport( final List<Report> reports, final List<Class<?>> unsupported, final int threads )
+    {
+        out.println();
+        out.printf( "%4s %-48s %14s %10s %14s %10s %14s %14s %8s%n", "Rank", "Subject class", "toString/s", "B/op", "fromString/s", "B/op", "to/s (" + threads + "T)", "from/s (" + threads + "T)", "Scaling" );
+        final var measured = reports.stream()
+            .filter( report -> !report.results().isEmpty() )
+            .sorted( comparingDouble( Report::roundTripNanos ).reversed() )
+            .toList();
+        var rank = 0;
+        for( final var report : measured )
+        {
+            final var results = report.results();
+            final var contended = results.get( 2 ).nanosPerOperation() + results.get( 3 ).nanosPerOperation();
+            out.printf( "%4d %-48s %14.0f %10.1f %14.0f %10.1f %14.0f %14.0f %7.2fx%n",
+                ++rank,
+                report.subjectClass().getName(),
+                results.get( 0 ).operationsPerSecond(),
+                results.get( 0 ).bytesPerOperation(),
+                results.get( 1 ).operationsPerSecond(),
+                results.get( 1 ).bytesPerOperation(),
+                results.get( 2 ).operationsPerSecond(),
+                results.get( 3 ).operationsPerSecond(),
+                contended > 0 ? report.roundTripNanos() / contended : 0.0 );
+        }
+
+        final var failures = reports.stream().filter( report -> !isNull( report.failure() ) ).toList();
+        if( !failures.isEmpty() )
+        {
+            out.printf( "%nRound trip failures:%n" );
+            for( final var report : failures ) out.printf( "    %-48s %s%n", report.subjectClass().getName(), report.failure() );
+        }
+        if( !unsupported.isEmpty() )
+        {
+            out.printf( "%nNot measured (no sample values):%n" );
+            for( final var subjectClass : unsupported ) out.printf( "    %s%n", subjectClass.getName() );
+        }
+    }   //  printReport()
+
+    /**
+     *  Checks and measures all registered converters.
+     *
+     *  @param  launcher    The launcher with the command line options.
+     *  @throws Exception   A benchmark failed.
+     */
+    @SuppressWarnings( "unchecked" )
+    private static final void run( final BenchmarkLauncher launcher ) throws Exception
+    {
+        final var threads = launcher.getOption( OPTION_THREADS )
+            .map( Integer::valueOf )
+            .orElseGet( () -> Math.max( 2, Runtime.getRuntime().availableProcessors() ) )
+            .intValue();
+        final var runner = launcher.isQuick() ? new BenchmarkRunner( 1, 2, 100 ) : new BenchmarkRunner( 3, 5, 500 );
+        final var random = new Random( 4711 );
+        final List<Report> reports = new ArrayList<>();
+        final List<Class<?>> unsupported = new ArrayList<>();
+        final var subjectClasses = StringConverter.list().stream()
+            .sorted( Comparator.comparing( Class::getName ) )
+            .toList();
+        for( final var subjectClass : subjectClasses )
+        {
+            final var converter = StringConverter.forClass( subjectClass );
+            final var samples = generateSamples( subjectClass, random );
+            if( converter.isEmpty() || samples.isEmpty() )
+            {
+                unsupported.add( subjectClass );
+                continue;
+            }
+            final var report = check( subjectClass, (StringConverter<Object>) converter.get(), samples.get(), runner, threads );
+            out.printf( "%-48s %s%n", subjectClass.getName(), isNull( report.failure() ) ? "OK" : "FAILED" );
+            reports.add( report );
+            launcher.record( report.results() );
+        }
+
+        printReport( reports, unsupported, threads );
+    }   //  run()
+
+    /**
+     *  Generates a random String, with some characters outside of ASCII.
+     *
+     *  @param  random  The source of randomness.
+     *  @return The String.
+     */
+    private static final String string( final Random random )
+    {
+        final var length = random.nextInt( 1, 32 );
+        final var buffer = new StringBuilder( length );
+        for( var i = 0; i < length; ++i )
+        {
+            buffer.append( random.nextInt( 10 ) == 0 ? (char) random.nextInt( 0xA0, 0x3000 ) : (char) random.nextInt( 0x20, 0x7F ) );
+        }
+        final var retValue = buffer.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  string()
+
+    /**
+     *  Generates a random URL.
+     *
+     *  @param  random  The source of randomness.
+     *  @return The URL.
+     */
+    private static final URL url( final Random random )
+    {
+        final URL retValue;
+        try
+        {
+            retValue = URI.create( "https://www.example.org/path%d/file%d.html".formatted( random.nextInt( 100 ), random.nextInt( 1000 ) ) ).toURL();
+        }
+        catch( final MalformedURLException e )
+        {
+            throw new IllegalStateException( e );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  url()
+}
+//  class StringConverterBenchmark
+
+/*
+ *  End of File
+ */
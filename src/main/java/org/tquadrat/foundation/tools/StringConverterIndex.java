@@ -0,0 +1,612 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.lang.StringConverter;
+
+/**
+ *  A precomputed index of the
+ *  {@link StringConverter}
+ *  implementations that are registered with the service, and a loader
+ *  that uses it.
+ *  <p>{@summary
+ *  {@link StringConverter#list()}
+ *  and
+ *  {@link StringConverter#forClass(Class)}
+ *  instantiate all the registered converters to find out about their
+ *  subject classes; for a short-lived command line process, this scan
+ *  takes a noticeable part of the startup time.} The index maps each
+ *  subject class to the name of the class of its converter, so that the
+ *  loader needs to instantiate only the provider for the requested
+ *  class.</p>
+ *  <p>The index is generated at build time by calling
+ *  {@link #main(String...)}
+ *  with the path to the file
+ *  {@value #INDEX_RESOURCE}
+ *  in the output folder for this package; at runtime,
+ *  {@link #load()}
+ *  reads it from there. When the index is missing, or if it was generated
+ *  for another version of the converter module or of Java, it is ignored;
+ *  when a subject class is not in the index, or if its provider is no
+ *  longer registered, the loader falls back to the service scan.</p>
+ *  <p>Whether a converter class is still registered is decided by its
+ *  name: the names of the providers are taken from the descriptors of the
+ *  named modules and from the provider configuration files
+ *  ({@code META-INF/services}) on the class path, without loading any of
+ *  the provider classes. Only the class of the requested converter is
+ *  loaded and instantiated then. The index records the set of the
+ *  registered providers, too;
+ *  {@link #list()}
+ *  compares it with these names and falls back to the scan when providers
+ *  were added or removed since the index was generated. To keep the lookup
+ *  fast,
+ *  {@link #forClass(Class)}
+ *  does not check it: a provider that was added later for a subject class
+ *  that is already in the index is used only after the index was
+ *  generated again.</p>
+ *  <p>Instances of this class are thread-safe.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = STABLE, since = "0.4.3" )
+public final class StringConverterIndex
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The first line of an index file: {@value}.
+     */
+    public static final String HEADER = "# org.tquadrat.foundation.tools.StringConverterIndex 2";
+
+    /**
+     *  The name of the resource with the index, relative to this class:
+     *  {@value}.
+     */
+    public static final String INDEX_RESOURCE = "StringConverter.index";
+
+    /**
+     *  The prefix for the line with the fingerprint of the runtime: {@value}.
+     */
+    private static final String FINGERPRINT_PREFIX = "# runtime ";
+
+    /**
+     *  The prefix for the line with the fingerprint of the registered
+     *  providers: {@value}.
+     */
+    private static final String PROVIDERS_PREFIX = "# providers ";
+
+    /**
+     *  The name of the provider configuration file for the service on the
+     *  class path: {@value}.
+     */
+    private static final String SERVICES_RESOURCE = "META-INF/services/org.tquadrat.foundation.lang.StringConverter";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The names of the converter classes, by the names of their subject
+     *  classes.
+     */
+    private final Map<String,String> m_Entries;
+
+    /**
+     *  The converters that were already retrieved, by subject class.
+     */
+    private final Map<Class<?>,StringConverter<?>> m_Converters = new ConcurrentHashMap<>();
+
+    /**
+     *  The names of the classes of the registered providers; they are
+     *  determined on first use.
+     */
+    private volatile Set<String> m_Providers;
+
+    /**
+     *  The fingerprint of the providers that were registered when the index
+     *  was generated.
+     */
+    private final String m_ProvidersFingerprint;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code StringConverterIndex}.
+     *
+     *  @param  entries The names of the converter classes, by the names of
+     *      their subject classes.
+     *  @param  providersFingerprint    The fingerprint of the providers
+     *      that were registered when the index was generated; the empty
+     *      String if the index is empty.
+     */
+    private StringConverterIndex( final Map<String,String> entries, final String providersFingerprint )
+    {
+        m_Entries = Map.copyOf( entries );
+        m_ProvidersFingerprint = providersFingerprint;
+    }   //  StringConverterIndex()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the class loader that is used to locate the providers; it is
+     *  the same that is used by
+     *  {@link ServiceLoader#load(Class)}.
+     *
+     *  @return The class loader.
+     */
+    private static final ClassLoader classLoader()
+    {
+        final var contextClassLoader = Thread.currentThread().getContextClassLoader();
+        final var retValue = isNull( contextClassLoader ) ? ClassLoader.getSystemClassLoader() : contextClassLoader;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  classLoader()
+
+    /**
+     *  Returns the fingerprint of the runtime: an index is valid only for
+     *  the version of the converter module and the Java version it was
+     *  generated with.
+     *
+     *  @return The fingerprint.
+     */
+    private static final String fingerprint()
+    {
+        final var module = StringConverter.class.getModule();
+        final var version = isNull( module.getDescriptor() ) ? "unversioned" : module.getDescriptor().rawVersion().orElse( "unversioned" );
+        final var retValue = String.join( " ", module.isNamed() ? module.getName() : "unnamed", version, Integer.toString( Runtime.version().feature() ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  fingerprint()
+
+    /**
+     *  Returns the converter for the given subject class. If the class is
+     *  in the index, only the provider for its converter is instantiated;
+     *  otherwise the converter is retrieved through
+     *  {@link StringConverter#forClass(Class)}.
+     *
+     *  @param  <T> The subject class.
+     *  @param  subjectClass    The subject class.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the converter.
+     */
+    @SuppressWarnings( "unchecked" )
+    public final <T> Optional<StringConverter<T>> forClass( final Class<T> subjectClass )
+    {
+        requireNonNullArgument( subjectClass, "subjectClass" );
+        var converter = (StringConverter<T>) m_Converters.get( subjectClass );
+        if( isNull( converter ) )
+        {
+            converter = (StringConverter<T>) fromIndex( subjectClass.getName() );
+            if( isNull( converter ) ) converter = StringConverter.forClass( subjectClass ).orElse( null );
+            if( !isNull( converter ) ) m_Converters.putIfAbsent( subjectClass, converter );
+        }
+        final var retValue = Optional.ofNullable( converter );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  forClass()
+
+    /**
+     *  Instantiates the converter for the given subject class from the
+     *  index; only a converter class that is still registered as a provider
+     *  is used.
+     *
+     *  @param  subjectClassName    The name of the subject class.
+     *  @return The converter; {@code null} if the subject class is not in
+     *      the index, or if the provider is not registered.
+     */
+    @SuppressWarnings( "rawtypes" )
+    private final StringConverter fromIndex( final String subjectClassName )
+    {
+        final var converterClassName = m_Entries.get( subjectClassName );
+        final var retValue = isNull( converterClassName ) || !providers().contains( converterClassName ) ? null : instantiate( converterClassName );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  fromIndex()
+
+    /**
+     *  Generates the index from the converters that are currently
+     *  registered with the service.
+     *
+     *  @return The index.
+     */
+    public static final StringConverterIndex generate()
+    {
+        final Map<String,String> entries = new TreeMap<>();
+        for( final var subjectClass : StringConverter.list() )
+        {
+            StringConverter.forClass( subjectClass )
+                .ifPresent( converter -> entries.put( subjectClass.getName(), converter.getClass().getName() ) );
+        }
+        final var retValue = new StringConverterIndex( entries, providersFingerprint( loadProviders() ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  generate()
+
+    /**
+     *  Instantiates the registered provider with the given class, the same
+     *  way as
+     *  {@link ServiceLoader}
+     *  does: through its static method {@code provider()} if the class is
+     *  in a named module and has one, otherwise through its public
+     *  constructor without arguments. If the class is not accessible from
+     *  here, the providers of the service are searched for it; this loads
+     *  the provider classes up to the requested one, but does not
+     *  instantiate them.
+     *
+     *  @param  converterClassName  The name of the converter class.
+     *  @return The converter; {@code null} if it could not be instantiated.
+     */
+    @SuppressWarnings( {"rawtypes", "OverlyBroadCatchBlock"} )
+    private static final StringConverter instantiate( final String converterClassName )
+    {
+        StringConverter retValue = null;
+        try
+        {
+            final var converterClass = Class.forName( converterClassName, false, classLoader() );
+            if( StringConverter.class.isAssignableFrom( converterClass ) )
+            {
+                Method providerMethod = null;
+                if( converterClass.getModule().isNamed() )
+                {
+                    try
+                    {
+                        providerMethod = converterClass.getMethod( "provider" );
+                        if( !Modifier.isStatic( providerMethod.getModifiers() ) ) providerMethod = null;
+                    }
+                    catch( final NoSuchMethodException ignored ) { /* Use the constructor */ }
+                }
+                final var converter = isNull( providerMethod ) ? converterClass.getConstructor().newInstance() : providerMethod.invoke( null );
+                if( converter instanceof final StringConverter stringConverter ) retValue = stringConverter;
+            }
+        }
+        catch( final IllegalAccessException ignored )
+        {
+            retValue = searchProvider( converterClassName );
+        }
+        catch( final ReflectiveOperationException | LinkageError | RuntimeException ignored ) { /* Fall back to the scan */ }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  instantiate()
+
+    /**
+     *  Returns {@code true} if the index has no entries, so that all
+     *  requests will be answered by the service scan.
+     *
+     *  @return {@code true} if the index is empty, {@code false}
+     *      otherwise.
+     */
+    public final boolean isEmpty() { return m_Entries.isEmpty(); }
+
+    /**
+     *  Returns the names of the subject classes for which converters are
+     *  available; if the index is empty, or if the registered providers
+     *  changed since the index was generated, the names are retrieved from
+     *  {@link StringConverter#list()}.
+     *
+     *  @return The names of the subject classes.
+     */
+    public final SortedSet<String> list()
+    {
+        final var retValue = m_Entries.isEmpty() || !m_ProvidersFingerprint.equals( providersFingerprint( providers() ) )
+            ? StringConverter.list().stream().map( Class::getName ).collect( Collectors.toCollection( TreeSet::new ) )
+            : new TreeSet<>( m_Entries.keySet() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  list()
+
+    /**
+     *  Loads the index from the resource
+     *  {@value #INDEX_RESOURCE};
+     *  if the resource does not exist, or if it is not valid for the
+     *  current runtime, the index will be empty.
+     *
+     *  @return The index.
+     */
+    public static final StringConverterIndex load()
+    {
+        var retValue = new StringConverterIndex( Map.of(), "" );
+        try( final var inputStream = StringConverterIndex.class.getResourceAsStream( INDEX_RESOURCE ) )
+        {
+            if( !isNull( inputStream ) ) retValue = read( new InputStreamReader( inputStream, UTF8 ) );
+        }
+        catch( final IOException ignored ) { /* Fall back to the scan */ }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  load()
+
+    /**
+     *  Loads the index from the given file; if the file does not exist, or
+     *  if it is not valid for the current runtime, the index will be
+     *  empty.
+     *
+     *  @param  file    The index file.
+     *  @return The index.
+     *  @throws IOException The file cannot be read.
+     */
+    public static final StringConverterIndex load( final Path file ) throws IOException
+    {
+        var retValue = new StringConverterIndex( Map.of(), "" );
+        if( Files.isRegularFile( requireNonNullArgument( file, "file" ) ) )
+        {
+            try( final var reader = Files.newBufferedReader( file, UTF8 ) )
+            {
+                retValue = read( reader );
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  load()
+
+    /**
+     *  Determines the names of the classes of the registered providers,
+     *  from the descriptors of the named modules and from the provider
+     *  configuration files on the class path; no provider class is loaded
+     *  here.
+     *
+     *  @return The names of the provider classes.
+     */
+    private static final Set<String> loadProviders()
+    {
+        final Set<String> providers = new HashSet<>();
+        final var serviceName = StringConverter.class.getName();
+
+        //---* The providers in the named modules *----------------------------
+        final var module = StringConverterIndex.class.getModule();
+        final Deque<ModuleLayer> layers = new ArrayDeque<>();
+        layers.add( isNull( module.getLayer() ) ? ModuleLayer.boot() : module.getLayer() );
+        while( !layers.isEmpty() )
+        {
+            final var layer = layers.removeFirst();
+            for( final var namedModule : layer.modules() )
+            {
+                for( final var provides : namedModule.getDescriptor().provides() )
+                {
+                    if( provides.service().equals( serviceName ) ) providers.addAll( provides.providers() );
+                }
+            }
+            layers.addAll( layer.parents() );
+        }
+
+        //---* The providers on the class path *-------------------------------
+        try
+        {
+            final var resources = classLoader().getResources( SERVICES_RESOURCE );
+            while( resources.hasMoreElements() )
+            {
+                try( final var reader = new BufferedReader( new InputStreamReader( resources.nextElement().openStream(), UTF8 ) ) )
+                {
+                    String line;
+                    while( !isNull( line = reader.readLine() ) )
+                    {
+                        final var comment = line.indexOf( '#' );
+                        final var name = (comment < 0 ? line : line.substring( 0, comment )).strip();
+                        if( !name.isEmpty() ) providers.add( name );
+                    }
+                }
+            }
+        }
+        catch( final IOException ignored ) { /* The provider configurations cannot be read */ }
+        final var retValue = Set.copyOf( providers );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  loadProviders()
+
+    /**
+     *  The program entry point; generates the index and writes it to the
+     *  given file.
+     *  <p>Command line:</p>
+     *  <pre><code>StringConverterIndex &lt;file&gt;</code></pre>
+     *
+     *  @param  args    The command line arguments.
+     */
+    public static final void main( final String... args )
+    {
+        try
+        {
+            if( args.length != 1 ) throw new IllegalArgumentException( "Usage: StringConverterIndex <file>" );
+            final var index = generate();
+            index.save( Path.of( args [0] ) );
+            out.printf( "%d converters written to %s%n", index.size(), args [0] );
+        }
+        catch( final Throwable t )
+        {
+            //---* Handle previously unhandled exceptions *--------------------
+            t.printStackTrace( err );
+        }
+    }   //  main()
+
+    /**
+     *  Returns the names of the classes of the registered providers; they
+     *  are determined on first use, but no provider class is loaded here.
+     *
+     *  @return The names of the provider classes.
+     */
+    private final Set<String> providers()
+    {
+        var retValue = m_Providers;
+        if( isNull( retValue ) )
+        {
+            retValue = loadProviders();
+            m_Providers = retValue;
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  providers()
+
+    /**
+     *  Returns the fingerprint for the given set of providers.
+     *
+     *  @param  converterClassNames The names of the converter classes of
+     *      the providers.
+     *  @return The fingerprint.
+     */
+    private static final String providersFingerprint( final Collection<String> converterClassNames )
+    {
+        final var names = new StringBuilder();
+        for( final var name : new TreeSet<>( converterClassNames ) ) names.append( name ).append( '\n' );
+        final var retValue = converterClassNames.size() + " " + Integer.toHexString( names.toString().hashCode() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  providersFingerprint()
+
+    /**
+     *  Reads an index.
+     *
+     *  @param  reader  The source of the index.
+     *  @return The index; it is empty if the source is not an index for the
+     *      current runtime.
+     *  @throws IOException The index cannot be read.
+     */
+    private static final StringConverterIndex read( final Reader reader ) throws IOException
+    {
+        final Map<String,String> entries = new HashMap<>();
+        final var bufferedReader = new BufferedReader( reader );
+        final var header = bufferedReader.readLine();
+        final var fingerprint = bufferedReader.readLine();
+        final var providers = bufferedReader.readLine();
+        var providersFingerprint = "";
+        if( HEADER.equals( header )
+            && !isNull( fingerprint ) && fingerprint.startsWith( FINGERPRINT_PREFIX ) && fingerprint.substring( FINGERPRINT_PREFIX.length() ).equals( fingerprint() )
+            && !isNull( providers ) && providers.startsWith( PROVIDERS_PREFIX ) )
+        {
+            providersFingerprint = providers.substring( PROVIDERS_PREFIX.length() );
+            String line;
+            while( !isNull( line = bufferedReader.readLine() ) )
+            {
+                final var separator = line.indexOf( '\t' );
+                if( separator > 0 ) entries.put( line.substring( 0, separator ), line.substring( separator + 1 ) );
+            }
+        }
+        final var retValue = new StringConverterIndex( entries, providersFingerprint );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  read()
+
+    /**
+     *  Searches the providers of the service for the one with the given
+     *  class and instantiates it; the search stops at that provider.
+     *
+     *  @param  converterClassName  The name of the converter class.
+     *  @return The converter; {@code null} if it could not be found or not
+     *      be instantiated.
+     */
+    @SuppressWarnings( "rawtypes" )
+    private static final StringConverter searchProvider( final String converterClassName )
+    {
+        StringConverter retValue = null;
+        try
+        {
+            final var iterator = ServiceLoader.load( StringConverter.class, classLoader() ).stream().iterator();
+            while( isNull( retValue ) && iterator.hasNext() )
+            {
+                final var provider = iterator.next();
+                if( provider.type().getName().equals( converterClassName ) ) retValue = provider.get();
+            }
+        }
+        catch( final ServiceConfigurationError ignored ) { /* Fall back to the scan */ }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  searchProvider()
+
+    /**
+     *  Writes the index to the given file.
+     *
+     *  @param  file    The index file.
+     *  @throws IOException The file cannot be written.
+     */
+    public final void save( final Path file ) throws IOException
+    {
+        final var buffer = new StringBuilder( HEADER ).append( '\n' )
+            .append( FINGERPRINT_PREFIX ).append( fingerprint() ).append( '\n' )
+            .append( PROVIDERS_PREFIX ).append( m_ProvidersFingerprint ).append( '\n' );
+        new TreeMap<>( m_Entries ).forEach( (subjectClassName, converterClassName) -> buffer.append( subjectClassName )
+            .append( '\t' )
+            .append( converterClassName )
+            .append( '\n' ) );
+
+        AtomicFiles.write( requireNonNullArgument( file, "file" ), buffer );
+    }   //  save()
+
+    /**
+     *  Returns the number of entries.
+     *
+     *  @return The number of entries.
+     */
+    public final int size() { return m_Entries.size(); }
+}
+//  class StringConverterIndex
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,295 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+import static org.apiguardian.api.API.Status.EXPERIMENTAL;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.isNull;
+
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.PlaygroundClass;
+import org.tquadrat.foundation.exception.PrivateConstructorForStaticClassCalledError;
+import org.tquadrat.foundation.lang.StringConverter;
+
+/**
+ *  Compares the startup cost of the retrieval of
+ *  {@link StringConverter}
+ *  instances through the service scan with that through the
+ *  {@link StringConverterIndex}.
+ *  <p>{@summary As both paths cache their results inside a JVM, each
+ *  measurement is taken in a new JVM process.} The benchmark runs the
+ *  probe alternately for both paths, with the same module or class path as
+ *  the benchmark itself; for each path it reports the wall time of the
+ *  whole process and the time for retrieving the converters inside the
+ *  process, as median and minimum over all runs.</p>
+ *  <p>Command line:</p>
+ *  <pre><code>StringConverterStartupBenchmark [{@value #OPTION_RUNS} &lt;n&gt;] [{@value #OPTION_INDEX} &lt;file&gt;] [&lt;subject class&gt; …]</code></pre>
+ *  <p>Without
+ *  {@value #OPTION_INDEX},
+ *  the index is generated into a temporary file first; without subject
+ *  classes, the converter for
+ *  {@link java.math.BigInteger}
+ *  is retrieved.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = EXPERIMENTAL, since = "0.4.3" )
+@PlaygroundClass
+public final class StringConverterStartupBenchmark
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The command line option for the index file: {@value}.
+     */
+    public static final String OPTION_INDEX = "--index";
+
+    /**
+     *  The command line option for the number of runs per path: {@value}.
+     */
+    public static final String OPTION_RUNS = "--runs";
+
+    /**
+     *  The command line option that runs the probe inside the child
+     *  process: {@value}.
+     */
+    private static final String OPTION_PROBE = "--probe";
+
+    /**
+     *  The name of the path through the index: {@value}.
+     */
+    private static final String PATH_INDEX = "index";
+
+    /**
+     *  The name of the path through the service scan: {@value}.
+     */
+    private static final String PATH_SCAN = "scan";
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private StringConverterStartupBenchmark() { throw new PrivateConstructorForStaticClassCalledError( StringConverterStartupBenchmark.class ); }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the command that starts the probe in a new JVM.
+     *
+     *  @param  path    The path to measure.
+     *  @param  indexFile   The index file.
+     *  @param  subjectClasses  The names of the subject classes.
+     *  @return The command.
+     */
+    private static final List<String> command( final String path, final Path indexFile, final List<String> subjectClasses )
+    {
+        final List<String> retValue = new ArrayList<>();
+        retValue.add( Path.of( System.getProperty( "java.home" ), "bin", "java" ).toString() );
+        final var module = StringConverterStartupBenchmark.class.getModule();
+        final var modulePath = System.getProperty( "jdk.module.path" );
+        if( module.isNamed() && !isNull( modulePath ) )
+        {
+            retValue.addAll( List.of( "-p", modulePath, "-m", "%s/%s".formatted( module.getName(), StringConverterStartupBenchmark.class.getName() ) ) );
+        }
+        else
+        {
+            retValue.addAll( List.of( "-cp", System.getProperty( "java.class.path" ), StringConverterStartupBenchmark.class.getName() ) );
+        }
+        retValue.addAll( List.of( OPTION_PROBE, path, indexFile.toString() ) );
+        retValue.addAll( subjectClasses );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  command()
+
+    /**
+     *  The program entry point.
+     *
+     *  @param  args    The command line arguments.
+     */
+    public static final void main( final String... args )
+    {
+        try
+        {
+            if( args.length > 0 && OPTION_PROBE.equals( args [0] ) )
+            {
+                probe( args [1], Path.of( args [2] ), Arrays.asList( args ).subList( 3, args.length ) );
+            }
+            else
+            {
+                var runs = 10;
+                Path indexFile = null;
+                final List<String> subjectClasses = new ArrayList<>();
+                for( var i = 0; i < args.length; ++i )
+                {
+                    switch( args [i] )
+                    {
+                        case OPTION_RUNS -> runs = Integer.parseInt( args [++i] );
+                        case OPTION_INDEX -> indexFile = Path.of( args [++i] );
+                        default -> subjectClasses.add( args [i] );
+                    }
+                }
+                if( subjectClasses.isEmpty() ) subjectClasses.add( "java.math.BigInteger" );
+
+                var temporary = false;
+                if( isNull( indexFile ) )
+                {
+                    indexFile = Files.createTempFile( "StringConverter", ".index" );
+                    temporary = true;
+                    StringConverterIndex.generate().save( indexFile );
+                }
+                try
+                {
+                    measure( runs, indexFile, subjectClasses );
+                }
+                finally
+                {
+                    if( temporary ) Files.deleteIfExists( indexFile );
+                }
+            }
+        }
+        catch( final Throwable t )
+        {
+            //---* Handle previously unhandled exceptions *--------------------
+            t.printStackTrace( err );
+        }
+    }   //  main()
+
+    /**
+     *  Runs the probes for both paths alternately, and prints the report.
+     *
+     *  @param  runs    The number of runs per path.
+     *  @param  indexFile   The index file.
+     *  @param  subjectClasses  The names of the subject classes.
+     *  @throws IOException A probe could not be started.
+     *  @throws InterruptedException    The benchmark was interrupted.
+     */
+    private static final void measure( final int runs, final Path indexFile, final List<String> subjectClasses ) throws IOException, InterruptedException
+    {
+        final var paths = List.of( PATH_SCAN, PATH_INDEX );
+        final var wallNanos = new long [paths.size()] [runs];
+        final var lookupNanos = new long [paths.size()] [runs];
+
+        //---* One discarded run per path to warm up the file system *---------
+        for( final var path : paths ) runProbe( command( path, indexFile, subjectClasses ) );
+
+        for( var run = 0; run < runs; ++run )
+        {
+            for( var p = 0; p < paths.size(); ++p )
+            {
+                final var start = System.nanoTime();
+                lookupNanos [p] [run] = runProbe( command( paths.get( p ), indexFile, subjectClasses ) );
+                wallNanos [p] [run] = System.nanoTime() - start;
+            }
+        }
+
+        out.printf( "%-8s %16s %16s %18s %18s%n", "Path", "Process (med)", "Process (min)", "Lookup (med)", "Lookup (min)" );
+        for( var p = 0; p < paths.size(); ++p )
+        {
+            Arrays.sort( wallNanos [p] );
+            Arrays.sort( lookupNanos [p] );
+            out.printf( "%-8s %13.1f ms %13.1f ms %15.2f ms %15.2f ms%n",
+                paths.get( p ),
+                wallNanos [p] [runs / 2] / 1.0e6,
+                wallNanos [p] [0] / 1.0e6,
+                lookupNanos [p] [runs / 2] / 1.0e6,
+                lookupNanos [p] [0] / 1.0e6 );
+        }
+        out.printf( "%nLookup speed-up through the index: %.2fx (median)%n", (double) lookupNanos [0] [runs / 2] / Math.max( 1, lookupNanos [1] [runs / 2] ) );
+    }   //  measure()
+
+    /**
+     *  Retrieves the converters for the given subject classes on the given
+     *  path, and prints the time for that; this runs inside the child
+     *  process.
+     *
+     *  @param  path    The path to measure.
+     *  @param  indexFile   The index file.
+     *  @param  subjectClasses  The names of the subject classes.
+     *  @throws Exception   The converters could not be retrieved.
+     */
+    private static final void probe( final String path, final Path indexFile, final List<String> subjectClasses ) throws Exception
+    {
+        final var start = System.nanoTime();
+        final var index = PATH_INDEX.equals( path ) ? StringConverterIndex.load( indexFile ) : null;
+        for( final var subjectClassName : subjectClasses )
+        {
+            final var subjectClass = Class.forName( subjectClassName );
+            final var converter = isNull( index ) ? StringConverter.forClass( subjectClass ) : index.forClass( subjectClass );
+            if( converter.isEmpty() ) throw new IllegalStateException( "No converter for %s".formatted( subjectClassName ) );
+        }
+        out.println( System.nanoTime() - start );
+    }   //  probe()
+
+    /**
+     *  Starts a probe in a new JVM and waits for its termination.
+     *
+     *  @param  command The command for the probe.
+     *  @return The time for retrieving the converters, as reported by the
+     *      probe, in nanoseconds.
+     *  @throws IOException The probe could not be started, or it failed.
+     *  @throws InterruptedException    The benchmark was interrupted.
+     */
+    private static final long runProbe( final List<String> command ) throws IOException, InterruptedException
+    {
+        final var process = new ProcessBuilder( command )
+            .redirectError( Redirect.INHERIT )
+            .start();
+        final var output = new String( process.getInputStream().readAllBytes(), UTF8 ).strip();
+        if( process.waitFor() != 0 || output.isEmpty() ) throw new IOException( "Probe failed: %s".formatted( String.join( " ", command ) ) );
+        final var lines = output.lines().toList();
+        final long retValue;
+        try
+        {
+            retValue = Long.parseLong( lines.get( lines.size() - 1 ).strip() );
+        }
+        catch( final NumberFormatException e )
+        {
+            throw new IOException( "Unexpected output from probe: %s".formatted( output ), e );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  runProbe()
+}
+//  class StringConverterStartupBenchmark
+
+/*
+ *  End of File
+ */
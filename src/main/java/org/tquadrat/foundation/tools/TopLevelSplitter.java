@@ -0,0 +1,478 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+
+/**
+ *  A lightweight scanner that finds the boundaries of the children of the
+ *  root element in the raw bytes of an XML document, without parsing it.
+ *  <p>{@summary The scanner recognises comments, CDATA sections, processing
+ *  instructions, the document type declaration and quoted attribute values,
+ *  so that markup characters inside them do not confuse it.} It works on
+ *  any encoding in which the markup characters are represented by their
+ *  ASCII codes, like UTF-8 or the ISO-8859 family; it does not check
+ *  whether the document is well-formed.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = INTERNAL, since = "0.4.3" )
+final class TopLevelSplitter
+{
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The buffer with the document.
+     */
+    private final ByteBuffer m_Buffer;
+
+    /**
+     *  The nesting depth at the current position.
+     */
+    private int m_Depth = 1;
+
+    /**
+     *  {@code true} if there are processing instructions inside the root
+     *  element, {@code false} otherwise.
+     */
+    private boolean m_HasProcessingInstructions = false;
+
+    /**
+     *  The position behind the last child element of the root element that
+     *  was found so far.
+     */
+    private int m_LastChildEnd;
+
+    /**
+     *  The end of the document.
+     */
+    private final int m_Limit;
+
+    /**
+     *  The current position.
+     */
+    private int m_Position;
+
+    /**
+     *  The start of the end tag of the root element; -1 if it was not yet
+     *  found.
+     */
+    private int m_RootEnd = -1;
+
+    /**
+     *  The name of the root element.
+     */
+    private final String m_RootName;
+
+    /**
+     *  The position behind the start tag of the root element.
+     */
+    private final int m_RootStartEnd;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code TopLevelSplitter}; it scans the
+     *  prolog and the start tag of the root element.
+     *
+     *  @param  buffer  The buffer with the document; its position and limit
+     *      will not be changed.
+     *  @throws EOFException    The document does not have a root element.
+     */
+    public TopLevelSplitter( final ByteBuffer buffer ) throws EOFException
+    {
+        m_Buffer = requireNonNullArgument( buffer, "buffer" );
+        m_Limit = buffer.limit();
+
+        //---* Skip the prolog *-----------------------------------------------
+        var position = buffer.position();
+        var rootStart = -1;
+        while( rootStart < 0 )
+        {
+            position = indexOf( (byte) '<', position );
+            if( position < 0 ) throw new EOFException( "No root element" );
+            if( matches( position, "<?" ) )
+            {
+                position = skipPast( position, "?>" );
+            }
+            else if( matches( position, "<!--" ) )
+            {
+                position = skipPast( position, "-->" );
+            }
+            else if( matches( position, "<!" ) )
+            {
+                position = skipDeclaration( position );
+            }
+            else
+            {
+                rootStart = position;
+            }
+        }
+
+        //---* Scan the start tag of the root element *------------------------
+        var nameEnd = rootStart + 1;
+        while( nameEnd < m_Limit && !isNameTerminator( buffer.get( nameEnd ) ) ) ++nameEnd;
+        final var name = new byte [nameEnd - rootStart - 1];
+        buffer.get( rootStart + 1, name );
+        m_RootName = new String( name, UTF8 );
+        m_RootStartEnd = skipTag( rootStart );
+        m_Position = m_RootStartEnd;
+        m_LastChildEnd = m_RootStartEnd;
+        if( buffer.get( m_RootStartEnd - 2 ) == '/' )
+        {
+            //---* An empty root element *-------------------------------------
+            m_Depth = 0;
+            m_RootEnd = m_RootStartEnd;
+        }
+    }   //  TopLevelSplitter()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the position behind the start tag of the root element.
+     *
+     *  @return The position.
+     */
+    public final int getRootStartEnd() { return m_RootStartEnd; }
+
+    /**
+     *  Returns the name of the root element.
+     *
+     *  @return The name.
+     */
+    public final String getRootName() { return m_RootName; }
+
+    /**
+     *  Checks whether there is anything but whitespace after the end of the
+     *  root element, like comments or processing instructions.
+     *
+     *  @return {@code true} if the document has an epilog, {@code false}
+     *      otherwise.
+     *  @throws IllegalStateException   The end of the root element was not
+     *      yet found.
+     */
+    public final boolean hasEpilog()
+    {
+        if( m_RootEnd < 0 ) throw new IllegalStateException( "End of root element not yet found" );
+        final var retValue = !isWhitespace( m_Position, m_Limit );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hasEpilog()
+
+    /**
+     *  Checks whether processing instructions were found inside the root
+     *  element so far.
+     *
+     *  @return {@code true} if there are processing instructions inside the
+     *      root element, {@code false} otherwise.
+     */
+    public final boolean hasProcessingInstructions() { return m_HasProcessingInstructions; }
+
+    /**
+     *  Checks whether there is anything but whitespace between the last
+     *  child element of the root element and its end tag, like text, a
+     *  CDATA section, or a comment.
+     *
+     *  @return {@code true} if the root element has such a tail,
+     *      {@code false} otherwise.
+     *  @throws IllegalStateException   The end of the root element was not
+     *      yet found.
+     */
+    public final boolean hasTail()
+    {
+        if( m_RootEnd < 0 ) throw new IllegalStateException( "End of root element not yet found" );
+        final var retValue = !isWhitespace( m_LastChildEnd, m_RootEnd );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hasTail()
+
+    /**
+     *  Returns the index of the next occurrence of the given byte.
+     *
+     *  @param  b   The byte.
+     *  @param  from    The position to start the search.
+     *  @return The index; -1 if the byte was not found.
+     */
+    private final int indexOf( final byte b, final int from )
+    {
+        var retValue = from;
+        while( retValue < m_Limit && m_Buffer.get( retValue ) != b ) ++retValue;
+        if( retValue >= m_Limit ) retValue = -1;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  indexOf()
+
+    /**
+     *  Returns whether the root element is an empty element tag, meaning
+     *  that it does not have any children.
+     *
+     *  @return {@code true} if the root element is empty, {@code false}
+     *      otherwise.
+     */
+    public final boolean isRootEmpty() { return m_RootEnd == m_RootStartEnd; }
+
+    /**
+     *  Checks whether the given byte terminates an element name.
+     *
+     *  @param  b   The byte.
+     *  @return {@code true} if the byte terminates a name, {@code false}
+     *      otherwise.
+     */
+    private static final boolean isNameTerminator( final byte b )
+    {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>';
+    }   //  isNameTerminator()
+
+    /**
+     *  Checks whether the given range consists of whitespace only.
+     *
+     *  @param  from    The start of the range.
+     *  @param  to  The end of the range, exclusive.
+     *  @return {@code true} if the range is empty or contains whitespace
+     *      only, {@code false} otherwise.
+     */
+    private final boolean isWhitespace( final int from, final int to )
+    {
+        var retValue = true;
+        for( var i = from; retValue && i < to; ++i )
+        {
+            final var b = m_Buffer.get( i );
+            retValue = b == ' ' || b == '\t' || b == '\r' || b == '\n';
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isWhitespace()
+
+    /**
+     *  Checks whether the given ASCII text appears at the given position.
+     *
+     *  @param  position    The position.
+     *  @param  text    The text.
+     *  @return {@code true} if the text appears at the position,
+     *      {@code false} otherwise.
+     */
+    private final boolean matches( final int position, final String text )
+    {
+        var retValue = position + text.length() <= m_Limit;
+        for( var i = 0; retValue && i < text.length(); ++i )
+        {
+            retValue = m_Buffer.get( position + i ) == text.charAt( i );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  matches()
+
+    /**
+     *  Determines the end of the next chunk of children of the root element.
+     *  A chunk starts where the previous one ended, and contains complete
+     *  children only; it is at least as large as the given size, unless the
+     *  end of the root element is reached.
+     *
+     *  @param  minSize The minimum size of the chunk in bytes.
+     *  @return The end of the chunk; -1 if there are no more chunks.
+     *  @throws EOFException    The document ended unexpectedly.
+     */
+    public final int nextChunk( final int minSize ) throws EOFException
+    {
+        if( m_RootEnd >= 0 ) return -1;
+
+        final var start = m_Position;
+        var retValue = -1;
+        while( retValue < 0 )
+        {
+            final var position = indexOf( (byte) '<', m_Position );
+            if( position < 0 ) throw new EOFException( "Missing end tag for '%s'".formatted( m_RootName ) );
+            if( matches( position, "<!--" ) )
+            {
+                m_Position = skipPast( position, "-->" );
+            }
+            else if( matches( position, "<![CDATA[" ) )
+            {
+                m_Position = skipPast( position, "]]>" );
+            }
+            else if( matches( position, "<?" ) )
+            {
+                m_Position = skipPast( position, "?>" );
+                m_HasProcessingInstructions = true;
+            }
+            else if( matches( position, "<!" ) )
+            {
+                m_Position = skipDeclaration( position );
+            }
+            else if( matches( position, "</" ) )
+            {
+                m_Position = skipTag( position );
+                if( --m_Depth == 0 )
+                {
+                    m_RootEnd = position;
+                    retValue = position;
+                }
+                else if( m_Depth == 1 )
+                {
+                    m_LastChildEnd = m_Position;
+                    if( m_Position - start >= minSize ) retValue = m_Position;
+                }
+            }
+            else
+            {
+                m_Position = skipTag( position );
+                if( m_Buffer.get( m_Position - 2 ) != '/' )
+                {
+                    ++m_Depth;
+                }
+                else if( m_Depth == 1 )
+                {
+                    m_LastChildEnd = m_Position;
+                    if( m_Position - start >= minSize ) retValue = m_Position;
+                }
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  nextChunk()
+
+    /**
+     *  Skips a markup declaration like {@code <!DOCTYPE …>}, including an
+     *  internal subset. Comments and processing instructions in the
+     *  internal subset are skipped as a whole, as they may contain quotes,
+     *  brackets or '&gt;' characters.
+     *
+     *  @param  position    The position of the opening '&lt;'.
+     *  @return The position behind the declaration.
+     *  @throws EOFException    The declaration is not terminated.
+     */
+    private final int skipDeclaration( final int position ) throws EOFException
+    {
+        var brackets = 0;
+        var quote = 0;
+        var i = position + 2;
+        while( i < m_Limit )
+        {
+            final var b = m_Buffer.get( i );
+            if( quote != 0 )
+            {
+                if( b == quote ) quote = 0;
+            }
+            else if( b == '<' && matches( i, "<!--" ) )
+            {
+                i = skipPast( i + 3, "-->" );
+                continue;
+            }
+            else if( b == '<' && matches( i, "<?" ) )
+            {
+                i = skipPast( i + 1, "?>" );
+                continue;
+            }
+            else if( b == '"' || b == '\'' )
+            {
+                quote = b;
+            }
+            else if( b == '[' )
+            {
+                ++brackets;
+            }
+            else if( b == ']' )
+            {
+                --brackets;
+            }
+            else if( b == '>' && brackets == 0 )
+            {
+                return i + 1;
+            }
+            ++i;
+        }
+        throw new EOFException( "Unterminated declaration" );
+    }   //  skipDeclaration()
+
+    /**
+     *  Skips past the given ASCII terminator.
+     *
+     *  @param  position    The position to start from.
+     *  @param  terminator  The terminator.
+     *  @return The position behind the terminator.
+     *  @throws EOFException    The terminator was not found.
+     */
+    private final int skipPast( final int position, final String terminator ) throws EOFException
+    {
+        final var first = (byte) terminator.charAt( 0 );
+        var current = position + 1;
+        while( true )
+        {
+            current = indexOf( first, current );
+            if( current < 0 ) throw new EOFException( "Missing '%s'".formatted( terminator ) );
+            if( matches( current, terminator ) ) return current + terminator.length();
+            ++current;
+        }
+    }   //  skipPast()
+
+    /**
+     *  Skips a start or end tag, honouring quoted attribute values.
+     *
+     *  @param  position    The position of the opening '&lt;'.
+     *  @return The position behind the closing '&gt;'.
+     *  @throws EOFException    The tag is not terminated.
+     */
+    private final int skipTag( final int position ) throws EOFException
+    {
+        var quote = 0;
+        for( var i = position + 1; i < m_Limit; ++i )
+        {
+            final var b = m_Buffer.get( i );
+            if( quote != 0 )
+            {
+                if( b == quote ) quote = 0;
+            }
+            else if( b == '"' || b == '\'' )
+            {
+                quote = b;
+            }
+            else if( b == '>' )
+            {
+                return i + 1;
+            }
+        }
+        throw new EOFException( "Unterminated tag" );
+    }   //  skipTag()
+}
+//  class TopLevelSplitter
+
+/*
+ *  End of File
+ */
@@ -21,43 +21,156 @@ import static java.lang.System.err;
 import static java.lang.System.out;
 import static java.util.Arrays.stream;
 import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.lang.CommonConstants.EMPTY_STRING;
 import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
 import static org.tquadrat.foundation.lang.Objects.isNull;
+import static org.tquadrat.foundation.lang.Objects.nonNull;
 import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
-import static org.tquadrat.foundation.util.StringUtils.splitString;
 import static org.tquadrat.foundation.xml.builder.XMLBuilderUtils.createProcessingInstruction;
 import static org.tquadrat.foundation.xml.builder.XMLBuilderUtils.createXMLDocument;
 import static org.tquadrat.foundation.xml.builder.XMLBuilderUtils.createXMLElement;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParserFactory;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.FilterWriter;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Serial;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.StringJoiner;
-import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.apiguardian.api.API;
 import org.tquadrat.foundation.annotation.ClassVersion;
 import org.tquadrat.foundation.annotation.ProgramClass;
-import org.tquadrat.foundation.util.Stack;
+import org.tquadrat.foundation.exception.ValidationException;
 import org.tquadrat.foundation.util.stringconverter.FileStringConverter;
-import org.tquadrat.foundation.util.stringconverter.URIStringConverter;
-import org.tquadrat.foundation.xml.builder.Namespace;
 import org.tquadrat.foundation.xml.builder.ProcessingInstruction;
 import org.tquadrat.foundation.xml.builder.XMLDocument;
 import org.tquadrat.foundation.xml.builder.XMLElement;
 import org.xml.sax.Attributes;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
-import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.ext.DefaultHandler2;
+import org.xml.sax.ext.EntityResolver2;
+import org.xml.sax.helpers.AttributesImpl;
 
 /**
  *  Beautifies XML code.
+ *  <p>{@summary The XML code can be processed in two ways:}</p>
+ *  <ul>
+ *      <li>{@link #process()} builds an
+ *      {@link XMLDocument}
+ *      from the input and returns its String representation,</li>
+ *      <li>{@link #process(Writer)} writes the output to the given
+ *      {@link Writer}
+ *      in a single pass over the input, without building the document tree
+ *      first; the memory consumption depends only on the nesting depth of
+ *      the XML code, not on its size.</li>
+ *  </ul>
+ *  <p>Both produce the same output. As all processing instructions are
+ *  moved to the prolog, the streaming mode holds back its output until the
+ *  end of the input; large outputs are buffered in a temporary file.</p>
+ *  <p>On the command line, the streaming mode is selected with the option
+ *  {@value #OPTION_STREAM}; the option
+ *  {@value #OPTION_BATCH}
+ *  selects the
+ *  {@linkplain BatchBeautifier batch mode}
+ *  that processes multiple files in parallel,
+ *  {@value #OPTION_WATCH}
+ *  selects the
+ *  {@linkplain BeautifierWatcher watch mode}
+ *  that reformats files whenever they are changed, and
+ *  {@value #OPTION_PARALLEL}
+ *  selects the
+ *  {@linkplain ParallelBeautifier parallel mode}
+ *  for large documents that consist of many independent records.</p>
+ *  <p>The opposite transformation is done by
+ *  {@link #minify(Writer)},
+ *  or the command line option
+ *  {@value #OPTION_MINIFY}:
+ *  it writes a compact version of the document in a single streaming pass,
+ *  without whitespace between the elements and without comments; with
+ *  {@value #OPTION_NORMALIZE_PREFIXES},
+ *  the namespace prefixes are shortened, too.</p>
+ *  <p>The XML code can be provided as a String, a
+ *  {@link Path},
+ *  an
+ *  {@link InputStream},
+ *  a
+ *  {@link ReadableByteChannel},
+ *  or a (memory-mapped)
+ *  {@link ByteBuffer}.
+ *  Except for the String, the input is handed to the SAX parser as a stream
+ *  of bytes, so that the parser determines the encoding from the XML
+ *  declaration, and the input is never held in memory as a whole.</p>
+ *  <p>Files that are compressed with gzip or zlib are decompressed while
+ *  they are parsed; the format is detected from the first bytes of the
+ *  file. On the command line, the option
+ *  {@value #OPTION_OUTPUT}
+ *  writes the output to a file instead of {@code stdout}; it is
+ *  compressed while it is written when the name of that file has the
+ *  extension of one of the
+ *  {@linkplain Compression compression formats}.</p>
+ *  <p>With
+ *  {@link #setSelection(ElementPath)},
+ *  or the command line option
+ *  {@value #OPTION_SELECT},
+ *  only the subtrees that match an
+ *  {@link ElementPath}
+ *  are formatted; the parsing stops as soon as no further match is
+ *  possible.</p>
+ *  <p>The options
+ *  {@value #OPTION_ENTITY_CACHE},
+ *  {@value #OPTION_OFFLINE}
+ *  and
+ *  {@value #OPTION_NO_EXTERNAL_ENTITIES}
+ *  configure a
+ *  {@link CachingEntityResolver}
+ *  for external DTDs and entities.</p>
+ *  <p>The parsers are obtained from a
+ *  {@link BeautifierEngine};
+ *  unless another one is set with
+ *  {@link #setEngine(BeautifierEngine)},
+ *  all instances share the
+ *  {@linkplain BeautifierEngine#getDefaultEngine() default engine}.
+ *  That uses SAX; the option
+ *  {@value #OPTION_STAX}
+ *  selects an engine with a
+ *  {@link StAXParserEngine}
+ *  instead. Both produce the same output.</p>
+ *  <p>Warnings and errors from the parser are collected by a
+ *  {@link BeautifierDiagnostics}
+ *  instance; the first occurrence of each problem is echoed to
+ *  {@link System#err}.
+ *  The option
+ *  {@value #OPTION_DIAGNOSTICS}
+ *  writes a JSON report with all problems to the given file, and
+ *  {@value #OPTION_STACK_TRACES}
+ *  adds their stack traces.</p>
  *
  *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
  *  @version $Id: XMLBeautifier.java 1101 2024-02-18 00:18:48Z tquadrat $
@@ -75,73 +188,108 @@ public final class XMLBeautifier
     ====** Inner Classes **====================================================
         \*---------------*/
     /**
-     *  The implementation of
-     *  {@link DefaultHandler}
-     *  that is used to parse the XML code and to build the
-     *  {@link org.tquadrat.foundation.xml.builder.XMLDocument}
-     *  for the output.
+     *  The base class for the handlers that are used to parse the XML code;
+     *  it reports the problems from the parser, and it collects the figures
+     *  for the
+     *  {@link BeautifierMetrics}.
+     *  <p>As the handler is registered as the
+     *  {@link org.xml.sax.ext.LexicalHandler}
+     *  with the parser, it will be notified about the boundaries of CDATA
+     *  sections.</p>
      *
      *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
-     *  @version $Id: XMLBeautifier.java 1101 2024-02-18 00:18:48Z tquadrat $
-     *  @since 0.4.2
+     *  @version $Id$
+     *  @since 0.4.3
      *
      *  @UMLGraph.link
      */
     @SuppressWarnings( "UseOfSystemOutOrSystemErr" )
-    @ClassVersion( sourceVersion = "$Id: XMLBeautifier.java 1101 2024-02-18 00:18:48Z tquadrat $" )
-    @API( status = STABLE, since = "0.4.2" )
-    private static final class XMLHandler extends DefaultHandler
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    abstract static class AbstractHandler extends DefaultHandler2
     {
             /*------------*\
         ====** Attributes **===================================================
             \*------------*/
         /**
-         *  The document for the output.
+         *  The time spent for building the output, in nanoseconds.
          */
-        private XMLDocument m_Document;
+        private long m_BuildDuration = 0L;
 
         /**
-         *  The element stack.
+         *  The collector for the problems that are reported by the parser;
+         *  {@code null} if they are ignored.
          */
-        @SuppressWarnings( "UseOfConcreteClass" )
-        private final Stack<XMLElement> m_ElementStack = new Stack<>();
+        private BeautifierDiagnostics m_Diagnostics;
 
         /**
-         *  The processing instructions.
+         *  The number of elements.
          */
-        private final Collection<ProcessingInstruction> m_ProcessingInstructions = new ArrayList<>();
+        private long m_ElementCount = 0L;
+
+        /**
+         *  The resolver for external entities; {@code null} if the parser
+         *  resolves them itself.
+         */
+        private EntityResolver m_EntityResolver;
+
+        /**
+         *  The maximum nesting depth.
+         */
+        private int m_MaxDepth = 0;
+
+        /**
+         *  The number of processing instructions.
+         */
+        private long m_ProcessingInstructionCount = 0L;
+
+        /**
+         *  {@code true} if the time spent for building the output should be
+         *  measured, {@code false} otherwise.
+         */
+        private boolean m_Timed = false;
 
             /*--------------*\
         ====** Constructors **=================================================
             \*--------------*/
         /**
-         *  Creates a new instance of {@code XMLHandler}.
+         *  Creates a new instance of {@code AbstractHandler}.
          */
-        public XMLHandler()
+        protected AbstractHandler()
         {
             // Just exists …
-        }   //  XMLHandler()
+        }   //  AbstractHandler()
 
             /*---------*\
         ====** Methods **======================================================
             \*---------*/
         /**
-         *  {@inheritDoc}
+         *  Adds the given duration to the time spent for building the output.
+         *
+         *  @param  start   The start of the build step, as returned by
+         *      {@link #startTiming()}.
          */
-        @Override
-        public final void endDocument() throws SAXException
+        protected final void addBuildDuration( final long start )
         {
-            m_ProcessingInstructions.forEach( m_Document::addProcessingInstruction );
-        }   //  endDocument()
+            if( m_Timed ) m_BuildDuration += System.nanoTime() - start;
+        }   //  addBuildDuration()
 
         /**
-         *  {@inheritDoc}
+         *  Counts an element.
+         *
+         *  @param  depth   The nesting depth of the element; the root element
+         *      has the depth 1.
          */
-        @Override
-        public final void endElement( final String uri, final String localName, final String qName ) throws SAXException
+        protected final void countElement( final int depth )
         {
-            if( m_ElementStack.hasMore() ) m_ElementStack.pop();
-        }   //  endElement()
+            ++m_ElementCount;
+            if( depth > m_MaxDepth ) m_MaxDepth = depth;
+        }   //  countElement()
+
+        /**
+         *  Counts a processing instruction.
+         */
+        protected final void countProcessingInstruction() { ++m_ProcessingInstructionCount; }
 
         /**
          *  {@inheritDoc}
@@ -149,8 +297,7 @@ public final class XMLBeautifier
         @Override
         public void error( final SAXParseException e ) throws SAXException
         {
-            err.println( "*** ERROR! ***" );
-            e.printStackTrace( err );
+            if( nonNull( m_Diagnostics ) ) m_Diagnostics.report( BeautifierDiagnostics.Severity.ERROR, e );
         }   //  error()
 
         /**
@@ -159,190 +306,2802 @@ public final class XMLBeautifier
         @Override
         public void fatalError( final SAXParseException e ) throws SAXException
         {
-            err.println( "****** FATAL ERROR! ******" );
-            e.printStackTrace( err );
+            if( nonNull( m_Diagnostics ) ) m_Diagnostics.report( BeautifierDiagnostics.Severity.FATAL_ERROR, e );
         }   //  fatalError()
 
         /**
-         *  Returns the output.
+         *  Returns the time spent for building the output.
          *
-         *  @return An instance of
-         *      {@link Optional}
-         *      that holds the beautified code.
+         *  @return The duration in nanoseconds; 0 if it was not measured.
          */
-        public final Optional<String> getOutput()
-        {
-            final var retValue = Optional.ofNullable( m_Document )
-                .map( XMLDocument::toString );
+        public final long getBuildDuration() { return m_BuildDuration; }
 
-            //---* Done *----------------------------------------------------------
-            return retValue;
-        }   //  getOutput()
+        /**
+         *  Returns the number of elements.
+         *
+         *  @return The element count.
+         */
+        public final long getElementCount() { return m_ElementCount; }
 
         /**
-         *  {@inheritDoc}
+         *  Returns the maximum nesting depth.
+         *
+         *  @return The depth.
          */
-        @Override
-        public final void processingInstruction( final String target, final String data ) throws SAXException
-        {
-            m_ProcessingInstructions.add( createProcessingInstruction( target, data ) );
-        }   //  processingInstruction()
+        public final int getMaxDepth() { return m_MaxDepth; }
 
         /**
-         *  Writes the given attributes to the target element.
+         *  Returns the number of processing instructions.
          *
-         *  @param  attributes  The attributes.
-         *  @param  attributeSetter The attributes setter method.
-         *  @param  namespaceSetter The namespace setter method.
+         *  @return The count.
          */
-        private final void setAttributes( final Attributes attributes, final BiConsumer<? super String,? super CharSequence> attributeSetter, final Consumer<? super Namespace> namespaceSetter )
-        {
-            requireNonNullArgument( attributeSetter, "attributeSetter" );
-            for( var i = 0; i < requireNonNullArgument( attributes, "attributes" ).getLength(); ++i )
-            {
-                final var attributeName = isNull( attributes.getQName( i ) ) ? attributes.getLocalName( i ) : attributes.getQName( i );
-                final var attributeValue = attributes.getValue( i );
+        public final long getProcessingInstructionCount() { return m_ProcessingInstructionCount; }
 
-                if( attributeName.startsWith( "xmlns" ) )
-                {
-                    final var nameParts = splitString( attributeName, ':' );
-                    final var uri = URIStringConverter.INSTANCE.fromString( attributeValue );
-                    final var namespace = nameParts.length == 1 ? new Namespace( uri ) : new Namespace( nameParts [1], uri );
-                    namespaceSetter.accept( namespace );
-                }
-                else
-                {
-                    attributeSetter.accept( attributeName, attributeValue );
-                }
-            }
-        }   //  setAttributes()
+        /**
+         *  Releases the resources that are held by the handler; it is called
+         *  after the parsing, whether that succeeded or not.
+         *
+         *  @throws IOException The resources could not be released.
+         */
+        public void release() throws IOException { /* Nothing to release */ }
 
         /**
          *  {@inheritDoc}
          */
         @Override
-        public final void startElement( final String uri, final String localName, final String qName, final Attributes attributes ) throws SAXException
+        public final InputSource resolveEntity( final String name, final String publicId, final String baseURI, final String systemId ) throws SAXException, IOException
         {
-            final var elementName = isNull( qName ) ? localName : qName;
-            if( isNull( m_Document ) )
+            final InputSource retValue;
+            if( isNull( m_EntityResolver ) )
             {
-                m_Document = createXMLDocument( elementName );
-                setAttributes( attributes, m_Document::setAttribute, m_Document::setNamespace );
+                retValue = super.resolveEntity( name, publicId, baseURI, systemId );
+            }
+            else if( m_EntityResolver instanceof final EntityResolver2 entityResolver2 )
+            {
+                retValue = entityResolver2.resolveEntity( name, publicId, baseURI, systemId );
             }
             else
             {
-                final XMLElement currentElement;
-                if( m_ElementStack.peek().isEmpty() )
-                {
-                    currentElement = createXMLElement( elementName, m_Document );
-                }
-                else
-                {
-                    final var parent = m_ElementStack.peek();
-                    //noinspection OptionalGetWithoutIsPresent
-                    currentElement = createXMLElement( elementName, parent.get() );
-                }
-                setAttributes( attributes, currentElement::setAttribute, currentElement::setNamespace );
-                m_ElementStack.push( currentElement );
+                retValue = m_EntityResolver.resolveEntity( publicId, isNull( baseURI ) || isNull( systemId ) ? systemId : URI.create( baseURI ).resolve( systemId ).toString() );
             }
-        }   //  startElement()
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  resolveEntity()
+
+        /**
+         *  Sets the collector for the problems that are reported by the
+         *  parser.
+         *
+         *  @param  diagnostics The collector; {@code null} if the problems
+         *      should be ignored.
+         */
+        public final void setDiagnostics( final BeautifierDiagnostics diagnostics ) { m_Diagnostics = diagnostics; }
+
+        /**
+         *  Sets the resolver for external entities.
+         *
+         *  @param  entityResolver  The resolver; {@code null} if the parser
+         *      should resolve the external entities itself.
+         */
+        public final void setEntityResolver( final EntityResolver entityResolver ) { m_EntityResolver = entityResolver; }
+
+        /**
+         *  Switches the measurement of the time spent for building the output
+         *  on or off.
+         *
+         *  @param  flag    {@code true} to measure the time, {@code false}
+         *      otherwise.
+         */
+        public final void setTimed( final boolean flag ) { m_Timed = flag; }
+
+        /**
+         *  Checks whether the given character is whitespace according to the
+         *  XML specification.
+         *
+         *  @param  c   The character.
+         *  @return {@code true} if the character is whitespace,
+         *      {@code false} otherwise.
+         */
+        protected static final boolean isWhitespace( final char c ) { return c == ' ' || c == '\n' || c == '\t' || c == '\r'; }
+
+        /**
+         *  Returns the start time for a build step.
+         *
+         *  @return The start time; 0 if the time is not measured.
+         */
+        protected final long startTiming() { return m_Timed ? System.nanoTime() : 0L; }
 
         /**
          *  {@inheritDoc}
          */
         @Override
-        public final void warning( final SAXParseException e ) throws SAXException
+        public void warning( final SAXParseException e ) throws SAXException
         {
-            err.println( "WARNING!" );
-            e.printStackTrace( err );
+            if( nonNull( m_Diagnostics ) ) m_Diagnostics.report( BeautifierDiagnostics.Severity.WARNING, e );
         }   //  warning()
     }
-    //  class XMLHandler
+    //  class AbstractHandler
 
-        /*------------*\
-    ====** Attributes **=======================================================
-        \*------------*/
-    /**
-     *  The XML to beautify.
-     */
-    private final String m_XMLCode;
-
-        /*--------------*\
-    ====** Constructors **=====================================================
-        \*--------------*/
     /**
-     *  Creates a new instance of {@code BeautifyXML}.
+     *  An
+     *  {@link InputStream}
+     *  that reads from a
+     *  {@link ByteBuffer}.
+     *  The buffer's position is not touched, as the stream works on a
+     *  duplicate.
      *
-     *  @param  xmlCode The XML code to beautify.
-     */
-    public XMLBeautifier( final String xmlCode )
-    {
-        m_XMLCode = xmlCode;
-    }   //  XMLBeautifier()
-
-        /*---------*\
-    ====** Methods **==========================================================
-        \*---------*/
-    /**
-     *  The program entry point.
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
      *
-     *  @param  args    The command line arguments.
+     *  @UMLGraph.link
      */
-    @SuppressWarnings( "OverlyBroadCatchBlock" )
-    public static final void main( final String... args )
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    static final class ByteBufferInputStream extends InputStream
     {
-        try
+            /*------------*\
+        ====** Attributes **===================================================
+            \*------------*/
+        /**
+         *  The buffer.
+         */
+        private final ByteBuffer m_Buffer;
+
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new instance of {@code ByteBufferInputStream}.
+         *
+         *  @param  buffer  The buffer to read from.
+         */
+        public ByteBufferInputStream( final ByteBuffer buffer )
+        {
+            m_Buffer = buffer.duplicate();
+        }   //  ByteBufferInputStream()
+
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final int available() { return m_Buffer.remaining(); }
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final int read()
+        {
+            final var retValue = m_Buffer.hasRemaining() ? m_Buffer.get() & 0xFF : -1;
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  read()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final int read( final byte [] bytes, final int offset, final int length )
         {
-            if( args.length == 1 )
+            var retValue = -1;
+            if( m_Buffer.hasRemaining() )
             {
-                final var file = FileStringConverter.INSTANCE.fromString( args [0] );
-                final var path = file.toPath();
-                final var xmlCode = Files.readString( path, UTF8 );
-                final var processor = new XMLBeautifier( xmlCode );
-                final var result = processor.process();
-                out.println( result );
-                out.println( "Done!" );
+                retValue = Math.min( length, m_Buffer.remaining() );
+                m_Buffer.get( bytes, offset, retValue );
             }
-            else
+            else if( length == 0 )
             {
-                final var buffer = new StringJoiner( " " );
-                buffer.setEmptyValue( "[missing Filename]" );
-                stream( args ).forEach( buffer::add );
-                err.printf( "Invalid Command Line Arguments: %s %s%n", XMLBeautifier.class.getName(), buffer.toString() );
+                retValue = 0;
             }
-        }
-        catch( final Throwable t )
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  read()
+    }
+    //  class ByteBufferInputStream
+
+    /**
+     *  An
+     *  {@link InputStream}
+     *  that counts the bytes that were read.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    private static final class CountingInputStream extends FilterInputStream
+    {
+            /*------------*\
+        ====** Attributes **===================================================
+            \*------------*/
+        /**
+         *  The number of bytes read so far.
+         */
+        private long m_Count = 0L;
+
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new instance of {@code CountingInputStream}.
+         *
+         *  @param  inputStream The input stream to read from.
+         */
+        public CountingInputStream( final InputStream inputStream ) { super( inputStream ); }
+
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  Returns the number of bytes read so far.
+         *
+         *  @return The number of bytes.
+         */
+        public final long getCount() { return m_Count; }
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final int read() throws IOException
         {
-            t.printStackTrace( err );
-        }
-    }   //  main()
+            final var retValue = super.read();
+            if( retValue >= 0 ) ++m_Count;
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  read()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final int read( final byte [] bytes, final int offset, final int length ) throws IOException
+        {
+            final var retValue = super.read( bytes, offset, length );
+            if( retValue > 0 ) m_Count += retValue;
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  read()
+    }
+    //  class CountingInputStream
 
     /**
-     *  Processes the XML code and returns the beautified version of it.
+     *  A
+     *  {@link Writer}
+     *  that counts the characters that were written.
      *
-     *  @return The beautified code.
-     *  @throws ParserConfigurationException    There is a problem on loading
-     *      the SAX parser.
-     *  @throws SAXException    A problem occurred while parsing the XML code.
-     *  @throws IOException A problem occurred when reading the XML code.
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
      */
-    public final String process() throws ParserConfigurationException, SAXException, IOException
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    private static final class CountingWriter extends FilterWriter
     {
-        //---* Initialize the parser *-----------------------------------------
-        final var factory = SAXParserFactory.newInstance();
-        final var parser = factory.newSAXParser();
+            /*------------*\
+        ====** Attributes **===================================================
+            \*------------*/
+        /**
+         *  The number of characters written so far.
+         */
+        private long m_Count = 0L;
 
-        //---* Parse the XML code *--------------------------------------------
-        final var inputStream = new ByteArrayInputStream( m_XMLCode.getBytes( UTF8 ) );
-        final var handler = new XMLHandler();
-        parser.parse( inputStream, handler );
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new instance of {@code CountingWriter}.
+         *
+         *  @param  writer  The writer to write to.
+         */
+        public CountingWriter( final Writer writer ) { super( writer ); }
 
-        final var retValue = handler.getOutput()
-            .orElse( "<No Output>" );
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  Returns the number of characters written so far.
+         *
+         *  @return The number of characters.
+         */
+        public final long getCount() { return m_Count; }
 
-        //---* Done *----------------------------------------------------------
-        return retValue;
-    }   //  process()
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void write( final char [] chars, final int offset, final int length ) throws IOException
+        {
+            out.write( chars, offset, length );
+            m_Count += length;
+        }   //  write()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void write( final int c ) throws IOException
+        {
+            out.write( c );
+            ++m_Count;
+        }   //  write()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void write( final String str, final int offset, final int length ) throws IOException
+        {
+            out.write( str, offset, length );
+            m_Count += length;
+        }   //  write()
+    }
+    //  class CountingWriter
+
+    /**
+     *  The opener for the input.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @FunctionalInterface
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    private static interface InputOpener
+    {
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  Opens the input.
+         *
+         *  @return The input source for the parser.
+         *  @throws IOException The input cannot be opened.
+         */
+        public InputSource open() throws IOException;
+    }
+    //  interface InputOpener
+
+    /**
+     *  The implementation of
+     *  {@link DefaultHandler2}
+     *  that is used to parse the XML code and to build the
+     *  {@link org.tquadrat.foundation.xml.builder.XMLDocument}
+     *  for the output.
+     *  <p>Apart from the nodes for the output, the handler does not allocate
+     *  any objects per element once the element stack has grown to the
+     *  nesting depth of the document.</p>
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id: XMLBeautifier.java 1101 2024-02-18 00:18:48Z tquadrat $
+     *  @since 0.4.2
+     *
+     *  @UMLGraph.link
+     */
+    @SuppressWarnings( "UseOfSystemOutOrSystemErr" )
+    @ClassVersion( sourceVersion = "$Id: XMLBeautifier.java 1101 2024-02-18 00:18:48Z tquadrat $" )
+    @API( status = STABLE, since = "0.4.2" )
+    static final class XMLHandler extends AbstractHandler
+    {
+            /*-----------*\
+        ====** Constants **====================================================
+            \*-----------*/
+        /**
+         *  The initial size of the text buffer: {@value}. A buffer that grew
+         *  beyond four times this size for a large text node is not kept for
+         *  the next one.
+         */
+        private static final int TEXT_BUFFER_SIZE = 0x2000;
+
+            /*------------*\
+        ====** Attributes **===================================================
+            \*------------*/
+        /**
+         *  The document for the output.
+         */
+        private XMLDocument m_Document;
+
+        /**
+         *  The element stack; it holds the open elements below the root
+         *  element.
+         */
+        private XMLElement [] m_ElementStack = new XMLElement [32];
+
+        /**
+         *  The cache for the namespaces and the element and attribute names.
+         */
+        private final NamespaceCache m_NamespaceCache;
+
+        /**
+         *  The processing instructions.
+         */
+        private final Collection<ProcessingInstruction> m_ProcessingInstructions = new ArrayList<>();
+
+        /**
+         *  {@code true} while a CDATA section is parsed, {@code false}
+         *  otherwise.
+         */
+        private boolean m_InCDATA = false;
+
+        /**
+         *  The number of elements on the element stack.
+         */
+        private int m_StackSize = 0;
+
+        /**
+         *  The buffer for the text of the current text node or CDATA
+         *  section; the parser reports the text in chunks.
+         */
+        private StringBuilder m_Text = new StringBuilder( TEXT_BUFFER_SIZE );
+
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new instance of {@code XMLHandler}.
+         *
+         *  @param  namespaceCache  The cache for the namespaces and the
+         *      element and attribute names.
+         */
+        public XMLHandler( final NamespaceCache namespaceCache )
+        {
+            m_NamespaceCache = requireNonNullArgument( namespaceCache, "namespaceCache" );
+        }   //  XMLHandler()
+
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void characters( final char [] ch, final int start, final int length ) throws SAXException
+        {
+            if( !isNull( m_Document ) ) m_Text.append( ch, start, length );
+        }   //  characters()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void endCDATA() throws SAXException
+        {
+            flushText();
+            m_InCDATA = false;
+        }   //  endCDATA()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void endDocument() throws SAXException
+        {
+            m_ProcessingInstructions.forEach( m_Document::addProcessingInstruction );
+        }   //  endDocument()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void endElement( final String uri, final String localName, final String qName ) throws SAXException
+        {
+            flushText();
+            if( m_StackSize > 0 ) m_ElementStack [--m_StackSize] = null;
+        }   //  endElement()
+
+        /**
+         *  Adds the collected text to the current element, either as PCDATA
+         *  or as a CDATA section, and clears the text buffer. Text that
+         *  consists of whitespace only is not added, as the output is indented
+         *  anyway.
+         */
+        private final void flushText()
+        {
+            final var length = m_Text.length();
+            if( length > 0 || m_InCDATA )
+            {
+                final var start = startTiming();
+                final var element = m_StackSize == 0 ? m_Document.getRootElement() : m_ElementStack [m_StackSize - 1];
+                if( m_InCDATA )
+                {
+                    element.addCDATA( m_Text.toString() );
+                }
+                else
+                {
+                    var whitespace = true;
+                    for( var i = 0; (i < length) && whitespace; ++i ) whitespace = isWhitespace( m_Text.charAt( i ) );
+                    if( !whitespace ) element.addPCData( m_Text.toString() );
+                }
+
+                //---* Do not keep the memory for a huge text node *-----------
+                if( m_Text.capacity() > TEXT_BUFFER_SIZE * 4 )
+                {
+                    m_Text = new StringBuilder( TEXT_BUFFER_SIZE );
+                }
+                else
+                {
+                    m_Text.setLength( 0 );
+                }
+                addBuildDuration( start );
+            }
+        }   //  flushText()
+
+        /**
+         *  Returns the output.
+         *
+         *  @return An instance of
+         *      {@link Optional}
+         *      that holds the beautified code.
+         */
+        public final Optional<String> getOutput()
+        {
+            final var retValue = Optional.ofNullable( m_Document )
+                .map( XMLDocument::toString );
+
+            //---* Done *----------------------------------------------------------
+            return retValue;
+        }   //  getOutput()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void processingInstruction( final String target, final String data ) throws SAXException
+        {
+            countProcessingInstruction();
+            if( !isNull( m_Document ) ) flushText();
+            m_ProcessingInstructions.add( createProcessingInstruction( target, data ) );
+        }   //  processingInstruction()
+
+        /**
+         *  Writes the given attributes to the target element.
+         *
+         *  @param  attributes  The attributes.
+         *  @param  element The target element; {@code null} if the
+         *      attributes belong to the root element and have to be set on
+         *      the document.
+         */
+        private final void setAttributes( final Attributes attributes, final XMLElement element )
+        {
+            final var length = attributes.getLength();
+            for( var i = 0; i < length; ++i )
+            {
+                final var qName = attributes.getQName( i );
+                final var attributeName = isNull( qName ) ? attributes.getLocalName( i ) : qName;
+                final var attributeValue = attributes.getValue( i );
+
+                if( attributeName.startsWith( "xmlns" ) )
+                {
+                    final var namespace = m_NamespaceCache.getNamespace( attributeName, attributeValue );
+                    if( isNull( element ) )
+                    {
+                        m_Document.setNamespace( namespace );
+                    }
+                    else
+                    {
+                        element.setNamespace( namespace );
+                    }
+                }
+                else
+                {
+                    final var name = m_NamespaceCache.intern( attributeName );
+                    if( isNull( element ) )
+                    {
+                        m_Document.setAttribute( name, attributeValue );
+                    }
+                    else
+                    {
+                        element.setAttribute( name, attributeValue );
+                    }
+                }
+            }
+        }   //  setAttributes()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void startCDATA() throws SAXException
+        {
+            flushText();
+            m_InCDATA = true;
+        }   //  startCDATA()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void startElement( final String uri, final String localName, final String qName, final Attributes attributes ) throws SAXException
+        {
+            if( !isNull( m_Document ) ) flushText();
+            final var start = startTiming();
+            final var elementName = m_NamespaceCache.intern( isNull( qName ) ? localName : qName );
+            if( isNull( m_Document ) )
+            {
+                countElement( 1 );
+                m_Document = createXMLDocument( elementName );
+                setAttributes( attributes, null );
+            }
+            else
+            {
+                final var currentElement = m_StackSize == 0
+                    ? createXMLElement( elementName, m_Document )
+                    : createXMLElement( elementName, m_ElementStack [m_StackSize - 1] );
+                setAttributes( attributes, currentElement );
+                if( m_StackSize == m_ElementStack.length ) m_ElementStack = Arrays.copyOf( m_ElementStack, m_StackSize * 2 );
+                m_ElementStack [m_StackSize++] = currentElement;
+                countElement( m_StackSize + 1 );
+            }
+            addBuildDuration( start );
+        }   //  startElement()
+    }
+    //  class XMLHandler
+
+    /**
+     *  Replaces the namespace prefixes in the element and attribute names
+     *  by short generated ones, for the minify mode.
+     *  <p>{@summary Each namespace URI gets its own prefix – {@code a},
+     *  {@code b}, …, {@code aa} and so on – for the whole document, so that
+     *  a declaration that is already in scope for the output can be
+     *  omitted.} The default namespace and the prefix {@code xml} are not
+     *  changed, nor are prefixes that are not declared.</p>
+     *  <p>Prefixes that are used in attribute values or in text – like
+     *  {@code xsi:type="p:Type"} – are not known to the parser; they will
+     *  not be replaced and may become invalid.</p>
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    private static final class PrefixNormalizer
+    {
+            /*---------------*\
+        ====** Inner Classes **================================================
+            \*---------------*/
+        /**
+         *  The namespace scope of an element.
+         *
+         *  @param  bindings    The prefixes from the input that are declared
+         *      on the element, with their namespace URIs.
+         *  @param  declared    The generated prefixes that are declared on the
+         *      element in the output.
+         *
+         *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+         *  @version $Id$
+         *  @since 0.4.3
+         *
+         *  @UMLGraph.link
+         */
+        @ClassVersion( sourceVersion = "$Id$" )
+        @API( status = STABLE, since = "0.4.3" )
+        private record Scope( Map<String,String> bindings, List<String> declared ) {}
+
+            /*-----------*\
+        ====** Constants **====================================================
+            \*-----------*/
+        /**
+         *  The scope for an element without namespace declarations.
+         */
+        private static final Scope EMPTY_SCOPE = new Scope( Map.of(), List.of() );
+
+            /*------------*\
+        ====** Attributes **===================================================
+            \*------------*/
+        /**
+         *  The namespace declarations for the output of the current element,
+         *  as pairs of name and value.
+         */
+        private final List<String []> m_Declarations = new ArrayList<>();
+
+        /**
+         *  The number of open declarations in the output per generated
+         *  prefix.
+         */
+        private final Map<String,Integer> m_InScope = new HashMap<>();
+
+        /**
+         *  The index for the next generated prefix.
+         */
+        private int m_NextPrefix = 0;
+
+        /**
+         *  The generated prefixes per namespace URI.
+         */
+        private final Map<String,String> m_Prefixes = new HashMap<>();
+
+        /**
+         *  The scopes of the open elements; the innermost first.
+         */
+        private final Deque<Scope> m_Scopes = new ArrayDeque<>();
+
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  Opens the scope for an element.
+         *
+         *  @param  attributes  The attributes of the element, including the
+         *      namespace declarations.
+         *  @return The namespace declarations that have to be written for the
+         *      element, as pairs of name and value; the list is reused by the
+         *      next call.
+         */
+        public final List<String []> enterElement( final Attributes attributes )
+        {
+            m_Declarations.clear();
+            Map<String,String> bindings = null;
+            List<String> declared = null;
+            final var len = attributes.getLength();
+            for( var i = 0; i < len; ++i )
+            {
+                final var name = isNull( attributes.getQName( i ) ) ? attributes.getLocalName( i ) : attributes.getQName( i );
+                if( !name.startsWith( "xmlns" ) ) continue;
+                final var value = attributes.getValue( i );
+                if( name.startsWith( "xmlns:" ) && !value.isEmpty() )
+                {
+                    if( isNull( bindings ) ) bindings = new HashMap<>();
+                    bindings.put( name.substring( 6 ), value );
+                    final var prefix = prefixFor( value );
+                    if( m_InScope.getOrDefault( prefix, 0 ) == 0 )
+                    {
+                        if( isNull( declared ) ) declared = new ArrayList<>();
+                        declared.add( prefix );
+                        m_InScope.merge( prefix, 1, Integer::sum );
+                        m_Declarations.add( new String [] {"xmlns:" + prefix, value} );
+                    }
+                }
+                else
+                {
+                    //---* The default namespace, or an undeclaration *--------
+                    m_Declarations.add( new String [] {name, value} );
+                }
+            }
+            m_Scopes.push( isNull( bindings ) ? EMPTY_SCOPE : new Scope( bindings, isNull( declared ) ? List.of() : declared ) );
+
+            //---* Done *------------------------------------------------------
+            return m_Declarations;
+        }   //  enterElement()
+
+        /**
+         *  Closes the scope of the current element.
+         */
+        public final void leaveElement()
+        {
+            for( final var prefix : m_Scopes.pop().declared() ) m_InScope.merge( prefix, -1, Integer::sum );
+        }   //  leaveElement()
+
+        /**
+         *  Replaces the prefix of the given element or attribute name.
+         *
+         *  @param  name    The qualified name from the input.
+         *  @return The name for the output.
+         */
+        public final String normalize( final String name )
+        {
+            var retValue = name;
+            final var colon = name.indexOf( ':' );
+            if( colon > 0 )
+            {
+                final var prefix = name.substring( 0, colon );
+                for( final var scope : m_Scopes )
+                {
+                    final var uri = scope.bindings().get( prefix );
+                    if( !isNull( uri ) )
+                    {
+                        retValue = prefixFor( uri ) + name.substring( colon );
+                        break;
+                    }
+                }
+            }
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  normalize()
+
+        /**
+         *  Returns the generated prefix for the given namespace URI.
+         *
+         *  @param  uri The namespace URI.
+         *  @return The prefix.
+         */
+        private final String prefixFor( final String uri )
+        {
+            var retValue = m_Prefixes.get( uri );
+            if( isNull( retValue ) )
+            {
+                //---* Prefixes starting with "xml" are reserved *-------------
+                do
+                {
+                    final var buffer = new StringBuilder();
+                    for( var index = m_NextPrefix++; index >= 0; index = index / 26 - 1 )
+                    {
+                        buffer.append( (char) ('a' + index % 26) );
+                    }
+                    retValue = buffer.reverse().toString();
+                }
+                while( retValue.startsWith( "xml" ) );
+                m_Prefixes.put( uri, retValue );
+            }
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  prefixFor()
+    }
+    //  class PrefixNormalizer
+
+    /**
+     *  The implementation of
+     *  {@link DefaultHandler2}
+     *  that writes the beautified XML code to a
+     *  {@link Writer}
+     *  while the input is parsed, without building a document tree. Only the
+     *  names of the currently open elements are kept in memory.
+     *  <p>{@summary The output follows the layout of
+     *  {@link XMLDocument#toString()}: each element on its own line, indented
+     *  by four blanks per nesting level, namespace declarations before the
+     *  attributes, and elements without children written as empty element
+     *  tags.}</p>
+     *  <p>All processing instructions are written to the prolog, wherever
+     *  they appear in the input, as it is done by
+     *  {@link XMLHandler}.
+     *  Therefore the output from the start of the root element on is held
+     *  back in a
+     *  {@link SpillBuffer}
+     *  until the end of the document: up to
+     *  {@value #BODY_MEMORY_LIMIT}
+     *  characters are kept in memory, the rest in a temporary file. The same
+     *  applies to whitespace at the beginning of a text node, that is held
+     *  back until it is clear whether the text node consists of whitespace
+     *  only.</p>
+     *  <p>In fragment mode, neither the XML declaration nor the root element
+     *  is written, only the children of the root element, as they would
+     *  appear in the complete output; processing instructions outside the
+     *  root element are dropped, those inside are written where they
+     *  appear, and nothing is held back.</p>
+     *  <p>In compact mode – used by
+     *  {@link XMLBeautifier#minify(Writer)} –
+     *  the same output is written without line breaks and indentation;
+     *  optionally, the namespace prefixes are replaced by a
+     *  {@link PrefixNormalizer}.</p>
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    private static final class StreamingHandler extends AbstractHandler
+    {
+            /*-----------*\
+        ====** Constants **====================================================
+            \*-----------*/
+        /**
+         *  The maximum number of characters of the held back output that are
+         *  kept in memory: {@value}.
+         */
+        private static final int BODY_MEMORY_LIMIT = 0x100000;
+
+        /**
+         *  The indentation per nesting level.
+         */
+        private static final String INDENTATION = "    ";
+
+        /**
+         *  The maximum number of characters of a whitespace sequence at the
+         *  beginning of a text node that are kept in memory: {@value}; the
+         *  rest is spilled to a temporary file.
+         */
+        private static final int MAX_PENDING_WHITESPACE = 0x2000;
+
+            /*------------*\
+        ====** Attributes **===================================================
+            \*------------*/
+        /**
+         *  The buffer for the output from the start of the root element on;
+         *  {@code null} in fragment mode.
+         */
+        private final SpillBuffer m_Body;
+
+        /**
+         *  {@code true} if the output is written without line breaks and
+         *  indentation, {@code false} if it is formatted.
+         */
+        private final boolean m_Compact;
+
+        /**
+         *  The nesting depth of the current element; 0 means that the root
+         *  element was not yet started.
+         */
+        private int m_Depth = 0;
+
+        /**
+         *  {@code true} if only the children of the root element are written,
+         *  {@code false} if the complete document is written.
+         */
+        private final boolean m_Fragment;
+
+        /**
+         *  {@code true} while a CDATA section is parsed, {@code false}
+         *  otherwise.
+         */
+        private boolean m_InCDATA = false;
+
+        /**
+         *  {@code true} if the last thing written was text or a CDATA
+         *  section; then the next end tag follows the text immediately,
+         *  without a line break.
+         */
+        private boolean m_Inline = false;
+
+        /**
+         *  {@code true} if the current text node contains characters other
+         *  than whitespace, so that its remaining chunks are written
+         *  immediately; {@code false} otherwise.
+         */
+        private boolean m_InText = false;
+
+        /**
+         *  The normalizer for the namespace prefixes; {@code null} if the
+         *  prefixes are written as they are.
+         */
+        private final PrefixNormalizer m_Normalizer;
+
+        /**
+         *  The target for the elements and the text: the
+         *  {@linkplain #m_Body buffer}
+         *  for the complete document, the
+         *  {@linkplain #m_Target target}
+         *  itself in fragment mode.
+         */
+        private final Writer m_Output;
+
+        /**
+         *  The whitespace at the beginning of the current text node; it is
+         *  discarded when the text node consists of whitespace only.
+         */
+        private final SpillBuffer m_PendingWhitespace = new SpillBuffer( MAX_PENDING_WHITESPACE );
+
+        /**
+         *  The processing instructions for the prolog.
+         */
+        private final List<String []> m_Prolog = new ArrayList<>();
+
+        /**
+         *  {@code true} if the root element was closed, {@code false}
+         *  otherwise.
+         */
+        private boolean m_RootClosed = false;
+
+        /**
+         *  {@code true} if the start tag of the current element is not yet
+         *  closed, {@code false} otherwise.
+         */
+        private boolean m_StartTagOpen = false;
+
+        /**
+         *  The target for the output.
+         */
+        private final Writer m_Target;
+
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new instance of {@code StreamingHandler}.
+         *
+         *  @param  target  The target for the output.
+         */
+        public StreamingHandler( final Writer target ) { this( target, false ); }
+
+        /**
+         *  Creates a new instance of {@code StreamingHandler}.
+         *
+         *  @param  target  The target for the output.
+         *  @param  fragment    {@code true} if only the children of the root
+         *      element should be written, {@code false} for the complete
+         *      document.
+         */
+        public StreamingHandler( final Writer target, final boolean fragment ) { this( target, fragment, false, false ); }
+
+        /**
+         *  Creates a new instance of {@code StreamingHandler}.
+         *
+         *  @param  target  The target for the output.
+         *  @param  fragment    {@code true} if only the children of the root
+         *      element should be written, {@code false} for the complete
+         *      document.
+         *  @param  compact {@code true} if the output should be written
+         *      without line breaks and indentation, {@code false} if it
+         *      should be formatted.
+         *  @param  normalizePrefixes   {@code true} if the namespace prefixes
+         *      should be replaced by short generated ones, {@code false} if
+         *      they should be kept.
+         */
+        public StreamingHandler( final Writer target, final boolean fragment, final boolean compact, final boolean normalizePrefixes )
+        {
+            m_Target = requireNonNullArgument( target, "target" );
+            m_Fragment = fragment;
+            m_Compact = compact;
+            m_Normalizer = normalizePrefixes ? new PrefixNormalizer() : null;
+            m_Body = fragment ? null : new SpillBuffer( BODY_MEMORY_LIMIT );
+            m_Output = fragment ? target : m_Body;
+        }   //  StreamingHandler()
+
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void characters( final char [] ch, final int start, final int length ) throws SAXException
+        {
+            if( m_Depth == 0 ) return;
+            try
+            {
+                if( m_InCDATA )
+                {
+                    //---* The contents of CDATA sections are written as is *--
+                    m_Output.write( ch, start, length );
+                }
+                else if( m_InText )
+                {
+                    escapeText( ch, start, length );
+                }
+                else
+                {
+                    //---* Hold back whitespace until the first real text *---
+                    final var end = start + length;
+                    var i = start;
+                    while( (i < end) && isWhitespace( ch [i] ) ) ++i;
+                    if( i == end )
+                    {
+                        m_PendingWhitespace.write( ch, start, length );
+                    }
+                    else
+                    {
+                        closeStartTag();
+                        m_PendingWhitespace.transferTo( m_Output );
+                        escapeText( ch, start, length );
+                        m_InText = true;
+                        m_Inline = true;
+                    }
+                }
+            }
+            catch( final IOException e )
+            {
+                throw new SAXException( e );
+            }
+        }   //  characters()
+
+        /**
+         *  Closes a pending start tag.
+         *
+         *  @throws IOException Writing the output failed.
+         */
+        private final void closeStartTag() throws IOException
+        {
+            if( m_StartTagOpen )
+            {
+                m_Output.write( '>' );
+                m_StartTagOpen = false;
+            }
+        }   //  closeStartTag()
+
+        /**
+         *  Ends the current text node; whitespace that was held back is
+         *  discarded.
+         *
+         *  @throws IOException The held back whitespace could not be
+         *      discarded.
+         */
+        private final void endText() throws IOException
+        {
+            if( !m_PendingWhitespace.isEmpty() ) m_PendingWhitespace.clear();
+            m_InText = false;
+        }   //  endText()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void endCDATA() throws SAXException
+        {
+            try
+            {
+                m_Output.write( "]]>" );
+                m_InCDATA = false;
+                m_Inline = true;
+            }
+            catch( final IOException e )
+            {
+                throw new SAXException( e );
+            }
+        }   //  endCDATA()
+
+        /**
+         *  {@inheritDoc}
+         *  <p>For the complete document, the prolog is written, followed by
+         *  the held back output.</p>
+         */
+        @Override
+        public final void endDocument() throws SAXException
+        {
+            try
+            {
+                if( !m_Fragment && m_RootClosed )
+                {
+                    m_Target.write( XML_DECLARATION );
+                    for( final var processingInstruction : m_Prolog )
+                    {
+                        if( !m_Compact ) m_Target.write( '\n' );
+                        writeProcessingInstruction( m_Target, processingInstruction [0], processingInstruction [1] );
+                    }
+                    m_Prolog.clear();
+                    if( !m_Compact ) m_Target.write( '\n' );
+                    m_Body.transferTo( m_Target );
+                }
+                m_Target.flush();
+            }
+            catch( final IOException e )
+            {
+                throw new SAXException( e );
+            }
+        }   //  endDocument()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void endElement( final String uri, final String localName, final String qName ) throws SAXException
+        {
+            try
+            {
+                endText();
+                if( m_Fragment && m_Depth == 1 )
+                {
+                    //---* The end of the root element is not written *--------
+                    m_Depth = 0;
+                    return;
+                }
+                --m_Depth;
+                if( m_StartTagOpen )
+                {
+                    m_Output.write( "/>" );
+                    m_StartTagOpen = false;
+                }
+                else
+                {
+                    if( !m_Inline ) newLine( m_Depth );
+                    m_Output.write( "</" );
+                    m_Output.write( nameOf( isNull( qName ) ? localName : qName ) );
+                    m_Output.write( '>' );
+                }
+                if( !isNull( m_Normalizer ) ) m_Normalizer.leaveElement();
+                if( m_Depth == 0 )
+                {
+                    m_RootClosed = true;
+                    if( !m_Compact ) m_Output.write( '\n' );
+                }
+                m_Inline = false;
+            }
+            catch( final IOException e )
+            {
+                throw new SAXException( e );
+            }
+        }   //  endElement()
+
+        /**
+         *  Escapes the characters in the given value that are not allowed
+         *  in an attribute value, and writes the result to the output.
+         *
+         *  @param  value   The attribute value.
+         *  @throws IOException Writing the output failed.
+         */
+        private final void escape( final CharSequence value ) throws IOException
+        {
+            final var len = value.length();
+            for( var i = 0; i < len; ++i )
+            {
+                final var c = value.charAt( i );
+                switch( c )
+                {
+                    case '&' -> m_Output.write( "&amp;" );
+                    case '<' -> m_Output.write( "&lt;" );
+                    case '>' -> m_Output.write( "&gt;" );
+                    case '"' -> m_Output.write( "&quot;" );
+                    default -> m_Output.write( c );
+                }
+            }
+        }   //  escape()
+
+        /**
+         *  Escapes the characters in the given text that are not allowed in
+         *  PCDATA, and writes the result to the output; the unescaped runs
+         *  are written without copying them.
+         *
+         *  @param  ch  The characters.
+         *  @param  start   The start position in the array.
+         *  @param  length  The number of characters to write.
+         *  @throws IOException Writing the output failed.
+         */
+        private final void escapeText( final char [] ch, final int start, final int length ) throws IOException
+        {
+            final var end = start + length;
+            var runStart = start;
+            for( var i = start; i < end; ++i )
+            {
+                final var replacement = switch( ch [i] )
+                {
+                    case '&' -> "&amp;";
+                    case '<' -> "&lt;";
+                    case '>' -> "&gt;";
+                    default -> null;
+                };
+                if( !isNull( replacement ) )
+                {
+                    m_Output.write( ch, runStart, i - runStart );
+                    m_Output.write( replacement );
+                    runStart = i + 1;
+                }
+            }
+            m_Output.write( ch, runStart, end - runStart );
+        }   //  escapeText()
+
+        /**
+         *  Returns the name of an element or attribute for the output.
+         *
+         *  @param  name    The qualified name from the input.
+         *  @return The name for the output.
+         */
+        private final String nameOf( final String name ) { return isNull( m_Normalizer ) ? name : m_Normalizer.normalize( name ); }
+
+        /**
+         *  Starts a new line with the indentation for the given level; in
+         *  compact mode, nothing is written.
+         *
+         *  @param  level   The indentation level.
+         *  @throws IOException Writing the output failed.
+         */
+        private final void newLine( final int level ) throws IOException
+        {
+            if( !m_Compact )
+            {
+                m_Output.write( '\n' );
+                for( var i = 0; i < level; ++i ) m_Output.write( INDENTATION );
+            }
+        }   //  newLine()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void processingInstruction( final String target, final String data ) throws SAXException
+        {
+            countProcessingInstruction();
+            try
+            {
+                endText();
+                if( !m_Fragment )
+                {
+                    m_Prolog.add( new String [] {target, data} );
+                }
+                else if( m_Depth > 0 )
+                {
+                    closeStartTag();
+                    newLine( m_Depth );
+                    writeProcessingInstruction( m_Output, target, data );
+                    m_Inline = false;
+                }
+            }
+            catch( final IOException e )
+            {
+                throw new SAXException( e );
+            }
+        }   //  processingInstruction()
+
+        /**
+         *  {@inheritDoc}
+         *  <p>The held back output is discarded.</p>
+         */
+        @Override
+        public final void release() throws IOException
+        {
+            try
+            {
+                m_PendingWhitespace.close();
+            }
+            finally
+            {
+                if( !isNull( m_Body ) ) m_Body.close();
+            }
+        }   //  release()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void startCDATA() throws SAXException
+        {
+            try
+            {
+                endText();
+                closeStartTag();
+                m_Output.write( "<![CDATA[" );
+                m_InCDATA = true;
+            }
+            catch( final IOException e )
+            {
+                throw new SAXException( e );
+            }
+        }   //  startCDATA()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void startElement( final String uri, final String localName, final String qName, final Attributes attributes ) throws SAXException
+        {
+            try
+            {
+                endText();
+                if( m_Fragment && m_Depth == 0 )
+                {
+                    //---* The root element is not written *-------------------
+                    m_Depth = 1;
+                    return;
+                }
+                countElement( m_Depth + 1 );
+                if( m_Depth > 0 )
+                {
+                    closeStartTag();
+                    newLine( m_Depth );
+                }
+
+                //---* The namespaces first, then the attributes *-------------
+                final var declarations = isNull( m_Normalizer ) ? null : m_Normalizer.enterElement( attributes );
+                m_Output.write( '<' );
+                m_Output.write( nameOf( isNull( qName ) ? localName : qName ) );
+                if( !isNull( declarations ) )
+                {
+                    for( final var declaration : declarations ) writeAttribute( declaration [0], declaration [1] );
+                }
+                final var len = attributes.getLength();
+                for( var pass = isNull( declarations ) ? 0 : 1; pass < 2; ++pass )
+                {
+                    for( var i = 0; i < len; ++i )
+                    {
+                        final var attributeName = isNull( attributes.getQName( i ) ) ? attributes.getLocalName( i ) : attributes.getQName( i );
+                        if( attributeName.startsWith( "xmlns" ) == (pass == 0) ) writeAttribute( nameOf( attributeName ), attributes.getValue( i ) );
+                    }
+                }
+                m_StartTagOpen = true;
+                m_Inline = false;
+                ++m_Depth;
+            }
+            catch( final IOException e )
+            {
+                throw new SAXException( e );
+            }
+        }   //  startElement()
+
+        /**
+         *  Writes an attribute, with a leading blank.
+         *
+         *  @param  name    The name of the attribute.
+         *  @param  value   The value of the attribute.
+         *  @throws IOException Writing the output failed.
+         */
+        private final void writeAttribute( final String name, final CharSequence value ) throws IOException
+        {
+            m_Output.write( ' ' );
+            m_Output.write( name );
+            m_Output.write( "=\"" );
+            escape( value );
+            m_Output.write( '"' );
+        }   //  writeAttribute()
+
+        /**
+         *  Writes a processing instruction.
+         *
+         *  @param  output  The target for the processing instruction.
+         *  @param  target  The target of the processing instruction.
+         *  @param  data    The data of the processing instruction; can be
+         *      {@code null}.
+         *  @throws IOException Writing the output failed.
+         */
+        private static final void writeProcessingInstruction( final Writer output, final String target, final String data ) throws IOException
+        {
+            output.write( "<?" );
+            output.write( target );
+            if( !isNull( data ) && !data.isEmpty() )
+            {
+                output.write( ' ' );
+                output.write( data );
+            }
+            output.write( "?>" );
+        }   //  writeProcessingInstruction()
+    }
+    //  class StreamingHandler
+
+    /**
+     *  The handler that forwards only the events for the subtrees that match
+     *  an
+     *  {@link ElementPath}
+     *  to another handler; a new instance of that handler is used for each
+     *  matching subtree.
+     *  <p>The namespace declarations of the ancestors of a matching element
+     *  are added to its own attributes, so that the subtree is well-formed
+     *  on its own. When no further match is possible – because the maximum
+     *  number of matches was reached, or because of the position predicates
+     *  of the path – the parsing is stopped by throwing a
+     *  {@link SelectionCompleteException}.</p>
+     *
+     *  @param  <H> The type of the handler for the matching subtrees.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    private static final class SelectingHandler<H extends AbstractHandler> extends AbstractHandler
+    {
+            /*-----------*\
+        ====** Constants **====================================================
+            \*-----------*/
+        /**
+         *  The child count for names that did not occur yet.
+         */
+        private static final int [] NO_CHILDREN = {0};
+
+            /*------------*\
+        ====** Attributes **===================================================
+            \*------------*/
+        /**
+         *  The number of children per nesting level.
+         */
+        private int [] m_ChildCounts = new int [32];
+
+        /**
+         *  The handler for the current matching subtree; {@code null} if the
+         *  parser is currently not inside a matching subtree.
+         */
+        private H m_Delegate;
+
+        /**
+         *  The nesting depth of the current element; 0 for the document.
+         */
+        private int m_Depth = 0;
+
+        /**
+         *  The factory for the handlers of the matching subtrees.
+         */
+        private final Supplier<? extends H> m_HandlerFactory;
+
+        /**
+         *  The consumer for the handlers of the completed matching subtrees.
+         */
+        private final Consumer<? super H> m_MatchConsumer;
+
+        /**
+         *  The depth of the root of the current matching subtree; 0 if the
+         *  parser is currently not inside a matching subtree.
+         */
+        private int m_MatchDepth = 0;
+
+        /**
+         *  The number of completed matches.
+         */
+        private int m_Matches = 0;
+
+        /**
+         *  The maximum number of matches; 0 for no limit.
+         */
+        private final int m_MaxMatches;
+
+        /**
+         *  The number of the children per name and nesting level; only used
+         *  when the path has position predicates.
+         */
+        @SuppressWarnings( {"unchecked", "rawtypes"} )
+        private Map<String,int []> [] m_NameCounts = new Map [32];
+
+        /**
+         *  The size of
+         *  {@link #m_Namespaces}
+         *  before the namespace declarations of the element on the
+         *  respective nesting level were added.
+         */
+        private int [] m_NamespaceMarks = new int [32];
+
+        /**
+         *  The namespace declarations of the open elements, as pairs of the
+         *  attribute name and the URI.
+         */
+        private final List<String []> m_Namespaces = new ArrayList<>();
+
+        /**
+         *  The element path.
+         */
+        private final ElementPath m_Path;
+
+        /**
+         *  The states of the open elements for the evaluation of the path.
+         */
+        private long [] m_States = new long [32];
+
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new instance of {@code SelectingHandler}.
+         *
+         *  @param  path    The element path.
+         *  @param  maxMatches  The maximum number of matches; 0 for no limit.
+         *  @param  handlerFactory  The factory for the handlers of the
+         *      matching subtrees.
+         *  @param  matchConsumer   The consumer for the handlers of the
+         *      completed matching subtrees.
+         */
+        public SelectingHandler( final ElementPath path, final int maxMatches, final Supplier<? extends H> handlerFactory, final Consumer<? super H> matchConsumer )
+        {
+            m_Path = requireNonNullArgument( path, "path" );
+            m_MaxMatches = maxMatches;
+            m_HandlerFactory = requireNonNullArgument( handlerFactory, "handlerFactory" );
+            m_MatchConsumer = requireNonNullArgument( matchConsumer, "matchConsumer" );
+            m_States [0] = path.initialState();
+            if( path.hasPositions() ) m_NameCounts [0] = new HashMap<>();
+        }   //  SelectingHandler()
+
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void characters( final char [] ch, final int start, final int length ) throws SAXException
+        {
+            if( m_MatchDepth > 0 ) m_Delegate.characters( ch, start, length );
+        }   //  characters()
+
+        /**
+         *  Stops the parsing when no further match is possible.
+         *
+         *  @throws SelectionCompleteException  No further match is possible.
+         */
+        private final void checkCompletion() throws SelectionCompleteException
+        {
+            if( (m_MaxMatches > 0) && (m_Matches >= m_MaxMatches) ) throw new SelectionCompleteException();
+            if( m_Path.hasPositions() && (m_Depth > 0) )
+            {
+                /*
+                 * The document has only one root element, so level 0 can be
+                 * skipped; a descendant step on it is inherited by the root
+                 * element.
+                 */
+                var possible = false;
+                for( var level = 1; (level <= m_Depth) && !possible; ++level )
+                {
+                    final var nameCounts = m_NameCounts [level];
+                    possible = m_Path.canMatchBelow( m_States [level], name -> nameCounts.getOrDefault( name, NO_CHILDREN ) [0], m_ChildCounts [level] );
+                }
+                if( !possible ) throw new SelectionCompleteException();
+            }
+        }   //  checkCompletion()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void endCDATA() throws SAXException
+        {
+            if( m_MatchDepth > 0 ) m_Delegate.endCDATA();
+        }   //  endCDATA()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void endElement( final String uri, final String localName, final String qName ) throws SAXException
+        {
+            if( m_MatchDepth > 0 )
+            {
+                m_Delegate.endElement( uri, localName, qName );
+                if( m_Depth == m_MatchDepth )
+                {
+                    m_Delegate.endDocument();
+                    m_MatchConsumer.accept( m_Delegate );
+                    m_Delegate = null;
+                    m_MatchDepth = 0;
+                    ++m_Matches;
+                }
+            }
+            if( m_MatchDepth == 0 )
+            {
+                m_Namespaces.subList( m_NamespaceMarks [m_Depth], m_Namespaces.size() ).clear();
+                --m_Depth;
+                checkCompletion();
+            }
+            else
+            {
+                --m_Depth;
+            }
+        }   //  endElement()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void processingInstruction( final String target, final String data ) throws SAXException
+        {
+            countProcessingInstruction();
+            if( m_MatchDepth > 0 ) m_Delegate.processingInstruction( target, data );
+        }   //  processingInstruction()
+
+        /**
+         *  {@inheritDoc}
+         *  <p>The handler for an incomplete matching subtree is released.</p>
+         */
+        @Override
+        public final void release() throws IOException
+        {
+            if( !isNull( m_Delegate ) ) m_Delegate.release();
+        }   //  release()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void startCDATA() throws SAXException
+        {
+            if( m_MatchDepth > 0 ) m_Delegate.startCDATA();
+        }   //  startCDATA()
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void startElement( final String uri, final String localName, final String qName, final Attributes attributes ) throws SAXException
+        {
+            final var depth = m_Depth + 1;
+            countElement( depth );
+            if( m_MatchDepth > 0 )
+            {
+                m_Depth = depth;
+                m_Delegate.startElement( uri, localName, qName, attributes );
+                return;
+            }
+
+            if( depth == m_States.length )
+            {
+                m_ChildCounts = Arrays.copyOf( m_ChildCounts, depth * 2 );
+                m_NameCounts = Arrays.copyOf( m_NameCounts, depth * 2 );
+                m_NamespaceMarks = Arrays.copyOf( m_NamespaceMarks, depth * 2 );
+                m_States = Arrays.copyOf( m_States, depth * 2 );
+            }
+
+            //---* Determine the position among the siblings *-----------------
+            final var parent = m_Depth;
+            final var name = isNull( qName ) ? localName : qName;
+            final var elementPosition = ++m_ChildCounts [parent];
+            var namePosition = 0;
+            if( m_Path.hasPositions() )
+            {
+                namePosition = ++m_NameCounts [parent].computeIfAbsent( name, key -> new int [1] ) [0];
+                if( isNull( m_NameCounts [depth] ) )
+                {
+                    m_NameCounts [depth] = new HashMap<>();
+                }
+                else
+                {
+                    m_NameCounts [depth].clear();
+                }
+            }
+            m_ChildCounts [depth] = 0;
+
+            //---* Keep track of the namespace declarations *------------------
+            m_NamespaceMarks [depth] = m_Namespaces.size();
+            final var length = attributes.getLength();
+            for( var i = 0; i < length; ++i )
+            {
+                final var attributeName = isNull( attributes.getQName( i ) ) ? attributes.getLocalName( i ) : attributes.getQName( i );
+                if( attributeName.startsWith( "xmlns" ) ) m_Namespaces.add( new String [] {attributeName, attributes.getValue( i )} );
+            }
+
+            //---* Evaluate the path *-----------------------------------------
+            m_States [depth] = m_States [parent] == 0 ? 0 : m_Path.nextState( m_States [parent], name, attributes, namePosition, elementPosition );
+            m_Depth = depth;
+            if( m_Path.isMatch( m_States [depth] ) )
+            {
+                m_MatchDepth = depth;
+                m_Delegate = m_HandlerFactory.get();
+                m_Delegate.startDocument();
+                m_Delegate.startElement( uri, localName, qName, withInheritedNamespaces( attributes ) );
+            }
+        }   //  startElement()
+
+        /**
+         *  Adds the namespace declarations of the ancestors of the current
+         *  element to the given attributes.
+         *
+         *  @param  attributes  The attributes of the current element.
+         *  @return The attributes with the inherited namespace declarations.
+         */
+        private final Attributes withInheritedNamespaces( final Attributes attributes )
+        {
+            Attributes retValue = attributes;
+            final var inherited = m_NamespaceMarks [m_Depth];
+            if( inherited > 0 )
+            {
+                final var buffer = new AttributesImpl( attributes );
+                for( var i = inherited - 1; i >= 0; --i )
+                {
+                    final var declaration = m_Namespaces.get( i );
+                    if( buffer.getIndex( declaration [0] ) < 0 ) buffer.addAttribute( EMPTY_STRING, EMPTY_STRING, declaration [0], "CDATA", declaration [1] );
+                }
+                retValue = buffer;
+            }
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  withInheritedNamespaces()
+    }
+    //  class SelectingHandler
+
+    /**
+     *  The exception that is thrown by
+     *  {@link SelectingHandler}
+     *  to stop the parsing when no further match is possible.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = STABLE, since = "0.4.3" )
+    private static final class SelectionCompleteException extends SAXException
+    {
+            /*------------------------*\
+        ====** Static Initialisations **=======================================
+            \*------------------------*/
+        /**
+         *  The serial version UID for objects of this class: {@value}.
+         *
+         *  @hidden
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new instance of {@code SelectionCompleteException}.
+         */
+        public SelectionCompleteException() { super( "No further match is possible" ); }
+    }
+    //  class SelectionCompleteException
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The version of the output format: {@value}. It is increased whenever
+     *  a change to the beautifier changes the output for the same input,
+     *  so that the incremental mode of
+     *  {@link BatchBeautifier}
+     *  processes all files again.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public static final int FORMAT_VERSION = 2;
+
+    /**
+     *  The command line option that selects the batch mode: {@value}. See
+     *  {@link BatchBeautifier}.
+     */
+    public static final String OPTION_BATCH = "--batch";
+
+    /**
+     *  The command line option for the file that receives the JSON report
+     *  of the problems that were reported by the parser: {@value}. See
+     *  {@link BeautifierDiagnostics}.
+     */
+    public static final String OPTION_DIAGNOSTICS = "--diagnostics";
+
+    /**
+     *  The command line option for the cache directory of the
+     *  {@link CachingEntityResolver}: {@value}.
+     */
+    public static final String OPTION_ENTITY_CACHE = "--entity-cache";
+
+    /**
+     *  The command line option for the maximum number of matches for a
+     *  selection: {@value}.
+     */
+    public static final String OPTION_LIMIT = "--limit";
+
+    /**
+     *  The command line option that selects the minify mode: {@value}.
+     */
+    public static final String OPTION_MINIFY = "--minify";
+
+    /**
+     *  The command line option that switches off the resolution of external
+     *  DTDs and entities: {@value}.
+     */
+    public static final String OPTION_NO_EXTERNAL_ENTITIES = "--no-external-entities";
+
+    /**
+     *  The command line option that causes the namespace prefixes to be
+     *  replaced in the minify mode: {@value}.
+     */
+    public static final String OPTION_NORMALIZE_PREFIXES = "--normalize-prefixes";
+
+    /**
+     *  The command line option that prevents the loading of external DTDs
+     *  and entities from remote hosts: {@value}.
+     */
+    public static final String OPTION_OFFLINE = "--offline";
+
+    /**
+     *  The command line option for the output file: {@value}.
+     */
+    public static final String OPTION_OUTPUT = "--output";
+
+    /**
+     *  The command line option that selects the parallel mode: {@value}. See
+     *  {@link ParallelBeautifier}.
+     *  It uses the parser engine and the entity resolver that are selected
+     *  by the other options, but it cannot be combined with
+     *  {@value #OPTION_DIAGNOSTICS}
+     *  or
+     *  {@value #OPTION_STACK_TRACES},
+     *  as the positions in the chunks do not match those in the document.
+     */
+    public static final String OPTION_PARALLEL = "--parallel";
+
+    /**
+     *  The command line option for the
+     *  {@linkplain ElementPath element path}
+     *  that selects the subtrees to output: {@value}.
+     */
+    public static final String OPTION_SELECT = "--select";
+
+    /**
+     *  The command line option that keeps the stack traces of the problems
+     *  that were reported by the parser: {@value}.
+     */
+    public static final String OPTION_STACK_TRACES = "--stack-traces";
+
+    /**
+     *  The command line option that selects the
+     *  {@link StAXParserEngine}
+     *  instead of the SAX parser: {@value}.
+     */
+    public static final String OPTION_STAX = "--stax";
+
+    /**
+     *  The command line option that selects the streaming mode: {@value}.
+     */
+    public static final String OPTION_STREAM = "--stream";
+
+    /**
+     *  The command line option that selects the watch mode: {@value}. See
+     *  {@link BeautifierWatcher}.
+     */
+    public static final String OPTION_WATCH = "--watch";
+
+    /**
+     *  The XML declaration that is written by the streaming mode: {@value}.
+     */
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The flag that indicates whether the input has to be closed after it
+     *  was processed.
+     */
+    private final boolean m_CloseInput;
+
+    /**
+     *  {@code true} if the time spent for building the document tree should
+     *  always be measured, {@code false} if it should be measured only when
+     *  the JFR event
+     *  {@value BeautifierEvent#EVENT_NAME}
+     *  is enabled.
+     */
+    private boolean m_DetailedTiming = false;
+
+    /**
+     *  The collector for the problems that are reported by the parser.
+     */
+    private BeautifierDiagnostics m_Diagnostics = new BeautifierDiagnostics( err );
+
+    /**
+     *  The engine that provides the parsers.
+     */
+    private BeautifierEngine m_Engine = BeautifierEngine.getDefaultEngine();
+
+    /**
+     *  The opener for the XML to beautify.
+     */
+    private final InputOpener m_InputOpener;
+
+    /**
+     *  The metrics of the last processing; {@code null} if the beautifier was
+     *  not used yet, or if the last processing failed.
+     */
+    private BeautifierMetrics m_Metrics;
+
+    /**
+     *  The listener that is notified with the metrics after each processing;
+     *  {@code null} if there is no listener.
+     */
+    private Consumer<? super BeautifierMetrics> m_MetricsListener;
+
+    /**
+     *  The namespace cache that was used by the last call to
+     *  {@link #process()}.
+     */
+    private NamespaceCache m_NamespaceCache;
+
+    /**
+     *  {@code true} if the namespace prefixes are replaced by short
+     *  generated ones in the output of the minify mode, {@code false} if
+     *  they are kept.
+     */
+    private boolean m_NormalizePrefixes = false;
+
+    /**
+     *  The maximum number of matches for the selection; 0 for no limit.
+     */
+    private int m_MaxMatches = 0;
+
+    /**
+     *  The selection; {@code null} if the whole document is processed.
+     */
+    private ElementPath m_Selection;
+
+    /**
+     *  The namespace cache that is shared with other instances of
+     *  {@code XMLBeautifier}; {@code null} if a new cache should be used for
+     *  each document.
+     */
+    private NamespaceCache m_SharedNamespaceCache;
+
+    /**
+     *  The system ID for input that does not provide one itself;
+     *  {@code null} if there is none.
+     */
+    private String m_SystemId;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new instance of {@code XMLBeautifier} for the given
+     *  {@link ByteBuffer};
+     *  usually, this will be a
+     *  {@link java.nio.MappedByteBuffer}.
+     *  The position of the buffer will not be changed.
+     *
+     *  @param  xmlCode The XML code to beautify.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public XMLBeautifier( final ByteBuffer xmlCode )
+    {
+        requireNonNullArgument( xmlCode, "xmlCode" );
+        m_InputOpener = () -> new InputSource( new ByteBufferInputStream( xmlCode ) );
+        m_CloseInput = false;
+    }   //  XMLBeautifier()
+
+    /**
+     *  Creates a new instance of {@code XMLBeautifier} for the given
+     *  {@link InputStream}.
+     *  The stream will not be closed after processing, and the beautifier
+     *  can be used only once.
+     *
+     *  @param  xmlCode The XML code to beautify.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public XMLBeautifier( final InputStream xmlCode )
+    {
+        requireNonNullArgument( xmlCode, "xmlCode" );
+        m_InputOpener = () -> new InputSource( xmlCode );
+        m_CloseInput = false;
+    }   //  XMLBeautifier()
+
+    /**
+     *  Creates a new instance of {@code XMLBeautifier} for the given file.
+     *  If the file is compressed with gzip or zlib, it will be decompressed
+     *  while it is parsed; see
+     *  {@link Compression#openInput(Path)}.
+     *
+     *  @param  xmlFile The file with the XML code to beautify.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public XMLBeautifier( final Path xmlFile )
+    {
+        requireNonNullArgument( xmlFile, "xmlFile" );
+        m_InputOpener = () ->
+        {
+            final var retValue = new InputSource( Compression.openInput( xmlFile ) );
+            retValue.setSystemId( xmlFile.toUri().toString() );
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        };
+        m_CloseInput = true;
+    }   //  XMLBeautifier()
+
+    /**
+     *  Creates a new instance of {@code XMLBeautifier} for the given
+     *  {@link ReadableByteChannel}.
+     *  The channel will not be closed after processing, and the beautifier
+     *  can be used only once.
+     *
+     *  @param  xmlCode The XML code to beautify.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public XMLBeautifier( final ReadableByteChannel xmlCode )
+    {
+        requireNonNullArgument( xmlCode, "xmlCode" );
+        m_InputOpener = () -> new InputSource( Channels.newInputStream( xmlCode ) );
+        m_CloseInput = false;
+    }   //  XMLBeautifier()
+
+    /**
+     *  Creates a new instance of {@code XMLBeautifier}.
+     *
+     *  @param  xmlCode The XML code to beautify.
+     */
+    public XMLBeautifier( final String xmlCode )
+    {
+        m_InputOpener = () -> new InputSource( new StringReader( xmlCode ) );
+        m_CloseInput = false;
+    }   //  XMLBeautifier()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the bytes that were allocated by the current thread since the
+     *  given start value.
+     *
+     *  @param  start   The start value, as returned by
+     *      {@link BeautifierMetrics#currentThreadAllocatedBytes()}.
+     *  @return The allocated bytes; -1 if the JVM does not support the
+     *      measurement.
+     */
+    private static final long allocatedSince( final long start )
+    {
+        final var retValue = start < 0 ? -1L : BeautifierMetrics.currentThreadAllocatedBytes() - start;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  allocatedSince()
+
+    /**
+     *  Returns the collector for the problems that are reported by the
+     *  parser. Per default, each beautifier has its own collector that
+     *  echoes the first occurrence of each problem to
+     *  {@link System#err},
+     *  with at most
+     *  {@value BeautifierDiagnostics#DEFAULT_ECHO_RATE}
+     *  lines per second.
+     *
+     *  @return The collector.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final BeautifierDiagnostics getDiagnostics() { return m_Diagnostics; }
+
+    /**
+     *  Returns the engine that provides the parsers.
+     *
+     *  @return The engine.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final BeautifierEngine getEngine() { return m_Engine; }
+
+    /**
+     *  Returns the metrics of the last processing.
+     *
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the metrics; empty if the beautifier was not used yet,
+     *      or if the last processing failed.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final Optional<BeautifierMetrics> getMetrics() { return Optional.ofNullable( m_Metrics ); }
+
+    /**
+     *  The program entry point.
+     *
+     *  @param  args    The command line arguments.
+     */
+    @SuppressWarnings( "OverlyBroadCatchBlock" )
+    public static final void main( final String... args )
+    {
+        try
+        {
+            if( args.length > 0 && OPTION_BATCH.equals( args [0] ) )
+            {
+                BatchBeautifier.main( Arrays.copyOfRange( args, 1, args.length ) );
+            }
+            else if( args.length > 0 && OPTION_WATCH.equals( args [0] ) )
+            {
+                BeautifierWatcher.main( Arrays.copyOfRange( args, 1, args.length ) );
+            }
+            else
+            {
+                var streaming = false;
+                var parallel = false;
+                var stax = false;
+                var minify = false;
+                var normalizePrefixes = false;
+                Path output = null;
+                ElementPath selection = null;
+                var limit = 0;
+                Path entityCache = null;
+                var policy = CachingEntityResolver.Policy.RESOLVE;
+                Path diagnosticsReport = null;
+                var stackTraces = false;
+                final List<String> files = new ArrayList<>();
+                for( var i = 0; i < args.length; ++i )
+                {
+                    switch( args [i] )
+                    {
+                        case OPTION_STREAM -> streaming = true;
+                        case OPTION_PARALLEL -> parallel = true;
+                        case OPTION_STAX -> stax = true;
+                        case OPTION_MINIFY -> minify = true;
+                        case OPTION_NORMALIZE_PREFIXES -> normalizePrefixes = true;
+                        case OPTION_OUTPUT -> output = Path.of( args [++i] );
+                        case OPTION_SELECT -> selection = ElementPath.compile( args [++i] );
+                        case OPTION_LIMIT -> limit = Integer.parseInt( args [++i] );
+                        case OPTION_ENTITY_CACHE -> entityCache = Path.of( args [++i] );
+                        case OPTION_OFFLINE -> policy = CachingEntityResolver.Policy.OFFLINE;
+                        case OPTION_NO_EXTERNAL_ENTITIES -> policy = CachingEntityResolver.Policy.DISABLED;
+                        case OPTION_DIAGNOSTICS -> diagnosticsReport = Path.of( args [++i] );
+                        case OPTION_STACK_TRACES -> stackTraces = true;
+                        default -> files.add( args [i] );
+                    }
+                }
+
+                if( !isNull( selection ) || minify ) parallel = false;
+                if( parallel && (!isNull( diagnosticsReport ) || stackTraces) )
+                {
+                    err.printf( "%s cannot be combined with %s or %s%n", OPTION_PARALLEL, OPTION_DIAGNOSTICS, OPTION_STACK_TRACES );
+                }
+                else if( files.size() == 1 )
+                {
+                    final var file = FileStringConverter.INSTANCE.fromString( files.get( 0 ) );
+                    final var path = file.toPath();
+                    final var parallelBeautifier = parallel ? new ParallelBeautifier() : null;
+                    final var resolve = !isNull( entityCache ) || (policy != CachingEntityResolver.Policy.RESOLVE);
+
+                    //---* Never configure the shared default engine *---------
+                    final BeautifierEngine engine;
+                    if( stax )
+                    {
+                        engine = new BeautifierEngine( new StAXParserEngine() );
+                    }
+                    else if( parallel )
+                    {
+                        engine = parallelBeautifier.getEngine();
+                    }
+                    else
+                    {
+                        engine = resolve ? new BeautifierEngine() : BeautifierEngine.getDefaultEngine();
+                    }
+                    if( resolve ) engine.setEntityResolver( new CachingEntityResolver( entityCache, policy, null ) );
+                    if( parallel ) parallelBeautifier.setEngine( engine );
+                    final var beautifier = new XMLBeautifier( path );
+                    beautifier.setEngine( engine );
+                    beautifier.setSelection( selection, limit );
+                    beautifier.setNormalizePrefixes( normalizePrefixes );
+                    beautifier.getDiagnostics().setKeepStackTraces( stackTraces );
+                    try
+                    {
+                        if( isNull( output ) )
+                        {
+                            if( parallel )
+                            {
+                                parallelBeautifier.process( path, out );
+                            }
+                            else if( minify )
+                            {
+                                beautifier.minify( out );
+                            }
+                            else if( streaming )
+                            {
+                                beautifier.process( out );
+                            }
+                            else
+                            {
+                                final var result = beautifier.process();
+                                out.println( result );
+                            }
+                        }
+                        else
+                        {
+                            try( final var outputStream = Compression.openOutput( output ) )
+                            {
+                                if( parallel )
+                                {
+                                    parallelBeautifier.process( path, outputStream );
+                                }
+                                else if( minify )
+                                {
+                                    beautifier.minify( outputStream );
+                                }
+                                else if( streaming )
+                                {
+                                    beautifier.process( outputStream );
+                                }
+                                else
+                                {
+                                    final var writer = new OutputStreamWriter( outputStream, UTF8 );
+                                    writer.write( beautifier.process() );
+                                    writer.flush();
+                                }
+                            }
+                            out.println( "Done!" );
+                        }
+                    }
+                    finally
+                    {
+                        beautifier.getDiagnostics().flush();
+                        if( !isNull( diagnosticsReport ) ) beautifier.getDiagnostics().writeReport( diagnosticsReport );
+                    }
+                }
+                else
+                {
+                    final var buffer = new StringJoiner( " " );
+                    buffer.setEmptyValue( "[missing Filename]" );
+                    stream( args ).forEach( buffer::add );
+                    err.printf( "Invalid Command Line Arguments: %s %s%n", XMLBeautifier.class.getName(), buffer.toString() );
+                }
+            }
+        }
+        catch( final Throwable t )
+        {
+            t.printStackTrace( err );
+        }
+    }   //  main()
+
+    /**
+     *  Returns the namespace cache that was used by the last call to
+     *  {@link #process()},
+     *  to retrieve its statistics.
+     *
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the namespace cache; empty if the XML code was not
+     *      processed yet.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final Optional<NamespaceCache> getNamespaceCache() { return Optional.ofNullable( m_NamespaceCache ); }
+
+    /**
+     *  Parses the XML code with the given handler.
+     *
+     *  @param  handler The handler.
+     *  @param  event   The JFR event for the processing.
+     *  @return The number of bytes read from the input; -1 if the input was
+     *      provided as a String.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code or
+     *      when writing the output.
+     */
+    private final long parse( final AbstractHandler handler, final BeautifierEvent event ) throws ParserConfigurationException, SAXException, IOException
+    {
+        handler.setTimed( m_DetailedTiming || event.isEnabled() );
+        handler.setEntityResolver( m_Engine.getEntityResolver().orElse( null ) );
+        handler.setDiagnostics( m_Diagnostics );
+
+        //---* Parse the XML code *--------------------------------------------
+        final var inputSource = m_InputOpener.open();
+        if( isNull( inputSource.getSystemId() ) ) inputSource.setSystemId( m_SystemId );
+        event.systemId = inputSource.getSystemId();
+        final var countingInputStream = isNull( inputSource.getByteStream() ) ? null : new CountingInputStream( inputSource.getByteStream() );
+        if( nonNull( countingInputStream ) ) inputSource.setByteStream( countingInputStream );
+        try
+        {
+            m_Engine.getParserEngine().parse( inputSource, handler );
+        }
+        catch( final SelectionCompleteException ignored )
+        {
+            /* The selection is complete; the rest of the input is skipped. */
+        }
+        catch( final SAXException e )
+        {
+            if( e.getCause() instanceof final IOException ioException ) throw ioException;
+            throw e;
+        }
+        finally
+        {
+            if( m_CloseInput )
+            {
+                if( !isNull( inputSource.getByteStream() ) ) inputSource.getByteStream().close();
+                if( !isNull( inputSource.getCharacterStream() ) ) inputSource.getCharacterStream().close();
+            }
+        }
+        final var retValue = isNull( countingInputStream ) ? -1L : countingInputStream.getCount();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  parse()
+
+    /**
+     *  Processes the XML code and returns the minified version of it.
+     *
+     *  @return The minified code.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code.
+     *
+     *  @see #minify(Writer)
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final String minify() throws ParserConfigurationException, SAXException, IOException
+    {
+        final var target = new StringWriter();
+        minify( target );
+        final var retValue = target.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  minify()
+
+    /**
+     *  Processes the XML code and writes a compact version of it directly to
+     *  the given
+     *  {@link Writer}:
+     *  whitespace between elements and comments are removed, and no line
+     *  breaks or indentation are added. Text that contains other characters
+     *  than whitespace is kept as it is, including leading and trailing
+     *  whitespace. With
+     *  {@link #setNormalizePrefixes(boolean)},
+     *  the namespace prefixes are replaced by short generated ones, and
+     *  redundant namespace declarations are removed.
+     *  <p>The output is written while the input is parsed, in a single pass
+     *  without building a document tree.</p>
+     *
+     *  @param  target  The target for the minified code; it will be flushed,
+     *      but not closed.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code or
+     *      when writing the output.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void minify( final Writer target ) throws ParserConfigurationException, SAXException, IOException
+    {
+        processStreaming( requireNonNullArgument( target, "target" ), false, true );
+    }   //  minify()
+
+    /**
+     *  Processes the XML code and writes a compact version of it directly to
+     *  the given
+     *  {@link OutputStream},
+     *  encoded as UTF-8.
+     *
+     *  @param  target  The target for the minified code; it will be flushed,
+     *      but not closed.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code or
+     *      when writing the output.
+     *
+     *  @see #minify(Writer)
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void minify( final OutputStream target ) throws ParserConfigurationException, SAXException, IOException
+    {
+        final var writer = new BufferedWriter( new OutputStreamWriter( requireNonNullArgument( target, "target" ), UTF8 ) );
+        minify( writer );
+        writer.flush();
+    }   //  minify()
+
+    /**
+     *  Processes the XML code and returns the beautified version of it.
+     *
+     *  @return The beautified code.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code.
+     */
+    public final String process() throws ParserConfigurationException, SAXException, IOException
+    {
+        m_Metrics = null;
+        final var event = new BeautifierEvent();
+        event.begin();
+        final var allocated = BeautifierMetrics.currentThreadAllocatedBytes();
+        final var start = System.nanoTime();
+        final String retValue;
+        try
+        {
+            //---* Parse the XML code *----------------------------------------
+            final var namespaceCache = isNull( m_SharedNamespaceCache ) ? new NamespaceCache() : m_SharedNamespaceCache;
+            m_NamespaceCache = namespaceCache;
+            final AbstractHandler handler;
+            final Supplier<String> output;
+            if( isNull( m_Selection ) )
+            {
+                final var xmlHandler = new XMLHandler( namespaceCache );
+                handler = xmlHandler;
+                output = () -> xmlHandler.getOutput().orElse( "<No Output>" );
+            }
+            else
+            {
+                final var buffer = new StringBuilder();
+                handler = new SelectingHandler<>( m_Selection, m_MaxMatches, () -> new XMLHandler( namespaceCache ), xmlHandler -> xmlHandler.getOutput().ifPresent( buffer::append ) );
+                output = buffer::toString;
+            }
+            final var bytesIn = parse( handler, event );
+            final var parsed = System.nanoTime();
+
+            //---* Create the output *-----------------------------------------
+            retValue = output.get();
+            final var serialized = System.nanoTime();
+
+            publishMetrics( event, new BeautifierMetrics( BeautifierMetrics.Mode.TREE, bytesIn, retValue.length(), handler.getElementCount(), handler.getMaxDepth(), handler.getProcessingInstructionCount(), Duration.ofNanos( parsed - start - handler.getBuildDuration() ), Duration.ofNanos( handler.getBuildDuration() ), Duration.ofNanos( serialized - parsed ), allocatedSince( allocated ) ) );
+        }
+        catch( final ParserConfigurationException | SAXException | IOException | RuntimeException e )
+        {
+            event.failure = e.toString();
+            throw e;
+        }
+        finally
+        {
+            event.commit();
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  process()
+
+    /**
+     *  Processes the XML code and writes the beautified version of it
+     *  to the given
+     *  {@link Writer},
+     *  without building an
+     *  {@link XMLDocument}
+     *  first. The output is the same as that of
+     *  {@link #process()};
+     *  it is written once the input was parsed completely, as the
+     *  processing instructions are moved to the prolog.
+     *
+     *  @param  target  The target for the beautified code; it will be flushed,
+     *      but not closed.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code or
+     *      when writing the output.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void process( final Writer target ) throws ParserConfigurationException, SAXException, IOException
+    {
+        processStreaming( requireNonNullArgument( target, "target" ), false, false );
+    }   //  process()
+
+    /**
+     *  Processes the XML code and writes the beautified version of it
+     *  directly to the given
+     *  {@link OutputStream},
+     *  encoded as UTF-8, without building an
+     *  {@link XMLDocument}
+     *  first.
+     *
+     *  @param  target  The target for the beautified code; it will be flushed,
+     *      but not closed.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code or
+     *      when writing the output.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void process( final OutputStream target ) throws ParserConfigurationException, SAXException, IOException
+    {
+        final var writer = new BufferedWriter( new OutputStreamWriter( requireNonNullArgument( target, "target" ), UTF8 ) );
+        process( writer );
+        writer.flush();
+    }   //  process()
+
+    /**
+     *  Processes the XML code and writes only the children of the root
+     *  element to the given
+     *  {@link Writer},
+     *  formatted as they would appear in the output of
+     *  {@link #process(Writer)}.
+     *
+     *  @param  target  The target for the beautified code.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code or
+     *      when writing the output.
+     */
+    final void processFragment( final Writer target ) throws ParserConfigurationException, SAXException, IOException
+    {
+        processStreaming( requireNonNullArgument( target, "target" ), true, false );
+    }   //  processFragment()
+
+    /**
+     *  Processes the XML code in the streaming mode.
+     *
+     *  @param  target  The target for the beautified code.
+     *  @param  fragment    {@code true} if only the children of the root
+     *      element should be written, {@code false} for the complete
+     *      document.
+     *  @param  compact {@code true} if the output should be minified,
+     *      {@code false} if it should be formatted.
+     *  @throws ParserConfigurationException    There is a problem on loading
+     *      the SAX parser.
+     *  @throws SAXException    A problem occurred while parsing the XML code.
+     *  @throws IOException A problem occurred when reading the XML code or
+     *      when writing the output.
+     */
+    private final void processStreaming( final Writer target, final boolean fragment, final boolean compact ) throws ParserConfigurationException, SAXException, IOException
+    {
+        m_Metrics = null;
+        final var event = new BeautifierEvent();
+        event.begin();
+        final var allocated = BeautifierMetrics.currentThreadAllocatedBytes();
+        final var start = System.nanoTime();
+        try
+        {
+            final var countingWriter = new CountingWriter( target );
+            final var normalizePrefixes = compact && m_NormalizePrefixes;
+            final AbstractHandler handler = isNull( m_Selection ) || fragment
+                ? new StreamingHandler( countingWriter, fragment, compact, normalizePrefixes )
+                : new SelectingHandler<>( m_Selection, m_MaxMatches, () -> new StreamingHandler( countingWriter, false, compact, normalizePrefixes ), streamingHandler -> {} );
+            final long bytesIn;
+            try
+            {
+                bytesIn = parse( handler, event );
+            }
+            finally
+            {
+                handler.release();
+            }
+            final var parsed = System.nanoTime();
+
+            publishMetrics( event, new BeautifierMetrics( compact ? BeautifierMetrics.Mode.MINIFY : BeautifierMetrics.Mode.STREAMING, bytesIn, countingWriter.getCount(), handler.getElementCount(), handler.getMaxDepth(), handler.getProcessingInstructionCount(), Duration.ofNanos( parsed - start ), Duration.ZERO, Duration.ZERO, allocatedSince( allocated ) ) );
+        }
+        catch( final ParserConfigurationException | SAXException | IOException | RuntimeException e )
+        {
+            event.failure = e.toString();
+            throw e;
+        }
+        finally
+        {
+            event.commit();
+        }
+    }   //  processStreaming()
+
+    /**
+     *  Stores the given metrics as those of the last processing, copies them
+     *  to the JFR event and notifies the listener.
+     *
+     *  @param  event   The JFR event.
+     *  @param  metrics The metrics.
+     */
+    private final void publishMetrics( final BeautifierEvent event, final BeautifierMetrics metrics )
+    {
+        m_Metrics = metrics;
+        if( event.isEnabled() ) event.setMetrics( metrics );
+        if( nonNull( m_MetricsListener ) ) m_MetricsListener.accept( metrics );
+    }   //  publishMetrics()
+
+    /**
+     *  Switches the measurement of the time spent for building the document
+     *  tree on or off. Per default, it is measured only when the JFR event
+     *  {@value BeautifierEvent#EVENT_NAME}
+     *  is enabled, as it requires an additional call to
+     *  {@link System#nanoTime()}
+     *  for each element.
+     *
+     *  @param  flag    {@code true} to measure the time always,
+     *      {@code false} otherwise.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void setDetailedTiming( final boolean flag ) { m_DetailedTiming = flag; }
+
+    /**
+     *  Sets the collector for the problems that are reported by the parser;
+     *  several beautifiers may share a collector.
+     *
+     *  @param  diagnostics The collector.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void setDiagnostics( final BeautifierDiagnostics diagnostics ) { m_Diagnostics = requireNonNullArgument( diagnostics, "diagnostics" ); }
+
+    /**
+     *  Sets whether the namespace prefixes are replaced by short generated
+     *  ones by
+     *  {@link #minify(Writer)}.
+     *  Prefixes that are used in attribute values or in text – like
+     *  {@code xsi:type="p:Type"} – are not replaced, so this should be used
+     *  only for documents that do not have such references.
+     *
+     *  @param  flag    {@code true} if the prefixes should be replaced,
+     *      {@code false} if they should be kept.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void setNormalizePrefixes( final boolean flag ) { m_NormalizePrefixes = flag; }
+
+    /**
+     *  Restricts the output to the subtrees that match the given path; each
+     *  matching subtree is formatted as a document of its own, and the
+     *  documents are output one after the other. Only the matching subtrees
+     *  are built, and the parsing stops as soon as no further match is
+     *  possible, so that the time for the selection of a single record
+     *  depends on its position in the input, not on the size of the input.
+     *
+     *  @param  selection   The path for the selection; {@code null} to
+     *      process the whole document.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void setSelection( final ElementPath selection ) { setSelection( selection, 0 ); }
+
+    /**
+     *  Restricts the output to the subtrees that match the given path, like
+     *  {@link #setSelection(ElementPath)},
+     *  but stops after the given number of matches.
+     *
+     *  @param  selection   The path for the selection; {@code null} to
+     *      process the whole document.
+     *  @param  maxMatches  The maximum number of matches; 0 for no limit.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void setSelection( final ElementPath selection, final int maxMatches )
+    {
+        if( maxMatches < 0 ) throw new ValidationException( "maxMatches is negative: %d".formatted( maxMatches ) );
+        m_Selection = selection;
+        m_MaxMatches = maxMatches;
+    }   //  setSelection()
+
+    /**
+     *  Sets the engine that provides the parsers. Per default, the engine
+     *  returned by
+     *  {@link BeautifierEngine#getDefaultEngine()}
+     *  is used.
+     *
+     *  @param  engine  The engine.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void setEngine( final BeautifierEngine engine )
+    {
+        m_Engine = requireNonNullArgument( engine, "engine" );
+    }   //  setEngine()
+
+    /**
+     *  Sets the listener that is notified with the metrics after each
+     *  successful processing. The listener is called on the thread that
+     *  processed the document.
+     *
+     *  @param  listener    The listener; {@code null} to remove the current
+     *      listener.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void setMetricsListener( final Consumer<? super BeautifierMetrics> listener )
+    {
+        m_MetricsListener = listener;
+    }   //  setMetricsListener()
+
+    /**
+     *  Sets a namespace cache that is shared with other instances of
+     *  {@code XMLBeautifier}. Per default, a new cache is used for each
+     *  document.
+     *
+     *  @param  namespaceCache  The shared cache; {@code null} to use a new
+     *      cache for each document.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void setNamespaceCache( final NamespaceCache namespaceCache )
+    {
+        m_SharedNamespaceCache = namespaceCache;
+    }   //  setNamespaceCache()
+
+    /**
+     *  Sets the system ID for input that does not provide one itself, like
+     *  a
+     *  {@link ByteBuffer}
+     *  or a stream. It is used to resolve relative references to external
+     *  entities, and it identifies the document in the
+     *  {@linkplain #getDiagnostics() diagnostics}.
+     *
+     *  @param  systemId    The system ID; {@code null} if there is none.
+     *
+     *  @since 0.4.3
+     */
+    @API( status = STABLE, since = "0.4.3" )
+    public final void setSystemId( final String systemId ) { m_SystemId = systemId; }
 }
 //  class XMLBeautifier
 
@@ -0,0 +1,188 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.apiguardian.api.API.Status.EXPERIMENTAL;
+import static org.tquadrat.foundation.lang.Objects.requireNonNullArgument;
+
+import org.apiguardian.api.API;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.annotation.UtilityClass;
+import org.tquadrat.foundation.exception.PrivateConstructorForStaticClassCalledError;
+
+/**
+ *  Generates XML documents of a given shape and approximate size for the
+ *  benchmarks. The generated documents are deterministic, so that results
+ *  from different runs can be compared.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.4.3
+ *
+ *  @UMLGraph.link
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@API( status = EXPERIMENTAL, since = "0.4.3" )
+@UtilityClass
+public final class XMLCorpus
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The shapes of the generated documents.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.4.3
+     *
+     *  @UMLGraph.link
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @API( status = EXPERIMENTAL, since = "0.4.3" )
+    public enum Shape
+    {
+            /*------------------*\
+        ====** Enum Declaration **=============================================
+            \*------------------*/
+        /**
+         *  Deeply nested elements: chains of
+         *  {@value XMLCorpus#NESTING_DEPTH}
+         *  levels below the root.
+         */
+        DEEP,
+
+        /**
+         *  Many empty sibling elements with a single attribute below the
+         *  root.
+         */
+        WIDE,
+
+        /**
+         *  Elements with ten attributes each.
+         */
+        ATTRIBUTES,
+
+        /**
+         *  SOAP-like records where each element repeats the same few
+         *  namespace declarations.
+         */
+        NAMESPACES
+    }
+    //  enum Shape
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The nesting depth for
+     *  {@link Shape#DEEP}: {@value}.
+     */
+    public static final int NESTING_DEPTH = 64;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private XMLCorpus() { throw new PrivateConstructorForStaticClassCalledError( XMLCorpus.class ); }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Generates a document.
+     *
+     *  @param  shape   The shape of the document.
+     *  @param  size    The approximate size of the document in characters;
+     *      the document will be slightly larger.
+     *  @return The document.
+     */
+    public static final String generate( final Shape shape, final int size )
+    {
+        final var buffer = new StringBuilder( size + 1024 );
+        buffer.append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" );
+        switch( requireNonNullArgument( shape, "shape" ) )
+        {
+            case DEEP ->
+            {
+                buffer.append( "<root>" );
+                for( var record = 0; buffer.length() < size; ++record )
+                {
+                    for( var level = 0; level < NESTING_DEPTH; ++level )
+                    {
+                        buffer.append( "<level" ).append( level ).append( " record=\"" ).append( record ).append( "\">" );
+                    }
+                    for( var level = NESTING_DEPTH - 1; level >= 0; --level )
+                    {
+                        buffer.append( "</level" ).append( level ).append( '>' );
+                    }
+                }
+                buffer.append( "</root>" );
+            }
+
+            case WIDE ->
+            {
+                buffer.append( "<root>" );
+                for( var item = 0; buffer.length() < size; ++item )
+                {
+                    buffer.append( "<item id=\"" ).append( item ).append( "\"/>" );
+                }
+                buffer.append( "</root>" );
+            }
+
+            case ATTRIBUTES ->
+            {
+                buffer.append( "<root>" );
+                for( var record = 0; buffer.length() < size; ++record )
+                {
+                    buffer.append( "<record" );
+                    for( var attribute = 0; attribute < 10; ++attribute )
+                    {
+                        buffer.append( " attribute" ).append( attribute ).append( "=\"value " ).append( record ).append( '.' ).append( attribute ).append( " &amp; more\"" );
+                    }
+                    buffer.append( "/>" );
+                }
+                buffer.append( "</root>" );
+            }
+
+            case NAMESPACES ->
+            {
+                buffer.append( "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" );
+                for( var record = 0; buffer.length() < size; ++record )
+                {
+                    buffer.append( "<ns1:record xmlns:ns1=\"urn:example:records\" xmlns:ns2=\"urn:example:types\" xmlns=\"urn:example:default\" ns2:id=\"" ).append( record ).append( "\">" )
+                        .append( "<ns2:value xmlns:ns2=\"urn:example:types\"/>" )
+                        .append( "</ns1:record>" );
+                }
+                buffer.append( "</soap:Body></soap:Envelope>" );
+            }
+        }
+        buffer.append( '\n' );
+        final var retValue = buffer.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  generate()
+}
+//  class XMLCorpus
+
+/*
+ *  End of File
+ */
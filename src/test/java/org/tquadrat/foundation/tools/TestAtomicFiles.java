@@ -0,0 +1,106 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Some tests for
+ *  {@link AtomicFiles}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestAtomicFiles" )
+public class TestAtomicFiles extends TestBaseClass
+{
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The temporary folder.
+     */
+    @TempDir
+    Path m_TempFolder;
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Tests that a symbolic link is kept, and that the file it points to
+     *  gets the new contents.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testSymbolicLink() throws Exception
+    {
+        skipThreadTest();
+
+        final var directory = Files.createDirectories( m_TempFolder.resolve( "real" ) );
+        final var file = Files.writeString( directory.resolve( "file.xml" ), "<old/>", UTF_8 );
+        final var link = Files.createSymbolicLink( m_TempFolder.resolve( "link.xml" ), file );
+
+        AtomicFiles.write( link, "<new/>" );
+        assertTrue( Files.isSymbolicLink( link ) );
+        assertEquals( file, Files.readSymbolicLink( link ) );
+        assertEquals( "<new/>", Files.readString( file, UTF_8 ) );
+        assertEquals( "<new/>", Files.readString( link, UTF_8 ) );
+
+        //---* No temporary files are left behind *----------------------------
+        try( final var files = Files.list( directory ) )
+        {
+            assertEquals( 1, files.count() );
+        }
+    }   //  testSymbolicLink()
+
+    /**
+     *  Tests replacing and creating a regular file.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testWrite() throws Exception
+    {
+        skipThreadTest();
+
+        final var file = m_TempFolder.resolve( "file.xml" );
+        AtomicFiles.write( file, "<first/>" );
+        assertEquals( "<first/>", Files.readString( file, UTF_8 ) );
+        AtomicFiles.write( file, "<second/>".getBytes( UTF_8 ) );
+        assertEquals( "<second/>", Files.readString( file, UTF_8 ) );
+        assertTrue( Files.isRegularFile( file ) );
+    }   //  testWrite()
+}
+//  class TestAtomicFiles
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,200 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Some tests for
+ *  {@link BatchBeautifier},
+ *  in particular for the termination of the pipeline when a stage fails or
+ *  when the caller is interrupted.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestBatchBeautifier" )
+public class TestBatchBeautifier extends TestBaseClass
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The number of jobs for the tests.
+     */
+    private static final int JOB_COUNT = 64;
+
+    /**
+     *  The time after that a test is considered to hang.
+     */
+    private static final Duration TIMEOUT = Duration.ofSeconds( 30 );
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The temporary folder.
+     */
+    @TempDir
+    Path m_TempFolder;
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Creates the jobs for the tests; the files are formatted in place.
+     *
+     *  @return The jobs.
+     *  @throws Exception   The files could not be created.
+     */
+    private final List<BatchBeautifier.Job> createJobs() throws Exception
+    {
+        final List<BatchBeautifier.Job> retValue = new ArrayList<>( JOB_COUNT );
+        for( var i = 0; i < JOB_COUNT; ++i )
+        {
+            final var file = Files.writeString( m_TempFolder.resolve( "file%02d.xml".formatted( i ) ), "<root><a>%d</a><b/></root>".formatted( i ), UTF_8 );
+            retValue.add( new BatchBeautifier.Job( file, file ) );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  createJobs()
+
+    /**
+     *  Tests that
+     *  {@link BatchBeautifier#run(List)}
+     *  returns when it is interrupted while a stage is blocked.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testInterrupted() throws Exception
+    {
+        skipThreadTest();
+
+        final var jobs = createJobs();
+        final var blocker = new CountDownLatch( 1 );
+        final var reached = new CountDownLatch( 1 );
+        final List<BatchBeautifier.Job> blockingJobs = new AbstractList<>()
+        {
+            @Override
+            public final BatchBeautifier.Job get( final int index )
+            {
+                if( index == JOB_COUNT / 2 )
+                {
+                    reached.countDown();
+                    try
+                    {
+                        blocker.await();
+                    }
+                    catch( final InterruptedException e )
+                    {
+                        throw new IllegalStateException( e );
+                    }
+                }
+                return jobs.get( index );
+            }
+
+            @Override
+            public final int size() { return jobs.size(); }
+        };
+
+        final var batch = new BatchBeautifier( 2, null, false );
+        batch.setReaders( 1 );
+        final var failure = new AtomicReference<Throwable>();
+        final var thread = new Thread( () ->
+        {
+            try
+            {
+                batch.run( blockingJobs );
+            }
+            catch( final Throwable t )
+            {
+                failure.set( t );
+            }
+        } );
+        thread.start();
+        assertTrue( reached.await( TIMEOUT.toSeconds(), SECONDS ) );
+        thread.interrupt();
+        thread.join( TIMEOUT.toMillis() );
+        assertFalse( thread.isAlive() );
+        assertInstanceOf( InterruptedException.class, failure.get() );
+    }   //  testInterrupted()
+
+    /**
+     *  Tests that
+     *  {@link BatchBeautifier#run(List)}
+     *  returns when a stage terminates unexpectedly.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testStageFailure() throws Exception
+    {
+        skipThreadTest();
+
+        final var jobs = createJobs();
+        final List<BatchBeautifier.Job> failingJobs = new AbstractList<>()
+        {
+            @Override
+            public final BatchBeautifier.Job get( final int index )
+            {
+                if( index == JOB_COUNT / 2 ) throw new UnsupportedOperationException( "Killed the read stage" );
+                return jobs.get( index );
+            }
+
+            @Override
+            public final int size() { return jobs.size(); }
+        };
+
+        for( final var streaming : new boolean [] {false, true} )
+        {
+            final var batch = new BatchBeautifier( 2, null, streaming );
+            batch.setReaders( 1 );
+            final var e = assertTimeoutPreemptively( TIMEOUT, () -> assertThrows( IllegalStateException.class, () -> batch.run( failingJobs ) ) );
+            assertInstanceOf( UnsupportedOperationException.class, e.getCause() );
+        }
+    }   //  testStageFailure()
+}
+//  class TestBatchBeautifier
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,164 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.tquadrat.foundation.tools.BeautifierDaemon.MAX_REQUEST_LINE;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Some tests for
+ *  {@link BeautifierDaemon}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestBeautifierDaemon" )
+public class TestBeautifierDaemon extends TestBaseClass
+{
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The temporary folder.
+     */
+    @TempDir
+    Path m_TempFolder;
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Sends the given requests to a daemon and returns the responses.
+     *
+     *  @param  requests    The requests.
+     *  @return The responses.
+     *  @throws Exception   The requests could not be served.
+     */
+    private static final String serve( final String requests ) throws Exception
+    {
+        final var output = new ByteArrayOutputStream();
+        try( final var daemon = new BeautifierDaemon( false ) )
+        {
+            daemon.serve( new ByteArrayInputStream( requests.getBytes( UTF_8 ) ), output, false );
+        }
+        final var retValue = output.toString( UTF_8 );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  serve()
+
+    /**
+     *  Tests that a request line that is too long gets an error response,
+     *  and that the following requests are served.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testLongRequestLine() throws Exception
+    {
+        skipThreadTest();
+
+        final var longLine = "1 FILE /" + "x".repeat( MAX_REQUEST_LINE ) + "\n";
+        assertEquals( "1 ERROR LineTooLongException: Request line too long: more than %d bytes\n2 OK 0\n".formatted( MAX_REQUEST_LINE ), serve( longLine + "2 PING\n" ) );
+
+        final var maxLine = "3 PING " + "x".repeat( MAX_REQUEST_LINE - 7 ) + "\n";
+        assertEquals( "3 OK 0\n", serve( maxLine ) );
+    }   //  testLongRequestLine()
+
+    /**
+     *  Tests the {@value BeautifierDaemon#COMMAND_DATA} command, also with
+     *  malformed requests.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testData() throws Exception
+    {
+        skipThreadTest();
+
+        final var document = "<root><a/></root>";
+        final var expected = new XMLBeautifier( document ).process();
+        final var responses = serve( "1 DATA %d\n%s2 DATA x\n3 DATA %d\n%s".formatted( document.length(), document, document.length(), document ) );
+        final var expectedLength = expected.getBytes( UTF_8 ).length;
+        assertTrue( responses.startsWith( "1 OK %d\n%s2 ERROR ".formatted( expectedLength, expected ) ) );
+        assertTrue( responses.endsWith( "3 OK %d\n%s".formatted( expectedLength, expected ) ) );
+    }   //  testData()
+
+    /**
+     *  Tests that the socket can be used by its owner only.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testSocketPermissions() throws Exception
+    {
+        skipThreadTest();
+
+        assumeTrue( Files.getFileStore( m_TempFolder ).supportsFileAttributeView( PosixFileAttributeView.class ) );
+
+        final var socket = m_TempFolder.resolve( "daemon.sock" );
+        try( final var daemon = new BeautifierDaemon( false ) )
+        {
+            final var thread = Thread.ofVirtual().start( () ->
+            {
+                try
+                {
+                    daemon.serve( socket );
+                }
+                catch( final Exception e )
+                {
+                    throw new IllegalStateException( e );
+                }
+            } );
+            for( var i = 0; i < 500 && !Files.exists( socket ); ++i ) Thread.sleep( 10 );
+
+            assertTrue( Files.exists( socket ) );
+            assertEquals( "rw-------", PosixFilePermissions.toString( Files.getPosixFilePermissions( socket ) ) );
+            try( final var files = Files.list( m_TempFolder ) )
+            {
+                assertEquals( 1, files.count() );
+            }
+
+            daemon.shutdown();
+            thread.join();
+        }
+        assertTrue( Files.notExists( socket ) );
+    }   //  testSocketPermissions()
+}
+//  class TestBeautifierDaemon
+
+/*
+ *  End of File
+ */
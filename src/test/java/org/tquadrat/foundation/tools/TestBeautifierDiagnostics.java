@@ -0,0 +1,230 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.tquadrat.foundation.tools.BeautifierDiagnostics.Severity.ERROR;
+import static org.tquadrat.foundation.tools.BeautifierDiagnostics.Severity.FATAL_ERROR;
+import static org.tquadrat.foundation.tools.BeautifierDiagnostics.Severity.WARNING;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.exception.ValidationException;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+import org.xml.sax.SAXParseException;
+
+/**
+ *  Some tests for
+ *  {@link BeautifierDiagnostics};
+ *  the problems are reported with synthetic instances of
+ *  {@link SAXParseException}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestBeautifierDiagnostics" )
+public class TestBeautifierDiagnostics extends TestBaseClass
+{
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Creates a problem as it would be reported by the parser.
+     *
+     *  @param  message The message.
+     *  @param  systemId    The system ID of the document.
+     *  @param  lineNumber  The line.
+     *  @return The problem.
+     */
+    private static final SAXParseException problem( final String message, final String systemId, final int lineNumber )
+    {
+        final var retValue = new SAXParseException( message, null, systemId, lineNumber, 7 );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  problem()
+
+    /**
+     *  Tests the limit for the number of distinct problems; the counts per
+     *  severity have to be exact anyway.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testCap() throws Exception
+    {
+        skipThreadTest();
+
+        final var candidate = new BeautifierDiagnostics();
+        assertThrows( ValidationException.class, () -> candidate.setMaxDiagnostics( -1 ) );
+        candidate.setMaxDiagnostics( 2 );
+
+        candidate.report( ERROR, problem( "a", "doc.xml", 1 ) );
+        candidate.report( ERROR, problem( "b", "doc.xml", 2 ) );
+        candidate.report( ERROR, problem( "c", "doc.xml", 3 ) );
+        candidate.report( ERROR, problem( "a", "doc.xml", 4 ) );
+        candidate.report( WARNING, problem( "w", "doc.xml", 5 ) );
+        candidate.report( WARNING, problem( "w", "doc.xml", 6 ) );
+
+        assertEquals( 4, candidate.getCount( ERROR ) );
+        assertEquals( 2, candidate.getCount( WARNING ) );
+        assertEquals( 0, candidate.getCount( FATAL_ERROR ) );
+        assertEquals( 6, candidate.getTotalCount() );
+        assertEquals( 3, candidate.getSuppressedCount() );
+
+        final var diagnostics = candidate.getDiagnostics();
+        assertEquals( List.of( "a", "b" ), diagnostics.stream().map( BeautifierDiagnostics.Diagnostic::message ).toList() );
+        assertEquals( 2, diagnostics.get( 0 ).occurrences() );
+        assertEquals( 1, diagnostics.get( 1 ).occurrences() );
+
+        candidate.clear();
+        assertEquals( 0, candidate.getTotalCount() );
+        assertEquals( 0, candidate.getSuppressedCount() );
+        assertTrue( candidate.getDiagnostics().isEmpty() );
+    }   //  testCap()
+
+    /**
+     *  Tests that repeated problems are recorded only once, with the
+     *  location of their first occurrence.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testDeduplication() throws Exception
+    {
+        skipThreadTest();
+
+        final var candidate = new BeautifierDiagnostics();
+        candidate.report( ERROR, problem( "Undeclared element", "a.xml", 3 ) );
+        candidate.report( ERROR, problem( "Undeclared element", "a.xml", 9 ) );
+        candidate.report( ERROR, problem( "Undeclared element", "a.xml", 12 ) );
+        candidate.report( WARNING, problem( "Undeclared element", "a.xml", 14 ) );
+        candidate.report( ERROR, problem( "Undeclared element", "b.xml", 5 ) );
+
+        assertEquals( 4, candidate.getCount( ERROR ) );
+        assertEquals( 1, candidate.getCount( WARNING ) );
+        assertEquals( 0, candidate.getSuppressedCount() );
+
+        final var diagnostics = candidate.getDiagnostics();
+        assertEquals( 3, diagnostics.size() );
+        final var first = diagnostics.get( 0 );
+        assertEquals( ERROR, first.severity() );
+        assertEquals( "a.xml", first.systemId() );
+        assertEquals( 3, first.lineNumber() );
+        assertEquals( 7, first.columnNumber() );
+        assertEquals( 3, first.occurrences() );
+        assertNull( first.exception() );
+        assertEquals( "a.xml:3:7: ERROR: Undeclared element (3 times)", first.toString() );
+        assertEquals( WARNING, diagnostics.get( 1 ).severity() );
+        assertEquals( "b.xml", diagnostics.get( 2 ).systemId() );
+        assertEquals( 1, diagnostics.get( 2 ).occurrences() );
+    }   //  testDeduplication()
+
+    /**
+     *  Tests the rate limit for the echo, and the line with the number of
+     *  the problems that were not shown.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testEchoRateLimit() throws Exception
+    {
+        skipThreadTest();
+
+        final var buffer = new ByteArrayOutputStream();
+        final var candidate = new BeautifierDiagnostics();
+        assertThrows( ValidationException.class, () -> candidate.setEcho( System.err, 0 ) );
+        try( final var echo = new PrintStream( buffer, true, UTF_8 ) )
+        {
+            candidate.setEcho( echo, 2 );
+
+            //---* Only the first occurrence of a problem is echoed *----------
+            candidate.report( WARNING, problem( "first", "doc.xml", 1 ) );
+            candidate.report( WARNING, problem( "first", "doc.xml", 2 ) );
+            candidate.report( WARNING, problem( "second", "doc.xml", 3 ) );
+            candidate.report( WARNING, problem( "third", "doc.xml", 4 ) );
+            candidate.report( WARNING, problem( "fourth", "doc.xml", 5 ) );
+            candidate.report( WARNING, problem( "fifth", "doc.xml", 6 ) );
+            candidate.flush();
+
+            //---* Nothing to flush now *--------------------------------------
+            candidate.flush();
+        }
+
+        final var lines = buffer.toString( UTF_8 ).lines().toList();
+        assertEquals( List.of( "doc.xml:1:7: WARNING: first", "doc.xml:3:7: WARNING: second", "… 3 more problems were not shown" ), lines );
+        assertEquals( 6, candidate.getCount( WARNING ) );
+        assertEquals( 5, candidate.getDiagnostics().size() );
+    }   //  testEchoRateLimit()
+
+    /**
+     *  Tests the JSON report.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testToJSON() throws Exception
+    {
+        skipThreadTest();
+
+        final var candidate = new BeautifierDiagnostics();
+        assertEquals( """
+            {
+              "counts": {"WARNING":0,"ERROR":0,"FATAL_ERROR":0},
+              "suppressed": 0,
+              "diagnostics": []
+            }
+            """, candidate.toJSON() );
+
+        candidate.report( FATAL_ERROR, problem( "Element \"a\" must be\tclosed", "file:/a.xml", 2 ) );
+        candidate.report( WARNING, problem( "No grammar", null, -1 ) );
+        candidate.report( WARNING, problem( "No grammar", null, -1 ) );
+        assertEquals( """
+            {
+              "counts": {"WARNING":2,"ERROR":0,"FATAL_ERROR":1},
+              "suppressed": 0,
+              "diagnostics": [
+                {"severity":"FATAL_ERROR","systemId":"file:/a.xml","line":2,"column":7,"message":"Element \\"a\\" must be\\tclosed","occurrences":1},
+                {"severity":"WARNING","systemId":null,"line":-1,"column":7,"message":"No grammar","occurrences":2}
+              ]
+            }
+            """, candidate.toJSON() );
+
+        //---* The stack traces are included on request *----------------------
+        candidate.setKeepStackTraces( true );
+        candidate.report( ERROR, problem( "Invalid", "file:/b.xml", 1 ) );
+        final var diagnostic = candidate.getDiagnostics().get( 2 );
+        assertEquals( "Invalid", diagnostic.exception().getMessage() );
+        assertTrue( diagnostic.toJSON().contains( ",\"stackTrace\":\"org.xml.sax.SAXParseException" ) );
+    }   //  testToJSON()
+}
+//  class TestBeautifierDiagnostics
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,213 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Some tests for
+ *  {@link BeautifierIndex},
+ *  and for the incremental mode of
+ *  {@link BatchBeautifier}
+ *  that uses it.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestBeautifierIndex" )
+public class TestBeautifierIndex extends TestBaseClass
+{
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The temporary folder.
+     */
+    @TempDir
+    Path m_TempFolder;
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Runs a batch with the given index over the given jobs.
+     *
+     *  @param  index   The index.
+     *  @param  streaming   {@code true} for the streaming mode, {@code false}
+     *      for the tree mode.
+     *  @param  jobs    The jobs.
+     *  @return The flags for the skipped files, in the order of the jobs.
+     *  @throws Exception   The batch failed.
+     */
+    private static final List<Boolean> run( final BeautifierIndex index, final boolean streaming, final List<BatchBeautifier.Job> jobs ) throws Exception
+    {
+        final var batch = new BatchBeautifier( 1, null, streaming );
+        batch.setIndex( index );
+        final var retValue = batch.run( jobs ).outcomes()
+            .stream()
+            .map( BatchBeautifier.Outcome::skipped )
+            .toList();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  run()
+
+    /**
+     *  Tests that a failed file is removed from the index.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testFailure() throws Exception
+    {
+        skipThreadTest();
+
+        final var file = Files.writeString( m_TempFolder.resolve( "file.xml" ), "<root><a/></root>", UTF_8 );
+        final var jobs = List.of( new BatchBeautifier.Job( file, file ) );
+        final var index = BeautifierIndex.load( m_TempFolder.resolve( "index" ) );
+
+        assertEquals( List.of( false ), run( index, false, jobs ) );
+        assertTrue( index.get( file ).isPresent() );
+
+        Files.writeString( file, "<root><a></root>", UTF_8 );
+        final var batch = new BatchBeautifier( 1, null, false );
+        batch.setIndex( index );
+        assertEquals( 1, batch.run( jobs ).failures().size() );
+        assertFalse( index.get( file ).isPresent() );
+    }   //  testFailure()
+
+    /**
+     *  Tests the incremental mode for files that are formatted in place.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testIncrementalInPlace() throws Exception
+    {
+        skipThreadTest();
+
+        final var first = Files.writeString( m_TempFolder.resolve( "first.xml" ), "<root><a x='1'>text</a></root>", UTF_8 );
+        final var second = Files.writeString( m_TempFolder.resolve( "second.xml" ), "<root><b/></root>", UTF_8 );
+        final var jobs = List.of( new BatchBeautifier.Job( first, first ), new BatchBeautifier.Job( second, second ) );
+        final var indexFile = m_TempFolder.resolve( "index" );
+
+        var index = BeautifierIndex.load( indexFile );
+        assertEquals( List.of( false, false ), run( index, false, jobs ) );
+        assertEquals( 2, index.size() );
+        index.save();
+
+        //---* The second run uses the saved index *---------------------------
+        index = BeautifierIndex.load( indexFile );
+        assertEquals( 2, index.size() );
+        assertEquals( List.of( true, true ), run( index, false, jobs ) );
+
+        //---* A changed file is processed again *-----------------------------
+        Files.writeString( second, "<root><b/><c/></root>", UTF_8 );
+        assertEquals( List.of( true, false ), run( index, false, jobs ) );
+        assertEquals( List.of( true, true ), run( index, false, jobs ) );
+
+        //---* Other options invalidate the entries *--------------------------
+        assertEquals( List.of( false, false ), run( index, true, jobs ) );
+        assertEquals( List.of( true, true ), run( index, true, jobs ) );
+    }   //  testIncrementalInPlace()
+
+    /**
+     *  Tests the incremental mode for files that are written to an output
+     *  directory.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testIncrementalWithOutputDirectory() throws Exception
+    {
+        skipThreadTest();
+
+        final var source = Files.writeString( m_TempFolder.resolve( "source.xml" ), "<root><a/></root>", UTF_8 );
+        final var target = Files.createDirectories( m_TempFolder.resolve( "output" ) ).resolve( "source.xml" );
+        final var jobs = List.of( new BatchBeautifier.Job( source, target ) );
+        final var index = BeautifierIndex.load( m_TempFolder.resolve( "index" ) );
+
+        assertEquals( List.of( false ), run( index, false, jobs ) );
+        assertEquals( List.of( true ), run( index, false, jobs ) );
+        assertEquals( BeautifierIndex.hash( target ), index.get( source ).orElseThrow().targetHash() );
+
+        //---* A changed or missing target is written again *------------------
+        Files.writeString( target, "changed", UTF_8 );
+        assertEquals( List.of( false ), run( index, false, jobs ) );
+        Files.delete( target );
+        assertEquals( List.of( false ), run( index, false, jobs ) );
+        assertTrue( Files.isRegularFile( target ) );
+        assertEquals( List.of( true ), run( index, false, jobs ) );
+    }   //  testIncrementalWithOutputDirectory()
+
+    /**
+     *  Tests saving and loading an index.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testSaveAndLoad() throws Exception
+    {
+        skipThreadTest();
+
+        final var indexFile = m_TempFolder.resolve( "index" );
+        var candidate = BeautifierIndex.load( indexFile );
+        assertEquals( 0, candidate.size() );
+
+        //---* An unmodified index is not written *----------------------------
+        candidate.save();
+        assertFalse( Files.exists( indexFile ) );
+
+        final var entry = new BeautifierIndex.Entry( "source", "target", "format=2,mode=tree,entities=DEFAULT" );
+        candidate.put( m_TempFolder.resolve( "a.xml" ), entry );
+        candidate.put( m_TempFolder.resolve( "dir/../b.xml" ), new BeautifierIndex.Entry( "s", "t", "o" ) );
+        candidate.put( m_TempFolder.resolve( "c.xml" ), new BeautifierIndex.Entry( "s", "t", "o" ) );
+        candidate.remove( m_TempFolder.resolve( "c.xml" ) );
+        candidate.save();
+        assertEquals( BeautifierIndex.HEADER, Files.readAllLines( indexFile, UTF_8 ).get( 0 ) );
+
+        candidate = BeautifierIndex.load( indexFile );
+        assertEquals( 2, candidate.size() );
+        assertEquals( entry, candidate.get( m_TempFolder.resolve( "a.xml" ) ).orElseThrow() );
+        assertTrue( candidate.get( m_TempFolder.resolve( "b.xml" ) ).isPresent() );
+        assertFalse( candidate.get( m_TempFolder.resolve( "c.xml" ) ).isPresent() );
+
+        //---* An index with another header is ignored *-----------------------
+        Files.writeString( indexFile, "# another format\nsource\ttarget\toptions\t/a.xml\n", UTF_8 );
+        assertEquals( 0, BeautifierIndex.load( indexFile ).size() );
+    }   //  testSaveAndLoad()
+}
+//  class TestBeautifierIndex
+
+/*
+ *  End of File
+ */
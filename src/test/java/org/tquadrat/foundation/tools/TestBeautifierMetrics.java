@@ -0,0 +1,147 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Some tests for
+ *  {@link BeautifierMetrics},
+ *  as they are collected by
+ *  {@link XMLBeautifier}
+ *  for a fixed document.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestBeautifierMetrics" )
+public class TestBeautifierMetrics extends TestBaseClass
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The document for the tests: five elements, nested four levels deep,
+     *  and two processing instructions, one of them in the prolog. The
+     *  umlauts make the number of bytes differ from the number of
+     *  characters.
+     */
+    private static final String DOCUMENT = """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <?first a?>
+        <root><a><b><c/></b></a><d>Grüße</d><?second b?></root>
+        """;
+
+    /**
+     *  The number of elements in the document.
+     */
+    private static final long ELEMENT_COUNT = 5L;
+
+    /**
+     *  The maximum nesting depth in the document; the root element has the
+     *  depth 1.
+     */
+    private static final int MAX_DEPTH = 4;
+
+    /**
+     *  The number of processing instructions in the document.
+     */
+    private static final long PI_COUNT = 2L;
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Tests the metrics in streaming mode.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testStreamingMode() throws Exception
+    {
+        skipThreadTest();
+
+        final var bytes = DOCUMENT.getBytes( UTF_8 );
+        final var candidate = new XMLBeautifier( new ByteArrayInputStream( bytes ) );
+        final var output = new StringWriter();
+        candidate.process( output );
+        assertTrue( output.toString().contains( "Grüße" ) );
+
+        final var metrics = candidate.getMetrics().orElseThrow();
+        assertEquals( BeautifierMetrics.Mode.STREAMING, metrics.mode() );
+        assertEquals( ELEMENT_COUNT, metrics.elementCount() );
+        assertEquals( MAX_DEPTH, metrics.maxDepth() );
+        assertEquals( PI_COUNT, metrics.processingInstructionCount() );
+        assertEquals( bytes.length, metrics.bytesIn() );
+        assertEquals( output.toString().length(), metrics.charactersOut() );
+    }   //  testStreamingMode()
+
+    /**
+     *  Tests the metrics in tree mode, and that the listener gets the same
+     *  metrics.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testTreeMode() throws Exception
+    {
+        skipThreadTest();
+
+        final var bytes = DOCUMENT.getBytes( UTF_8 );
+        assertTrue( bytes.length > DOCUMENT.length() );
+        final var candidate = new XMLBeautifier( new ByteArrayInputStream( bytes ) );
+        final var published = new AtomicReference<BeautifierMetrics>();
+        candidate.setMetricsListener( published::set );
+        final var output = candidate.process();
+        assertTrue( output.contains( "Grüße" ) );
+
+        final var metrics = candidate.getMetrics().orElseThrow();
+        assertSame( metrics, published.get() );
+        assertEquals( BeautifierMetrics.Mode.TREE, metrics.mode() );
+        assertEquals( ELEMENT_COUNT, metrics.elementCount() );
+        assertEquals( MAX_DEPTH, metrics.maxDepth() );
+        assertEquals( PI_COUNT, metrics.processingInstructionCount() );
+        assertEquals( bytes.length, metrics.bytesIn() );
+        assertEquals( output.length(), metrics.charactersOut() );
+
+        //---* No bytes are read for a String *--------------------------------
+        final var fromString = new XMLBeautifier( DOCUMENT );
+        fromString.process();
+        final var stringMetrics = fromString.getMetrics().orElseThrow();
+        assertEquals( -1L, stringMetrics.bytesIn() );
+        assertEquals( ELEMENT_COUNT, stringMetrics.elementCount() );
+    }   //  testTreeMode()
+}
+//  class TestBeautifierMetrics
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,267 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Some tests for
+ *  {@link BeautifierWatcher};
+ *  the watcher runs on a virtual thread with a short debounce delay.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestBeautifierWatcher" )
+public class TestBeautifierWatcher extends TestBaseClass
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The debounce delay for the tests.
+     */
+    private static final Duration DEBOUNCE = Duration.ofMillis( 250 );
+
+    /**
+     *  The time to wait for the watcher to settle after the expected
+     *  results were seen; events that arrive late are processed within
+     *  this time.
+     */
+    private static final Duration SETTLE = DEBOUNCE.multipliedBy( 4 );
+
+    /**
+     *  The time after that the watcher is considered to have missed a
+     *  change.
+     */
+    private static final Duration TIMEOUT = Duration.ofSeconds( 30 );
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The temporary folder.
+     */
+    @TempDir
+    Path m_TempFolder;
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Waits until the given counter reaches the expected value.
+     *
+     *  @param  counter The counter.
+     *  @param  expected    The expected value.
+     *  @throws Exception   The wait was interrupted.
+     */
+    private static final void await( final LongSupplier counter, final long expected ) throws Exception
+    {
+        final var deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while( (counter.getAsLong() < expected) && (System.nanoTime() < deadline) ) Thread.sleep( 20 );
+        assertEquals( expected, counter.getAsLong() );
+    }   //  await()
+
+    /**
+     *  Returns the formatted form of the given document.
+     *
+     *  @param  document    The document.
+     *  @return The formatted document.
+     *  @throws Exception   The document could not be formatted.
+     */
+    private static final String format( final String document ) throws Exception
+    {
+        final var retValue = new XMLBeautifier( document ).process();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  format()
+
+    /**
+     *  Starts the given watcher on a virtual thread.
+     *
+     *  @param  watcher The watcher.
+     *  @return The thread.
+     */
+    private static final Thread start( final BeautifierWatcher watcher )
+    {
+        watcher.setDebounce( DEBOUNCE );
+        final var retValue = Thread.ofVirtual().start( () ->
+        {
+            try
+            {
+                watcher.run();
+            }
+            catch( final Exception e )
+            {
+                throw new IllegalStateException( e );
+            }
+        } );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  start()
+
+    /**
+     *  Stops the given watcher and waits for its thread.
+     *
+     *  @param  watcher The watcher.
+     *  @param  thread  The thread of the watcher.
+     *  @throws Exception   The watcher could not be stopped.
+     */
+    private static final void stop( final BeautifierWatcher watcher, final Thread thread ) throws Exception
+    {
+        watcher.close();
+        assertTrue( thread.join( TIMEOUT ) );
+    }   //  stop()
+
+    /**
+     *  Tests that an already formatted file is left alone.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testAlreadyFormatted() throws Exception
+    {
+        skipThreadTest();
+
+        final var formatted = format( "<root><a>text</a><b/></root>" );
+        final var file = m_TempFolder.resolve( "formatted.xml" );
+        final var watcher = new BeautifierWatcher( List.of( m_TempFolder ), null, false );
+        final var thread = start( watcher );
+        try
+        {
+            Files.writeString( file, formatted, UTF_8 );
+            await( watcher::getUnchangedCount, 1 );
+            final var modified = Files.getLastModifiedTime( file );
+            Thread.sleep( SETTLE.toMillis() );
+
+            assertEquals( 1, watcher.getUnchangedCount() );
+            assertEquals( 0, watcher.getWrittenCount() );
+            assertEquals( formatted, Files.readString( file, UTF_8 ) );
+            assertEquals( modified, Files.getLastModifiedTime( file ) );
+        }
+        finally
+        {
+            stop( watcher, thread );
+        }
+    }   //  testAlreadyFormatted()
+
+    /**
+     *  Tests that a burst of writes to a file is processed once, and that
+     *  the watcher's own write does not trigger another run.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testBurstIsDebounced() throws Exception
+    {
+        skipThreadTest();
+
+        final var file = m_TempFolder.resolve( "burst.xml" );
+        final var watcher = new BeautifierWatcher( List.of( m_TempFolder ), null, false );
+        final var thread = start( watcher );
+        try
+        {
+            for( var i = 1; i <= 5; ++i )
+            {
+                Files.writeString( file, "<root><a>%d</a>%s</root>".formatted( i, "<b/>".repeat( i ) ), UTF_8 );
+                Thread.sleep( 20 );
+            }
+            await( watcher::getWrittenCount, 1 );
+            Thread.sleep( SETTLE.toMillis() );
+
+            //---* One run for the burst; the own write is not reformatted *---
+            assertEquals( 1, watcher.getWrittenCount() );
+            assertEquals( 0, watcher.getUnchangedCount() );
+            assertEquals( format( "<root><a>5</a><b/><b/><b/><b/><b/></root>" ), Files.readString( file, UTF_8 ) );
+
+            //---* Another change is processed again *------------------------
+            Files.writeString( file, "<root><c/></root>", UTF_8 );
+            await( watcher::getWrittenCount, 2 );
+            Thread.sleep( SETTLE.toMillis() );
+            assertEquals( 2, watcher.getWrittenCount() );
+            assertEquals( 0, watcher.getUnchangedCount() );
+            assertEquals( format( "<root><c/></root>" ), Files.readString( file, UTF_8 ) );
+        }
+        finally
+        {
+            stop( watcher, thread );
+        }
+    }   //  testBurstIsDebounced()
+
+    /**
+     *  Tests that files in a new subdirectory are processed, both those
+     *  that exist when the directory is registered and those that are
+     *  created later.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testNewSubdirectory() throws Exception
+    {
+        skipThreadTest();
+
+        final var watcher = new BeautifierWatcher( List.of( m_TempFolder ), null, false );
+        final var thread = start( watcher );
+        try
+        {
+            final var subdirectory = Files.createDirectories( m_TempFolder.resolve( "sub" ).resolve( "deeper" ) );
+            final var first = Files.writeString( subdirectory.resolve( "first.xml" ), "<root><a/></root>", UTF_8 );
+            await( watcher::getWrittenCount, 1 );
+            assertEquals( format( "<root><a/></root>" ), Files.readString( first, UTF_8 ) );
+
+            //---* The new directory is watched now *--------------------------
+            Thread.sleep( SETTLE.toMillis() );
+            final var second = Files.writeString( subdirectory.resolve( "second.xml" ), "<root><b/></root>", UTF_8 );
+            await( watcher::getWrittenCount, 2 );
+            assertEquals( format( "<root><b/></root>" ), Files.readString( second, UTF_8 ) );
+
+            //---* Other files are ignored *-----------------------------------
+            Files.writeString( subdirectory.resolve( "notes.txt" ), "<root><c/></root>", UTF_8 );
+            Thread.sleep( SETTLE.toMillis() );
+            assertEquals( 2, watcher.getWrittenCount() );
+            assertFalse( Files.readString( subdirectory.resolve( "notes.txt" ), UTF_8 ).contains( "\n" ) );
+        }
+        finally
+        {
+            stop( watcher, thread );
+        }
+    }   //  testNewSubdirectory()
+}
+//  class TestBeautifierWatcher
+
+/*
+ *  End of File
+ */
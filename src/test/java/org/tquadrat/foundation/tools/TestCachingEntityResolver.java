@@ -0,0 +1,278 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.tquadrat.foundation.lang.Objects.nonNull;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+import org.xml.sax.InputSource;
+
+/**
+ *  Some tests for
+ *  {@link CachingEntityResolver},
+ *  in particular for the policies
+ *  {@link CachingEntityResolver.Policy#OFFLINE OFFLINE}
+ *  and
+ *  {@link CachingEntityResolver.Policy#DISABLED DISABLED}.
+ *  The remote system ids use the reserved top level domain
+ *  {@code .invalid}, so no test will ever reach a remote host.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestCachingEntityResolver" )
+public class TestCachingEntityResolver extends TestBaseClass
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  A remote system id.
+     */
+    private static final String REMOTE = "http://example.invalid/dtd/remote.dtd";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The temporary folder.
+     */
+    @TempDir
+    Path m_TempFolder;
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Reads the contents of the given entity.
+     *
+     *  @param  source  The entity.
+     *  @return The contents.
+     *  @throws Exception   The entity could not be read.
+     */
+    private static final String contents( final InputSource source ) throws Exception
+    {
+        final String retValue;
+        if( nonNull( source.getByteStream() ) )
+        {
+            retValue = new String( source.getByteStream().readAllBytes(), UTF_8 );
+        }
+        else
+        {
+            final var buffer = new StringWriter();
+            source.getCharacterStream().transferTo( buffer );
+            retValue = buffer.toString();
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  contents()
+
+    /**
+     *  Returns the name of the file in the cache directory for the given
+     *  absolute system id, as it is determined by
+     *  {@link CachingEntityResolver}.
+     *
+     *  @param  systemId    The system id.
+     *  @return The file name.
+     *  @throws Exception   The name could not be determined.
+     */
+    private static final String cacheFileName( final String systemId ) throws Exception
+    {
+        final var digest = MessageDigest.getInstance( "SHA-256" );
+        final var retValue = HexFormat.of().formatHex( digest.digest( systemId.getBytes( UTF_8 ) ) ) + ".entity";
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  cacheFileName()
+
+    /**
+     *  Tests that with the policy
+     *  {@link CachingEntityResolver.Policy#DISABLED DISABLED},
+     *  all entities are replaced by an empty entity, even local ones and
+     *  those in the cache directory.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testDisabled() throws Exception
+    {
+        skipThreadTest();
+
+        final var cacheDirectory = Files.createDirectories( m_TempFolder.resolve( "cache" ) );
+        Files.writeString( cacheDirectory.resolve( cacheFileName( REMOTE ) ), "<!ENTITY cached 'cached'>", UTF_8 );
+        final var local = Files.writeString( m_TempFolder.resolve( "local.dtd" ), "<!ENTITY local 'local'>", UTF_8 );
+
+        final var candidate = new CachingEntityResolver( cacheDirectory, CachingEntityResolver.Policy.DISABLED, null );
+        assertEquals( "", contents( candidate.resolveEntity( null, REMOTE ) ) );
+        assertEquals( "", contents( candidate.resolveEntity( null, local.toUri().toString() ) ) );
+        assertEquals( 2, candidate.getUnresolved() );
+        assertEquals( 0, candidate.getHits() );
+        assertEquals( 0, candidate.getMisses() );
+    }   //  testDisabled()
+
+    /**
+     *  Tests that the policy
+     *  {@link CachingEntityResolver.Policy#DISABLED DISABLED}
+     *  is honoured when a document with an external DTD is processed.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testDisabledForDocument() throws Exception
+    {
+        skipThreadTest();
+
+        final var resolver = new CachingEntityResolver( CachingEntityResolver.Policy.DISABLED );
+        final var engine = new BeautifierEngine( 0 );
+        engine.setEntityResolver( resolver );
+        final var beautifier = new XMLBeautifier( "<!DOCTYPE root SYSTEM \"" + REMOTE + "\"><root><a>text</a></root>" );
+        beautifier.setEngine( engine );
+
+        assertTrue( beautifier.process().contains( "<a>text</a>" ) );
+        assertEquals( 1, resolver.getUnresolved() );
+    }   //  testDisabledForDocument()
+
+    /**
+     *  Tests that with the policy
+     *  {@link CachingEntityResolver.Policy#OFFLINE OFFLINE},
+     *  remote entities are served from the cache directory, and those that
+     *  are not in the cache are replaced by an empty entity.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testOfflineRemote() throws Exception
+    {
+        skipThreadTest();
+
+        final var cacheDirectory = Files.createDirectories( m_TempFolder.resolve( "cache" ) );
+        Files.writeString( cacheDirectory.resolve( cacheFileName( REMOTE ) ), "<!ENTITY cached 'cached'>", UTF_8 );
+
+        final var candidate = new CachingEntityResolver( cacheDirectory, CachingEntityResolver.Policy.OFFLINE, null );
+        assertEquals( "<!ENTITY cached 'cached'>", contents( candidate.resolveEntity( null, REMOTE ) ) );
+        assertEquals( 1, candidate.getDiskHits() );
+        assertEquals( "<!ENTITY cached 'cached'>", contents( candidate.resolveEntity( null, REMOTE ) ) );
+        assertEquals( 2, candidate.getHits() );
+        assertEquals( 1, candidate.getDiskHits() );
+
+        final var result = candidate.resolveEntity( null, "http://example.invalid/dtd/unknown.dtd" );
+        assertEquals( "", contents( result ) );
+        assertEquals( "http://example.invalid/dtd/unknown.dtd", result.getSystemId() );
+        assertEquals( 1, candidate.getMisses() );
+        assertEquals( 1, candidate.getUnresolved() );
+
+        //---* Relative system ids are resolved against the base URI *---------
+        final var relative = candidate.resolveEntity( "[dtd]", null, "http://example.invalid/dtd/document.xml", "remote.dtd" );
+        assertEquals( "<!ENTITY cached 'cached'>", contents( relative ) );
+        assertEquals( REMOTE, relative.getSystemId() );
+    }   //  testOfflineRemote()
+
+    /**
+     *  Tests that with the policy
+     *  {@link CachingEntityResolver.Policy#OFFLINE OFFLINE},
+     *  local files and the copies from the catalog are used, and that local
+     *  files are read again after they were changed.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testOfflineLocal() throws Exception
+    {
+        skipThreadTest();
+
+        final var cacheDirectory = Files.createDirectories( m_TempFolder.resolve( "cache" ) );
+        final var local = Files.writeString( m_TempFolder.resolve( "local.dtd" ), "<!ENTITY local 'first'>", UTF_8 );
+        final var copy = Files.writeString( m_TempFolder.resolve( "copy.dtd" ), "<!ENTITY copy 'copy'>", UTF_8 );
+        final var catalogued = "http://example.invalid/dtd/catalogued.dtd";
+        final var candidate = new CachingEntityResolver( cacheDirectory, CachingEntityResolver.Policy.OFFLINE, ( publicId, systemId ) ->
+        {
+            InputSource retValue = null;
+            if( catalogued.equals( systemId ) ) retValue = new InputSource( copy.toUri().toString() );
+            return retValue;
+        } );
+
+        final var systemId = local.toUri().toString();
+        assertEquals( "<!ENTITY local 'first'>", contents( candidate.resolveEntity( null, systemId ) ) );
+        assertEquals( "<!ENTITY local 'first'>", contents( candidate.resolveEntity( null, systemId ) ) );
+        assertEquals( 1, candidate.getMisses() );
+        assertEquals( 1, candidate.getHits() );
+
+        Files.writeString( local, "<!ENTITY local 'second, longer'>", UTF_8 );
+        Files.setLastModifiedTime( local, FileTime.fromMillis( Files.getLastModifiedTime( local ).toMillis() + 2_000 ) );
+        assertEquals( "<!ENTITY local 'second, longer'>", contents( candidate.resolveEntity( null, systemId ) ) );
+        assertEquals( 2, candidate.getMisses() );
+
+        final var result = candidate.resolveEntity( null, catalogued );
+        assertEquals( "<!ENTITY copy 'copy'>", contents( result ) );
+        assertEquals( catalogued, result.getSystemId() );
+        assertEquals( 0, candidate.getUnresolved() );
+
+        //---* Neither local files nor catalog copies go to the disk cache *---
+        try( final var files = Files.list( cacheDirectory ) )
+        {
+            assertEquals( 0, files.count() );
+        }
+    }   //  testOfflineLocal()
+
+    /**
+     *  Tests that with the policy
+     *  {@link CachingEntityResolver.Policy#OFFLINE OFFLINE},
+     *  a document with an external DTD that is neither cached nor local can
+     *  be processed.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testOfflineForDocument() throws Exception
+    {
+        skipThreadTest();
+
+        final var resolver = new CachingEntityResolver( CachingEntityResolver.Policy.OFFLINE );
+        final var engine = new BeautifierEngine( 0 );
+        engine.setEntityResolver( resolver );
+        final var document = "<!DOCTYPE root SYSTEM \"" + REMOTE + "\"><root><a>text</a></root>";
+        for( var i = 0; i < 2; ++i )
+        {
+            final var beautifier = new XMLBeautifier( document );
+            beautifier.setEngine( engine );
+            assertTrue( beautifier.process().contains( "<a>text</a>" ) );
+        }
+        assertEquals( 2, resolver.getUnresolved() );
+    }   //  testOfflineForDocument()
+}
+//  class TestCachingEntityResolver
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,357 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Some tests for
+ *  {@link Compression}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestCompression" )
+public class TestCompression extends TestBaseClass
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  An output stream that records whether it was closed.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    private static final class TrackingOutputStream extends ByteArrayOutputStream
+    {
+        /**
+         *  The number of calls to
+         *  {@link #close()}.
+         */
+        int m_CloseCount = 0;
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void close() throws IOException
+        {
+            ++m_CloseCount;
+            super.close();
+        }   //  close()
+    }
+    //  class TrackingOutputStream
+
+    /**
+     *  An input stream that records whether it was closed.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    private static final class TrackingInputStream extends ByteArrayInputStream
+    {
+        /**
+         *  The number of calls to
+         *  {@link #close()}.
+         */
+        int m_CloseCount = 0;
+
+        /**
+         *  Creates a new instance of {@code TrackingInputStream}.
+         *
+         *  @param  data    The data.
+         */
+        TrackingInputStream( final byte [] data ) { super( data ); }
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void close() throws IOException
+        {
+            ++m_CloseCount;
+            super.close();
+        }   //  close()
+    }
+    //  class TrackingInputStream
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The document for the tests.
+     */
+    private static final String DOCUMENT = """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <root><item id="1">äöü – 😀</item><item id="2"/></root>
+        """;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The temporary folder.
+     */
+    @TempDir
+    Path m_TempFolder;
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Detects the compression format of the given bytes, and checks that
+     *  the position of the stream was not changed.
+     *
+     *  @param  data    The bytes.
+     *  @return The compression format.
+     *  @throws IOException The detection failed.
+     */
+    private static final Compression detect( final byte [] data ) throws IOException
+    {
+        final InputStream inputStream = new BufferedInputStream( new ByteArrayInputStream( data ) );
+        final var retValue = Compression.detect( inputStream );
+        assertArrayEquals( data, inputStream.readAllBytes() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  detect()
+
+    /**
+     *  Tests that the streams for the compressed formats close the
+     *  underlying stream, that the trailer is written on
+     *  {@link java.io.OutputStream#close() close()},
+     *  and that closing them twice is harmless. For
+     *  {@link Compression#DEFLATE},
+     *  the streams have their own
+     *  {@code close()}
+     *  that also ends the deflater or inflater.
+     *
+     *  @param  compression The compression format.
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @ParameterizedTest
+    @EnumSource( value = Compression.class, names = {"GZIP", "DEFLATE"} )
+    final void testClose( final Compression compression ) throws Exception
+    {
+        skipThreadTest();
+
+        final var target = new TrackingOutputStream();
+        final var outputStream = compression.compress( target );
+        outputStream.write( DOCUMENT.getBytes( UTF_8 ) );
+        outputStream.close();
+        outputStream.close();
+        assertEquals( 1, target.m_CloseCount );
+
+        final var source = new TrackingInputStream( target.toByteArray() );
+        final var inputStream = compression.decompress( source );
+        assertEquals( DOCUMENT, new String( inputStream.readAllBytes(), UTF_8 ) );
+        inputStream.close();
+        inputStream.close();
+        assertTrue( source.m_CloseCount > 0 );
+
+        if( compression == Compression.DEFLATE )
+        {
+            assertEquals( outputStream.getClass(), outputStream.getClass().getMethod( "close" ).getDeclaringClass() );
+            assertEquals( inputStream.getClass(), inputStream.getClass().getMethod( "close" ).getDeclaringClass() );
+        }
+    }   //  testClose()
+
+    /**
+     *  Tests the detection of the compression formats from their magic
+     *  bytes: {@code 1F 8B} for gzip, and for zlib a compression method of
+     *  8, a window size of at most 32&nbsp;KiB, and a header that is a
+     *  multiple of 31.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testDetectMagicBytes() throws Exception
+    {
+        skipThreadTest();
+
+        final var hex = HexFormat.of();
+        assertEquals( Compression.GZIP, detect( hex.parseHex( "1f8b08000000" ) ) );
+        assertEquals( Compression.NONE, detect( hex.parseHex( "1f8c08000000" ) ) );
+        assertEquals( Compression.NONE, detect( hex.parseHex( "8b1f" ) ) );
+
+        //---* The usual zlib headers, for the levels 1, 6 and 9 *-------------
+        assertEquals( Compression.DEFLATE, detect( hex.parseHex( "7801" ) ) );
+        assertEquals( Compression.DEFLATE, detect( hex.parseHex( "789c" ) ) );
+        assertEquals( Compression.DEFLATE, detect( hex.parseHex( "78da" ) ) );
+
+        //---* A smaller window size *-----------------------------------------
+        assertEquals( Compression.DEFLATE, detect( hex.parseHex( "081d" ) ) );
+
+        //---* Not a multiple of 31 *------------------------------------------
+        assertEquals( Compression.NONE, detect( hex.parseHex( "789d" ) ) );
+
+        //---* The window size is too large *----------------------------------
+        assertEquals( Compression.NONE, detect( hex.parseHex( "881c" ) ) );
+
+        //---* Another compression method *------------------------------------
+        assertEquals( Compression.NONE, detect( hex.parseHex( "7918" ) ) );
+    }   //  testDetectMagicBytes()
+
+    /**
+     *  Tests that plain XML is not mistaken for compressed data, also when
+     *  it starts with whitespace or a byte order mark.
+     *
+     *  @param  prefix  The text before the document.
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @ParameterizedTest
+    @ValueSource( strings = {"", " ", "\t", "\n", "\r\n", "\uFEFF", "<!-- comment -->"} )
+    final void testDetectPlain( final String prefix ) throws Exception
+    {
+        skipThreadTest();
+
+        final var document = prefix + "<root/>";
+        assertEquals( Compression.NONE, detect( document.getBytes( UTF_8 ) ) );
+        assertEquals( Compression.NONE, detect( document.getBytes( UTF_16 ) ) );
+
+        final var file = Files.writeString( m_TempFolder.resolve( "plain.xml" ), document, UTF_8 );
+        assertEquals( Compression.NONE, Compression.detect( file ) );
+        try( final var inputStream = Compression.openInput( file ) )
+        {
+            assertEquals( document, new String( inputStream.readAllBytes(), UTF_8 ) );
+        }
+    }   //  testDetectPlain()
+
+    /**
+     *  Tests the detection for files that are too short for a header.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testDetectShortFiles() throws Exception
+    {
+        skipThreadTest();
+
+        final var hex = HexFormat.of();
+        for( final var data : new String [] {"", "1f", "78", "3c"} )
+        {
+            final var bytes = hex.parseHex( data );
+            assertEquals( Compression.NONE, detect( bytes ), data );
+
+            final var file = Files.write( m_TempFolder.resolve( "short.xml" ), bytes );
+            assertEquals( Compression.NONE, Compression.detect( file ), data );
+            try( final var inputStream = Compression.openInput( file ) )
+            {
+                assertArrayEquals( bytes, inputStream.readAllBytes() );
+            }
+        }
+    }   //  testDetectShortFiles()
+
+    /**
+     *  Tests the compression formats for the file names.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testForFileName() throws Exception
+    {
+        skipThreadTest();
+
+        assertEquals( Compression.NONE, Compression.forFileName( Path.of( "doc.xml" ) ) );
+        assertEquals( Compression.GZIP, Compression.forFileName( Path.of( "doc.xml.gz" ) ) );
+        assertEquals( Compression.GZIP, Compression.forFileName( Path.of( "DOC.XML.GZIP" ) ) );
+        assertEquals( Compression.DEFLATE, Compression.forFileName( Path.of( "doc.xml.zz" ) ) );
+        assertEquals( Compression.DEFLATE, Compression.forFileName( Path.of( "doc.xml.zlib" ) ) );
+        assertEquals( Compression.DEFLATE, Compression.forFileName( Path.of( "doc.xml.deflate" ) ) );
+
+        assertTrue( Compression.isXMLFileName( Path.of( "doc.xml" ) ) );
+        assertTrue( Compression.isXMLFileName( Path.of( "doc.xml.gz" ) ) );
+        assertTrue( Compression.isXMLFileName( Path.of( "doc.XML.zz" ) ) );
+        assertFalse( Compression.isXMLFileName( Path.of( "doc.gz" ) ) );
+        assertFalse( Compression.isXMLFileName( Path.of( "doc.txt" ) ) );
+    }   //  testForFileName()
+
+    /**
+     *  Tests that a document survives writing it with
+     *  {@link Compression#openOutput(Path)}
+     *  and reading it with
+     *  {@link Compression#openInput(Path)}.
+     *
+     *  @param  fileName    The name of the file; its extension determines
+     *      the compression format.
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @ParameterizedTest
+    @ValueSource( strings = {"doc.xml", "doc.xml.gz", "doc.xml.zz"} )
+    final void testRoundTrip( final String fileName ) throws Exception
+    {
+        skipThreadTest();
+
+        final var file = m_TempFolder.resolve( fileName );
+        final var compression = Compression.forFileName( file );
+        try( final var outputStream = Compression.openOutput( file ) )
+        {
+            outputStream.write( DOCUMENT.getBytes( UTF_8 ) );
+        }
+        assertEquals( compression, Compression.detect( file ) );
+        if( compression == Compression.NONE )
+        {
+            assertEquals( DOCUMENT, Files.readString( file, UTF_8 ) );
+        }
+        else
+        {
+            assertFalse( Files.readString( file, ISO_8859_1 ).contains( "<root>" ) );
+        }
+        try( final var inputStream = Compression.openInput( file ) )
+        {
+            assertEquals( DOCUMENT, new String( inputStream.readAllBytes(), UTF_8 ) );
+        }
+
+        //---* The beautifier reads the compressed file, too *-----------------
+        final var beautifier = new XMLBeautifier( file );
+        assertTrue( beautifier.process().contains( "<item id=\"2\"/>" ) );
+    }   //  testRoundTrip()
+}
+//  class TestCompression
+
+/*
+ *  End of File
+ */
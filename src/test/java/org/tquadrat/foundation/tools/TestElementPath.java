@@ -0,0 +1,323 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.exception.ValidationException;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ *  Some tests for the class
+ *  {@link ElementPath},
+ *  and for the selection with
+ *  {@link XMLBeautifier#setSelection(ElementPath, int)}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestElementPath" )
+public class TestElementPath extends TestBaseClass
+{
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Creates the attributes for an element.
+     *
+     *  @param  nameValuePairs  The names and values of the attributes.
+     *  @return The attributes.
+     */
+    private static final AttributesImpl attributes( final String... nameValuePairs )
+    {
+        final var retValue = new AttributesImpl();
+        for( var i = 0; i < nameValuePairs.length; i += 2 )
+        {
+            retValue.addAttribute( "", "", nameValuePairs [i], "CDATA", nameValuePairs [i + 1] );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  attributes()
+
+    /**
+     *  Checks whether the last element of the given chain of elements
+     *  matches the path; each element is the first child of its parent,
+     *  without attributes.
+     *
+     *  @param  path    The path.
+     *  @param  names   The names of the elements, starting with the root
+     *      element.
+     *  @return {@code true} if the last element matches, {@code false}
+     *      otherwise.
+     */
+    private static final boolean matches( final ElementPath path, final String... names )
+    {
+        var state = path.initialState();
+        for( final var name : names ) state = path.nextState( state, name, attributes(), 1, 1 );
+        final var retValue = path.isMatch( state );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  matches()
+
+    /**
+     *  Selects the subtrees that match the given path, in tree mode and in
+     *  streaming mode, and checks that both produce the same output.
+     *
+     *  @param  document    The document.
+     *  @param  path    The path.
+     *  @param  limit   The maximum number of matches; 0 for no limit.
+     *  @return The output.
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    private static final String select( final String document, final String path, final int limit ) throws Exception
+    {
+        final var beautifier = new XMLBeautifier( document );
+        beautifier.setSelection( ElementPath.compile( path ), limit );
+        final var retValue = beautifier.process();
+
+        final var streaming = new XMLBeautifier( document );
+        streaming.setSelection( ElementPath.compile( path ), limit );
+        final var target = new StringWriter();
+        streaming.process( target );
+        assertEquals( retValue, target.toString() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  select()
+
+    /**
+     *  Tests the attribute predicates.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testAttributePredicate() throws Exception
+    {
+        skipThreadTest();
+
+        final var path = ElementPath.compile( "//b[@id='4']" );
+        final var root = path.nextState( path.initialState(), "a", attributes(), 1, 1 );
+        assertTrue( path.isMatch( path.nextState( root, "b", attributes( "id", "4" ), 1, 1 ) ) );
+        assertFalse( path.isMatch( path.nextState( root, "b", attributes( "id", "5" ), 1, 1 ) ) );
+        assertFalse( path.isMatch( path.nextState( root, "b", attributes(), 1, 1 ) ) );
+        assertFalse( path.isMatch( path.nextState( root, "c", attributes( "id", "4" ), 1, 1 ) ) );
+
+        final var doubleQuoted = ElementPath.compile( "//b[@x=\"it's\"]" );
+        assertTrue( doubleQuoted.isMatch( doubleQuoted.nextState( doubleQuoted.initialState(), "b", attributes( "x", "it's" ), 1, 1 ) ) );
+        assertEquals( "//b[@x=\"it's\"]", doubleQuoted.toString() );
+    }   //  testAttributePredicate()
+
+    /**
+     *  Tests attribute predicates with quoted values that contain the
+     *  characters that delimit the predicates.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testAttributePredicateWithBrackets() throws Exception
+    {
+        skipThreadTest();
+
+        var path = ElementPath.compile( "//b[@x='a]b']" );
+        assertEquals( "//b[@x='a]b']", path.toString() );
+        assertTrue( path.isMatch( path.nextState( path.initialState(), "b", attributes( "x", "a]b" ), 1, 1 ) ) );
+        assertFalse( path.isMatch( path.nextState( path.initialState(), "b", attributes( "x", "a" ), 1, 1 ) ) );
+
+        path = ElementPath.compile( "/r/b[@x=\"[1]\"][2]/c" );
+        assertEquals( "/r/b[@x='[1]'][2]/c", path.toString() );
+        var state = path.nextState( path.initialState(), "r", attributes(), 1, 1 );
+        state = path.nextState( state, "b", attributes( "x", "[1]" ), 2, 2 );
+        assertTrue( path.isMatch( path.nextState( state, "c", attributes(), 1, 1 ) ) );
+
+        path = ElementPath.compile( "//b[@x='/a//b']/c" );
+        state = path.nextState( path.initialState(), "b", attributes( "x", "/a//b" ), 1, 1 );
+        assertTrue( path.isMatch( path.nextState( state, "c", attributes(), 1, 1 ) ) );
+    }   //  testAttributePredicateWithBrackets()
+
+    /**
+     *  Tests the child and descendant steps.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testAxes() throws Exception
+    {
+        skipThreadTest();
+
+        var path = ElementPath.compile( "/a/b" );
+        assertTrue( matches( path, "a", "b" ) );
+        assertFalse( matches( path, "x", "a", "b" ) );
+        assertFalse( matches( path, "a", "c", "b" ) );
+        assertFalse( matches( path, "a" ) );
+        assertFalse( matches( path, "a", "b", "c" ) );
+
+        path = ElementPath.compile( "//b" );
+        assertTrue( matches( path, "b" ) );
+        assertTrue( matches( path, "a", "b" ) );
+        assertTrue( matches( path, "a", "c", "b" ) );
+        assertTrue( matches( path, "b", "b" ) );
+        assertFalse( matches( path, "a", "c" ) );
+
+        path = ElementPath.compile( "a/b" );
+        assertTrue( matches( path, "x", "a", "b" ) );
+        assertTrue( matches( path, "a", "b" ) );
+        assertFalse( matches( path, "a", "x", "b" ) );
+
+        path = ElementPath.compile( "/a//c" );
+        assertTrue( matches( path, "a", "c" ) );
+        assertTrue( matches( path, "a", "b", "c" ) );
+        assertFalse( matches( path, "c" ) );
+        assertFalse( matches( path, "x", "c" ) );
+
+        path = ElementPath.compile( "/*/*" );
+        assertTrue( matches( path, "a", "b" ) );
+        assertFalse( matches( path, "a" ) );
+
+        path = ElementPath.compile( "//p:item" );
+        assertTrue( matches( path, "root", "p:item" ) );
+        assertFalse( matches( path, "root", "item" ) );
+    }   //  testAxes()
+
+    /**
+     *  Tests
+     *  {@link ElementPath#canMatchBelow(long, java.util.function.ToIntFunction, int)}.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testCanMatchBelow() throws Exception
+    {
+        skipThreadTest();
+
+        var path = ElementPath.compile( "/a/b[2]" );
+        final var state = path.nextState( path.initialState(), "a", attributes(), 1, 1 );
+        assertTrue( path.canMatchBelow( state, Map.of( "b", 1 )::get, 5 ) );
+        assertFalse( path.canMatchBelow( state, Map.of( "b", 2 )::get, 5 ) );
+
+        path = ElementPath.compile( "/a/*[3]" );
+        final var anyState = path.nextState( path.initialState(), "a", attributes(), 1, 1 );
+        assertTrue( path.canMatchBelow( anyState, name -> 0, 2 ) );
+        assertFalse( path.canMatchBelow( anyState, name -> 0, 3 ) );
+
+        path = ElementPath.compile( "//b[2]" );
+        assertTrue( path.canMatchBelow( path.initialState(), name -> 5, 5 ) );
+    }   //  testCanMatchBelow()
+
+    /**
+     *  Tests
+     *  {@link ElementPath#compile(CharSequence)}
+     *  with invalid paths.
+     *
+     *  @param  path    The invalid path.
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @ParameterizedTest
+    @ValueSource( strings = {"", "   ", "/", "/a/", "/a//", "/a[", "/a[1", "/a[0]", "/a[-1]", "/a[x]", "/a[@x]", "/a[@x=1]", "/a[@x='1]", "/a[@x='1\"]", "/a[1]b"} )
+    final void testInvalidPaths( final String path ) throws Exception
+    {
+        skipThreadTest();
+
+        assertThrows( ValidationException.class, () -> ElementPath.compile( path ) );
+    }   //  testInvalidPaths()
+
+    /**
+     *  Tests the maximum number of steps.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testMaxSteps() throws Exception
+    {
+        skipThreadTest();
+
+        assertEquals( "/a".repeat( ElementPath.MAX_STEPS ), ElementPath.compile( "/a".repeat( ElementPath.MAX_STEPS ) ).toString() );
+        assertThrows( ValidationException.class, () -> ElementPath.compile( "/a".repeat( ElementPath.MAX_STEPS + 1 ) ) );
+    }   //  testMaxSteps()
+
+    /**
+     *  Tests the position predicates.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testPositionPredicate() throws Exception
+    {
+        skipThreadTest();
+
+        var path = ElementPath.compile( "/a/b[2]" );
+        assertTrue( path.hasPositions() );
+        final var root = path.nextState( path.initialState(), "a", attributes(), 1, 1 );
+        assertFalse( path.isMatch( path.nextState( root, "b", attributes(), 1, 1 ) ) );
+        assertTrue( path.isMatch( path.nextState( root, "b", attributes(), 2, 5 ) ) );
+
+        path = ElementPath.compile( "/a/*[2]" );
+        final var anyRoot = path.nextState( path.initialState(), "a", attributes(), 1, 1 );
+        assertTrue( path.isMatch( path.nextState( anyRoot, "c", attributes(), 1, 2 ) ) );
+        assertFalse( path.isMatch( path.nextState( anyRoot, "c", attributes(), 2, 3 ) ) );
+
+        assertFalse( ElementPath.compile( "/a//b[@id='1']" ).hasPositions() );
+    }   //  testPositionPredicate()
+
+    /**
+     *  Tests the selection with
+     *  {@link XMLBeautifier}.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testSelection() throws Exception
+    {
+        skipThreadTest();
+
+        final var document = "<r><a><b x='1'><c/></b></a><b x='a]b'>text</b><b x='2'/></r>";
+        final var first = new XMLBeautifier( "<b x='1'><c/></b>" ).process();
+        final var second = new XMLBeautifier( "<b x='a]b'>text</b>" ).process();
+        final var third = new XMLBeautifier( "<b x='2'/>" ).process();
+
+        assertEquals( first + second + third, select( document, "//b", 0 ) );
+        assertEquals( second + third, select( document, "/r/b", 0 ) );
+        assertEquals( third, select( document, "/r/b[2]", 0 ) );
+        assertEquals( second, select( document, "//b[@x='a]b']", 0 ) );
+        assertEquals( first + second, select( document, "//b", 2 ) );
+        assertEquals( "", select( document, "/x//b", 0 ) );
+
+        //---* Namespaces of the ancestors are added to the selected subtree *-
+        final var namespaced = "<r xmlns:p='urn:p'><p:a><p:b/></p:a></r>";
+        assertEquals( new XMLBeautifier( "<p:b xmlns:p='urn:p'/>" ).process(), select( namespaced, "//p:b", 0 ) );
+    }   //  testSelection()
+}
+//  class TestElementPath
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,202 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Tests that
+ *  {@link XMLBeautifier}
+ *  produces the same output for all kinds of input, for a document that
+ *  is not encoded as UTF-8.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestInputSources" )
+public class TestInputSources extends TestBaseClass
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  Creates a beautifier for the document.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    @FunctionalInterface
+    private interface Source
+    {
+        /**
+         *  Creates a beautifier.
+         *
+         *  @return The beautifier.
+         *  @throws Exception   The beautifier could not be created.
+         */
+        public XMLBeautifier create() throws Exception;
+    }
+    //  interface Source
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The document for the tests; it will be encoded as ISO-8859-1.
+     */
+    private static final String DOCUMENT = """
+        <?xml version="1.0" encoding="ISO-8859-1"?>
+        <!-- Grüße aus Köln -->
+        <catalog owner="Müller &amp; Söhne">
+          <item price="12,50 £" note="« très  bien »">Crème brûlée</item>
+        <item>Größe: ½ × ¾</item><empty/>
+        </catalog>
+        """;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The temporary folder.
+     */
+    @TempDir
+    Path m_TempFolder;
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the sources for the document, one for each constructor of
+     *  {@link XMLBeautifier}.
+     *
+     *  @return The sources, by name.
+     *  @throws Exception   The sources could not be created.
+     */
+    private final Map<String,Source> sources() throws Exception
+    {
+        final var bytes = DOCUMENT.getBytes( ISO_8859_1 );
+        final var file = Files.write( m_TempFolder.resolve( "latin1.xml" ), bytes );
+
+        final Map<String,Source> retValue = new LinkedHashMap<>();
+        retValue.put( "String", () -> new XMLBeautifier( DOCUMENT ) );
+        retValue.put( "Path", () -> new XMLBeautifier( file ) );
+        retValue.put( "InputStream", () -> new XMLBeautifier( new ByteArrayInputStream( bytes ) ) );
+        retValue.put( "ReadableByteChannel", () -> new XMLBeautifier( Channels.newChannel( new ByteArrayInputStream( bytes ) ) ) );
+        retValue.put( "ByteBuffer", () -> new XMLBeautifier( ByteBuffer.wrap( bytes ) ) );
+        retValue.put( "ByteBuffer (direct)", () -> new XMLBeautifier( ByteBuffer.allocateDirect( bytes.length ).put( bytes ).flip() ) );
+
+        //---* A buffer with the document in the middle *----------------------
+        retValue.put( "ByteBuffer (slice)", () ->
+        {
+            final var buffer = ByteBuffer.allocate( bytes.length + 8 );
+            buffer.put( "garbage!".getBytes( ISO_8859_1 ), 0, 4 ).put( bytes ).put( "xyz!".getBytes( ISO_8859_1 ) );
+            buffer.position( 4 ).limit( 4 + bytes.length );
+            return new XMLBeautifier( buffer );
+        } );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  sources()
+
+    /**
+     *  Tests that all constructors yield the same output in tree mode, and
+     *  that the non-ASCII characters were decoded according to the XML
+     *  declaration.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testTreeMode() throws Exception
+    {
+        skipThreadTest();
+
+        final var expected = new XMLBeautifier( DOCUMENT ).process();
+        assertTrue( expected.contains( "Crème brûlée" ) );
+        assertTrue( expected.contains( "Größe: ½ × ¾" ) );
+
+        for( final var entry : sources().entrySet() )
+        {
+            assertEquals( expected, entry.getValue().create().process(), entry.getKey() );
+        }
+    }   //  testTreeMode()
+
+    /**
+     *  Tests that all constructors yield the same output in streaming
+     *  mode.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testStreamingMode() throws Exception
+    {
+        skipThreadTest();
+
+        final var expected = new StringWriter();
+        new XMLBeautifier( DOCUMENT ).process( expected );
+        assertTrue( expected.toString().contains( "Crème brûlée" ) );
+
+        for( final var entry : sources().entrySet() )
+        {
+            final var actual = new StringWriter();
+            entry.getValue().create().process( actual );
+            assertEquals( expected.toString(), actual.toString(), entry.getKey() );
+        }
+    }   //  testStreamingMode()
+
+    /**
+     *  Tests that the position of a buffer is not changed.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testBufferPosition() throws Exception
+    {
+        skipThreadTest();
+
+        final var bytes = DOCUMENT.getBytes( ISO_8859_1 );
+        final var buffer = ByteBuffer.allocate( bytes.length + 4 );
+        buffer.put( "    ".getBytes( ISO_8859_1 ) ).put( bytes ).position( 4 );
+        assertTrue( new XMLBeautifier( buffer ).process().contains( "Crème brûlée" ) );
+        assertEquals( 4, buffer.position() );
+        assertEquals( bytes.length + 4, buffer.limit() );
+    }   //  testBufferPosition()
+}
+//  class TestInputSources
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,144 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.ext.DefaultHandler2;
+
+/**
+ *  Checks that large text nodes and CDATA sections – larger than the
+ *  chunks in that the parser reports them, and larger than the buffers of
+ *  the handlers – are written unchanged by all output paths of
+ *  {@link XMLBeautifier}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestLargeNodes" )
+public class TestLargeNodes extends TestBaseClass
+{
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Parses the given document and returns the text content of each
+     *  element, by element name; CDATA sections are included.
+     *
+     *  @param  document    The document.
+     *  @return The text per element name.
+     *  @throws Exception   The document could not be parsed.
+     */
+    private static final Map<String,String> contents( final String document ) throws Exception
+    {
+        final Map<String,String> retValue = new HashMap<>();
+        final var handler = new DefaultHandler2()
+        {
+            private final StringBuilder m_Buffer = new StringBuilder();
+
+            @Override
+            public final void characters( final char [] ch, final int start, final int length ) { m_Buffer.append( ch, start, length ); }
+
+            @Override
+            public final void endElement( final String uri, final String localName, final String qName )
+            {
+                retValue.merge( qName, m_Buffer.toString(), String::concat );
+                m_Buffer.setLength( 0 );
+            }
+
+            @Override
+            public final void startElement( final String uri, final String localName, final String qName, final Attributes attributes ) { m_Buffer.setLength( 0 ); }
+        };
+        SAXParserFactory.newInstance().newSAXParser().parse( new InputSource( new StringReader( document ) ), handler );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  contents()
+
+    /**
+     *  Tests large text nodes and CDATA sections.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testLargeNodes() throws Exception
+    {
+        skipThreadTest();
+
+        final var text = "text with <markup> & entities; ".repeat( 0x2800 );
+        final var cdata = "cdata with <markup> & ]] and ]> ".repeat( 0x2800 );
+        assertTrue( cdata.length() > SAXParserEngine.CDATA_CHUNK_SIZE * 4 );
+        final var document = "<root><a>" + text.replace( "&", "&amp;" ).replace( "<", "&lt;" ) + "</a><b><![CDATA[" + cdata + "]]></b><c>small</c><d><![CDATA[]]></d></root>";
+
+        final var tree = new XMLBeautifier( document ).process();
+        final var streaming = new StringWriter();
+        new XMLBeautifier( document ).process( streaming );
+        final var minified = new XMLBeautifier( document ).minify();
+        final var stax = new XMLBeautifier( document );
+        stax.setEngine( new BeautifierEngine( new StAXParserEngine() ) );
+        final var staxTree = stax.process();
+
+        for( final var output : new String [] {tree, streaming.toString(), minified, staxTree} )
+        {
+            final var contents = contents( output );
+            assertEquals( text, contents.get( "a" ) );
+            assertEquals( cdata, contents.get( "b" ) );
+            assertEquals( "small", contents.get( "c" ) );
+            assertEquals( "", contents.get( "d" ) );
+        }
+    }   //  testLargeNodes()
+
+    /**
+     *  Tests that the text buffer of the tree mode is reset properly after
+     *  a large text node.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testSmallNodesAfterLargeNode() throws Exception
+    {
+        skipThreadTest();
+
+        final var large = "x".repeat( 0x10000 );
+        final var document = "<root><a>" + large + "</a><b>1</b><c><![CDATA[2]]></c><d>3</d></root>";
+        final var contents = contents( new XMLBeautifier( document ).process() );
+        assertEquals( large, contents.get( "a" ) );
+        assertEquals( "1", contents.get( "b" ) );
+        assertEquals( "2", contents.get( "c" ) );
+        assertEquals( "3", contents.get( "d" ) );
+    }   //  testSmallNodesAfterLargeNode()
+}
+//  class TestLargeNodes
+
+/*
+ *  End of File
+ */
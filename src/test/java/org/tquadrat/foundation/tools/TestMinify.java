@@ -0,0 +1,141 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Some tests for
+ *  {@link XMLBeautifier#minify()}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestMinify" )
+public class TestMinify extends TestBaseClass
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The XML declaration at the start of the output.
+     */
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Minifies the given document.
+     *
+     *  @param  document    The document.
+     *  @param  normalizePrefixes   {@code true} if the namespace prefixes
+     *      should be replaced.
+     *  @return The minified document.
+     *  @throws Exception   The document could not be processed.
+     */
+    private static final String minify( final String document, final boolean normalizePrefixes ) throws Exception
+    {
+        final var beautifier = new XMLBeautifier( document );
+        beautifier.setNormalizePrefixes( normalizePrefixes );
+        final var retValue = beautifier.minify();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  minify()
+
+    /**
+     *  Tests the output of the minify mode.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testMinify() throws Exception
+    {
+        skipThreadTest();
+
+        assertEquals( DECLARATION + "<r><a x=\"1\">t</a><b/></r>", minify( "<r>\n  <a x='1'>t</a>\n  <!-- comment -->\n  <b>\n  </b>\n</r>", false ) );
+        assertEquals( DECLARATION + "<r><a> keep  this </a></r>", minify( "<r><a> keep  this </a></r>", false ) );
+        assertEquals( DECLARATION + "<r><a x=\"&lt;&amp;&quot;\">&lt;&amp;&gt;</a><![CDATA[<x>]]></r>", minify( "<r><a x='&lt;&amp;\"'>&lt;&amp;&gt;</a><![CDATA[<x>]]></r>", false ) );
+        assertEquals( DECLARATION + "<?first?><?inner data?><r><a/></r>", minify( "<?first?><r><?inner data?>\n<a/></r>", false ) );
+    }   //  testMinify()
+
+    /**
+     *  Tests the replacement of the namespace prefixes.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testNormalizePrefixes() throws Exception
+    {
+        skipThreadTest();
+
+        assertEquals( DECLARATION + "<a:r xmlns:a=\"urn:a\"><a:b/></a:r>", minify( "<x:r xmlns:x='urn:a'><y:b xmlns:y='urn:a'/></x:r>", true ) );
+        assertEquals( DECLARATION + "<a:r xmlns:a=\"urn:a\" xmlns:b=\"urn:b\" a:x=\"1\"><b:c b:y=\"2\"/><d xmlns=\"urn:d\"/></a:r>", minify( "<p:r xmlns:p='urn:a' xmlns:q='urn:b' p:x='1'><q:c q:y='2'/><d xmlns='urn:d'/></p:r>", true ) );
+        assertEquals( DECLARATION + "<r xml:lang=\"en\"><u:a/></r>", minify( "<r xml:lang='en'><u:a/></r>", true ) );
+    }   //  testNormalizePrefixes()
+
+    /**
+     *  Tests that a minified document does not change when it is minified
+     *  again.
+     *
+     *  @param  document    The document.
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @ParameterizedTest
+    @MethodSource( "org.tquadrat.foundation.tools.TestStreamingParity#documents" )
+    final void testIdempotence( final String document ) throws Exception
+    {
+        skipThreadTest();
+
+        final var minified = minify( document, false );
+        assertEquals( minified, minify( minified, false ) );
+        assertEquals( minify( document, true ), minify( minify( document, true ), true ) );
+    }   //  testIdempotence()
+
+    /**
+     *  Tests that the minified output of a document without mixed content
+     *  is the same as that of its beautified version.
+     *
+     *  @param  shape   The shape of the document.
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @ParameterizedTest
+    @EnumSource( XMLCorpus.Shape.class )
+    final void testRoundTrip( final XMLCorpus.Shape shape ) throws Exception
+    {
+        skipThreadTest();
+
+        final var document = XMLCorpus.generate( shape, 0x10000 );
+        assertEquals( minify( document, false ), minify( new XMLBeautifier( document ).process(), false ) );
+    }   //  testRoundTrip()
+}
+//  class TestMinify
+
+/*
+ *  End of File
+ */
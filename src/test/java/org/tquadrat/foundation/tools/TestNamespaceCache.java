@@ -0,0 +1,130 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.exception.ValidationException;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Some tests for
+ *  {@link NamespaceCache}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestNamespaceCache" )
+public class TestNamespaceCache extends TestBaseClass
+{
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Tests that a cache stops adding entries at its capacity.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testCapacity() throws Exception
+    {
+        skipThreadTest();
+
+        assertThrows( ValidationException.class, () -> new NamespaceCache( 0 ) );
+
+        final var candidate = new NamespaceCache( 1 );
+        final var first = new String( "first" );
+        assertSame( first, candidate.intern( first ) );
+        final var second = new String( "second" );
+        assertSame( second, candidate.intern( second ) );
+        assertNotSame( second, candidate.intern( new String( "second" ) ) );
+        assertSame( first, candidate.intern( new String( "first" ) ) );
+        assertEquals( 1, candidate.getSymbolHits() );
+        assertEquals( 3, candidate.getSymbolMisses() );
+
+        final var namespace = candidate.getNamespace( "xmlns:a", "urn:a" );
+        assertSame( namespace, candidate.getNamespace( "xmlns:a", "urn:a" ) );
+        assertNotSame( candidate.getNamespace( "xmlns:b", "urn:b" ), candidate.getNamespace( "xmlns:b", "urn:b" ) );
+    }   //  testCapacity()
+
+    /**
+     *  Tests the symbol table and the namespace table.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testLookup() throws Exception
+    {
+        skipThreadTest();
+
+        final var candidate = new NamespaceCache();
+        assertEquals( 0.0, candidate.getSymbolHitRate() );
+        assertEquals( 0.0, candidate.getNamespaceHitRate() );
+
+        final var name = new String( "ns1:record" );
+        assertSame( name, candidate.intern( name ) );
+        assertSame( name, candidate.intern( new String( "ns1:record" ) ) );
+        assertSame( name, candidate.intern( new String( "ns1:record" ) ) );
+        assertEquals( 2, candidate.getSymbolHits() );
+        assertEquals( 1, candidate.getSymbolMisses() );
+
+        final var namespace = candidate.getNamespace( "xmlns:ns1", "urn:example:records" );
+        assertSame( namespace, candidate.getNamespace( "xmlns:ns1", "urn:example:records" ) );
+        assertNotSame( namespace, candidate.getNamespace( "xmlns", "urn:example:records" ) );
+        assertEquals( 1, candidate.getNamespaceHits() );
+        assertEquals( 2, candidate.getNamespaceMisses() );
+        assertEquals( 1.0 / 3.0, candidate.getNamespaceHitRate(), 1.0e-9 );
+    }   //  testLookup()
+
+    /**
+     *  Tests that the document tree holds one instance per element and
+     *  attribute name, also with the StAX engine.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testSharedNames() throws Exception
+    {
+        skipThreadTest();
+
+        final var document = XMLCorpus.generate( XMLCorpus.Shape.NAMESPACES, 0x4000 );
+        for( final var engine : new BeautifierEngine [] {new BeautifierEngine( 0 ), new BeautifierEngine( new StAXParserEngine() )} )
+        {
+            final var cache = new NamespaceCache();
+            final var beautifier = new XMLBeautifier( document );
+            beautifier.setEngine( engine );
+            beautifier.setNamespaceCache( cache );
+            beautifier.process();
+            assertTrue( cache.getSymbolHits() > cache.getSymbolMisses() );
+            assertTrue( cache.getNamespaceHits() > cache.getNamespaceMisses() );
+        }
+    }   //  testSharedNames()
+}
+//  class TestNamespaceCache
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,222 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.tquadrat.foundation.lang.CommonConstants.UTF8;
+
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+import org.xml.sax.SAXException;
+
+/**
+ *  Checks that
+ *  {@link ParallelBeautifier}
+ *  produces the same output as the sequential processing with
+ *  {@link XMLBeautifier#process(java.io.Writer)}
+ *  and
+ *  {@link XMLBeautifier#process()}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestParallelParity" )
+public class TestParallelParity extends TestBaseClass
+{
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The pool for the chunks.
+     */
+    private static ForkJoinPool m_Pool;
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Creates the pool for the chunks.
+     */
+    @BeforeAll
+    static final void createPool() { m_Pool = new ForkJoinPool( 4 ); }
+
+    /**
+     *  Provides the documents for the parity tests.
+     *
+     *  @return The documents.
+     */
+    static final Stream<String> documents()
+    {
+        final var records = new StringBuilder();
+        for( var i = 0; i < 200; ++i )
+        {
+            records.append( "<record id=\"" ).append( i ).append( "\"><name>Name ").append( i ).append( "</name><empty/></record>\n" );
+        }
+
+        final var retValue = Stream.of(
+            "<root>" + records + "</root>",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<?prolog a?>\n<root xmlns:p=\"urn:p\">" + records + "<p:last/></root>\n",
+            "<!DOCTYPE root [<!ENTITY e \"expanded\">]><root>" + records + "<x>&e;</x></root>",
+            "<root>text before" + records + "text between<a/>\n</root>",
+            "<root><!-- comment -->" + records + "<!-- comment --><a/></root>",
+
+            //---* The epilog *------------------------------------------------
+            "<root>" + records + "</root><!-- epilog comment -->",
+            "<root>" + records + "</root>\n<?epilog data?>\n",
+
+            //---* Text after the last child *---------------------------------
+            "<root>" + records + "tail text</root>",
+            "<root>" + records + "<![CDATA[tail]]></root>",
+            "<root>" + records + "<!-- tail comment --></root>",
+
+            //---* Processing instructions inside the root element *-----------
+            "<root>" + records + "<?inner data?><a/></root>",
+            "<root><a><?deep?></a>" + records + "</root>",
+
+            //---* Documents that are not split *------------------------------
+            "<root/>",
+            "<root></root>",
+            "<root><single/></root>"
+        );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  documents()
+
+    /**
+     *  Shuts the pool for the chunks down.
+     */
+    @AfterAll
+    static final void shutdownPool() { m_Pool.shutdown(); }
+
+    /**
+     *  Tests that a chunk that cannot be parsed fails the whole document,
+     *  and that the chunks that are still pending are cancelled.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testFailedChunk() throws Exception
+    {
+        skipThreadTest();
+
+        final var document = new StringBuilder( "<root>" );
+        for( var i = 0; i < 2000; ++i )
+        {
+            document.append( i == 10 ? "<record><name>Broken</nam></record>\n" : "<record><name>Name %d</name></record>\n".formatted( i ) );
+        }
+        document.append( "</root>" );
+
+        final var target = new StringWriter();
+        assertThrows( SAXException.class, () -> new ParallelBeautifier( m_Pool, 256 ).process( ByteBuffer.wrap( document.toString().getBytes( UTF8 ) ), target ) );
+        assertFalse( target.toString().contains( "Name 1999" ) );
+        assertTrue( m_Pool.awaitQuiescence( 30, TimeUnit.SECONDS ) );
+    }   //  testFailedChunk()
+
+    /**
+     *  Tests whether the parallel and the sequential processing produce the
+     *  same output.
+     *
+     *  @param  document    The document.
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @ParameterizedTest
+    @MethodSource( "documents" )
+    final void testParity( final String document ) throws Exception
+    {
+        skipThreadTest();
+
+        final var sequential = new StringWriter();
+        new XMLBeautifier( document ).process( sequential );
+        assertEquals( new XMLBeautifier( document ).process(), sequential.toString() );
+
+        final var parallel = new StringWriter();
+        new ParallelBeautifier( m_Pool, 256 ).process( ByteBuffer.wrap( document.getBytes( UTF8 ) ), parallel );
+        assertEquals( sequential.toString(), parallel.toString() );
+    }   //  testParity()
+
+    /**
+     *  Tests the detection of the parts of a document that prevent the
+     *  parallel processing.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testSplitter() throws Exception
+    {
+        skipThreadTest();
+
+        var splitter = split( "<root><a/><b>x</b>\n</root>\n" );
+        assertFalse( splitter.hasProcessingInstructions() );
+        assertFalse( splitter.hasTail() );
+        assertFalse( splitter.hasEpilog() );
+
+        splitter = split( "<root><a/>tail</root>" );
+        assertTrue( splitter.hasTail() );
+        assertFalse( splitter.hasEpilog() );
+
+        splitter = split( "<root><a/></root><!-- c -->" );
+        assertFalse( splitter.hasTail() );
+        assertTrue( splitter.hasEpilog() );
+
+        splitter = split( "<?prolog?><root><a x=\"?>\"/><![CDATA[<?no?>]]><b/></root>" );
+        assertFalse( splitter.hasProcessingInstructions() );
+
+        splitter = split( "<root><a><?pi?></a></root>" );
+        assertTrue( splitter.hasProcessingInstructions() );
+    }   //  testSplitter()
+
+    /**
+     *  Scans the given document with a
+     *  {@link TopLevelSplitter}.
+     *
+     *  @param  document    The document.
+     *  @return The splitter, after all chunks were determined.
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    private static final TopLevelSplitter split( final String document ) throws Exception
+    {
+        final var retValue = new TopLevelSplitter( ByteBuffer.wrap( document.getBytes( UTF8 ) ) );
+        //noinspection StatementWithEmptyBody
+        while( retValue.nextChunk( 1 ) >= 0 ) { /* Empty */ }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  split()
+}
+//  class TestParallelParity
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,166 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringWriter;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+import org.xml.sax.SAXException;
+
+/**
+ *  Checks that the
+ *  {@link StAXParserEngine}
+ *  produces the same output as the
+ *  {@link SAXParserEngine},
+ *  for all output paths of
+ *  {@link XMLBeautifier}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestParserEngines" )
+public class TestParserEngines extends TestBaseClass
+{
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The engine with the SAX parser.
+     */
+    private static final BeautifierEngine m_SAXEngine = new BeautifierEngine( new SAXParserEngine( 0 ) );
+
+    /**
+     *  The engine with the StAX parser.
+     */
+    private static final BeautifierEngine m_StAXEngine = new BeautifierEngine( new StAXParserEngine() );
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Creates a beautifier for the given document that uses the given
+     *  engine.
+     *
+     *  @param  document    The document.
+     *  @param  engine  The engine.
+     *  @return The beautifier.
+     */
+    private static final XMLBeautifier beautifier( final String document, final BeautifierEngine engine )
+    {
+        final var retValue = new XMLBeautifier( document );
+        retValue.setEngine( engine );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  beautifier()
+
+    /**
+     *  Provides the documents for the parity tests: those from
+     *  {@link TestStreamingParity#documents()},
+     *  and some with constructs that are reported differently by the two
+     *  parser APIs.
+     *
+     *  @return The documents.
+     */
+    static final Stream<String> documents()
+    {
+        final var retValue = Stream.concat( TestStreamingParity.documents(), Stream.of(
+            "<!DOCTYPE root [<!ENTITY e \"expanded &amp; more\"><!ATTLIST a x CDATA \"default\">]><root><a>&e;</a><a x=\"set\"/></root>",
+            "<root><a>&#x41;&#66;&lt;</a><!-- comment --><b>&apos;&quot;</b></root>",
+            "<p:root xmlns:p=\"urn:p\" xmlns=\"urn:default\"><p:a p:x=\"1\"><b xmlns=\"\"/></p:a></p:root>",
+            "<root><a>" + "large text & more ".repeat( 0x4000 ) + "</a></root>",
+            "<root><a><![CDATA[" + "large <cdata> & more ".repeat( 0x4000 ) + "]]></a></root>"
+        ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  documents()
+
+    /**
+     *  Tests that both engines report a malformed document as an error.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testMalformedDocument() throws Exception
+    {
+        skipThreadTest();
+
+        final var document = "<root><a></root>";
+        assertThrows( SAXException.class, () -> beautifier( document, m_SAXEngine ).process() );
+        assertThrows( SAXException.class, () -> beautifier( document, m_StAXEngine ).process() );
+    }   //  testMalformedDocument()
+
+    /**
+     *  Tests that both engines produce the same output in tree mode,
+     *  streaming mode and minify mode.
+     *
+     *  @param  document    The document.
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @ParameterizedTest
+    @MethodSource( "documents" )
+    final void testParity( final String document ) throws Exception
+    {
+        skipThreadTest();
+
+        assertEquals( beautifier( document, m_SAXEngine ).process(), beautifier( document, m_StAXEngine ).process() );
+
+        final var saxStream = new StringWriter();
+        beautifier( document, m_SAXEngine ).process( saxStream );
+        final var staxStream = new StringWriter();
+        beautifier( document, m_StAXEngine ).process( staxStream );
+        assertEquals( saxStream.toString(), staxStream.toString() );
+
+        assertEquals( beautifier( document, m_SAXEngine ).minify(), beautifier( document, m_StAXEngine ).minify() );
+    }   //  testParity()
+
+    /**
+     *  Tests that both engines produce the same output for a selection.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testSelection() throws Exception
+    {
+        skipThreadTest();
+
+        final var document = XMLCorpus.generate( XMLCorpus.Shape.NAMESPACES, 0x10000 );
+        final var path = ElementPath.compile( "//ns1:record[@ns2:id='7']" );
+        final var sax = beautifier( document, m_SAXEngine );
+        sax.setSelection( path );
+        final var stax = beautifier( document, m_StAXEngine );
+        stax.setSelection( path );
+        assertEquals( sax.process(), stax.process() );
+    }   //  testSelection()
+}
+//  class TestParserEngines
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,139 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+import org.xml.sax.SAXException;
+
+/**
+ *  Checks that the parsers from the pool of
+ *  {@link SAXParserEngine}
+ *  produce the same output as fresh ones, also after a failed parse and
+ *  when they are used concurrently.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestParserPool" )
+public class TestParserPool extends TestBaseClass
+{
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Beautifies the given document with the given engine.
+     *
+     *  @param  document    The document.
+     *  @param  engine  The engine.
+     *  @return The output.
+     *  @throws Exception   The document could not be processed.
+     */
+    private static final String beautify( final String document, final BeautifierEngine engine ) throws Exception
+    {
+        final var beautifier = new XMLBeautifier( document );
+        beautifier.setEngine( engine );
+        final var retValue = beautifier.process();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  beautify()
+
+    /**
+     *  Tests that the pooled parsers produce the same output as fresh ones
+     *  when several threads use the engine at the same time.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testConcurrentUse() throws Exception
+    {
+        skipThreadTest();
+
+        final var fresh = new BeautifierEngine( 0 );
+        final var pooled = new BeautifierEngine( 2 );
+        final var documents = TestStreamingParity.documents().toList();
+        final List<String> expected = new ArrayList<>();
+        for( final var document : documents ) expected.add( beautify( document, fresh ) );
+
+        final var executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            final List<Future<String>> results = new ArrayList<>();
+            for( var round = 0; round < 8; ++round )
+            {
+                for( final var document : documents )
+                {
+                    results.add( executor.submit( (Callable<String>) () -> beautify( document, pooled ) ) );
+                }
+            }
+            for( var i = 0; i < results.size(); ++i )
+            {
+                assertEquals( expected.get( i % documents.size() ), results.get( i ).get() );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }   //  testConcurrentUse()
+
+    /**
+     *  Tests that a parser that failed on a malformed document can be
+     *  reused for the next one, and that the entity declarations of one
+     *  document do not leak into the next.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testReuseAfterFailure() throws Exception
+    {
+        skipThreadTest();
+
+        final var fresh = new BeautifierEngine( 0 );
+        final var pooled = new BeautifierEngine( 1 );
+        final var document = "<root><a x=\"1\">text</a><b/></root>";
+        final var expected = beautify( document, fresh );
+
+        assertEquals( expected, beautify( document, pooled ) );
+        assertThrows( SAXException.class, () -> beautify( "<root><a></root>", pooled ) );
+        assertEquals( expected, beautify( document, pooled ) );
+
+        final var withEntity = "<!DOCTYPE root [<!ENTITY e \"x\">]><root>&e;</root>";
+        assertEquals( beautify( withEntity, fresh ), beautify( withEntity, pooled ) );
+        assertThrows( SAXException.class, () -> beautify( "<root>&e;</root>", pooled ) );
+        assertEquals( expected, beautify( document, pooled ) );
+    }   //  testReuseAfterFailure()
+}
+//  class TestParserPool
+
+/*
+ *  End of File
+ */
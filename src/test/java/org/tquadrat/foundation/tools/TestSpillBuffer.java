@@ -0,0 +1,134 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Some tests for
+ *  {@link SpillBuffer}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestSpillBuffer" )
+public class TestSpillBuffer extends TestBaseClass
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The text for the tests; it has supplementary characters at several
+     *  offsets.
+     */
+    private static final String TEXT = "ab😀cd😁😂e𝄞fgh";
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Transfers the contents of the given buffer to a string.
+     *
+     *  @param  buffer  The buffer.
+     *  @return The contents.
+     *  @throws Exception   The contents could not be transferred.
+     */
+    private static final String transfer( final SpillBuffer buffer ) throws Exception
+    {
+        final var target = new StringWriter();
+        buffer.transferTo( target );
+        final var retValue = target.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  transfer()
+
+    /**
+     *  Tests that a buffer can be reused after a transfer.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testReuse() throws Exception
+    {
+        skipThreadTest();
+
+        try( final var candidate = new SpillBuffer( 4 ) )
+        {
+            candidate.write( TEXT );
+            assertEquals( TEXT.length(), candidate.length() );
+            assertEquals( TEXT, transfer( candidate ) );
+            assertTrue( candidate.isEmpty() );
+
+            candidate.write( "xyz" );
+            assertEquals( "xyz", transfer( candidate ) );
+        }
+    }   //  testReuse()
+
+    /**
+     *  Tests that supplementary characters survive the boundary between
+     *  memory and file, for all ways to write to the buffer.
+     *
+     *  @param  memoryLimit The memory limit for the buffer.
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @ParameterizedTest
+    @ValueSource( ints = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 100} )
+    final void testSurrogatePairs( final int memoryLimit ) throws Exception
+    {
+        skipThreadTest();
+
+        try( final var candidate = new SpillBuffer( memoryLimit ) )
+        {
+            candidate.write( TEXT );
+            assertEquals( TEXT, transfer( candidate ) );
+
+            candidate.write( TEXT.toCharArray(), 0, TEXT.length() );
+            assertEquals( TEXT, transfer( candidate ) );
+
+            for( var i = 0; i < TEXT.length(); ++i ) candidate.write( TEXT.charAt( i ) );
+            assertEquals( TEXT, transfer( candidate ) );
+
+            //---* Pieces of varying length *----------------------------------
+            for( var step = 1; step < 5; ++step )
+            {
+                for( var i = 0; i < TEXT.length(); i += step )
+                {
+                    candidate.write( TEXT, i, Math.min( step, TEXT.length() - i ) );
+                }
+                assertEquals( TEXT, transfer( candidate ) );
+            }
+        }
+    }   //  testSurrogatePairs()
+}
+//  class TestSpillBuffer
+
+/*
+ *  End of File
+ */
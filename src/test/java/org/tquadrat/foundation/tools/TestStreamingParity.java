@@ -0,0 +1,131 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Checks that the streaming mode of
+ *  {@link XMLBeautifier}
+ *  – {@link XMLBeautifier#process(java.io.Writer)} –
+ *  produces the same output as the tree mode –
+ *  {@link XMLBeautifier#process()}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestStreamingParity" )
+public class TestStreamingParity extends TestBaseClass
+{
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Provides the documents for the parity tests.
+     *
+     *  @return The documents.
+     */
+    static final Stream<String> documents()
+    {
+        final var longWhitespace = "\n\t \r\n".repeat( 0x1000 );
+        final var retValue = Stream.of(
+            "<root/>",
+            "<root><a/><b x=\"1\"/></root>",
+            "<root><a>text</a><b>  leading and trailing  </b></root>",
+            "<root>mixed <b>bold</b> text<i/> end</root>",
+            "<root><a>&amp; &lt; &gt; \" '</a><b x=\"&quot;&amp;&lt;'\"/></root>",
+            "<root><a><![CDATA[<not markup> & ]]></a><b>x<![CDATA[y]]>z</b></root>",
+            "<root xmlns=\"urn:default\" xmlns:p=\"urn:p\" p:x=\"1\"><p:a xmlns:q=\"urn:q\" q:y=\"2\"/></root>",
+
+            //---* Processing instructions in prolog, root and epilog *--------
+            "<?xml version=\"1.0\"?><?first a?><root><?inner b?><a/></root><?epilog c?>",
+            "<root><a>text<?pi data?>more</a></root><?last?>",
+            "<?a?><?b?><root><x><?c?></x><?d?></root><?e?><?f?>",
+
+            //---* Whitespace beyond the memory limit of the handler *---------
+            "<root><a>" + longWhitespace + "text" + longWhitespace + "</a></root>",
+            "<root><a>" + longWhitespace + "</a>" + longWhitespace + "<b/></root>",
+            "<root>" + longWhitespace + "<![CDATA[" + longWhitespace + "]]></root>",
+
+            //---* The generated documents from the benchmarks *---------------
+            XMLCorpus.generate( XMLCorpus.Shape.DEEP, 0x10000 ),
+            XMLCorpus.generate( XMLCorpus.Shape.WIDE, 0x10000 ),
+            XMLCorpus.generate( XMLCorpus.Shape.ATTRIBUTES, 0x10000 ),
+            XMLCorpus.generate( XMLCorpus.Shape.NAMESPACES, 0x10000 )
+        );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  documents()
+
+    /**
+     *  Tests whether the tree mode and the streaming mode produce the same
+     *  output.
+     *
+     *  @param  document    The document.
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @ParameterizedTest
+    @MethodSource( "documents" )
+    final void testParity( final String document ) throws Exception
+    {
+        skipThreadTest();
+
+        final var expected = new XMLBeautifier( document ).process();
+        final var target = new StringWriter();
+        new XMLBeautifier( document ).process( target );
+        assertEquals( expected, target.toString() );
+    }   //  testParity()
+
+    /**
+     *  Tests the parity for a document whose output is larger than the
+     *  part that the streaming mode keeps in memory, with a processing
+     *  instruction at the end that has to be moved to the prolog.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testParityForLargeDocument() throws Exception
+    {
+        skipThreadTest();
+
+        final var document = XMLCorpus.generate( XMLCorpus.Shape.WIDE, 0x200000 ) + "<?late data?>";
+        final var expected = new XMLBeautifier( document ).process();
+        assertTrue( expected.length() > 0x100000 );
+        final var target = new StringWriter();
+        new XMLBeautifier( document ).process( target );
+        assertEquals( expected, target.toString() );
+    }   //  testParityForLargeDocument()
+}
+//  class TestStreamingParity
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,138 @@
+/*
+ * ============================================================================
+ *  Copyright © 2002-2024 by Thomas Thrien.
+ *  All Rights Reserved.
+ * ============================================================================
+ *  Licensed to the public under the agreements of the GNU Lesser General Public
+ *  License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *       http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.tquadrat.foundation.tools;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tquadrat.foundation.annotation.ClassVersion;
+import org.tquadrat.foundation.lang.StringConverter;
+import org.tquadrat.foundation.testutil.TestBaseClass;
+
+/**
+ *  Some tests for
+ *  {@link StringConverterIndex}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ */
+@ClassVersion( sourceVersion = "$Id$" )
+@DisplayName( "org.tquadrat.foundation.tools.TestStringConverterIndex" )
+public class TestStringConverterIndex extends TestBaseClass
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  A converter that is not registered with the service.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     */
+    @ClassVersion( sourceVersion = "$Id$" )
+    public static final class UnregisteredConverter implements StringConverter<Integer>
+    {
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final Integer fromString( final CharSequence source ) { return -1; }
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final String toString( final Integer source ) { return "unregistered"; }
+    }
+    //  class UnregisteredConverter
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The temporary folder.
+     */
+    @TempDir
+    Path m_TempFolder;
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Tests that the index returns the same converters as the service
+     *  scan, and that it survives saving and loading.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testGenerate() throws Exception
+    {
+        skipThreadTest();
+
+        final var candidate = StringConverterIndex.generate();
+        assertFalse( candidate.isEmpty() );
+        for( final var subjectClass : StringConverter.list() )
+        {
+            assertEquals( StringConverter.forClass( subjectClass ).orElseThrow().getClass(), candidate.forClass( subjectClass ).orElseThrow().getClass() );
+        }
+
+        final var file = m_TempFolder.resolve( StringConverterIndex.INDEX_RESOURCE );
+        candidate.save( file );
+        final var loaded = StringConverterIndex.load( file );
+        assertEquals( candidate.size(), loaded.size() );
+        assertEquals( candidate.list(), loaded.list() );
+    }   //  testGenerate()
+
+    /**
+     *  Tests that a converter class from the index that is not registered
+     *  with the service is not used.
+     *
+     *  @throws Exception   Something unexpected went wrong.
+     */
+    @Test
+    final void testUnregisteredConverter() throws Exception
+    {
+        skipThreadTest();
+
+        final var file = m_TempFolder.resolve( StringConverterIndex.INDEX_RESOURCE );
+        StringConverterIndex.generate().save( file );
+        final var lines = Files.readAllLines( file, UTF_8 )
+            .stream()
+            .map( line -> line.startsWith( Integer.class.getName() + '\t' ) ? Integer.class.getName() + '\t' + UnregisteredConverter.class.getName() : line )
+            .toList();
+        assertTrue( lines.contains( Integer.class.getName() + '\t' + UnregisteredConverter.class.getName() ) );
+        Files.write( file, lines, UTF_8 );
+
+        final var converter = StringConverterIndex.load( file ).forClass( Integer.class ).orElseThrow();
+        assertFalse( converter instanceof UnregisteredConverter );
+        assertEquals( 42, converter.fromString( "42" ) );
+    }   //  testUnregisteredConverter()
+}
+//  class TestStringConverterIndex
+
+/*
+ *  End of File
+ */